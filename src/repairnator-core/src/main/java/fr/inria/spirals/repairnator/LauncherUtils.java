@@ -349,6 +349,132 @@ public class LauncherUtils {
         return arguments.getInt("threads");
     }
 
+    public static FlaggedOption defineArgMavenDaemon() {
+        FlaggedOption opt = new FlaggedOption("mavenDaemon");
+        opt.setLongFlag("mavenDaemon");
+        opt.setStringParser(JSAP.STRING_PARSER);
+        opt.setHelp("Specify the path of a Maven Daemon (mvnd) executable to run the Maven goals in warm resident JVMs. If not given, a new Maven JVM is forked for each goal.");
+        return opt;
+    }
+
+    public static String getArgMavenDaemon(JSAPResult arguments) {
+        return arguments.getString("mavenDaemon");
+    }
+
+    public static FlaggedOption defineArgSharedMavenRepository() {
+        FlaggedOption opt = new FlaggedOption("sharedMavenRepository");
+        opt.setLongFlag("sharedMavenRepository");
+        opt.setStringParser(JSAP.STRING_PARSER);
+        opt.setHelp("Specify the path of a Maven repository shared between the pipelines of the host. If not given, each pipeline downloads all its dependencies.");
+        return opt;
+    }
+
+    public static String getArgSharedMavenRepository(JSAPResult arguments) {
+        return arguments.getString("sharedMavenRepository");
+    }
+
+    public static FlaggedOption defineArgSharedMavenRepositoryMaxSize() {
+        FlaggedOption opt = new FlaggedOption("sharedMavenRepositoryMaxSize");
+        opt.setLongFlag("sharedMavenRepositoryMaxSize");
+        opt.setStringParser(JSAP.LONG_PARSER);
+        opt.setDefault("0");
+        opt.setHelp("Specify the maximum size (in MB) of the shared Maven repository before evicting the least recently used artifacts. 0 means no limit.");
+        return opt;
+    }
+
+    public static long getArgSharedMavenRepositoryMaxSize(JSAPResult arguments) {
+        return arguments.getLong("sharedMavenRepositoryMaxSize");
+    }
+
+    public static FlaggedOption defineArgPipelineStepThreads() {
+        FlaggedOption opt = new FlaggedOption("stepThreads");
+        opt.setLongFlag("stepThreads");
+        opt.setStringParser(JSAP.INTEGER_PARSER);
+        opt.setDefault("1");
+        opt.setHelp("Specify the number of threads used to run the independent steps of the pipeline at the same time.");
+        return opt;
+    }
+
+    public static int getArgPipelineStepThreads(JSAPResult arguments) {
+        return arguments.getInt("stepThreads");
+    }
+
+    public static Switch defineArgCombineBuildAndTest() {
+        Switch sw = new Switch("combineBuildAndTest");
+        sw.setLongFlag("combineBuildAndTest");
+        sw.setDefault("false");
+        sw.setHelp("Build and test the project with a single Maven invocation instead of two.");
+        return sw;
+    }
+
+    public static boolean getArgCombineBuildAndTest(JSAPResult arguments) {
+        return arguments.getBoolean("combineBuildAndTest");
+    }
+
+    public static FlaggedOption defineArgRepairToolsThreads() {
+        FlaggedOption opt = new FlaggedOption("repairToolsThreads");
+        opt.setLongFlag("repairToolsThreads");
+        opt.setStringParser(JSAP.INTEGER_PARSER);
+        opt.setDefault("1");
+        opt.setHelp("Specify the number of repair tools run concurrently, each one on its own copy of the repository.");
+        return opt;
+    }
+
+    public static int getArgRepairToolsThreads(JSAPResult arguments) {
+        return arguments.getInt("repairToolsThreads");
+    }
+
+    public static FlaggedOption defineArgRepairToolTimeout() {
+        FlaggedOption opt = new FlaggedOption("repairToolTimeout");
+        opt.setLongFlag("repairToolTimeout");
+        opt.setStringParser(JSAP.INTEGER_PARSER);
+        opt.setDefault("0");
+        opt.setHelp("Specify the time budget (in minutes) of each repair tool run concurrently. 0 means no limit.");
+        return opt;
+    }
+
+    public static int getArgRepairToolTimeout(JSAPResult arguments) {
+        return arguments.getInt("repairToolTimeout");
+    }
+
+    public static FlaggedOption defineArgRepairToolCpuTimeout() {
+        FlaggedOption opt = new FlaggedOption("repairToolCpuTimeout");
+        opt.setLongFlag("repairToolCpuTimeout");
+        opt.setStringParser(JSAP.INTEGER_PARSER);
+        opt.setDefault("0");
+        opt.setHelp("Specify the CPU time budget (in minutes) of each repair tool run concurrently, measured on the thread running the tool. 0 means no limit.");
+        return opt;
+    }
+
+    public static int getArgRepairToolCpuTimeout(JSAPResult arguments) {
+        return arguments.getInt("repairToolCpuTimeout");
+    }
+
+    public static FlaggedOption defineArgGitMirrorCache() {
+        FlaggedOption opt = new FlaggedOption("gitMirrorCache");
+        opt.setLongFlag("gitMirrorCache");
+        opt.setStringParser(JSAP.STRING_PARSER);
+        opt.setHelp("Specify the path of a directory containing git mirrors shared between the pipelines of the host. If not given, each pipeline clones the whole repository from GitHub.");
+        return opt;
+    }
+
+    public static String getArgGitMirrorCache(JSAPResult arguments) {
+        return arguments.getString("gitMirrorCache");
+    }
+
+    public static FlaggedOption defineArgGitMirrorCacheMaxSize() {
+        FlaggedOption opt = new FlaggedOption("gitMirrorCacheMaxSize");
+        opt.setLongFlag("gitMirrorCacheMaxSize");
+        opt.setStringParser(JSAP.LONG_PARSER);
+        opt.setDefault("0");
+        opt.setHelp("Specify the maximum size (in MB) of the git mirror cache before evicting the least recently used mirrors. 0 means no limit.");
+        return opt;
+    }
+
+    public static long getArgGitMirrorCacheMaxSize(JSAPResult arguments) {
+        return arguments.getLong("gitMirrorCacheMaxSize");
+    }
+
     public static FlaggedOption defineArgGlobalTimeout() {
         FlaggedOption opt = new FlaggedOption("globalTimeout");
         opt.setShortFlag('g');
@@ -402,6 +528,19 @@ public class LauncherUtils {
         return arguments.getString("ghOauth");
     }
 
+    public static FlaggedOption defineArgTravisToken() {
+        FlaggedOption opt = new FlaggedOption("travisToken");
+        opt.setLongFlag("travisToken");
+        opt.setStringParser(JSAP.STRING_PARSER);
+        opt.setDefault(System.getenv("TRAVIS_TOKEN"));
+        opt.setHelp("Specify the Travis API token used to read the logs of the jobs");
+        return opt;
+    }
+
+    public static String getArgTravisToken(JSAPResult arguments) {
+        return arguments.getString("travisToken");
+    }
+
     public static FlaggedOption defineArgGithubUserName() {
         FlaggedOption opt = new FlaggedOption("githubUserName");
         opt.setLongFlag("githubUserName");
@@ -0,0 +1,96 @@
+package fr.inria.spirals.repairnator.api;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe counters about the requests sent through a {@link TravisApiClient}.
+ * They are used to log the request rate and latency of the scanners.
+ */
+public class ApiClientMetrics {
+    private final long creationTime;
+    private final LongAdder nbRequests;
+    private final LongAdder nbErrors;
+    private final LongAdder totalLatencyInNanos;
+    private final AtomicLong maxLatencyInNanos;
+
+    // used to compute the rate since the last snapshot
+    private long lastSnapshotTime;
+    private long lastSnapshotNbRequests;
+
+    public ApiClientMetrics() {
+        this.creationTime = System.nanoTime();
+        this.nbRequests = new LongAdder();
+        this.nbErrors = new LongAdder();
+        this.totalLatencyInNanos = new LongAdder();
+        this.maxLatencyInNanos = new AtomicLong();
+        this.lastSnapshotTime = this.creationTime;
+    }
+
+    public void recordRequest(long latencyInNanos, boolean success) {
+        this.nbRequests.increment();
+        if (!success) {
+            this.nbErrors.increment();
+        }
+        this.totalLatencyInNanos.add(latencyInNanos);
+        this.maxLatencyInNanos.accumulateAndGet(latencyInNanos, Math::max);
+    }
+
+    public long getNbRequests() {
+        return this.nbRequests.sum();
+    }
+
+    public long getNbErrors() {
+        return this.nbErrors.sum();
+    }
+
+    public double getAverageLatencyInMillis() {
+        long requests = this.getNbRequests();
+        if (requests == 0) {
+            return 0;
+        }
+        return (double) TimeUnit.NANOSECONDS.toMicros(this.totalLatencyInNanos.sum()) / requests / 1000;
+    }
+
+    public double getMaxLatencyInMillis() {
+        return (double) TimeUnit.NANOSECONDS.toMicros(this.maxLatencyInNanos.get()) / 1000;
+    }
+
+    /**
+     * @return the average number of requests per second since the creation of the client.
+     */
+    public double getRequestsPerSecond() {
+        return this.computeRate(this.getNbRequests(), System.nanoTime() - this.creationTime);
+    }
+
+    /**
+     * @return the average number of requests per second since the last call of this method.
+     */
+    public synchronized double getRequestsPerSecondSinceLastSnapshot() {
+        long now = System.nanoTime();
+        long requests = this.getNbRequests();
+        double rate = this.computeRate(requests - this.lastSnapshotNbRequests, now - this.lastSnapshotTime);
+        this.lastSnapshotTime = now;
+        this.lastSnapshotNbRequests = requests;
+        return rate;
+    }
+
+    private double computeRate(long requests, long elapsedNanos) {
+        if (elapsedNanos <= 0) {
+            return 0;
+        }
+        return requests * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "ApiClientMetrics{" +
+                "requests=" + this.getNbRequests() +
+                ", errors=" + this.getNbErrors() +
+                ", requestsPerSecond=" + String.format("%.2f", this.getRequestsPerSecond()) +
+                ", averageLatency=" + String.format("%.1f", this.getAverageLatencyInMillis()) + "ms" +
+                ", maxLatency=" + String.format("%.1f", this.getMaxLatencyInMillis()) + "ms" +
+                '}';
+    }
+}
@@ -0,0 +1,134 @@
+package fr.inria.spirals.repairnator.api;
+
+import fr.inria.jtravis.JTravis;
+import org.kohsuke.github.GitHub;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * Long-lived client for the Travis and GitHub APIs.
+ *
+ * A single {@link JTravis} instance is kept for the whole process: its HTTP client
+ * keeps the connections alive, so we don't pay a new TLS handshake and a new client
+ * construction for each request. Requests sent through {@link #execute(Function)} are
+ * limited by a maximum number of concurrent calls and are measured in {@link ApiClientMetrics}.
+ *
+ * This class is thread-safe: it should be retrieved through {@link fr.inria.spirals.repairnator.config.RepairnatorConfig#getTravisApiClient()}.
+ */
+public class TravisApiClient {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TravisApiClient.class);
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 8;
+    // the endpoint used by JTravis by default
+    public static final String TRAVIS_API_ENDPOINT = "https://api.travis-ci.org";
+    private static final int TIMEOUT = 30 * 1000; // in milliseconds
+
+    private final String githubToken;
+    private final String travisToken;
+    private final int maxConcurrentRequests;
+    private final JTravis jTravis;
+    private final Semaphore permits;
+    private final ApiClientMetrics metrics;
+    private GitHub github;
+
+    public TravisApiClient(String githubToken, int maxConcurrentRequests) {
+        this(githubToken, null, maxConcurrentRequests);
+    }
+
+    public TravisApiClient(String githubToken, String travisToken, int maxConcurrentRequests) {
+        if (maxConcurrentRequests <= 0) {
+            throw new IllegalArgumentException("The maximum number of concurrent requests must be positive.");
+        }
+        this.githubToken = githubToken;
+        this.travisToken = travisToken;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.jTravis = JTravis.builder().setGithubToken(githubToken).build();
+        this.permits = new Semaphore(maxConcurrentRequests, true);
+        this.metrics = new ApiClientMetrics();
+    }
+
+    public String getGithubToken() {
+        return githubToken;
+    }
+
+    public String getTravisToken() {
+        return travisToken;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public ApiClientMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Direct access to the shared JTravis instance: calls made on it are not
+     * limited nor measured. Prefer {@link #execute(Function)} in hot loops.
+     */
+    public JTravis getJTravis() {
+        return jTravis;
+    }
+
+    /**
+     * The GitHub client is created once and then shared.
+     */
+    public synchronized GitHub getGithub() throws IOException {
+        if (this.github == null) {
+            this.github = this.jTravis.getGithub();
+        }
+        return this.github;
+    }
+
+    /**
+     * Execute a request on the shared JTravis instance, waiting if the maximum
+     * number of concurrent requests is reached.
+     */
+    public <T> T execute(Function<JTravis, T> request) {
+        try {
+            this.permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to send a Travis request.", e);
+        }
+
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = request.apply(this.jTravis);
+            success = true;
+            return result;
+        } finally {
+            this.metrics.recordRequest(System.nanoTime() - start, success);
+            this.permits.release();
+        }
+    }
+
+    /**
+     * Open a connection to a resource of the Travis API v3 which JTravis doesn't give access to, such as a part
+     * of the raw log of a job. The connection is authenticated with the Travis token, if any: like the calls
+     * made on {@link #getJTravis()}, it should be used in {@link #execute(Function)} to be limited and measured.
+     */
+    public HttpURLConnection openConnection(String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(TRAVIS_API_ENDPOINT + path).openConnection();
+        connection.setConnectTimeout(TIMEOUT);
+        connection.setReadTimeout(TIMEOUT);
+        connection.setRequestProperty("Travis-API-Version", "3");
+        connection.setRequestProperty("User-Agent", "Repairnator");
+        if (this.travisToken != null && !this.travisToken.isEmpty()) {
+            connection.setRequestProperty("Authorization", "token " + this.travisToken);
+        }
+        return connection;
+    }
+
+    public void logMetrics() {
+        LOGGER.info("Travis API client: " + this.metrics
+                + " (current rate: " + String.format("%.2f", this.metrics.getRequestsPerSecondSinceLastSnapshot()) + " req/s)");
+    }
+}
@@ -1,6 +1,7 @@
 package fr.inria.spirals.repairnator.config;
 
 import fr.inria.jtravis.JTravis;
+import fr.inria.spirals.repairnator.api.TravisApiClient;
 import fr.inria.spirals.repairnator.states.BearsMode;
 import fr.inria.spirals.repairnator.states.LauncherMode;
 import org.apache.commons.lang3.StringUtils;
@@ -12,12 +13,14 @@ import java.time.Duration;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Supplier;
 
 /**
  * Created by urli on 08/03/2017.
  */
-public class RepairnatorConfig {
+public class RepairnatorConfig implements Cloneable {
     public enum PIPELINE_MODE {
         DOCKER("fr.inria.spirals.repairnator.realtime.DockerPipelineRunner"),
         KUBERNETES("fr.inria.spirals.repairnator.realtime.ActiveMQPipelineRunner"),
@@ -88,6 +91,8 @@ public class RepairnatorConfig {
     private boolean createPR;
     private boolean debug;
     private boolean noTravisRepair;
+    private int travisMaxConcurrentRequests = TravisApiClient.DEFAULT_MAX_CONCURRENT_REQUESTS;
+    private TravisApiClient travisApiClient;
 
     // Scanner
     private Date lookFromDate;
@@ -95,6 +100,7 @@ public class RepairnatorConfig {
     private BearsMode bearsMode = BearsMode.BOTH;
     private boolean bearsDelimiter;
     private String activeMQListenQueueName;
+    private int listenerWorkers = 1;
 
     // Pipeline
     private int buildId;
@@ -102,6 +108,7 @@ public class RepairnatorConfig {
     private String z3solverPath;
     private String workspacePath;
     private String githubToken;
+    private String travisToken;
     private String projectsToIgnoreFilePath;
     private Set<String> repairTools;
     private String githubUserName;
@@ -112,6 +119,16 @@ public class RepairnatorConfig {
     private String gitBranch;
     private String gitCommitHash;
     private String mavenHome;
+    private String mavenDaemonExecutable;
+    private String sharedMavenRepositoryPath;
+    private long sharedMavenRepositoryMaxSize; // in MB, 0 means unlimited
+    private String gitMirrorCachePath;
+    private int repairToolsThreads = 1;
+    private int pipelineStepThreads = 1;
+    private boolean combineBuildAndTest;
+    private int repairToolTimeout; // in minutes, 0 means no timeout
+    private int repairToolCpuTimeout; // in minutes of CPU time, 0 means no timeout
+    private long gitMirrorCacheMaxSize; // in MB, 0 means unlimited
 
     private String gitRepositoryUrl;
     private String gitRepositoryBranch;
@@ -137,10 +154,14 @@ public class RepairnatorConfig {
     private String logDirectory;
     private int nbThreads = 1; // safe default value
     private int globalTimeout;
+    private int warmContainers;
+    private int buildsPerContainer = 10;
 
     // Realtime
     private File whiteList;
     private File blackList;
+    private File qualificationStore;
+    private File sweeperCheckpoint;
     private int jobSleepTime;
     private int buildSleepTime;
     private int maxInspectedBuilds;
@@ -170,6 +191,9 @@ public class RepairnatorConfig {
 
     private static RepairnatorConfig instance;
 
+    // the config of the job run by the current thread (and the threads it creates), if any
+    private static final InheritableThreadLocal<RepairnatorConfig> jobInstance = new InheritableThreadLocal<>();
+
     private RepairnatorConfig() {
         this.repairTools = new HashSet<>();
     }
@@ -185,6 +209,10 @@ public class RepairnatorConfig {
     }
 
     public static RepairnatorConfig getInstance() {
+        RepairnatorConfig jobConfig = jobInstance.get();
+        if (jobConfig != null) {
+            return jobConfig;
+        }
         if (instance == null) {
             instance = new RepairnatorConfig();
         }
@@ -247,6 +275,14 @@ public class RepairnatorConfig {
         return this.activeMQListenQueueName;
     }
 
+    public int getListenerWorkers() {
+        return listenerWorkers;
+    }
+
+    public void setListenerWorkers(int listenerWorkers) {
+        this.listenerWorkers = listenerWorkers;
+    }
+
     public void setActiveMQUsername(String activeMQUsername) {
         this.activeMQUsername = activeMQUsername;
     }
@@ -455,6 +491,14 @@ public class RepairnatorConfig {
         this.githubToken = githubToken;
     }
 
+    public String getTravisToken() {
+        return travisToken;
+    }
+
+    public void setTravisToken(String travisToken) {
+        this.travisToken = travisToken;
+    }
+
     public String getProjectsToIgnoreFilePath() {
         return projectsToIgnoreFilePath;
     }
@@ -527,6 +571,22 @@ public class RepairnatorConfig {
         this.globalTimeout = globalTimeout;
     }
 
+    public int getWarmContainers() {
+        return warmContainers;
+    }
+
+    public void setWarmContainers(int warmContainers) {
+        this.warmContainers = warmContainers;
+    }
+
+    public int getBuildsPerContainer() {
+        return buildsPerContainer;
+    }
+
+    public void setBuildsPerContainer(int buildsPerContainer) {
+        this.buildsPerContainer = buildsPerContainer;
+    }
+
     public File getWhiteList() {
         return whiteList;
     }
@@ -543,6 +603,22 @@ public class RepairnatorConfig {
         this.blackList = blackList;
     }
 
+    public File getQualificationStore() {
+        return qualificationStore;
+    }
+
+    public void setQualificationStore(File qualificationStore) {
+        this.qualificationStore = qualificationStore;
+    }
+
+    public File getSweeperCheckpoint() {
+        return sweeperCheckpoint;
+    }
+
+    public void setSweeperCheckpoint(File sweeperCheckpoint) {
+        this.sweeperCheckpoint = sweeperCheckpoint;
+    }
+
     public int getJobSleepTime() {
         return jobSleepTime;
     }
@@ -603,12 +679,82 @@ public class RepairnatorConfig {
         RepairnatorConfig.instance = instance;
     }
 
+    /**
+     * Use the given config, instead of the shared instance, in the current thread and in the threads it creates,
+     * until {@link #clearJobInstance()} is called. This allows to run several jobs with their own config in the same JVM.
+     */
+    public static void setJobInstance(RepairnatorConfig jobConfig) {
+        jobInstance.set(jobConfig);
+    }
+
+    public static void clearJobInstance() {
+        jobInstance.remove();
+    }
+
+    /**
+     * Create an object shared by the jobs with the shared instance, even when called from a job: the threads it
+     * creates must not inherit the config of the job which happened to create it, as they outlive this job.
+     */
+    public static <T> T createWithSharedInstance(Supplier<T> supplier) {
+        RepairnatorConfig jobConfig = jobInstance.get();
+        jobInstance.remove();
+        try {
+            return supplier.get();
+        } finally {
+            if (jobConfig != null) {
+                jobInstance.set(jobConfig);
+            }
+        }
+    }
+
+    /**
+     * @return a copy of this config, which can be changed without changing this one
+     */
+    public RepairnatorConfig copy() {
+        try {
+            RepairnatorConfig copy = (RepairnatorConfig) super.clone();
+            // the mutable values are copied: the Travis client is the only shared one
+            copy.repairTools = (this.repairTools == null) ? null : new HashSet<>(this.repairTools);
+            copy.notifyTo = (this.notifyTo == null) ? null : this.notifyTo.clone();
+            copy.notifySummary = (this.notifySummary == null) ? null : this.notifySummary.clone();
+            copy.experimentalPluginRepoList = (this.experimentalPluginRepoList == null) ? null : this.experimentalPluginRepoList.clone();
+            copy.sonarRules = (this.sonarRules == null) ? null : this.sonarRules.clone();
+            copy.lookFromDate = (this.lookFromDate == null) ? null : new Date(this.lookFromDate.getTime());
+            copy.lookToDate = (this.lookToDate == null) ? null : new Date(this.lookToDate.getTime());
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     public GitHub getGithub() throws IOException {
-        return this.getJTravis().getGithub();
+        return this.getTravisApiClient().getGithub();
     }
 
     public JTravis getJTravis() {
-        return JTravis.builder().setGithubToken(this.getGithubToken()).build();
+        return this.getTravisApiClient().getJTravis();
+    }
+
+    /**
+     * The client is shared by all components: it is only recreated if the
+     * tokens or the maximum number of concurrent requests changed.
+     */
+    public synchronized TravisApiClient getTravisApiClient() {
+        if (this.travisApiClient == null
+                || !Objects.equals(this.travisApiClient.getGithubToken(), this.getGithubToken())
+                || !Objects.equals(this.travisApiClient.getTravisToken(), this.getTravisToken())
+                || this.travisApiClient.getMaxConcurrentRequests() != this.travisMaxConcurrentRequests) {
+            this.travisApiClient = new TravisApiClient(this.getGithubToken(), this.getTravisToken(), this.travisMaxConcurrentRequests);
+        }
+        return this.travisApiClient;
+    }
+
+    public int getTravisMaxConcurrentRequests() {
+        return travisMaxConcurrentRequests;
+    }
+
+    public void setTravisMaxConcurrentRequests(int travisMaxConcurrentRequests) {
+        this.travisMaxConcurrentRequests = travisMaxConcurrentRequests;
     }
 
     public BearsMode getBearsMode() {
@@ -684,6 +830,86 @@ public class RepairnatorConfig {
         return this.mavenHome;
     }
 
+    public String getMavenDaemonExecutable() {
+        return mavenDaemonExecutable;
+    }
+
+    public void setMavenDaemonExecutable(String mavenDaemonExecutable) {
+        this.mavenDaemonExecutable = mavenDaemonExecutable;
+    }
+
+    public String getSharedMavenRepositoryPath() {
+        return sharedMavenRepositoryPath;
+    }
+
+    public void setSharedMavenRepositoryPath(String sharedMavenRepositoryPath) {
+        this.sharedMavenRepositoryPath = sharedMavenRepositoryPath;
+    }
+
+    public long getSharedMavenRepositoryMaxSize() {
+        return sharedMavenRepositoryMaxSize;
+    }
+
+    public void setSharedMavenRepositoryMaxSize(long sharedMavenRepositoryMaxSize) {
+        this.sharedMavenRepositoryMaxSize = sharedMavenRepositoryMaxSize;
+    }
+
+    public int getPipelineStepThreads() {
+        return pipelineStepThreads;
+    }
+
+    public void setPipelineStepThreads(int pipelineStepThreads) {
+        this.pipelineStepThreads = pipelineStepThreads;
+    }
+
+    public boolean isCombineBuildAndTest() {
+        return combineBuildAndTest;
+    }
+
+    public void setCombineBuildAndTest(boolean combineBuildAndTest) {
+        this.combineBuildAndTest = combineBuildAndTest;
+    }
+
+    public int getRepairToolsThreads() {
+        return repairToolsThreads;
+    }
+
+    public void setRepairToolsThreads(int repairToolsThreads) {
+        this.repairToolsThreads = repairToolsThreads;
+    }
+
+    public int getRepairToolTimeout() {
+        return repairToolTimeout;
+    }
+
+    public void setRepairToolTimeout(int repairToolTimeout) {
+        this.repairToolTimeout = repairToolTimeout;
+    }
+
+    public int getRepairToolCpuTimeout() {
+        return repairToolCpuTimeout;
+    }
+
+    public void setRepairToolCpuTimeout(int repairToolCpuTimeout) {
+        this.repairToolCpuTimeout = repairToolCpuTimeout;
+    }
+
+    public String getGitMirrorCachePath() {
+        return gitMirrorCachePath;
+    }
+
+    public void setGitMirrorCachePath(String gitMirrorCachePath) {
+        this.gitMirrorCachePath = gitMirrorCachePath;
+    }
+
+    public long getGitMirrorCacheMaxSize() {
+        return gitMirrorCacheMaxSize;
+    }
+
+    public void setGitMirrorCacheMaxSize(long gitMirrorCacheMaxSize) {
+        this.gitMirrorCacheMaxSize = gitMirrorCacheMaxSize;
+    }
+
     public boolean isCreatePR() {
         return createPR;
     }
@@ -809,14 +1035,19 @@ public class RepairnatorConfig {
                 ", z3solverPath='" + z3solverPath + '\'' +
                 ", workspacePath='" + workspacePath + '\'' +
                 ", githubToken='" + ghToken + '\'' +
+                ", travisToken='" + ((travisToken != null && !travisToken.isEmpty()) ? "*****" : "") + '\'' +
                 ", dockerImageName='" + dockerImageName + '\'' +
                 ", skipDelete=" + skipDelete +
                 ", createOutputDir=" + createOutputDir +
                 ", logDirectory='" + logDirectory + '\'' +
                 ", nbThreads=" + nbThreads +
                 ", globalTimeout=" + globalTimeout +
+                ", warmContainers=" + warmContainers +
+                ", buildsPerContainer=" + buildsPerContainer +
                 ", whiteList=" + whiteList +
                 ", blackList=" + blackList +
+                ", qualificationStore=" + qualificationStore +
+                ", sweeperCheckpoint=" + sweeperCheckpoint +
                 ", jobSleepTime=" + jobSleepTime +
                 ", buildSleepTime=" + buildSleepTime +
                 ", maxInspectedBuilds=" + maxInspectedBuilds +
@@ -831,12 +1062,24 @@ public class RepairnatorConfig {
                 ", githubUserEmail=" + githubUserEmail +
                 ", pipelineMode=" + pipelineMode +
                 ", listenerMode=" + listenerMode +
+                ", listenerWorkers=" + listenerWorkers +
                 ", activeMQUrl=" + activeMQUrl +
                 ", activeMQSubmitQueueName=" + activeMQSubmitQueueName +
                 ", gitUrl=" + gitUrl +
                 ", gitBranch=" + gitBranch +
                 ", gitCommitHash=" + gitCommitHash +
                 ", noTravisRepair=" + noTravisRepair +
+                ", mavenDaemonExecutable=" + mavenDaemonExecutable +
+                ", sharedMavenRepositoryPath=" + sharedMavenRepositoryPath +
+                ", sharedMavenRepositoryMaxSize=" + sharedMavenRepositoryMaxSize +
+                ", gitMirrorCachePath=" + gitMirrorCachePath +
+                ", repairToolsThreads=" + repairToolsThreads +
+                ", pipelineStepThreads=" + pipelineStepThreads +
+                ", combineBuildAndTest=" + combineBuildAndTest +
+                ", repairToolTimeout=" + repairToolTimeout +
+                ", repairToolCpuTimeout=" + repairToolCpuTimeout +
+                ", gitMirrorCacheMaxSize=" + gitMirrorCacheMaxSize +
+                ", travisMaxConcurrentRequests=" + travisMaxConcurrentRequests +
                 ", rankPatches=" + patchRankingMode +
                 '}';
     }
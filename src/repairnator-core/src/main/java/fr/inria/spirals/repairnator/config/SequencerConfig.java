@@ -16,6 +16,10 @@ public final class SequencerConfig {
     public final int threads;
     public final int beamSize;
     public final int timeout;
+    public final int validationThreads;
+    public final int maxValidPatches;
+    public final int batchSize;
+    public final String exchangePath;
     public final String collectorPath;
     public final int contextSize;
     public final RAW_URL_SOURCE rawURLSource;
@@ -28,6 +32,16 @@ public final class SequencerConfig {
         this.threads = Integer.parseInt(getEnvOrDefault("SEQUENCER_THREADS", "4"));
         this.beamSize = Integer.parseInt(getEnvOrDefault("SEQUENCER_BEAM_SIZE", "50"));
         this.timeout = Integer.parseInt(getEnvOrDefault("SEQUENCER_TIMEOUT", "120"));
+        // number of patches built and tested at the same time, each one in its own copy of the repository
+        this.validationThreads = Integer.parseInt(getEnvOrDefault("SEQUENCER_VALIDATION_THREADS", "1"));
+        // the validation stops as soon as this number of patches passed, 0 means all the patches are validated
+        this.maxValidPatches = Integer.parseInt(getEnvOrDefault("SEQUENCER_MAX_VALID_PATCHES", "0"));
+        // number of predictions coalesced in a single request to the sequencer container
+        this.batchSize = Math.max(1, Integer.parseInt(getEnvOrDefault("SEQUENCER_BATCH_SIZE", "2")));
+        // directory shared with the sequencer container: it must be in a docker volume if repairnator runs in docker,
+        // and it must not be in the workspace, which is deleted after each build
+        this.exchangePath = getEnvOrDefault("SEQUENCER_EXCHANGE_PATH",
+                System.getProperty("user.home") + "/sequencer-exchange");
         this.collectorPath = getEnvOrDefault("SEQUENCER_COLLECTOR_PATH",
                 System.getProperty("user.home") + "/continuous-learning-data");
         this.contextSize = Integer.parseInt(getEnvOrDefault("SEQUENCER_CONTEXT_SIZE", "3"));
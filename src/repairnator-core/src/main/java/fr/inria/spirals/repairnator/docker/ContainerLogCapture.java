@@ -0,0 +1,141 @@
+package fr.inria.spirals.repairnator.docker;
+
+import com.spotify.docker.client.LogStream;
+import com.spotify.docker.client.messages.LogMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * This class captures the output of a container while it runs: the output is written
+ * in a compressed file, and only its tail is kept in memory, for diagnostics.
+ * The number of bytes captured and the date of the last output can be read at any time to follow the progress.
+ */
+public class ContainerLogCapture implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContainerLogCapture.class);
+    public static final int DEFAULT_TAIL_SIZE = 64 * 1024; // in bytes
+
+    private File file;
+    private OutputStream output;
+    private final byte[] tail;
+    private int tailStart;
+    private int tailLength;
+    private volatile long nbBytes;
+    private volatile long lastUpdate;
+
+    /**
+     * @param file the gzip file where the output is written, or null to only keep the tail
+     * @param tailSize the number of bytes of the end of the output kept in memory
+     */
+    public ContainerLogCapture(File file, int tailSize) {
+        this.tail = new byte[Math.max(1, tailSize)];
+        this.lastUpdate = System.currentTimeMillis();
+        if (file != null) {
+            try {
+                if (file.getParentFile() != null) {
+                    file.getParentFile().mkdirs();
+                }
+                this.output = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+                this.file = file;
+            } catch (IOException e) {
+                LOGGER.warn("Error while creating the log file " + file + ": only the tail of the output is kept.", e);
+            }
+        }
+    }
+
+    /**
+     * Capture the given stream until its end, i.e. until the container or the exec ends when the logs are followed.
+     */
+    public void capture(LogStream logStream) {
+        while (logStream.hasNext()) {
+            LogMessage message = logStream.next();
+            this.write(message.content());
+        }
+    }
+
+    public void write(ByteBuffer content) {
+        byte[] bytes = new byte[content.remaining()];
+        content.get(bytes);
+        this.write(bytes, 0, bytes.length);
+    }
+
+    public synchronized void write(byte[] bytes, int offset, int length) {
+        if (this.output != null) {
+            try {
+                this.output.write(bytes, offset, length);
+            } catch (IOException e) {
+                LOGGER.warn("Error while writing the log file " + this.file + ": only the tail of the output is kept.", e);
+                this.closeOutput();
+                this.file = null;
+            }
+        }
+
+        // only the last bytes are kept in the circular tail
+        int start = offset + Math.max(0, length - this.tail.length);
+        for (int i = start; i < offset + length; i++) {
+            this.tail[(this.tailStart + this.tailLength) % this.tail.length] = bytes[i];
+            if (this.tailLength < this.tail.length) {
+                this.tailLength++;
+            } else {
+                this.tailStart = (this.tailStart + 1) % this.tail.length;
+            }
+        }
+
+        this.nbBytes += length;
+        this.lastUpdate = System.currentTimeMillis();
+    }
+
+    /**
+     * @return the end of the output captured so far
+     */
+    public synchronized String getTail() {
+        byte[] result = new byte[this.tailLength];
+        for (int i = 0; i < this.tailLength; i++) {
+            result[i] = this.tail[(this.tailStart + i) % this.tail.length];
+        }
+        return new String(result, StandardCharsets.UTF_8);
+    }
+
+    public long getNbBytes() {
+        return this.nbBytes;
+    }
+
+    /**
+     * @return the date of the last output, in milliseconds
+     */
+    public long getLastUpdate() {
+        return this.lastUpdate;
+    }
+
+    /**
+     * @return the file containing the whole output, or null if only the tail is kept
+     */
+    public synchronized File getFile() {
+        return this.file;
+    }
+
+    @Override
+    public synchronized void close() {
+        this.closeOutput();
+    }
+
+    private void closeOutput() {
+        if (this.output != null) {
+            try {
+                this.output.close();
+            } catch (IOException e) {
+                LOGGER.warn("Error while closing the log file " + this.file, e);
+            }
+            this.output = null;
+        }
+    }
+}
@@ -1,7 +1,12 @@
 package fr.inria.spirals.repairnator.dockerpool;
 
 import com.spotify.docker.client.DockerClient;
+import com.spotify.docker.client.exceptions.DockerException;
+import com.spotify.docker.client.messages.HostConfig;
+import com.spotify.docker.client.messages.Volume;
 import fr.inria.spirals.repairnator.InputBuildId;
+import fr.inria.spirals.repairnator.config.SequencerConfig;
+import fr.inria.spirals.repairnator.docker.ContainerLogCapture;
 import fr.inria.spirals.repairnator.docker.DockerHelper;
 import fr.inria.spirals.repairnator.dockerpool.serializer.TreatedBuildTracking;
 import fr.inria.spirals.repairnator.serializer.engines.SerializerEngine;
@@ -12,7 +17,12 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class defines the main property to manage a pool of docker containers in Repairnator.
@@ -23,6 +33,7 @@ public class DockerPoolManager {
     private static int counter = 0;
     private static final String DEFAULT_RUN_ID = "RUN-"+(counter++);
     private static final String DEFAULT_OUTPUT_DIR = "/var/log/repairnator";
+    private static final long STALLED_CONTAINER_DELAY = 10 * 60 * 1000; // in milliseconds
 
     // we need to be able to manage concurrency on this one
     protected List<RunnablePipelineContainer> submittedRunnablePipelineContainers = new CopyOnWriteArrayList<>();
@@ -30,17 +41,72 @@ public class DockerPoolManager {
     private String runId = DEFAULT_RUN_ID;
     private String dockerOutputDir = DEFAULT_OUTPUT_DIR;
     private List<SerializerEngine> engines = new ArrayList<>();
+    // the named volumes do not change during the run: they are inspected only once
+    private Map<String, Volume> volumes = new ConcurrentHashMap<>();
+    private PipelineContainerPool containerPool;
+    private ScheduledExecutorService watchdog;
 
     /**
      * Lazily initialize the docker client
      */
-    public DockerClient getDockerClient() {
+    public synchronized DockerClient getDockerClient() {
         if (this.docker == null) {
             this.docker = DockerHelper.initDockerClient();
         }
         return this.docker;
     }
 
+    /**
+     * @return the pool of warm pipeline containers, or null if a container is created for each build
+     */
+    public PipelineContainerPool getContainerPool() {
+        return this.containerPool;
+    }
+
+    public void setContainerPool(PipelineContainerPool containerPool) {
+        this.containerPool = containerPool;
+    }
+
+    /**
+     * Get the named volume, inspecting it only the first time.
+     */
+    public Volume getVolume(String name) throws DockerException, InterruptedException {
+        Volume volume = this.volumes.get(name);
+        if (volume == null) {
+            volume = this.getDockerClient().inspectVolume(name);
+            this.volumes.put(name, volume);
+        }
+        return volume;
+    }
+
+    /**
+     * The host config of the pipeline containers: the named volumes are used to avoid creating new unnamed volumes.
+     */
+    public HostConfig getPipelineHostConfig() throws DockerException, InterruptedException {
+        return HostConfig.builder()
+                .appendBinds(HostConfig.Bind
+                        .builder()
+                        .from("/var/run/docker.sock")
+                        .to("/var/run/docker.sock")
+                        .build())
+                .appendBinds(HostConfig.Bind
+                        .builder()
+                        .from(this.getVolume("repairnator_workspace"))
+                        .to("/root/workspace/")
+                        .build())
+                .appendBinds(HostConfig.Bind
+                        .builder()
+                        .from(this.getVolume("repairnator_logs"))
+                        .to("/var/log/")
+                        .build())
+                .appendBinds(HostConfig.Bind
+                        .builder()
+                        .from(this.getVolume("repairnator_ods_data"))
+                        .to(SequencerConfig.getInstance().ODSPath)
+                        .build())
+                .build();
+    }
+
     public void removeSubmittedRunnablePipelineContainer(RunnablePipelineContainer pipelineContainer) {
         this.submittedRunnablePipelineContainers.remove(pipelineContainer);
     }
@@ -78,22 +144,73 @@ public class DockerPoolManager {
         return runnablePipelineContainer;
     }
 
+    /**
+     * Start a thread killing the containers as soon as they reach their timeout,
+     * instead of waiting for the next submitted build.
+     */
+    public synchronized void startWatchdog(long period, TimeUnit unit) {
+        if (this.watchdog != null) {
+            return;
+        }
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "docker-pool-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.watchdog.scheduleAtFixedRate(() -> {
+            try {
+                this.cleanUpOlderContainers();
+                this.logProgress();
+            } catch (RuntimeException e) {
+                LOGGER.error("Error while cleaning docker containers", e);
+            }
+        }, period, period, unit);
+    }
+
+    public synchronized void stopWatchdog() {
+        if (this.watchdog != null) {
+            this.watchdog.shutdownNow();
+            this.watchdog = null;
+        }
+    }
+
+    /**
+     * Log the progress of the running containers, from the output they produced so far.
+     */
+    public void logProgress() {
+        long now = System.currentTimeMillis();
+        for (RunnablePipelineContainer runnablePipelineContainer : this.submittedRunnablePipelineContainers) {
+            ContainerLogCapture logCapture = runnablePipelineContainer.getLogCapture();
+            if (logCapture != null) {
+                long silence = now - logCapture.getLastUpdate();
+                String progress = "Build " + runnablePipelineContainer.getInputBuildId().getBuggyBuildId() + ": " + (logCapture.getNbBytes() / 1024)
+                        + " KB of output, the last one " + (silence / 1000) + " seconds ago.";
+                if (silence > STALLED_CONTAINER_DELAY) {
+                    LOGGER.info(progress + " The container seems stalled.");
+                } else {
+                    LOGGER.debug(progress);
+                }
+            }
+        }
+    }
+
     /**
      * We call this method to kill the containers which reaches the timeout
-     * FIXME: we should use a thread to inspect those containers and kill them like we do in RTScanner
      */
     public void cleanUpOlderContainers() {
-        LOGGER.info("Start cleaning docker containers...");
+        LOGGER.debug("Start cleaning docker containers...");
         Instant now = new Date().toInstant();
 
         int nbKilled = 0;
         for (RunnablePipelineContainer runnablePipelineContainer : this.submittedRunnablePipelineContainers) {
             if (runnablePipelineContainer.getLimitDateBeforeKilling() != null && runnablePipelineContainer.getLimitDateBeforeKilling().toInstant().isBefore(now)) {
-                runnablePipelineContainer.killDockerContainer(this.docker, true);
+                runnablePipelineContainer.killDockerContainer(this.getDockerClient(), true);
                 nbKilled++;
             }
         }
 
-        LOGGER.info("Number of killed docker containers: "+nbKilled);
+        if (nbKilled > 0) {
+            LOGGER.info("Number of killed docker containers: "+nbKilled);
+        }
     }
 }
@@ -0,0 +1,248 @@
+package fr.inria.spirals.repairnator.dockerpool;
+
+import com.spotify.docker.client.DockerClient;
+import com.spotify.docker.client.LogStream;
+import com.spotify.docker.client.exceptions.DockerException;
+import com.spotify.docker.client.messages.ContainerConfig;
+import com.spotify.docker.client.messages.ContainerInfo;
+import com.spotify.docker.client.messages.ExecCreation;
+import fr.inria.spirals.repairnator.config.RepairnatorConfig;
+import fr.inria.spirals.repairnator.utils.DateUtils;
+import fr.inria.spirals.repairnator.utils.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class keeps a pool of idle pipeline containers, created and started in advance.
+ *
+ * A warm container only waits: each build is run in it through a docker exec of the pipeline launcher,
+ * with the environment values of the build. A container runs at most buildsPerContainer builds, and is then
+ * removed and replaced by a new one. A container is removed as well after a build which did not end normally, and the
+ * work directories of the pipeline ({@link #WORK_DIRS}) are wiped before a container is given to another build.
+ */
+public class PipelineContainerPool {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PipelineContainerPool.class);
+    private static final String LAUNCHER_PATH = "/root/pipeline_launcher.sh";
+    static final String[] WORK_DIRS = { "/root/workspace", "/root/.m2", "/tmp" };
+
+    private final DockerPoolManager poolManager;
+    private final int size;
+    private final int buildsPerContainer;
+    private final BlockingDeque<WarmContainer> idleContainers = new LinkedBlockingDeque<>();
+    private final AtomicInteger pendingContainers = new AtomicInteger();
+    private final ExecutorService warmer;
+
+    public static class WarmContainer {
+        private final String id;
+        private final String imageId;
+        private int nbBuilds;
+
+        WarmContainer(String id, String imageId) {
+            this.id = id;
+            this.imageId = imageId;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public int getNbBuilds() {
+            return nbBuilds;
+        }
+    }
+
+    /**
+     * @param size the number of idle containers kept ready
+     * @param buildsPerContainer the number of builds run by a container before it is recycled
+     */
+    public PipelineContainerPool(DockerPoolManager poolManager, int size, int buildsPerContainer) {
+        this.poolManager = poolManager;
+        this.size = Math.max(1, size);
+        this.buildsPerContainer = Math.max(1, buildsPerContainer);
+        this.warmer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pipeline-container-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int getNbIdleContainers() {
+        return this.idleContainers.size();
+    }
+
+    /**
+     * Create in background the containers missing to have size idle containers of the given image.
+     */
+    public void warmUp(String imageId) {
+        int missing = this.size - this.idleContainers.size() - this.pendingContainers.get();
+        for (int i = 0; i < missing; i++) {
+            this.pendingContainers.incrementAndGet();
+            this.warmer.submit(() -> {
+                try {
+                    this.idleContainers.add(this.createContainer(imageId));
+                } catch (DockerException | InterruptedException e) {
+                    LOGGER.error("Error while creating a warm pipeline container", e);
+                } finally {
+                    this.pendingContainers.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    /**
+     * Take an idle container of the given image, or create one if none is ready.
+     */
+    public WarmContainer acquire(String imageId) throws DockerException, InterruptedException {
+        WarmContainer container;
+        while ((container = this.idleContainers.poll()) != null) {
+            if (container.imageId.equals(imageId) && this.isRunning(container)) {
+                break;
+            }
+            // the image has been refreshed, or the container died
+            this.removeContainer(container);
+        }
+        if (container == null) {
+            LOGGER.info("No warm pipeline container is ready: a new one is created.");
+            container = this.createContainer(imageId);
+        }
+        container.nbBuilds++;
+        this.warmUp(imageId);
+        return container;
+    }
+
+    /**
+     * Give back a container after a build: it is kept for another build once its work directories are wiped.
+     *
+     * @param reusable false if the build did not end normally: the container is then removed
+     */
+    public void release(WarmContainer container, boolean reusable) {
+        if (!reusable) {
+            LOGGER.info("The warm pipeline container " + container.id + " is removed after a build which did not end normally.");
+        } else if (container.nbBuilds >= this.buildsPerContainer || this.idleContainers.size() >= this.size) {
+            LOGGER.info("The warm pipeline container " + container.id + " is recycled after " + container.nbBuilds + " builds.");
+        } else if (this.wipeWorkDirs(container)) {
+            this.idleContainers.addFirst(container);
+            return;
+        }
+        this.removeContainer(container);
+        this.warmUp(container.imageId);
+    }
+
+    /**
+     * Remove all the idle containers.
+     */
+    public void close() {
+        this.warmer.shutdownNow();
+        WarmContainer container;
+        while ((container = this.idleContainers.poll()) != null) {
+            this.removeContainer(container);
+        }
+    }
+
+    /**
+     * @return the command running the pipeline in a warm container, with the given environment values
+     */
+    static String[] getLaunchCommand(List<String> envValues) {
+        StringBuilder command = new StringBuilder();
+        for (String envValue : envValues) {
+            int index = envValue.indexOf('=');
+            command.append(envValue, 0, index + 1)
+                    .append("'").append(envValue.substring(index + 1).replace("'", "'\\''")).append("' ");
+        }
+        command.append(LAUNCHER_PATH);
+        return new String[] { "bash", "-c", command.toString() };
+    }
+
+    /**
+     * @return the command emptying the work directories of a container, failing if any file cannot be removed
+     */
+    static String[] getWipeCommand() {
+        StringBuilder command = new StringBuilder();
+        command.append("for dir in");
+        for (String workDir : WORK_DIRS) {
+            command.append(" ").append(workDir);
+        }
+        // the directories are kept, since they might be volumes
+        command.append("; do if [ -d \"$dir\" ]; then find \"$dir\" -mindepth 1 -delete || exit 1; fi; done");
+        return new String[] { "bash", "-c", command.toString() };
+    }
+
+    /**
+     * Remove the files left by the previous build: its repository, its maven artifacts and its temporary files.
+     *
+     * @return false if the container cannot be cleaned, it must then be removed
+     */
+    private boolean wipeWorkDirs(WarmContainer container) {
+        DockerClient docker = this.poolManager.getDockerClient();
+        try {
+            ExecCreation exec = docker.execCreate(container.id, getWipeCommand(),
+                    DockerClient.ExecCreateParam.attachStdout(), DockerClient.ExecCreateParam.attachStderr());
+            String output;
+            try (LogStream logStream = docker.execStart(exec.id())) {
+                output = logStream.readFully();
+            }
+            Long exitCode = docker.execInspect(exec.id()).exitCode();
+            if (exitCode != null && exitCode == 0) {
+                return true;
+            }
+            LOGGER.warn("The work directories of the warm pipeline container " + container.id + " cannot be wiped: " + output);
+        } catch (DockerException e) {
+            LOGGER.warn("Error while wiping the warm pipeline container " + container.id + ": " + e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    private WarmContainer createContainer(String imageId) throws DockerException, InterruptedException {
+        DockerClient docker = this.poolManager.getDockerClient();
+        String containerName = "warm_pipeline" + DateUtils.formatFilenameDate(new Date());
+
+        // the container only waits for the builds given through docker exec
+        ContainerConfig containerConfig = ContainerConfig.builder()
+                .image(imageId)
+                .env(RunnablePipelineContainer.getPipelineEnvValues(RepairnatorConfig.getInstance()))
+                .hostname(Utils.getHostname())
+                .hostConfig(this.poolManager.getPipelineHostConfig())
+                .labels(Collections.singletonMap("name", containerName))
+                .entrypoint("bash", "-c", "while true; do sleep 3600; done")
+                .build();
+
+        String containerId = docker.createContainer(containerConfig).id();
+        docker.startContainer(containerId);
+        LOGGER.info("Warm pipeline container started: " + containerId);
+        return new WarmContainer(containerId, imageId);
+    }
+
+    private boolean isRunning(WarmContainer container) {
+        try {
+            ContainerInfo info = this.poolManager.getDockerClient().inspectContainer(container.id);
+            return Boolean.TRUE.equals(info.state().running());
+        } catch (DockerException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void removeContainer(WarmContainer container) {
+        try {
+            this.poolManager.getDockerClient().removeContainer(container.id,
+                    DockerClient.RemoveContainerParam.forceKill(), DockerClient.RemoveContainerParam.removeVolumes());
+        } catch (DockerException e) {
+            LOGGER.warn("Error while removing the warm pipeline container " + container.id + ": " + e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
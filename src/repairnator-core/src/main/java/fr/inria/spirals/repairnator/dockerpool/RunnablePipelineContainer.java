@@ -1,10 +1,12 @@
 package fr.inria.spirals.repairnator.dockerpool;
 
 import com.spotify.docker.client.DockerClient;
+import com.spotify.docker.client.LogStream;
 import com.spotify.docker.client.exceptions.DockerException;
 import com.spotify.docker.client.messages.*;
 import fr.inria.spirals.repairnator.InputBuildId;
 import fr.inria.spirals.repairnator.config.SequencerConfig;
+import fr.inria.spirals.repairnator.docker.ContainerLogCapture;
 import fr.inria.spirals.repairnator.utils.DateUtils;
 import fr.inria.spirals.repairnator.utils.Utils;
 import fr.inria.spirals.repairnator.config.RepairnatorConfig;
@@ -18,9 +20,11 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * This class allows the creation of a docker container and run it.
+ * If the manager has a pool of warm containers, the build is run in one of them instead.
  */
 public class RunnablePipelineContainer implements Runnable {
 
@@ -36,7 +40,12 @@ public class RunnablePipelineContainer implements Runnable {
     private String containerId;
     private String containerName;
     private List<String> envValues;
+    private List<String> buildEnvValues;
     private Set<String> volumes;
+    private volatile ContainerLogCapture logCapture;
+    // set before the container is killed: the status of the build is then serialized by the kill only
+    private final AtomicBoolean killed = new AtomicBoolean();
+    private volatile boolean inWarmContainer;
 
     public ContainerExit getExitStatus() {
         return exitStatus;
@@ -62,56 +71,73 @@ public class RunnablePipelineContainer implements Runnable {
         this.treatedBuildTracking = treatedBuildTracking;
 
         this.containerName = "docker_pipeline"+ DateUtils.formatFilenameDate(new Date())+"_"+this.inputBuildId.getBuggyBuildId()+"_"+StringUtils.join(this.repairnatorConfig.getRepairTools(),",");
-        String output = (this.repairnatorConfig.isCreateOutputDir()) ? "/var/log/"+this.repairnatorConfig.getRunId() : "/var/log";
 
-        this.envValues = new ArrayList<>();
+        // the values depending on the build, the other ones only depend on the config
+        this.buildEnvValues = new ArrayList<>();
+        this.buildEnvValues.add("BUILD_ID="+this.inputBuildId.getBuggyBuildId());
+        if (this.repairnatorConfig.getLauncherMode() == LauncherMode.BEARS) {
+            this.buildEnvValues.add("NEXT_BUILD_ID="+this.inputBuildId.getPatchedBuildId());
+        }
+        this.buildEnvValues.add("LOG_FILENAME="+this.containerName);
+
+        this.envValues = new ArrayList<>(this.buildEnvValues);
+        this.envValues.addAll(getPipelineEnvValues(this.repairnatorConfig));
+    }
+
+    /**
+     * @return the environment values of a pipeline container which do not depend on the build
+     */
+    public static List<String> getPipelineEnvValues(RepairnatorConfig repairnatorConfig) {
+        String output = (repairnatorConfig.isCreateOutputDir()) ? "/var/log/"+repairnatorConfig.getRunId() : "/var/log";
+
+        List<String> envValues = new ArrayList<>();
 
         // depending on the mode (BEARS or repairnator)
         // we give different arguments
-        this.envValues.add("BUILD_ID="+this.inputBuildId.getBuggyBuildId());
-        if (this.repairnatorConfig.getLauncherMode() == LauncherMode.BEARS) {
-            this.envValues.add("NEXT_BUILD_ID="+this.inputBuildId.getPatchedBuildId());
-            if (this.repairnatorConfig.isDebug()) {
-                this.envValues.add("LOG_LEVEL=DEBUG");
+        if (repairnatorConfig.getLauncherMode() == LauncherMode.BEARS) {
+            if (repairnatorConfig.isDebug()) {
+                envValues.add("LOG_LEVEL=DEBUG");
             } else {
-                this.envValues.add("LOG_LEVEL=INFO");
+                envValues.add("LOG_LEVEL=INFO");
             }
         }
-        this.envValues.add("LOG_FILENAME="+this.containerName);
-        this.envValues.add("GITHUB_OAUTH="+RepairnatorConfig.getInstance().getGithubToken());
-        this.envValues.add("RUN_ID="+this.repairnatorConfig.getRunId());
-        this.envValues.add("REPAIR_MODE="+this.repairnatorConfig.getLauncherMode().name().toLowerCase());
-        this.envValues.add("PUSH_URL="+this.repairnatorConfig.getPushRemoteRepo());
-        this.envValues.add("MONGODB_HOST="+this.repairnatorConfig.getMongodbHost());
-        this.envValues.add("MONGODB_NAME="+this.repairnatorConfig.getMongodbName());
-        this.envValues.add("SMTP_SERVER="+this.repairnatorConfig.getSmtpServer());
-        this.envValues.add("SMTP_PORT="+Integer.toString(this.repairnatorConfig.getSmtpPort()));
-        this.envValues.add("SMTP_USERNAME="+this.repairnatorConfig.getSmtpUsername());
-        this.envValues.add("SMTP_PASSWORD="+this.repairnatorConfig.getSmtpPassword());
-        this.envValues.add("GITHUB_USERNAME="+this.repairnatorConfig.getGithubUserName());
-        this.envValues.add("GITHUB_USEREMAIL="+this.repairnatorConfig.getGithubUserEmail());
-        this.envValues.add("NOTIFY_TO="+ StringUtils.join(this.repairnatorConfig.getNotifyTo(),','));
-        this.envValues.add("OUTPUT="+output);
-        if (this.repairnatorConfig.isCreatePR()) {
-            this.envValues.add("CREATE_PR=1");
+        envValues.add("GITHUB_OAUTH="+repairnatorConfig.getGithubToken());
+        envValues.add("RUN_ID="+repairnatorConfig.getRunId());
+        envValues.add("REPAIR_MODE="+repairnatorConfig.getLauncherMode().name().toLowerCase());
+        envValues.add("PUSH_URL="+repairnatorConfig.getPushRemoteRepo());
+        envValues.add("MONGODB_HOST="+repairnatorConfig.getMongodbHost());
+        envValues.add("MONGODB_NAME="+repairnatorConfig.getMongodbName());
+        envValues.add("SMTP_SERVER="+repairnatorConfig.getSmtpServer());
+        envValues.add("SMTP_PORT="+Integer.toString(repairnatorConfig.getSmtpPort()));
+        envValues.add("SMTP_USERNAME="+repairnatorConfig.getSmtpUsername());
+        envValues.add("SMTP_PASSWORD="+repairnatorConfig.getSmtpPassword());
+        envValues.add("GITHUB_USERNAME="+repairnatorConfig.getGithubUserName());
+        envValues.add("GITHUB_USEREMAIL="+repairnatorConfig.getGithubUserEmail());
+        envValues.add("NOTIFY_TO="+ StringUtils.join(repairnatorConfig.getNotifyTo(),','));
+        envValues.add("OUTPUT="+output);
+        if (repairnatorConfig.isCreatePR()) {
+            envValues.add("CREATE_PR=1");
         }
-        if(this.repairnatorConfig.isSmtpTLS()) {
-            this.envValues.add("SMTP_TLS=1");
+        if(repairnatorConfig.isSmtpTLS()) {
+            envValues.add("SMTP_TLS=1");
         } else {
-            this.envValues.add("SMTP_TLS=0");
+            envValues.add("SMTP_TLS=0");
         }
 
-        if (this.repairnatorConfig.getLauncherMode() == LauncherMode.REPAIR || this.repairnatorConfig.getLauncherMode() == LauncherMode.CHECKSTYLE) {
-            this.envValues.add("REPAIR_TOOLS=" + StringUtils.join(this.repairnatorConfig.getRepairTools(), ","));
+        if (repairnatorConfig.getLauncherMode() == LauncherMode.REPAIR || repairnatorConfig.getLauncherMode() == LauncherMode.CHECKSTYLE) {
+            envValues.add("REPAIR_TOOLS=" + StringUtils.join(repairnatorConfig.getRepairTools(), ","));
         }
 
-        if (this.repairnatorConfig.getRepairTools().contains("SequencerRepair")) {
+        if (repairnatorConfig.getRepairTools().contains("SequencerRepair")) {
             SequencerConfig sequencerConfig = SequencerConfig.getInstance();
-            this.envValues.add("SEQUENCER_DOCKER_TAG=" + sequencerConfig.dockerTag);
-            this.envValues.add("SEQUENCER_THREADS=" + sequencerConfig.threads);
-            this.envValues.add("SEQUENCER_BEAM_SIZE=" + sequencerConfig.beamSize);
-            this.envValues.add("SEQUENCER_TIMEOUT=" + sequencerConfig.timeout);
+            envValues.add("SEQUENCER_DOCKER_TAG=" + sequencerConfig.dockerTag);
+            envValues.add("SEQUENCER_THREADS=" + sequencerConfig.threads);
+            envValues.add("SEQUENCER_BEAM_SIZE=" + sequencerConfig.beamSize);
+            envValues.add("SEQUENCER_TIMEOUT=" + sequencerConfig.timeout);
+            envValues.add("SEQUENCER_VALIDATION_THREADS=" + sequencerConfig.validationThreads);
+            envValues.add("SEQUENCER_MAX_VALID_PATCHES=" + sequencerConfig.maxValidPatches);
         }
+        return envValues;
     }
 
     public InputBuildId getInputBuildId() {
@@ -122,138 +148,186 @@ public class RunnablePipelineContainer implements Runnable {
         return this.limitDateBeforeKilling;
     }
 
+    /**
+     * @return the capture of the output of the running container, or null if the container is not started yet
+     */
+    public ContainerLogCapture getLogCapture() {
+        return this.logCapture;
+    }
+
+    /**
+     * The output of the container is written in a compressed file of the log directory, and only its tail is kept in memory.
+     */
+    private void captureOutput(LogStream logStream) {
+        File logFile = (this.logDirectory == null) ? null : new File(this.logDirectory, this.containerName + ".log.gz");
+        try (ContainerLogCapture capture = new ContainerLogCapture(logFile, ContainerLogCapture.DEFAULT_TAIL_SIZE)) {
+            this.logCapture = capture;
+            capture.capture(logStream);
+        } finally {
+            logStream.close();
+        }
+
+        LOGGER.info("(BUILD ID " + this.inputBuildId.getBuggyBuildId() + ") " + this.logCapture.getNbBytes() + " bytes of output"
+                + ((this.logCapture.getFile() == null) ? "" : ", written in " + this.logCapture.getFile().getPath()) + ". End of the output: \n" + this.logCapture.getTail());
+    }
+
     @Override
     public void run() {
         this.limitDateBeforeKilling = new Date(new Date().toInstant().plus(DELAY_BEFORE_KILLING_DOCKER_IMAGE, ChronoUnit.MINUTES).toEpochMilli());
         DockerClient docker = this.poolManager.getDockerClient();
+        PipelineContainerPool containerPool = this.poolManager.getContainerPool();
         try {
             LOGGER.info("Start to build and run container for build id "+this.inputBuildId.getBuggyBuildId());
             LOGGER.info("At most this docker run will be killed at: "+this.limitDateBeforeKilling);
 
-            // fixme: this does not work anymore to put a name that is displayed in docker ps
-            Map<String,String> labels = new HashMap<>();
-            labels.put("name",this.containerName);
-
-
-            //to avoid creating new unnamed volumes
-            Volume workspaceVolume = docker.inspectVolume("repairnator_workspace");
-            Volume logsVolume = docker.inspectVolume("repairnator_logs");
-            Volume ODSVolume = docker.inspectVolume("repairnator_ods_data");
-
-            HostConfig hostConfig = HostConfig.builder()
-                    .appendBinds(HostConfig.Bind
-                            .builder()
-                            .from("/var/run/docker.sock")
-                            .to("/var/run/docker.sock")
-                            .build())
-                    .appendBinds(HostConfig.Bind
-                            .builder()
-                            .from(workspaceVolume)
-                            .to("/root/workspace/")
-                            .build())
-                    .appendBinds(HostConfig.Bind
-                            .builder()
-                            .from(logsVolume)
-                            .to("/var/log/")
-                            .build())
-                    .appendBinds(HostConfig.Bind
-                            .builder()
-                            .from(ODSVolume)
-                            .to(SequencerConfig.getInstance().ODSPath)
-                            .build())
-                    .build();
-
-            // we specify the complete configuration of the container
-            ContainerConfig containerConfig = ContainerConfig.builder()
-                    .image(imageId)
-                    .env(envValues)
-                    .hostname(Utils.getHostname())
-                    .hostConfig(hostConfig)
-                    .labels(labels)
-                    .build();
-
-            // and we create it
-            LOGGER.info("(BUILD ID " + this.inputBuildId.getBuggyBuildId() + ") Create the container: "+this.containerName);
-            ContainerCreation container = docker.createContainer(containerConfig);
-
-            // fixme: replace it with volumes() ?
-            // at the end we want to remove both the container and the volume to save space
-            this.volumes = containerConfig.volumeNames();
-
-            this.containerId = container.id();
-            treatedBuildTracking.setContainerId(this.containerId);
-
-            // now the container is created: let's start it
-            LOGGER.info("(BUILD ID " + this.inputBuildId.getBuggyBuildId() + ") Start the container: "+this.containerName);
-            docker.startContainer(container.id());
-
-            // and now we wait until it's finished
-            exitStatus = docker.waitContainer(this.containerId);
-
-            String stdOut = docker.logs(
-                    container.id(),
-                    DockerClient.LogsParam.stdout()
-            ).readFully();
-
-            String stdErr = docker.logs(
-                    container.id(),
-                    DockerClient.LogsParam.stderr()
-            ).readFully();
-
-
-            LOGGER.info("stdOut: \n" + stdOut);
-            LOGGER.info("stdErr: \n" + stdErr);
+            if (containerPool != null) {
+                this.runInWarmContainer(docker, containerPool);
+            } else {
+                this.runInNewContainer(docker);
+            }
 
             LOGGER.info("(BUILD ID " + this.inputBuildId.getBuggyBuildId() + ") The container has finished with status code: "+ exitStatus.statusCode());
 
-            // standard bash: if it's 0 everything's fine.
-
-            if (!this.repairnatorConfig.isSkipDelete() && exitStatus.statusCode() == 0) {
-                LOGGER.info("(BUILD ID " + this.inputBuildId.getBuggyBuildId() + ") Container will be removed.");
-                removeDockerContainer(docker);
-            }
-
             if (exitStatus.statusCode() == 0) {
-                serialize("TREATED");
+                serializeUnlessKilled("TREATED");
             } else {
-                serialize("ERROR:CODE" + exitStatus.statusCode());
+                serializeUnlessKilled("ERROR:CODE" + exitStatus.statusCode());
             }
         } catch (InterruptedException e) {
             LOGGER.error("Error while running the container for build id "+this.inputBuildId.getBuggyBuildId(), e);
             killDockerContainer(docker, false);
         } catch (DockerException e) {
             LOGGER.error("Error while creating or running the container for build id "+this.inputBuildId.getBuggyBuildId(), e);
-            serialize("ERROR");
+            serializeUnlessKilled("ERROR");
+        } catch (RuntimeException e) {
+            LOGGER.error("Error while running the container for build id "+this.inputBuildId.getBuggyBuildId(), e);
+            serializeUnlessKilled("ERROR");
+        } finally {
+            // the slot of the build is released whatever happened, otherwise no other build could use it
+            this.poolManager.removeSubmittedRunnablePipelineContainer(this);
+        }
+    }
+
+    /**
+     * Run the pipeline in a warm container of the pool: the build is given to the container through a docker exec.
+     * The container is only given back to the pool for another build if this one ended normally.
+     */
+    private void runInWarmContainer(DockerClient docker, PipelineContainerPool containerPool) throws DockerException, InterruptedException {
+        PipelineContainerPool.WarmContainer container = containerPool.acquire(this.imageId);
+        this.inWarmContainer = true;
+        this.containerId = container.getId();
+        treatedBuildTracking.setContainerId(this.containerId);
+
+        boolean reusable = false;
+        try {
+            LOGGER.info("(BUILD ID " + this.inputBuildId.getBuggyBuildId() + ") Run the build in the warm container: "+this.containerId);
+            ExecCreation exec = docker.execCreate(this.containerId, PipelineContainerPool.getLaunchCommand(this.buildEnvValues),
+                    DockerClient.ExecCreateParam.attachStdout(), DockerClient.ExecCreateParam.attachStderr());
+            this.captureOutput(docker.execStart(exec.id()));
+
+            Long exitCode = docker.execInspect(exec.id()).exitCode();
+            exitStatus = ContainerExit.create(exitCode == null ? -1L : exitCode);
+            // a failing build might have left the container in any state, and a killed one is not running anymore
+            reusable = exitStatus.statusCode() == 0 && !this.killed.get();
+        } finally {
+            containerPool.release(container, reusable);
+        }
+    }
+
+    private void runInNewContainer(DockerClient docker) throws DockerException, InterruptedException {
+        // fixme: this does not work anymore to put a name that is displayed in docker ps
+        Map<String,String> labels = new HashMap<>();
+        labels.put("name",this.containerName);
+
+        HostConfig hostConfig = this.poolManager.getPipelineHostConfig();
+
+        // we specify the complete configuration of the container
+        ContainerConfig containerConfig = ContainerConfig.builder()
+                .image(imageId)
+                .env(envValues)
+                .hostname(Utils.getHostname())
+                .hostConfig(hostConfig)
+                .labels(labels)
+                .build();
+
+        // and we create it
+        LOGGER.info("(BUILD ID " + this.inputBuildId.getBuggyBuildId() + ") Create the container: "+this.containerName);
+        ContainerCreation container = docker.createContainer(containerConfig);
+
+        // fixme: replace it with volumes() ?
+        // at the end we want to remove both the container and the volume to save space
+        this.volumes = containerConfig.volumeNames();
+
+        this.containerId = container.id();
+        treatedBuildTracking.setContainerId(this.containerId);
+
+        // now the container is created: let's start it
+        LOGGER.info("(BUILD ID " + this.inputBuildId.getBuggyBuildId() + ") Start the container: "+this.containerName);
+        docker.startContainer(container.id());
+
+        // the output is followed until the end of the container
+        this.captureOutput(docker.logs(
+                container.id(),
+                DockerClient.LogsParam.stdout(),
+                DockerClient.LogsParam.stderr(),
+                DockerClient.LogsParam.follow()
+        ));
+
+        // and now we wait until it's finished
+        exitStatus = docker.waitContainer(this.containerId);
+
+        // standard bash: if it's 0 everything's fine.
+
+        if (!this.repairnatorConfig.isSkipDelete() && exitStatus.statusCode() == 0) {
+            LOGGER.info("(BUILD ID " + this.inputBuildId.getBuggyBuildId() + ") Container will be removed.");
+            removeDockerContainer(docker);
         }
-        this.poolManager.removeSubmittedRunnablePipelineContainer(this);
     }
 
     private void removeVolumes(DockerClient docker) throws DockerException, InterruptedException {
+        if (this.volumes == null) {
+            return;
+        }
         for (String volume : this.volumes) {
             docker.removeVolume(volume);
         }
     }
 
     /**
-     * In case of timeout, we kill the container.
-     * @param remove if true, it will remove both the container and the volumes
+     * In case of timeout, we kill the container. The build is then serialized as interrupted, only once
+     * even if the container is killed several times.
+     * @param remove if true, it will remove both the container and the volumes, a warm container is removed by its pool
      */
     public void killDockerContainer(DockerClient docker, boolean remove) {
         if (this.containerId == null) {
             LOGGER.error("Error while trying to kill docker container: the container id is not available. Maybe the container is not started yet.");
             return;
         }
+        if (!this.killed.compareAndSet(false, true)) {
+            LOGGER.debug("The docker container with id " + containerId + " has already been killed.");
+            return;
+        }
 
         LOGGER.info("Killing the docker container with id "+containerId+". Forced killing date: "+this.limitDateBeforeKilling);
         try {
             docker.killContainer(containerId);
-            if (remove) {
+            if (remove && !this.inWarmContainer) {
                 removeDockerContainer(docker);
             }
             this.poolManager.removeSubmittedRunnablePipelineContainer(this);
             serialize("INTERRUPTED");
         } catch (DockerException | InterruptedException e) {
             LOGGER.error("Error while killing docker container "+containerId, e);
+            // the container is still running: its end is serialized as usual
+            this.killed.set(false);
+        }
+    }
+
+    private void serializeUnlessKilled(String msg) {
+        if (this.killed.get()) {
+            LOGGER.info("(BUILD ID " + this.inputBuildId.getBuggyBuildId() + ") The container has been killed: its status is not serialized again.");
+        } else {
+            serialize(msg);
         }
     }
 
@@ -1,7 +1,5 @@
 package fr.inria.spirals.repairnator.serializer.mongodb;
 
-import com.mongodb.MongoClient;
-import com.mongodb.MongoClientURI;
 import com.mongodb.client.MongoDatabase;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,10 +15,7 @@ public class MongoConnection {
 
     public MongoConnection(String mongoDBURI, String dbName) {
         try {
-            MongoClientURI clientURI = new MongoClientURI(mongoDBURI+"/"+dbName);
-            MongoClient client = new MongoClient(clientURI);
-
-            this.mongoDatabase = client.getDatabase(dbName);
+            this.mongoDatabase = SharedMongoClient.getDatabase(mongoDBURI, dbName);
             this.isConnected = true;
         } catch (Exception e) {
             logger.error("Error while connecting to mongoDB, serializers won't be used.", e);
@@ -0,0 +1,49 @@
+package fr.inria.spirals.repairnator.serializer.mongodb;
+
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientURI;
+import com.mongodb.client.MongoDatabase;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class gives the MongoDB clients shared by the whole process: a client keeps its own pool of connections
+ * and is thread-safe, so a single client is created for each database. The clients are closed by {@link #close()},
+ * which is called when the JVM stops.
+ */
+public class SharedMongoClient {
+    private static final Map<String, MongoClient> CLIENTS = new HashMap<>();
+    private static boolean shutdownHookAdded;
+
+    private SharedMongoClient() {
+    }
+
+    public static synchronized MongoClient getClient(String mongoDBURI, String dbName) {
+        String uri = mongoDBURI + "/" + dbName;
+        MongoClient client = CLIENTS.get(uri);
+        if (client == null) {
+            client = new MongoClient(new MongoClientURI(uri));
+            CLIENTS.put(uri, client);
+            if (!shutdownHookAdded) {
+                Runtime.getRuntime().addShutdownHook(new Thread(SharedMongoClient::close, "shared-mongo-client-close"));
+                shutdownHookAdded = true;
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Close all the clients and their connections: the next calls to {@link #getClient(String, String)} create new ones.
+     */
+    public static synchronized void close() {
+        for (MongoClient client : CLIENTS.values()) {
+            client.close();
+        }
+        CLIENTS.clear();
+    }
+
+    public static MongoDatabase getDatabase(String mongoDBURI, String dbName) {
+        return getClient(mongoDBURI, dbName).getDatabase(dbName);
+    }
+}
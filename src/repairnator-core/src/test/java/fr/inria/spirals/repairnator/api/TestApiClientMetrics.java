@@ -0,0 +1,35 @@
+package fr.inria.spirals.repairnator.api;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestApiClientMetrics {
+
+    @Test
+    public void testRecordRequests() {
+        ApiClientMetrics metrics = new ApiClientMetrics();
+        assertEquals(0, metrics.getNbRequests());
+        assertEquals(0, metrics.getAverageLatencyInMillis(), 0.001);
+
+        metrics.recordRequest(TimeUnit.MILLISECONDS.toNanos(10), true);
+        metrics.recordRequest(TimeUnit.MILLISECONDS.toNanos(30), false);
+
+        assertEquals(2, metrics.getNbRequests());
+        assertEquals(1, metrics.getNbErrors());
+        assertEquals(20, metrics.getAverageLatencyInMillis(), 0.001);
+        assertEquals(30, metrics.getMaxLatencyInMillis(), 0.001);
+        assertTrue(metrics.getRequestsPerSecond() > 0);
+    }
+
+    @Test
+    public void testRateSinceLastSnapshot() {
+        ApiClientMetrics metrics = new ApiClientMetrics();
+        metrics.recordRequest(1, true);
+        assertTrue(metrics.getRequestsPerSecondSinceLastSnapshot() > 0);
+        assertEquals(0, metrics.getRequestsPerSecondSinceLastSnapshot(), 0.001);
+    }
+}
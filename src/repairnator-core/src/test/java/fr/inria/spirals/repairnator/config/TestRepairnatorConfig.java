@@ -88,4 +88,45 @@ public class TestRepairnatorConfig {
         String s = RepairnatorConfig.getInstance().toString();
         assertNotNull(s);
     }
+
+    @Test
+    public void testJobInstance() throws InterruptedException {
+        RepairnatorConfig sharedConfig = RepairnatorConfig.getInstance();
+        sharedConfig.setBuildId(1);
+        sharedConfig.setNotifyTo(new String[] { "shared@example.org" });
+
+        RepairnatorConfig jobConfig = sharedConfig.copy();
+        jobConfig.setBuildId(2);
+        jobConfig.getRepairTools().add("NPEFix");
+        jobConfig.getNotifyTo()[0] = "job@example.org";
+
+        RepairnatorConfig.setJobInstance(jobConfig);
+        try {
+            assertThat(RepairnatorConfig.getInstance().getBuildId(), is(2));
+
+            // the threads created by the job use the config of the job
+            int[] buildIdInThread = new int[1];
+            Thread thread = new Thread(() -> buildIdInThread[0] = RepairnatorConfig.getInstance().getBuildId());
+            thread.start();
+            thread.join();
+            assertThat(buildIdInThread[0], is(2));
+
+            // but not the threads of the objects shared by the jobs
+            Thread sharedThread = RepairnatorConfig.createWithSharedInstance(() -> {
+                assertThat(RepairnatorConfig.getInstance().getBuildId(), is(1));
+                return new Thread(() -> buildIdInThread[0] = RepairnatorConfig.getInstance().getBuildId());
+            });
+            sharedThread.start();
+            sharedThread.join();
+            assertThat(buildIdInThread[0], is(1));
+            assertThat(RepairnatorConfig.getInstance().getBuildId(), is(2));
+        } finally {
+            RepairnatorConfig.clearJobInstance();
+        }
+
+        assertThat(RepairnatorConfig.getInstance(), is(sharedConfig));
+        assertThat(sharedConfig.getBuildId(), is(1));
+        assertThat(sharedConfig.getRepairTools().contains("NPEFix"), is(false));
+        assertThat(sharedConfig.getNotifyTo()[0], is("shared@example.org"));
+    }
 }
@@ -0,0 +1,52 @@
+package fr.inria.spirals.repairnator.docker;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TestContainerLogCapture {
+
+    @Test
+    public void testOnlyTheTailIsKept() {
+        try (ContainerLogCapture capture = new ContainerLogCapture(null, 8)) {
+            byte[] bytes = "0123456789".getBytes(StandardCharsets.UTF_8);
+            capture.write(bytes, 0, 4);
+            assertEquals("0123", capture.getTail());
+
+            capture.write(bytes, 4, 6);
+            assertEquals("23456789", capture.getTail());
+
+            capture.write("abcdefghijkl".getBytes(StandardCharsets.UTF_8), 0, 12);
+            assertEquals("efghijkl", capture.getTail());
+            assertEquals(22, capture.getNbBytes());
+            assertNull(capture.getFile());
+        }
+    }
+
+    @Test
+    public void testOutputIsWrittenCompressed() throws IOException {
+        File logFile = new File(Files.createTempDirectory("test-log-capture").toFile(), "build/container.log.gz");
+        String output = "[INFO] Building project\n[ERROR] Tests run: 1, Failures: 1\n";
+
+        ContainerLogCapture capture = new ContainerLogCapture(logFile, 16);
+        byte[] bytes = output.getBytes(StandardCharsets.UTF_8);
+        capture.write(bytes, 0, bytes.length);
+        capture.close();
+
+        assertEquals(logFile, capture.getFile());
+        assertEquals(" 1, Failures: 1\n", capture.getTail());
+        try (InputStream input = new GZIPInputStream(new FileInputStream(logFile))) {
+            assertEquals(output, IOUtils.toString(input, StandardCharsets.UTF_8));
+        }
+    }
+}
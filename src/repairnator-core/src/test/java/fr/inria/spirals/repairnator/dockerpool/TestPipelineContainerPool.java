@@ -0,0 +1,26 @@
+package fr.inria.spirals.repairnator.dockerpool;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class TestPipelineContainerPool {
+
+    @Test
+    public void testLaunchCommand() {
+        String[] command = PipelineContainerPool.getLaunchCommand(Arrays.asList("BUILD_ID=42", "LOG_FILENAME=docker_pipeline_42_NPEFix,Nopol", "QUOTED=it's"));
+
+        assertArrayEquals(new String[] { "bash", "-c",
+                "BUILD_ID='42' LOG_FILENAME='docker_pipeline_42_NPEFix,Nopol' QUOTED='it'\\''s' /root/pipeline_launcher.sh" }, command);
+    }
+
+    @Test
+    public void testWipeCommand() {
+        String[] command = PipelineContainerPool.getWipeCommand();
+
+        assertArrayEquals(new String[] { "bash", "-c",
+                "for dir in /root/workspace /root/.m2 /tmp; do if [ -d \"$dir\" ]; then find \"$dir\" -mindepth 1 -delete || exit 1; fi; done" }, command);
+    }
+}
@@ -216,6 +216,13 @@ public class LegacyLauncher implements LauncherAPI {
         opt2.setHelp("Possible string values KUBERNETES,NOOP . KUBERNETES is for running ActiveMQListener and "+LISTENER_MODE.NOOP.name()+" is for NoopRunner.");
         jsap.registerParameter(opt2);
 
+        opt2 = new FlaggedOption("listenerworkers");
+        opt2.setLongFlag("listenerworkers");
+        opt2.setStringParser(JSAP.INTEGER_PARSER);
+        opt2.setDefault("1");
+        opt2.setHelp("The number of builds run concurrently in the KUBERNETES listener mode. 0 means it is computed from the available cores and memory.");
+        jsap.registerParameter(opt2);
+
         opt2 = new FlaggedOption("activemqurl");
         opt2.setLongFlag("activemqurl");
         opt2.setStringParser(JSAP.STRING_PARSER);
@@ -359,6 +366,7 @@ public class LegacyLauncher implements LauncherAPI {
         this.getConfig().setGithubUserEmail(LauncherUtils.getArgGithubUserEmail(arguments));
         this.getConfig().setGithubUserName(LauncherUtils.getArgGithubUserName(arguments));
         this.getConfig().setListenerMode(arguments.getString("listenermode"));
+        this.getConfig().setListenerWorkers(arguments.getInt("listenerworkers"));
         this.getConfig().setActiveMQUrl(arguments.getString("activemqurl"));
         this.getConfig().setActiveMQListenQueueName(arguments.getString("activemqlistenqueuename"));
         this.getConfig().setActiveMQUsername(arguments.getString("activemqusername"));
@@ -446,18 +454,23 @@ public class LegacyLauncher implements LauncherAPI {
         return result;
     }
 
-    protected boolean getBuildToBeInspected() {
+    /**
+     * @param engines the serializer engines of the run, which are cleared if the build is from a project to be ignored
+     * @return the build to be inspected, or null if it cannot be inspected
+     */
+    protected BuildToBeInspected getBuildToBeInspected(List<SerializerEngine> engines) {
+        BuildToBeInspected buildToBeInspected;
         JTravis jTravis = this.getConfig().getJTravis();
         Optional<Build> optionalBuild = jTravis.build().fromId(this.getConfig().getBuildId());
         if (!optionalBuild.isPresent()) {
             LOGGER.error("Error while retrieving the buggy build. The process will exit now.");
-            return false;
+            return null;
         }
 
         Build buggyBuild = optionalBuild.get();
         if (buggyBuild.getFinishedAt() == null) {
             LOGGER.error("Apparently the buggy build is not yet finished (maybe it has been restarted?). The process will exit now.");
-            return false;
+            return null;
         }
         String runId = this.getConfig().getRunId();
 
@@ -465,23 +478,23 @@ public class LegacyLauncher implements LauncherAPI {
             Optional<Build> optionalBuildPatch = jTravis.build().fromId(this.getConfig().getNextBuildId());
             if (!optionalBuildPatch.isPresent()) {
                 LOGGER.error("Error while getting patched build: null value was obtained. The process will exit now.");
-                return false;
+                return null;
             }
 
             Build patchedBuild = optionalBuildPatch.get();
             LOGGER.info("The patched build (" + patchedBuild.getId() + ") was successfully retrieved from Travis.");
 
             if (buggyBuild.getState() == StateType.FAILED) {
-                this.buildToBeInspected = new BuildToBeInspected(buggyBuild, patchedBuild, ScannedBuildStatus.FAILING_AND_PASSING, runId);
+                buildToBeInspected = new BuildToBeInspected(buggyBuild, patchedBuild, ScannedBuildStatus.FAILING_AND_PASSING, runId);
             } else {
-                this.buildToBeInspected = new BuildToBeInspected(buggyBuild, patchedBuild, ScannedBuildStatus.PASSING_AND_PASSING_WITH_TEST_CHANGES, runId);
+                buildToBeInspected = new BuildToBeInspected(buggyBuild, patchedBuild, ScannedBuildStatus.PASSING_AND_PASSING_WITH_TEST_CHANGES, runId);
             }
         } else {
             Optional<Build> optionalNextPassing = jTravis.build().getAfter(buggyBuild, true, StateType.PASSED);
             if (optionalNextPassing.isPresent()) {
-                this.buildToBeInspected = new BuildToBeInspected(buggyBuild, optionalNextPassing.get(), ScannedBuildStatus.FAILING_AND_PASSING, runId);
+                buildToBeInspected = new BuildToBeInspected(buggyBuild, optionalNextPassing.get(), ScannedBuildStatus.FAILING_AND_PASSING, runId);
             } else {
-                this.buildToBeInspected = new BuildToBeInspected(buggyBuild, null, ScannedBuildStatus.ONLY_FAIL, runId);
+                buildToBeInspected = new BuildToBeInspected(buggyBuild, null, ScannedBuildStatus.ONLY_FAIL, runId);
             }
 
             // switch off push mechanism in case of test project
@@ -491,27 +504,35 @@ public class LegacyLauncher implements LauncherAPI {
                 this.getConfig().setPush(false);
                 this.getConfig().setFork(false);
                 this.getConfig().setCreatePR(false);
-                this.engines.clear();
+                engines.clear();
                 LOGGER.info("The build "+this.getConfig().getBuildId()+" is from a project to be ignored ("+project+"), thus the pipeline deactivated serialization for that build.");
             }
         }
-        return true;
+        return buildToBeInspected;
     }
 
+    /**
+     * The state of a run is kept in local variables: in the listener mode, several builds might be run
+     * concurrently by the same launcher, each with its own config (see {@link RepairnatorConfig#setJobInstance}).
+     */
     @Override
     public boolean mainProcess() {
         LOGGER.info("Start by getting the build (buildId: "+this.getConfig().getBuildId()+") with the following config: "+this.getConfig());
-        if (!this.getBuildToBeInspected()) {
+        List<SerializerEngine> engines = (this.engines == null) ? new ArrayList<>() : new ArrayList<>(this.engines);
+        BuildToBeInspected buildToBeInspected = this.getBuildToBeInspected(engines);
+        if (buildToBeInspected == null) {
             return false;
         }
+        this.buildToBeInspected = buildToBeInspected;
 
-        HardwareInfoSerializer hardwareInfoSerializer = new HardwareInfoSerializer(this.engines, this.getConfig().getRunId(), this.getConfig().getBuildId()+"");
+        HardwareInfoSerializer hardwareInfoSerializer = new HardwareInfoSerializer(engines, this.getConfig().getRunId(), this.getConfig().getBuildId()+"");
         hardwareInfoSerializer.serialize();
 
         List<AbstractDataSerializer> serializers = new ArrayList<>();
 
         LauncherMode launcherMode = this.getConfig().getLauncherMode();
         String workspacePath = this.getConfig().getWorkspacePath();
+        ProjectInspector inspector;
         switch (launcherMode){
             case BEARS:
                 inspector = InspectorFactory.getBearsInspector(buildToBeInspected, workspacePath, this.notifiers);
@@ -527,19 +548,21 @@ public class LegacyLauncher implements LauncherAPI {
                 break;
         }
 
-        System.out.println("Finished " + this.inspector.isPipelineEnding());
+        this.inspector = inspector;
+
+        LOGGER.debug("Finished " + inspector.isPipelineEnding());
         if (launcherMode == LauncherMode.BEARS) {
-            inspector.getSerializers().add(new InspectorSerializer4Bears(this.engines, inspector));
+            inspector.getSerializers().add(new InspectorSerializer4Bears(engines, inspector));
         } else {
-            inspector.getSerializers().add(new InspectorSerializer(this.engines, inspector));
+            inspector.getSerializers().add(new InspectorSerializer(engines, inspector));
         }
 
-        inspector.getSerializers().add(new PropertiesSerializer(this.engines, inspector));
-        inspector.getSerializers().add(new InspectorTimeSerializer(this.engines, inspector));
-        inspector.getSerializers().add(new PipelineErrorSerializer(this.engines, inspector));
-        inspector.getSerializers().add(new PatchesSerializer(this.engines, inspector));
-        inspector.getSerializers().add(new ToolDiagnosticSerializer(this.engines, inspector));
-        inspector.getSerializers().add(new PullRequestSerializer(this.engines, inspector));
+        inspector.getSerializers().add(new PropertiesSerializer(engines, inspector));
+        inspector.getSerializers().add(new InspectorTimeSerializer(engines, inspector));
+        inspector.getSerializers().add(new PipelineErrorSerializer(engines, inspector));
+        inspector.getSerializers().add(new PatchesSerializer(engines, inspector));
+        inspector.getSerializers().add(new ToolDiagnosticSerializer(engines, inspector));
+        inspector.getSerializers().add(new PullRequestSerializer(engines, inspector));
 
         inspector.setPatchNotifier(this.patchNotifier);
         inspector.run();
@@ -14,11 +14,17 @@ import java.io.IOException;
 
 /**
  * This class fetch build ids from ActiveMQ queue and run the pipeline with it.
+ *
+ * Several builds can be run concurrently (see {@link RepairnatorConfig#getListenerWorkers()}): each worker has its own
+ * session and runs one build at a time, with its own copy of the config. A message is acknowledged only once its
+ * build has been run, so the build is delivered again if the process crashes.
  */
 public class PipelineBuildListener implements Listener,MessageListener {
     private static final Logger LOGGER = LoggerFactory.getLogger(PipelineBuildListener.class);
     private static final RepairnatorConfig config = RepairnatorConfig.getInstance();
+    private static final long MEMORY_PER_WORKER = 2L * 1024 * 1024 * 1024; // in bytes
     private LauncherAPI launcher;
+    private int nbWorkers = 1;
 
     public PipelineBuildListener(LauncherAPI launcher){
         this.launcher = launcher;
@@ -26,7 +32,7 @@ public class PipelineBuildListener implements Listener,MessageListener {
     }
 
     /**
-     * Run this as a listener server and fetch one message as a time
+     * Run this as a listener server and fetch one message as a time for each worker
      */
     public void runListenerServer() {
         ActiveMQConnectionFactory connectionFactory = null;
@@ -36,21 +42,38 @@ public class PipelineBuildListener implements Listener,MessageListener {
             connectionFactory = new ActiveMQConnectionFactory(config.getActiveMQUsername(), config.getActiveMQPassword(), config.getActiveMQUrl() + "?jms.prefetchPolicy.all=1");
         }
 
+        this.nbWorkers = computeNbWorkers(config.getListenerWorkers());
+
         Connection connection = null;
         try {
             connection = connectionFactory.createConnection();
             connection.start();
-            Session session = connection.createSession(false,Session.CLIENT_ACKNOWLEDGE);
-            Destination queue = session.createQueue(config.getActiveMQListenQueueName());
+            for (int i = 0; i < this.nbWorkers; i++) {
+                // the messages of a session are delivered one at a time: there is one session per worker
+                Session session = connection.createSession(false,Session.CLIENT_ACKNOWLEDGE);
+                Destination queue = session.createQueue(config.getActiveMQListenQueueName());
 
-            MessageConsumer consumer = session.createConsumer(queue);
-            consumer.setMessageListener(this);
-            LOGGER.warn("Server is now listening for build ids");
+                MessageConsumer consumer = session.createConsumer(queue);
+                consumer.setMessageListener(this);
+            }
+            LOGGER.warn("Server is now listening for build ids with " + this.nbWorkers + " workers");
         } catch (JMSException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * @param listenerWorkers the number of workers asked, or 0 to use as many workers as the available cores and memory allow
+     * @return the number of builds to run concurrently
+     */
+    public static int computeNbWorkers(int listenerWorkers) {
+        if (listenerWorkers > 0) {
+            return listenerWorkers;
+        }
+        long nbWorkersForMemory = Runtime.getRuntime().maxMemory() / MEMORY_PER_WORKER;
+        return (int) Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), nbWorkersForMemory));
+    }
+
     /**
      * Method implemented from MessageListener and is called 
      * each time this is done with the previous message
@@ -58,21 +81,38 @@ public class PipelineBuildListener implements Listener,MessageListener {
      * @param message ActiveMQ message object containing a string buildId.
      */
     public void onMessage(Message message) {
+        int buildId = this.extractBuiltId(message);
+        LOGGER.info("A new buildId has arrived: " + buildId);
+
+        // the build is run with its own config, and in its own workspace if several builds are run concurrently
+        RepairnatorConfig jobConfig = config.copy();
+        jobConfig.setBuildId(buildId);
+        String workspace = "workspace";
+        if (this.nbWorkers > 1) {
+            workspace = (config.getWorkspacePath() == null ? workspace : config.getWorkspacePath()) + File.separator + buildId;
+            jobConfig.setWorkspacePath(workspace);
+        }
+
+        RepairnatorConfig.setJobInstance(jobConfig);
         try {
-            message.acknowledge();
-            int buildId = this.extractBuiltId(message);
-            LOGGER.info("A new buildId has arrived: " + buildId);
-            config.setBuildId(buildId);
             this.launcher.mainProcess();
+        } catch (RuntimeException e) {
+            // the build is not delivered again: it would fail the same way
+            LOGGER.error("Error while running the pipeline on build " + buildId, e);
+        } finally {
+            RepairnatorConfig.clearJobInstance();
 
             /* Delete the folder when done*/
             this.deleteDir(String.valueOf(buildId));
-            this.deleteDir("workspace");
+            this.deleteDir(workspace);
+        }
 
-            LOGGER.warn("Done repairning. Awaiting for new build ... ");
+        try {
+            message.acknowledge();
         } catch (JMSException e) {
             throw new RuntimeException(e);
         }
+        LOGGER.warn("Done repairning. Awaiting for new build ... ");
     }
 
 
@@ -71,6 +71,20 @@ public class GithubDefineJSAPArgs implements IDefineJSAPArgs{
         jsap.registerParameter(LauncherUtils.defineArgGithubUserEmail());
         // --createPR
         jsap.registerParameter(LauncherUtils.defineArgCreatePR());
+        // --mavenDaemon
+        jsap.registerParameter(LauncherUtils.defineArgMavenDaemon());
+        // --sharedMavenRepository
+        jsap.registerParameter(LauncherUtils.defineArgSharedMavenRepository());
+        // --sharedMavenRepositoryMaxSize
+        jsap.registerParameter(LauncherUtils.defineArgSharedMavenRepositoryMaxSize());
+        // --stepThreads
+        jsap.registerParameter(LauncherUtils.defineArgPipelineStepThreads());
+        // --combineBuildAndTest
+        jsap.registerParameter(LauncherUtils.defineArgCombineBuildAndTest());
+        // --gitMirrorCache
+        jsap.registerParameter(LauncherUtils.defineArgGitMirrorCache());
+        // --gitMirrorCacheMaxSize
+        jsap.registerParameter(LauncherUtils.defineArgGitMirrorCacheMaxSize());
 
         FlaggedOption opt = new FlaggedOption("z3");
         opt.setLongFlag("z3");
@@ -106,6 +106,13 @@ public class GithubInitConfig implements IInitConfig {
         getConfig().setGitBranch(arguments.getString("gitbranch"));
         getConfig().setGitCommitHash(arguments.getString("gitcommithash"));
         getConfig().setMavenHome(arguments.getString("MavenHome"));
+        getConfig().setMavenDaemonExecutable(LauncherUtils.getArgMavenDaemon(arguments));
+        getConfig().setSharedMavenRepositoryPath(LauncherUtils.getArgSharedMavenRepository(arguments));
+        getConfig().setSharedMavenRepositoryMaxSize(LauncherUtils.getArgSharedMavenRepositoryMaxSize(arguments));
+        getConfig().setPipelineStepThreads(LauncherUtils.getArgPipelineStepThreads(arguments));
+        getConfig().setCombineBuildAndTest(LauncherUtils.getArgCombineBuildAndTest(arguments));
+        getConfig().setGitMirrorCachePath(LauncherUtils.getArgGitMirrorCache(arguments));
+        getConfig().setGitMirrorCacheMaxSize(LauncherUtils.getArgGitMirrorCacheMaxSize(arguments));
 
         if (arguments.getFile("projectsToIgnore") != null) {
             getConfig().setProjectsToIgnoreFilePath(arguments.getFile("projectsToIgnore").getPath());
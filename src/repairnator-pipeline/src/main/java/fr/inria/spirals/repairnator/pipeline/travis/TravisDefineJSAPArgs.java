@@ -65,6 +65,26 @@ public class TravisDefineJSAPArgs implements IDefineJSAPArgs{
         jsap.registerParameter(LauncherUtils.defineArgGithubUserEmail());
         // --createPR
         jsap.registerParameter(LauncherUtils.defineArgCreatePR());
+        // --mavenDaemon
+        jsap.registerParameter(LauncherUtils.defineArgMavenDaemon());
+        // --sharedMavenRepository
+        jsap.registerParameter(LauncherUtils.defineArgSharedMavenRepository());
+        // --sharedMavenRepositoryMaxSize
+        jsap.registerParameter(LauncherUtils.defineArgSharedMavenRepositoryMaxSize());
+        // --repairToolsThreads
+        jsap.registerParameter(LauncherUtils.defineArgRepairToolsThreads());
+        // --repairToolTimeout
+        jsap.registerParameter(LauncherUtils.defineArgRepairToolTimeout());
+        // --repairToolCpuTimeout
+        jsap.registerParameter(LauncherUtils.defineArgRepairToolCpuTimeout());
+        // --stepThreads
+        jsap.registerParameter(LauncherUtils.defineArgPipelineStepThreads());
+        // --combineBuildAndTest
+        jsap.registerParameter(LauncherUtils.defineArgCombineBuildAndTest());
+        // --gitMirrorCache
+        jsap.registerParameter(LauncherUtils.defineArgGitMirrorCache());
+        // --gitMirrorCacheMaxSize
+        jsap.registerParameter(LauncherUtils.defineArgGitMirrorCacheMaxSize());
 
         FlaggedOption opt2 = new FlaggedOption("build");
         opt2.setShortFlag('b');
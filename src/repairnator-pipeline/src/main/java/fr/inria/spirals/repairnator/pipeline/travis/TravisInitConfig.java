@@ -99,6 +99,16 @@ public class TravisInitConfig implements IInitConfig {
         this.getConfig().setGitBranch(arguments.getString("gitbranch"));
         this.getConfig().setGitCommitHash(arguments.getString("gitcommithash"));
         this.getConfig().setMavenHome(arguments.getString("MavenHome"));
+        this.getConfig().setMavenDaemonExecutable(LauncherUtils.getArgMavenDaemon(arguments));
+        this.getConfig().setSharedMavenRepositoryPath(LauncherUtils.getArgSharedMavenRepository(arguments));
+        this.getConfig().setSharedMavenRepositoryMaxSize(LauncherUtils.getArgSharedMavenRepositoryMaxSize(arguments));
+        this.getConfig().setRepairToolsThreads(LauncherUtils.getArgRepairToolsThreads(arguments));
+        this.getConfig().setRepairToolTimeout(LauncherUtils.getArgRepairToolTimeout(arguments));
+        this.getConfig().setRepairToolCpuTimeout(LauncherUtils.getArgRepairToolCpuTimeout(arguments));
+        this.getConfig().setPipelineStepThreads(LauncherUtils.getArgPipelineStepThreads(arguments));
+        this.getConfig().setCombineBuildAndTest(LauncherUtils.getArgCombineBuildAndTest(arguments));
+        this.getConfig().setGitMirrorCachePath(LauncherUtils.getArgGitMirrorCache(arguments));
+        this.getConfig().setGitMirrorCacheMaxSize(LauncherUtils.getArgGitMirrorCacheMaxSize(arguments));
 
         this.getConfig().setNoTravisRepair(arguments.getBoolean("noTravisRepair"));
         this.getConfig().setPatchRankingMode(arguments.getString("patchRankingMode"));
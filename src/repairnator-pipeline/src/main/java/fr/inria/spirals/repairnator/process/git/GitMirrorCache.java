@@ -0,0 +1,204 @@
+package fr.inria.spirals.repairnator.process.git;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A cache of bare mirrors of the GitHub repositories, shared by the pipelines of the same host.
+ *
+ * Instead of cloning the whole repository from GitHub for each build, the mirror of the repository
+ * is incrementally fetched and the working copy is cloned locally from it: git uses hard links
+ * for the objects in this case, so the working copy stays valid even if the mirror is later
+ * garbage collected or evicted.
+ *
+ * Each mirror is protected by a lock file so concurrent pipelines never fetch the same mirror at the same time.
+ * The mirrors are regularly garbage collected and the least recently used ones are evicted
+ * when the cache exceeds its maximum size.
+ */
+public class GitMirrorCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GitMirrorCache.class);
+
+    private static final String HOST = "github.com";
+    private static final String MIRROR_EXTENSION = ".git";
+    private static final String LOCK_EXTENSION = ".lock";
+    private static final String LAST_GC_FILENAME = "repairnator-last-gc";
+    private static final long GC_INTERVAL_IN_MILLIS = TimeUnit.HOURS.toMillis(24);
+
+    // FileLock only protects us from other processes: threads of the same JVM must use these ones
+    private static final ConcurrentHashMap<String, ReentrantLock> JVM_LOCKS = new ConcurrentHashMap<>();
+
+    private final File root;
+    private final long maxSizeInBytes;
+
+    public GitMirrorCache(String root, long maxSizeInBytes) {
+        this.root = new File(root, HOST).getAbsoluteFile();
+        this.maxSizeInBytes = maxSizeInBytes;
+    }
+
+    public File getMirror(String repoSlug) {
+        return new File(this.root, repoSlug + MIRROR_EXTENSION);
+    }
+
+    /**
+     * Update the mirror of the given repository and clone it in the given directory.
+     * The origin remote of the clone points to the given remote URL, as if it was cloned from there.
+     *
+     * @return true if the clone succeeded.
+     */
+    public boolean cloneFromMirror(String repoSlug, String remoteUrl, File destination) throws IOException, InterruptedException {
+        File mirror = this.getMirror(repoSlug);
+        File lockFile = new File(mirror.getPath() + LOCK_EXTENSION);
+        if (!lockFile.getParentFile().exists() && !lockFile.getParentFile().mkdirs()) {
+            throw new IOException("Cannot create the mirror directory " + lockFile.getParent());
+        }
+
+        ReentrantLock jvmLock = JVM_LOCKS.computeIfAbsent(mirror.getPath(), key -> new ReentrantLock());
+        jvmLock.lock();
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(lockFile, "rw");
+             FileChannel channel = randomAccessFile.getChannel();
+             FileLock lock = channel.lock()) {
+
+            if (!this.updateMirror(mirror, remoteUrl)) {
+                return false;
+            }
+
+            if (this.runGitCommand(null, "git", "clone", mirror.getAbsolutePath(), destination.getAbsolutePath()) != 0) {
+                return false;
+            }
+            mirror.setLastModified(System.currentTimeMillis());
+        } finally {
+            jvmLock.unlock();
+        }
+
+        return this.runGitCommand(destination, "git", "remote", "set-url", "origin", remoteUrl) == 0;
+    }
+
+    private boolean updateMirror(File mirror, String remoteUrl) throws IOException, InterruptedException {
+        if (!new File(mirror, "HEAD").exists()) {
+            LOGGER.info("Create the mirror of " + remoteUrl + " in " + mirror.getPath());
+            FileUtils.deleteDirectory(mirror);
+            if (this.runGitCommand(null, "git", "clone", "--bare", remoteUrl, mirror.getAbsolutePath()) != 0) {
+                FileUtils.deleteDirectory(mirror);
+                return false;
+            }
+            // a bare clone doesn't fetch anything by default: we only keep branches and tags
+            // (pull request refs are fetched from GitHub on demand when reproducing a PR build)
+            this.runGitCommand(mirror, "git", "config", "--replace-all", "remote.origin.fetch", "+refs/heads/*:refs/heads/*");
+            this.runGitCommand(mirror, "git", "config", "--add", "remote.origin.fetch", "+refs/tags/*:refs/tags/*");
+            this.touchLastGc(mirror);
+            return true;
+        }
+
+        LOGGER.info("Fetch the mirror " + mirror.getPath());
+        if (this.runGitCommand(mirror, "git", "fetch", "--prune", "origin") != 0) {
+            return false;
+        }
+
+        File lastGc = new File(mirror, LAST_GC_FILENAME);
+        if (!lastGc.exists() || System.currentTimeMillis() - lastGc.lastModified() > GC_INTERVAL_IN_MILLIS) {
+            LOGGER.info("Garbage collect the mirror " + mirror.getPath());
+            this.runGitCommand(mirror, "git", "gc", "--quiet");
+            this.touchLastGc(mirror);
+        }
+        return true;
+    }
+
+    private void touchLastGc(File mirror) throws IOException {
+        File lastGc = new File(mirror, LAST_GC_FILENAME);
+        FileUtils.touch(lastGc);
+    }
+
+    /**
+     * Delete the least recently used mirrors until the cache is under its maximum size.
+     * Mirrors currently used by another pipeline are skipped.
+     */
+    public void evict() {
+        if (this.maxSizeInBytes <= 0 || !this.root.exists()) {
+            return;
+        }
+
+        List<File> mirrors = new ArrayList<>();
+        this.collectMirrors(this.root, mirrors);
+        long totalSize = 0;
+        for (File mirror : mirrors) {
+            totalSize += FileUtils.sizeOfDirectory(mirror);
+        }
+
+        mirrors.sort(Comparator.comparingLong(File::lastModified));
+        for (File mirror : mirrors) {
+            if (totalSize <= this.maxSizeInBytes) {
+                break;
+            }
+
+            ReentrantLock jvmLock = JVM_LOCKS.computeIfAbsent(mirror.getPath(), key -> new ReentrantLock());
+            if (!jvmLock.tryLock()) {
+                continue;
+            }
+            File lockFile = new File(mirror.getPath() + LOCK_EXTENSION);
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(lockFile, "rw");
+                 FileChannel channel = randomAccessFile.getChannel()) {
+                FileLock lock = channel.tryLock();
+                if (lock == null) {
+                    continue;
+                }
+                try {
+                    long size = FileUtils.sizeOfDirectory(mirror);
+                    FileUtils.deleteDirectory(mirror);
+                    totalSize -= size;
+                    LOGGER.info("Mirror " + mirror.getPath() + " evicted from the cache.");
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException | OverlappingFileLockException e) {
+                LOGGER.warn("Error while evicting the mirror " + mirror.getPath(), e);
+            } finally {
+                jvmLock.unlock();
+            }
+        }
+    }
+
+    private void collectMirrors(File directory, List<File> mirrors) {
+        File[] children = directory.listFiles(File::isDirectory);
+        if (children == null) {
+            return;
+        }
+        Arrays.sort(children);
+        for (File child : children) {
+            if (child.getName().endsWith(MIRROR_EXTENSION)) {
+                mirrors.add(child);
+            } else {
+                this.collectMirrors(child, mirrors);
+            }
+        }
+    }
+
+    private int runGitCommand(File directory, String... command) throws IOException, InterruptedException {
+        LOGGER.debug("Executing git command: " + StringUtils.join(command, " "));
+        ProcessBuilder processBuilder = new ProcessBuilder(command).inheritIO();
+        if (directory != null) {
+            processBuilder.directory(directory);
+        }
+        Process process = processBuilder.start();
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            LOGGER.warn("The git command " + StringUtils.join(command, " ") + " exited with code " + exitCode);
+        }
+        return exitCode;
+    }
+}
@@ -33,7 +33,8 @@ public class JobStatus {
     private List<Plugin> plugins;
 
     /**
-     * List of patches indexed by the name of the tool to produce them
+     * List of patches indexed by the name of the tool to produce them,
+     * in the order in which the tools recorded them
      */
     private Map<String, List<RepairPatch>> listOfPatches;
 
@@ -65,6 +66,9 @@ public class JobStatus {
 
     private List<String> PRCreated;
 
+    private int mavenCacheHits;
+    private int mavenCacheMisses;
+
     public JobStatus(String pomDirPath) {
         this.stepErrors = new HashMap<>();
         this.pomDirPath = pomDirPath;
@@ -76,7 +80,7 @@ public class JobStatus {
         this.stepsDurationsInSeconds = new HashMap<>();
         this.freeMemoryByStep = new HashMap<>();
         this.pushStates = new ArrayList<>();
-        this.listOfPatches = new HashMap<>();
+        this.listOfPatches = new LinkedHashMap<>();
         this.toolDiagnostic = new HashMap<>();
         this.repairClassPath = new ArrayList<>();
         this.PRCreated = new ArrayList<>();
@@ -114,7 +118,7 @@ public class JobStatus {
         this.pomDirPath = pomDirPath;
     }
 
-    public void addStepError(String step, String error) {
+    public synchronized void addStepError(String step, String error) {
         if (!stepErrors.containsKey(step)) {
             stepErrors.put(step, new ArrayList<String>());
         }
@@ -177,7 +181,7 @@ public class JobStatus {
         return pushStates.get(pushStates.size() - 1);
     }
 
-    public void addPushState(PushState pushState) {
+    public synchronized void addPushState(PushState pushState) {
         this.pushStates.add(pushState);
     }
 
@@ -217,7 +221,7 @@ public class JobStatus {
         this.fatalError = fatalError;
     }
 
-    public void addFileToPush(String filePath) {
+    public synchronized void addFileToPush(String filePath) {
         if (!this.createdFilesToPush.contains(filePath)) {
             this.createdFilesToPush.add(filePath);
         }
@@ -252,7 +256,7 @@ public class JobStatus {
         this.forkURL = forkURL;
     }
 
-    public void addStepStatus(StepStatus stepStatus) {
+    public synchronized void addStepStatus(StepStatus stepStatus) {
         this.stepStatuses.add(stepStatus);
     }
 
@@ -319,7 +323,7 @@ public class JobStatus {
         return stepsDurationsInSeconds;
     }
 
-    public void addStepDuration(String step, int duration) {
+    public synchronized void addStepDuration(String step, int duration) {
         this.stepsDurationsInSeconds.put(step, duration);
     }
 
@@ -327,10 +331,90 @@ public class JobStatus {
         return freeMemoryByStep;
     }
 
-    public void addFreeMemoryByStep(String step, long value) {
+    public synchronized void addFreeMemoryByStep(String step, long value) {
         this.freeMemoryByStep.put(step, value);
     }
 
+    public int getMavenCacheHits() {
+        return mavenCacheHits;
+    }
+
+    public void setMavenCacheHits(int mavenCacheHits) {
+        this.mavenCacheHits = mavenCacheHits;
+    }
+
+    public int getMavenCacheMisses() {
+        return mavenCacheMisses;
+    }
+
+    public void setMavenCacheMisses(int mavenCacheMisses) {
+        this.mavenCacheMisses = mavenCacheMisses;
+    }
+
+    /**
+     * Create the status of a job working on a copy of the repository:
+     * the paths inside the repository are moved to the copy, while the paths inside the
+     * local Maven repository and the information gathered by the previous steps are kept.
+     */
+    public JobStatus copyForWorkspace(String repoLocalPath, String copyLocalPath, String m2LocalPath) {
+        WorkspacePathMapper mapper = new WorkspacePathMapper(repoLocalPath, copyLocalPath, m2LocalPath);
+
+        JobStatus copy = new JobStatus(mapper.map(this.pomDirPath));
+        copy.failingModulePath = mapper.map(this.failingModulePath);
+        copy.repairSourceDir = mapper.map(this.repairSourceDir);
+        copy.testDir = mapper.map(this.testDir);
+        copy.modules = mapper.map(this.modules);
+        copy.repairClassPath = mapper.map(this.repairClassPath);
+        copy.plugins = this.plugins;
+        copy.failureLocations = this.failureLocations;
+        copy.isReproducedAsFail = this.isReproducedAsFail;
+        // the steps record their durations in the properties: each workspace must have its own
+        copy.properties = this.properties.copy();
+        copy.gitBranchUrl = this.gitBranchUrl;
+        copy.hasBeenForked = this.hasBeenForked;
+        copy.forkURL = this.forkURL;
+        return copy;
+    }
+
+    /**
+     * Merge the results of a repair tool executed on a copy of the repository (see {@link #copyForWorkspace}).
+     * The patches are moved back to the repository: the copy can be deleted afterwards.
+     */
+    public synchronized void mergeRepairResults(JobStatus toolStatus, String repoLocalPath, String copyLocalPath) {
+        WorkspacePathMapper mapper = new WorkspacePathMapper(copyLocalPath, repoLocalPath, null);
+
+        for (Map.Entry<String, List<RepairPatch>> toolPatches : toolStatus.listOfPatches.entrySet()) {
+            List<RepairPatch> patches = new ArrayList<>();
+            for (RepairPatch patch : toolPatches.getValue()) {
+                RepairPatch movedPatch = new RepairPatch(patch.getToolname(), mapper.map(patch.getFilePath()),
+                        patch.getDiff().replace(copyLocalPath, repoLocalPath));
+                movedPatch.setODSLabel(patch.getODSLabel());
+                patches.add(movedPatch);
+            }
+            this.addPatches(toolPatches.getKey(), patches);
+        }
+        this.toolDiagnostic.putAll(toolStatus.toolDiagnostic);
+        for (Map.Entry<String, List<String>> errors : toolStatus.stepErrors.entrySet()) {
+            for (String error : errors.getValue()) {
+                this.addStepError(errors.getKey(), error);
+            }
+        }
+        for (String fileToPush : toolStatus.createdFilesToPush) {
+            this.addFileToPush(fileToPush);
+        }
+        this.stepStatuses.addAll(toolStatus.stepStatuses);
+        this.stepsDurationsInSeconds.putAll(toolStatus.stepsDurationsInSeconds);
+        this.freeMemoryByStep.putAll(toolStatus.freeMemoryByStep);
+        this.PRCreated.addAll(toolStatus.PRCreated);
+        if (toolStatus.hasBeenPatched) {
+            this.hasBeenPatched = true;
+        }
+        if (toolStatus.hasBeenForked && !this.hasBeenForked) {
+            this.hasBeenForked = true;
+            this.forkURL = toolStatus.forkURL;
+        }
+    }
+
     public List<String> getFailureNames() {
         List<String> failureNames = new ArrayList<>();
         for (FailureDetail failureDetail : this.properties.getTests().getFailureDetails()) {
@@ -0,0 +1,25 @@
+package fr.inria.spirals.repairnator.process.inspectors;
+
+/**
+ * The data of the {@link JobStatus} computed by the steps of the pipeline.
+ * The steps declare the data they read and write so the independent steps can be run at the same time.
+ *
+ * The data written by every step are not declared: the step errors, statuses, durations, push states and files
+ * to push of {@link JobStatus}, and the {@link fr.inria.spirals.repairnator.process.inspectors.properties.projectMetrics.ProjectMetrics},
+ * are only written through synchronized methods. Each metric is computed by a single step.
+ *
+ * The steps reading {@link #POM_DIR_PATH} might update it when they first look for the pom (see AbstractStep#getPom()):
+ * the {@link fr.inria.spirals.repairnator.process.step.StepScheduler} makes them look for it one after the other,
+ * before running them at the same time.
+ */
+public enum JobStatusData {
+    POM_DIR_PATH,
+    FAILING_MODULE_PATH,
+    REPAIR_CLASSPATH,
+    REPAIR_SOURCE_DIR,
+    TEST_DIR,
+    MODULES,
+    PLUGINS,
+    // the local Maven repository of the job: the steps only reading the poms can share it, but not with a Maven build
+    M2_LOCAL_REPOSITORY
+}
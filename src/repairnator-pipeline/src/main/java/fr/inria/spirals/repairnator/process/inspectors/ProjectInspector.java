@@ -8,8 +8,10 @@ import fr.inria.spirals.repairnator.notifier.ErrorNotifier;
 import fr.inria.spirals.repairnator.notifier.PatchNotifier;
 import fr.inria.spirals.repairnator.pipeline.RepairToolsManager;
 import fr.inria.spirals.repairnator.process.git.GitHelper;
+import fr.inria.spirals.repairnator.process.git.GitMirrorCache;
 import fr.inria.spirals.repairnator.process.inspectors.properties.Properties;
 import fr.inria.spirals.repairnator.process.inspectors.properties.machineInfo.MachineInfo;
+import fr.inria.spirals.repairnator.process.maven.SharedMavenRepository;
 import fr.inria.spirals.repairnator.process.step.AbstractStep;
 import fr.inria.spirals.repairnator.process.step.AddExperimentalPluginRepo;
 import fr.inria.spirals.repairnator.process.step.BuildProject;
@@ -36,6 +38,7 @@ import fr.inria.spirals.repairnator.serializer.AbstractDataSerializer;
 import fr.inria.spirals.repairnator.states.ScannedBuildStatus;
 import fr.inria.spirals.repairnator.utils.Utils;
 import fr.inria.spirals.repairnator.process.inspectors.components.IRunInspector;
+import fr.inria.spirals.repairnator.process.maven.output.BuildLog;
 
 import org.kohsuke.github.GHRepository;
 import org.kohsuke.github.GitHub;
@@ -44,6 +47,10 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -55,6 +62,8 @@ import java.util.List;
  * it's the backbone of the pipeline.
  */
 public class ProjectInspector {
+    private static final String M2_SETTINGS_FILENAME = "repairnator-settings.xml";
+
     private final Logger logger = LoggerFactory.getLogger(ProjectInspector.class);
 
     private BuildToBeInspected buildToBeInspected;
@@ -77,7 +86,9 @@ public class ProjectInspector {
     protected AbstractStep finalStep;
     protected String gitSlug;
     protected IRunInspector iRunInspector;
-    protected List<String> buildLog;
+    protected BuildLog buildLog;
+    private boolean m2LocalRepositoryPrepared;
+    private String m2SettingsPath;
 
     public ProjectInspector() {}
 
@@ -94,7 +105,7 @@ public class ProjectInspector {
         this.notifiers = notifiers;
         this.checkoutType = CheckoutType.NO_CHECKOUT;
         this.steps = new ArrayList<>();
-        this.buildLog = new ArrayList<>();
+        this.buildLog = new BuildLog();
         this.initProperties();
     }
 
@@ -113,7 +124,7 @@ public class ProjectInspector {
         this.notifiers = notifiers;
         this.checkoutType = CheckoutType.NO_CHECKOUT;
         this.steps = new ArrayList<>();
-        this.buildLog = new ArrayList<>();
+        this.buildLog = new BuildLog();
         /* Skip initProperties*/
     }
 
@@ -130,10 +141,44 @@ public class ProjectInspector {
         this.notifiers = notifiers;
         this.checkoutType = CheckoutType.NO_CHECKOUT;
         this.steps = new ArrayList<>();
-        this.buildLog = new ArrayList<>();
+        this.buildLog = new BuildLog();
         this.initProperties();
     }
 
+    private ProjectInspector(ProjectInspector inspector, String repoLocalPath) {
+        this.buildToBeInspected = inspector.buildToBeInspected;
+        this.patchNotifier = inspector.patchNotifier;
+        this.gitUrl = inspector.gitUrl;
+        this.gitBranch = inspector.gitBranch;
+        this.gitCommit = inspector.gitCommit;
+        this.gitSlug = inspector.gitSlug;
+        this.workspace = inspector.workspace;
+        this.repoLocalPath = repoLocalPath;
+        this.repoToPushLocalPath = inspector.repoToPushLocalPath;
+        this.m2LocalPath = inspector.m2LocalPath;
+        // the copy uses the same local Maven repository
+        inspector.prepareM2LocalRepository();
+        this.m2LocalRepositoryPrepared = true;
+        this.m2SettingsPath = inspector.m2SettingsPath;
+        this.serializers = inspector.serializers;
+        this.gitHelper = inspector.gitHelper;
+        this.jobStatus = inspector.jobStatus.copyForWorkspace(inspector.repoLocalPath, repoLocalPath, inspector.m2LocalPath);
+        this.notifiers = inspector.notifiers;
+        this.checkoutType = inspector.checkoutType;
+        this.steps = new ArrayList<>();
+        this.buildLog = inspector.buildLog;
+        this.iRunInspector = inspector.iRunInspector;
+    }
+
+    /**
+     * Create an inspector working on the given copy of the repository, e.g. to run a repair tool
+     * concurrently with the other ones. The results must be merged back with
+     * {@link JobStatus#mergeRepairResults(JobStatus, String, String)}.
+     */
+    public ProjectInspector copyForWorkspace(String copyLocalPath) {
+        return new ProjectInspector(this, copyLocalPath);
+    }
+
     public ProjectInspector setIRunInspector(IRunInspector iRunInspector) {
         this.iRunInspector = iRunInspector;
         return this;
@@ -257,6 +302,87 @@ public class ProjectInspector {
         return m2LocalPath;
     }
 
+    /**
+     * @return the Maven repository shared between the pipelines of the host, or null if none has been configured.
+     */
+    public SharedMavenRepository getSharedMavenRepository() {
+        RepairnatorConfig config = RepairnatorConfig.getInstance();
+        if (config.getSharedMavenRepositoryPath() == null || this.getM2LocalPath() == null) {
+            return null;
+        }
+        return new SharedMavenRepository(config.getSharedMavenRepositoryPath(), config.getSharedMavenRepositoryMaxSize() * 1024 * 1024);
+    }
+
+    /**
+     * @return the cache of git mirrors shared between the pipelines of the host, or null if none has been configured.
+     */
+    public GitMirrorCache getGitMirrorCache() {
+        RepairnatorConfig config = RepairnatorConfig.getInstance();
+        if (config.getGitMirrorCachePath() == null) {
+            return null;
+        }
+        return new GitMirrorCache(config.getGitMirrorCachePath(), config.getGitMirrorCacheMaxSize() * 1024 * 1024);
+    }
+
+    /**
+     * Write the Maven settings giving access to the shared repository, if any.
+     * It's only done once, before the first Maven invocation.
+     */
+    public synchronized void prepareM2LocalRepository() {
+        if (this.m2LocalRepositoryPrepared) {
+            return;
+        }
+        this.m2LocalRepositoryPrepared = true;
+
+        SharedMavenRepository sharedMavenRepository = this.getSharedMavenRepository();
+        if (sharedMavenRepository != null) {
+            Path settingsFile = Paths.get(this.getM2LocalPath(), M2_SETTINGS_FILENAME);
+            try {
+                sharedMavenRepository.writeSettings(settingsFile);
+                this.m2SettingsPath = settingsFile.toString();
+                this.logger.info("The artifacts will be resolved from the shared Maven repository " + sharedMavenRepository.getRoot());
+            } catch (IOException e) {
+                this.logger.warn("Error while giving access to the shared Maven repository, the artifacts will be downloaded.", e);
+            }
+        }
+    }
+
+    /**
+     * @return the Maven global settings to use for the job, or null if the default ones must be used.
+     */
+    public synchronized String getM2SettingsPath() {
+        return m2SettingsPath;
+    }
+
+    /**
+     * Share the artifacts downloaded by the job with the other pipelines and record the cache statistics.
+     * It must be called before deleting the local Maven repository.
+     */
+    public void publishM2LocalRepository() {
+        SharedMavenRepository sharedMavenRepository = this.getSharedMavenRepository();
+        if (sharedMavenRepository == null || !this.m2LocalRepositoryPrepared) {
+            return;
+        }
+
+        List<Path> usedArtifacts = new ArrayList<>();
+        for (URL url : this.jobStatus.getRepairClassPath()) {
+            try {
+                usedArtifacts.add(Paths.get(url.toURI()));
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                this.logger.debug("Ignore classpath entry " + url);
+            }
+        }
+
+        try {
+            SharedMavenRepository.CacheStatistics statistics = sharedMavenRepository.publish(Paths.get(this.getM2LocalPath()), usedArtifacts);
+            this.jobStatus.setMavenCacheHits(statistics.getHits());
+            this.jobStatus.setMavenCacheMisses(statistics.getMisses());
+            this.logger.info("Shared Maven repository usage: " + statistics);
+        } catch (IOException e) {
+            this.logger.warn("Error while publishing artifacts in the shared Maven repository.", e);
+        }
+    }
+
     public BuildToBeInspected getBuildToBeInspected() {
         if (this.buildToBeInspected == null) {
             return null;
@@ -413,11 +539,19 @@ public class ProjectInspector {
         return AbstractDataSerializer.getPrettyPrintState(this).toUpperCase();
     }
 
-    public List<String> getBuildLog() {
+    public BuildLog getBuildLog() {
         return buildLog;
     }
 
+    /**
+     * Delete the temporary file of the build log: it must not be used afterwards.
+     */
+    public void closeBuildLog() {
+        buildLog.close();
+    }
+
     public void printToBuildLog(String s){
+        // the build log is thread-safe: it is shared with the copies of the inspector
         buildLog.add(s);
     }
 
@@ -0,0 +1,82 @@
+package fr.inria.spirals.repairnator.process.inspectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Move the paths located in a repository to a copy of this repository.
+ * The paths of the excluded directory (e.g. the local Maven repository, which is not copied) are kept as is.
+ */
+class WorkspacePathMapper {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorkspacePathMapper.class);
+
+    private final Path from;
+    private final Path to;
+    private final Path excluded;
+
+    WorkspacePathMapper(String from, String to, String excluded) {
+        this.from = Paths.get(from).toAbsolutePath().normalize();
+        this.to = Paths.get(to).toAbsolutePath().normalize();
+        this.excluded = excluded == null ? null : Paths.get(excluded).toAbsolutePath().normalize();
+    }
+
+    String map(String path) {
+        if (path == null) {
+            return null;
+        }
+        Path absolutePath = Paths.get(path).toAbsolutePath().normalize();
+        if (!absolutePath.startsWith(this.from) || (this.excluded != null && absolutePath.startsWith(this.excluded))) {
+            return path;
+        }
+        return this.to.resolve(this.from.relativize(absolutePath)).toString();
+    }
+
+    File[] map(File[] files) {
+        if (files == null) {
+            return null;
+        }
+        File[] result = new File[files.length];
+        for (int i = 0; i < files.length; i++) {
+            // relative paths are kept as is, they are resolved in the working directory
+            result[i] = files[i].isAbsolute() ? new File(this.map(files[i].getPath())) : files[i];
+        }
+        return result;
+    }
+
+    List<URL> map(List<URL> urls) {
+        if (urls == null) {
+            return null;
+        }
+        List<URL> result = new ArrayList<>();
+        for (URL url : urls) {
+            if (!"file".equals(url.getProtocol())) {
+                result.add(url);
+                continue;
+            }
+            try {
+                String mappedPath = this.map(url.getPath());
+                if (mappedPath.equals(url.getPath())) {
+                    result.add(url);
+                    continue;
+                }
+                File mappedFile = new File(mappedPath);
+                // keep the trailing slash of the directories, the URLClassLoader needs it
+                result.add(url.getPath().endsWith("/") && !mappedPath.endsWith("/")
+                        ? new URL(url.getProtocol(), url.getHost(), mappedFile.getPath() + "/")
+                        : new URL(url.getProtocol(), url.getHost(), mappedFile.getPath()));
+            } catch (MalformedURLException e) {
+                LOGGER.warn("Cannot move the classpath entry " + url + " to the copy of the repository", e);
+                result.add(url);
+            }
+        }
+        return result;
+    }
+}
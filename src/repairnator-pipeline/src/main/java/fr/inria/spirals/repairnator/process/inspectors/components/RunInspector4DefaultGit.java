@@ -56,9 +56,11 @@ public class RunInspector4DefaultGit extends IRunInspector{
             }
             // Add the next steps
             if (!this.skipPreSteps) {
+                // the tests might be run during the build, see RepairnatorConfig#isCombineBuildAndTest
+                BuildProject buildBuggyBuild = new BuildProject(inspector);
                 cloneRepo
-                    .addNextStep(new BuildProject(inspector))
-                    .addNextStep(new TestProject(inspector))
+                    .addNextStep(buildBuggyBuild)
+                    .addNextStep(new TestProject(inspector, buildBuggyBuild))
                     .addNextStep(new GatherTestInformation(inspector, true, new BuildShouldFail(), false))                    
                     .addNextStep(new ComputeClasspath(inspector, false))
                     .addNextStep(new ComputeSourceDir(inspector, false, false))
@@ -77,10 +79,11 @@ public class RunInspector4DefaultGit extends IRunInspector{
                 }
             }
 
+            BuildProject buildPatchedBuild = new BuildProject(inspector);
             cloneRepo.addNextStep(new GitRepositoryCommitPatch(inspector, CommitType.COMMIT_REPAIR_INFO))
                     .addNextStep(new CheckoutPatchedBuild(inspector, true))
-                    .addNextStep(new BuildProject(inspector))
-                    .addNextStep(new TestProject(inspector))
+                    .addNextStep(buildPatchedBuild)
+                    .addNextStep(new TestProject(inspector, buildPatchedBuild))
                     .addNextStep(new GatherTestInformation(inspector, true, new BuildShouldPass(), true))
                     .addNextStep(new GitRepositoryCommitPatch(inspector, CommitType.COMMIT_HUMAN_PATCH));
 
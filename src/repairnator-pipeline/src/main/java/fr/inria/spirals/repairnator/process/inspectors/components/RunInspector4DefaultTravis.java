@@ -11,6 +11,7 @@ import fr.inria.spirals.repairnator.process.step.AbstractStep;
 import fr.inria.spirals.repairnator.process.step.AddExperimentalPluginRepo;
 import fr.inria.spirals.repairnator.process.step.BuildProject;
 import fr.inria.spirals.repairnator.process.step.CloneRepository;
+import fr.inria.spirals.repairnator.process.step.ConcurrentRepairSteps;
 import fr.inria.spirals.repairnator.process.step.TestProject;
 import fr.inria.spirals.repairnator.process.step.WritePropertyFile;
 import fr.inria.spirals.repairnator.process.step.checkoutrepository.CheckoutBuggyBuild;
@@ -32,6 +33,9 @@ import fr.inria.spirals.repairnator.serializer.AbstractDataSerializer;
 import fr.inria.spirals.repairnator.states.ScannedBuildStatus;
 import fr.inria.spirals.repairnator.utils.Utils;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class RunInspector4DefaultTravis extends IRunInspector{
 
     public RunInspector4DefaultTravis() {}
@@ -53,9 +57,11 @@ public class RunInspector4DefaultTravis extends IRunInspector{
 
             // Add the next steps
             if (!this.skipPreSteps) {
+                // the tests might be run during the build, see RepairnatorConfig#isCombineBuildAndTest
+                BuildProject buildBuggyBuild = new BuildProject(inspector);
                 cloneRepo
-                    .addNextStep(new BuildProject(inspector))
-                    .addNextStep(new TestProject(inspector))
+                    .addNextStep(buildBuggyBuild)
+                    .addNextStep(new TestProject(inspector, buildBuggyBuild))
                     .addNextStep(new GatherTestInformation(inspector, true, new BuildShouldFail(), false))
                     .addNextStep(new ComputeClasspath(inspector, false))
                     .addNextStep(new ComputeSourceDir(inspector, false, false))
@@ -64,20 +70,31 @@ public class RunInspector4DefaultTravis extends IRunInspector{
            
             cloneRepo.addNextStep(new InitRepoToPush(inspector));
 
+            List<AbstractRepairStep> repairSteps = new ArrayList<>();
             for (String repairToolName : RepairnatorConfig.getInstance().getRepairTools()) {
                 AbstractRepairStep repairStep = RepairToolsManager.getStepFromName(repairToolName);
                 if (repairStep != null) {
                     repairStep.setProjectInspector(inspector);
-                    cloneRepo.addNextStep(repairStep);
+                    repairSteps.add(repairStep);
                 } else {
                     inspector.getLogger().error("Error while getting repair step class for following name: " + repairToolName);
                 }
             }
 
+            // the repair tools don't depend on each other: they can run concurrently on copies of the repository
+            if (RepairnatorConfig.getInstance().getRepairToolsThreads() > 1 && repairSteps.size() > 1) {
+                cloneRepo.addNextStep(new ConcurrentRepairSteps(inspector, repairSteps));
+            } else {
+                for (AbstractRepairStep repairStep : repairSteps) {
+                    cloneRepo.addNextStep(repairStep);
+                }
+            }
+
+            BuildProject buildPatchedBuild = new BuildProject(inspector);
             cloneRepo.addNextStep(new CommitPatch(inspector, CommitType.COMMIT_REPAIR_INFO))
                     .addNextStep(new CheckoutPatchedBuild(inspector, true))
-                    .addNextStep(new BuildProject(inspector))
-                    .addNextStep(new TestProject(inspector))
+                    .addNextStep(buildPatchedBuild)
+                    .addNextStep(new TestProject(inspector, buildPatchedBuild))
                     .addNextStep(new GatherTestInformation(inspector, true, new BuildShouldPass(), true))
                     .addNextStep(new CommitPatch(inspector, CommitType.COMMIT_HUMAN_PATCH));
 
@@ -1,5 +1,10 @@
 package fr.inria.spirals.repairnator.process.inspectors.properties;
 
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializer;
 import fr.inria.spirals.repairnator.process.inspectors.properties.builds.Builds;
 import fr.inria.spirals.repairnator.process.inspectors.properties.commits.Commits;
 import fr.inria.spirals.repairnator.process.inspectors.properties.patchDiff.PatchDiff;
@@ -8,8 +13,16 @@ import fr.inria.spirals.repairnator.process.inspectors.properties.repository.Rep
 import fr.inria.spirals.repairnator.process.inspectors.properties.reproductionBuggyBuild.ReproductionBuggyBuild;
 import fr.inria.spirals.repairnator.process.inspectors.properties.tests.Tests;
 
+import java.util.Date;
+
 public class Properties {
 
+    // the dates are kept as timestamps, so the copies are exact
+    private static final Gson COPY_GSON = new GsonBuilder()
+            .registerTypeAdapter(Date.class, (JsonSerializer<Date>) (date, type, context) -> new JsonPrimitive(date.getTime()))
+            .registerTypeAdapter(Date.class, (JsonDeserializer<Date>) (json, type, context) -> new Date(json.getAsLong()))
+            .create();
+
     private String version; // this property is specific for bears.json
     private String type;
 
@@ -74,4 +87,11 @@ public class Properties {
     public ReproductionBuggyBuild getReproductionBuggyBuild() {
         return reproductionBuggyBuild;
     }
+
+    /**
+     * @return a deep copy of these properties, which can be modified independently.
+     */
+    public Properties copy() {
+        return COPY_GSON.fromJson(COPY_GSON.toJson(this), Properties.class);
+    }
 }
@@ -1,5 +1,9 @@
 package fr.inria.spirals.repairnator.process.inspectors.properties.projectMetrics;
 
+/**
+ * The metrics are computed by steps which can be run at the same time (see
+ * {@link fr.inria.spirals.repairnator.process.step.StepScheduler}): the accessors are synchronized.
+ */
 public class ProjectMetrics {
 
     /**
@@ -32,51 +36,51 @@ public class ProjectMetrics {
 
     public ProjectMetrics() {}
 
-    public int getNumberModules() {
+    public synchronized int getNumberModules() {
         return numberModules;
     }
 
-    public void setNumberModules(int numberModules) {
+    public synchronized void setNumberModules(int numberModules) {
         this.numberModules = numberModules;
     }
 
-    public int getNumberPlugins() {
+    public synchronized int getNumberPlugins() {
         return numberPlugins;
     }
 
-    public void setNumberPlugins(int numberPlugins) {
+    public synchronized void setNumberPlugins(int numberPlugins) {
         this.numberPlugins = numberPlugins;
     }
 
-    public int getNumberSourceFiles() {
+    public synchronized int getNumberSourceFiles() {
         return numberSourceFiles;
     }
 
-    public void setNumberSourceFiles(int numberSourceFiles) {
+    public synchronized void setNumberSourceFiles(int numberSourceFiles) {
         this.numberSourceFiles = numberSourceFiles;
     }
 
-    public int getNumberTestFiles() {
+    public synchronized int getNumberTestFiles() {
         return numberTestFiles;
     }
 
-    public void setNumberTestFiles(int numberTestFiles) {
+    public synchronized void setNumberTestFiles(int numberTestFiles) {
         this.numberTestFiles = numberTestFiles;
     }
 
-    public int getNumberLibrariesFailingModule() {
+    public synchronized int getNumberLibrariesFailingModule() {
         return numberLibrariesFailingModule;
     }
 
-    public void setNumberLibrariesFailingModule(int numberLibrariesFailingModule) {
+    public synchronized void setNumberLibrariesFailingModule(int numberLibrariesFailingModule) {
         this.numberLibrariesFailingModule = numberLibrariesFailingModule;
     }
 
-    public int getNumberLines() {
+    public synchronized int getNumberLines() {
         return numberLines;
     }
 
-    public void setNumberLines(int numberLines) {
+    public synchronized void setNumberLines(int numberLines) {
         this.numberLines = numberLines;
     }
 }
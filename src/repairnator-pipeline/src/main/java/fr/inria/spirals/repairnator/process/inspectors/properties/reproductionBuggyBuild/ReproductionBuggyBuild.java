@@ -40,7 +40,7 @@ public class ReproductionBuggyBuild {
         return processDurations;
     }
 
-    public void addStep(AbstractStep step) {
+    public synchronized void addStep(AbstractStep step) {
         if (this.reproductionDateBeginning == null) { // so this is the first step
             this.reproductionDateBeginning = step.getDateBegin();
         }
@@ -4,6 +4,7 @@ import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
 import fr.inria.spirals.repairnator.process.maven.output.MavenErrorHandler;
 import fr.inria.spirals.repairnator.process.maven.output.MavenFilterOutputHandler;
 import fr.inria.spirals.repairnator.process.maven.output.MavenMuteOutputHandler;
+import fr.inria.spirals.repairnator.process.maven.output.MavenOutputHandler;
 import org.apache.maven.model.Model;
 import org.apache.maven.model.building.DefaultModelBuilder;
 import org.apache.maven.model.building.DefaultModelBuilderFactory;
@@ -88,7 +89,8 @@ public class MavenHelper {
             this.properties = new Properties();
         }
 
-        // we want to use a dedicated Maven repository
+        // we want to use a dedicated Maven repository, which might resolve artifacts from the shared one
+        this.inspector.prepareM2LocalRepository();
         this.properties.setProperty("maven.repo.local", this.inspector.getM2LocalPath());
         for (String skip : SKIP_LIST) {
             this.properties.setProperty(skip, "true");
@@ -118,6 +120,10 @@ public class MavenHelper {
         return inspector;
     }
 
+    public String getGlobalSettingsPath() {
+        return this.inspector.getM2SettingsPath();
+    }
+
     public InvocationOutputHandler getErrorHandler() {
         return errorHandler;
     }
@@ -131,19 +137,30 @@ public class MavenHelper {
     }
 
     public void setErrorHandler(InvocationOutputHandler errorHandler) {
+        closeHandler(this.errorHandler);
         this.errorHandler = errorHandler;
     }
 
     public void setOutputHandler(InvocationOutputHandler outputHandler) {
+        closeHandler(this.outputHandler);
         this.outputHandler = outputHandler;
     }
 
+    private static void closeHandler(InvocationOutputHandler handler) {
+        if (handler instanceof MavenOutputHandler) {
+            ((MavenOutputHandler) handler).close();
+        }
+    }
+
     public static Model readPomXml(File pomXml, String localMavenRepository) {
         ModelBuildingRequest req = new DefaultModelBuildingRequest();
         req.setProcessPlugins(true);
         req.setPomFile(pomXml);
         req.setValidationLevel(ModelBuildingRequest.VALIDATION_LEVEL_MINIMAL);
         req.setModelResolver(new RepositoryModelResolver(localMavenRepository));
+        // the profiles are activated as Maven would do it on this machine, e.g. with the JDK version or a system property,
+        // so the effective model contains their modules and plugins
+        req.setSystemProperties((Properties) System.getProperties().clone());
 
         DefaultModelBuilder defaultModelBuilder = new DefaultModelBuilderFactory().newInstance();
 
@@ -165,15 +182,29 @@ public class MavenHelper {
         this.updateLastOutputDate();
         t.start();
 
-        while (t.isAlive()) {
-            Instant now = new Date().toInstant();
-
-            if (now.isAfter(this.limitOutputDate)) {
-                t.interrupt();
-                throw new InterruptedException("Timeout occurred: no output has been received in the last " + TIMEOUT_WITHOUT_OUTPUT + " minutes.");
-            } else {
-                Thread.sleep(1000);
+        try {
+            while (t.isAlive()) {
+                Instant now = new Date().toInstant();
+
+                if (now.isAfter(this.limitOutputDate)) {
+                    t.interrupt();
+                    runnableMavenInvoker.stopMavenDaemon();
+                    throw new InterruptedException("Timeout occurred: no output has been received in the last " + TIMEOUT_WITHOUT_OUTPUT + " minutes.");
+                } else {
+                    try {
+                        Thread.sleep(1000);
+                    } catch (InterruptedException e) {
+                        // the caller doesn't need the result anymore: stop the build too
+                        t.interrupt();
+                        runnableMavenInvoker.stopMavenDaemon();
+                        throw e;
+                    }
+                }
             }
+        } finally {
+            // the log files must be complete before being pushed
+            closeHandler(this.outputHandler);
+            closeHandler(this.errorHandler);
         }
 
         return runnableMavenInvoker.getExitCode();
@@ -4,8 +4,11 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -91,10 +94,13 @@ class RepositoryModelResolver implements ModelResolver {
 
             if (response.code() == 200) {
                 localRepoFile.getParentFile().mkdirs();
-                FileWriter out = new FileWriter(localRepoFile);
+                // the models might be read concurrently: they must never see a partial pom
+                File tmpFile = new File(localRepoFile.getPath() + "." + UUID.randomUUID() + ".tmp");
+                FileWriter out = new FileWriter(tmpFile);
                 out.write(response.body().string());
                 out.flush();
                 out.close();
+                Files.move(tmpFile.toPath(), localRepoFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
                 return;
             }
         }
@@ -12,17 +12,47 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class allows us to run a Maven goal in a dedicated thread that we can interrupt for timeout
+ *
+ * By default each goal is run in a new Maven JVM. If a Maven Daemon (mvnd) executable is configured,
+ * the goals are sent to resident daemons instead: they keep the plugin classloaders and the project models
+ * warm between the invocations, while the output, the timeout and the exit code are handled the same way.
+ * Interrupting the thread only stops the mvnd client: on timeout, {@link #stopMavenDaemon()} must be called
+ * to stop the build running in the daemon.
+ * mvnd can only stop all the daemons of a daemon storage, so each build leases a storage of its own for its whole
+ * duration (see {@link MavenDaemonStorage}): stopping its daemons never stops the build of another pipeline.
  */
 public class RunnableMavenInvoker implements Runnable {
     private final Logger logger = LoggerFactory.getLogger(RunnableMavenInvoker.class);
 
+    // mvnd builds modules in parallel and renders a dynamic console by default:
+    // we want the same sequential plain output as with Maven
+    private static final Properties MAVEN_DAEMON_PROPERTIES = new Properties();
+    static {
+        MAVEN_DAEMON_PROPERTIES.setProperty("mvnd.rawStreams", "true");
+        MAVEN_DAEMON_PROPERTIES.setProperty("mvnd.threads", "1");
+    }
+
+    private static final long MAVEN_DAEMON_STOP_TIMEOUT = 60; // in seconds
+
     private MavenHelper mavenHelper;
     private int exitCode;
+    private volatile File mavenDaemon;
+
+    // guarded by this: the storage is released once the build ended or once its daemons have been stopped
+    private MavenDaemonStorage mavenDaemonStorage;
+    private boolean mavenDaemonStopRequested;
 
     public RunnableMavenInvoker(MavenHelper mavenHelper) {
         this.mavenHelper = mavenHelper;
@@ -47,9 +77,44 @@ public class RunnableMavenInvoker implements Runnable {
         request.setProperties(props);
         request.setBatchMode(true);
         request.setShowErrors(true);
+        if (this.mavenHelper.getGlobalSettingsPath() != null) {
+            request.setGlobalSettingsFile(new File(this.mavenHelper.getGlobalSettingsPath()));
+        }
 
         Invoker invoker = new DefaultInvoker();
 
+        String mavenDaemonExecutable = RepairnatorConfig.getInstance().getMavenDaemonExecutable();
+        if (mavenDaemonExecutable != null) {
+            File mavenDaemon = new File(mavenDaemonExecutable);
+            if (mavenDaemon.canExecute()) {
+                MavenDaemonStorage mavenDaemonStorage;
+                synchronized (this) {
+                    if (this.mavenDaemonStopRequested) {
+                        // the build has been stopped before being started
+                        this.exitCode = MavenHelper.MAVEN_ERROR;
+                        return;
+                    }
+                    try {
+                        mavenDaemonStorage = MavenDaemonStorage.lease();
+                    } catch (IOException e) {
+                        this.logger.error("Error while getting a Maven Daemon storage", e);
+                        this.exitCode = MavenHelper.MAVEN_ERROR;
+                        return;
+                    }
+                    this.mavenDaemonStorage = mavenDaemonStorage;
+                }
+                invoker.setMavenExecutable(mavenDaemon.getAbsoluteFile());
+                this.mavenDaemon = mavenDaemon.getAbsoluteFile();
+                Properties daemonProps = new Properties();
+                daemonProps.putAll(props);
+                daemonProps.putAll(MAVEN_DAEMON_PROPERTIES);
+                daemonProps.setProperty(MavenDaemonStorage.PROPERTY, mavenDaemonStorage.getDirectory().getPath());
+                request.setProperties(daemonProps);
+            } else {
+                this.logger.warn("The Maven Daemon executable " + mavenDaemonExecutable + " cannot be executed: a new Maven JVM will be used.");
+            }
+        }
+
         if (this.mavenHelper.getErrorHandler() != null) {
             invoker.setErrorHandler(this.mavenHelper.getErrorHandler());
         }
@@ -65,10 +130,113 @@ public class RunnableMavenInvoker implements Runnable {
             this.logger.error(e.getMessage());
             this.mavenHelper.getInspector().getJobStatus().addStepError(this.mavenHelper.getName(), e.getMessage());
             this.exitCode = MavenHelper.MAVEN_ERROR;
+        } finally {
+            synchronized (this) {
+                // if the build is being stopped, the storage is released once its daemons are stopped
+                if (this.mavenDaemonStorage != null && !this.mavenDaemonStopRequested) {
+                    this.mavenDaemonStorage.release();
+                    this.mavenDaemonStorage = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop the Maven daemons if the goal has been sent to one: killing the mvnd client does not stop the build
+     * in the daemon. Only the daemons of the storage leased by this build are stopped.
+     */
+    public void stopMavenDaemon() {
+        MavenDaemonStorage mavenDaemonStorage;
+        synchronized (this) {
+            this.mavenDaemonStopRequested = true;
+            mavenDaemonStorage = this.mavenDaemonStorage;
+        }
+        File mavenDaemon = this.mavenDaemon;
+        if (mavenDaemon == null || mavenDaemonStorage == null) {
+            return;
+        }
+        this.logger.info("Stopping the Maven daemons of " + mavenDaemonStorage.getDirectory() + " to stop the build of " + this.mavenHelper.getPomFile());
+        try {
+            Process process = new ProcessBuilder(mavenDaemon.getPath(), "--stop",
+                    "-D" + MavenDaemonStorage.PROPERTY + "=" + mavenDaemonStorage.getDirectory().getPath()).inheritIO().start();
+            if (!process.waitFor(MAVEN_DAEMON_STOP_TIMEOUT, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                this.logger.warn("The Maven daemons have not been stopped after " + MAVEN_DAEMON_STOP_TIMEOUT + " seconds.");
+            }
+        } catch (IOException e) {
+            this.logger.error("Error while stopping the Maven daemons", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            synchronized (this) {
+                mavenDaemonStorage.release();
+                this.mavenDaemonStorage = null;
+            }
         }
     }
 
     public int getExitCode() {
         return exitCode;
     }
+
+    /**
+     * A directory holding the registry of some Maven daemons, used by a single build at a time.
+     * The storages are kept between the builds, so their daemons stay warm: a storage is leased with a file lock,
+     * which excludes the other JVMs of the host, and with a set for the threads of this JVM.
+     */
+    static class MavenDaemonStorage {
+        static final String PROPERTY = "mvnd.daemonStorage";
+
+        private static final File ROOT = new File(System.getProperty("java.io.tmpdir"), "repairnator-mvnd");
+        private static final String LOCK_FILENAME = "repairnator.lock";
+        private static final Set<Integer> LEASED_STORAGES = new HashSet<>();
+
+        private final int index;
+        private final File directory;
+        private final RandomAccessFile lockFile;
+        private final FileLock lock;
+
+        private MavenDaemonStorage(int index, File directory, RandomAccessFile lockFile, FileLock lock) {
+            this.index = index;
+            this.directory = directory;
+            this.lockFile = lockFile;
+            this.lock = lock;
+        }
+
+        static synchronized MavenDaemonStorage lease() throws IOException {
+            for (int index = 0; ; index++) {
+                if (LEASED_STORAGES.contains(index)) {
+                    continue;
+                }
+                File directory = new File(ROOT, String.valueOf(index));
+                Files.createDirectories(directory.toPath());
+                RandomAccessFile lockFile = new RandomAccessFile(new File(directory, LOCK_FILENAME), "rw");
+                FileLock lock = lockFile.getChannel().tryLock();
+                if (lock == null) {
+                    // leased by another JVM
+                    lockFile.close();
+                    continue;
+                }
+                LEASED_STORAGES.add(index);
+                return new MavenDaemonStorage(index, directory, lockFile, lock);
+            }
+        }
+
+        File getDirectory() {
+            return directory;
+        }
+
+        void release() {
+            synchronized (MavenDaemonStorage.class) {
+                try {
+                    this.lock.release();
+                    this.lockFile.close();
+                } catch (IOException e) {
+                    LoggerFactory.getLogger(MavenDaemonStorage.class).warn("Error while releasing the Maven Daemon storage " + this.directory, e);
+                } finally {
+                    LEASED_STORAGES.remove(this.index);
+                }
+            }
+        }
+    }
 }
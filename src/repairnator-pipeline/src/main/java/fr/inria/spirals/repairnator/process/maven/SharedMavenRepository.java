@@ -0,0 +1,413 @@
+package fr.inria.spirals.repairnator.process.maven;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * A local Maven repository shared by all the pipelines running on the same host.
+ *
+ * The shared repository is never given directly to Maven as its local repository: each job keeps its own
+ * (see {@link fr.inria.spirals.repairnator.process.inspectors.ProjectInspector#getM2LocalPath()}), and the shared
+ * repository is declared as a read-only remote repository with a file URL (see {@link #writeSettings(Path)}).
+ * Maven then copies into the job repository only the artifacts the build actually resolves, and a job can never
+ * alter the shared content. Those artifacts are recorded with {@link #REPOSITORY_ID} in their _remote.repositories
+ * file, which tells the cache hits apart from the artifacts downloaded from the other repositories.
+ *
+ * At the end of the job, the release artifacts downloaded by the job are published in the shared repository
+ * (see {@link #publish(Path, Collection)}): only artifacts coming from a remote repository and whose content
+ * matches the downloaded checksum are published, so a job cannot poison the cache with its own build results.
+ * Publication and eviction are done under an exclusive lock, while reading does not need any lock.
+ */
+public class SharedMavenRepository {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedMavenRepository.class);
+
+    private static final String LOCK_FILENAME = ".repairnator.lock";
+    private static final String TMP_SUFFIX = ".repairnator-tmp";
+    private static final String REMOTE_REPOSITORIES_FILENAME = "_remote.repositories";
+    private static final String SNAPSHOT_SUFFIX = "-SNAPSHOT";
+    private static final String SHA1_EXTENSION = ".sha1";
+    private static final String SETTINGS_PROFILE_ID = "repairnator-shared-repository";
+
+    public static final String REPOSITORY_ID = "repairnator-shared";
+
+    // FileLock only protects us from other processes: threads of the same JVM must use this one
+    private static final ReentrantLock JVM_LOCK = new ReentrantLock();
+
+    private final Path root;
+    private final long maxSizeInBytes;
+
+    public SharedMavenRepository(String root, long maxSizeInBytes) {
+        this.root = Paths.get(root).toAbsolutePath();
+        this.maxSizeInBytes = maxSizeInBytes;
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Write Maven settings declaring the shared repository as a remote repository, searched like the repositories
+     * of the project. They are meant to be given as global settings, so the settings of the user still apply.
+     */
+    public void writeSettings(Path settingsFile) throws IOException {
+        String url = this.escapeXml(this.root.toUri().toString());
+        String repository = "<id>" + REPOSITORY_ID + "</id>\n"
+                + "          <url>" + url + "</url>\n"
+                + "          <releases><enabled>true</enabled><checksumPolicy>warn</checksumPolicy></releases>\n"
+                + "          <snapshots><enabled>false</enabled></snapshots>\n";
+        String settings = "<settings>\n"
+                + "  <profiles>\n"
+                + "    <profile>\n"
+                + "      <id>" + SETTINGS_PROFILE_ID + "</id>\n"
+                + "      <repositories>\n"
+                + "        <repository>\n"
+                + "          " + repository
+                + "        </repository>\n"
+                + "      </repositories>\n"
+                + "      <pluginRepositories>\n"
+                + "        <pluginRepository>\n"
+                + "          " + repository
+                + "        </pluginRepository>\n"
+                + "      </pluginRepositories>\n"
+                + "    </profile>\n"
+                + "  </profiles>\n"
+                + "  <activeProfiles>\n"
+                + "    <activeProfile>" + SETTINGS_PROFILE_ID + "</activeProfile>\n"
+                + "  </activeProfiles>\n"
+                + "</settings>\n";
+
+        if (settingsFile.getParent() != null) {
+            Files.createDirectories(settingsFile.getParent());
+        }
+        Files.write(settingsFile, settings.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String escapeXml(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    /**
+     * Publish in the shared repository the artifacts downloaded by the job, then evict the least recently
+     * used artifacts if the shared repository is too large.
+     *
+     * @param usedArtifacts the artifact files actually used by the job (e.g. its classpath), they are marked as recently used.
+     * @return the statistics of the cache for the given job.
+     */
+    public CacheStatistics publish(Path jobRepository, Collection<Path> usedArtifacts) throws IOException {
+        CacheStatistics statistics = new CacheStatistics();
+        if (!Files.isDirectory(jobRepository)) {
+            return statistics;
+        }
+        Files.createDirectories(this.root);
+
+        JVM_LOCK.lock();
+        try (RandomAccessFile lockFile = new RandomAccessFile(this.root.resolve(LOCK_FILENAME).toFile(), "rw");
+             FileChannel channel = lockFile.getChannel();
+             FileLock lock = channel.lock()) {
+
+            for (Path versionDir : this.listVersionDirectories(jobRepository)) {
+                Path sharedVersionDir = this.root.resolve(jobRepository.relativize(versionDir).toString());
+                if (this.isResolvedFromCache(versionDir)) {
+                    statistics.hits++;
+                    this.touch(sharedVersionDir);
+                } else if (this.isPublishable(versionDir)) {
+                    statistics.misses++;
+                    if (this.publishVersionDirectory(versionDir, sharedVersionDir)) {
+                        statistics.published++;
+                    }
+                }
+            }
+
+            for (Path usedArtifact : usedArtifacts) {
+                if (usedArtifact.startsWith(jobRepository) && usedArtifact.getParent() != null) {
+                    Path sharedVersionDir = this.root.resolve(jobRepository.relativize(usedArtifact.getParent()).toString());
+                    this.touch(sharedVersionDir);
+                }
+            }
+
+            statistics.evicted = this.evict();
+        } finally {
+            JVM_LOCK.unlock();
+        }
+        return statistics;
+    }
+
+    /**
+     * The artifacts resolved by the job from the shared repository are recorded with its id in _remote.repositories,
+     * e.g. "lib-1.0.pom>repairnator-shared=".
+     */
+    private boolean isResolvedFromCache(Path versionDir) throws IOException {
+        Path remoteRepositories = versionDir.resolve(REMOTE_REPOSITORIES_FILENAME);
+        if (!Files.exists(remoteRepositories)) {
+            return false;
+        }
+        for (String line : Files.readAllLines(remoteRepositories, StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (line.contains(".pom>") && line.endsWith(">" + REPOSITORY_ID + "=")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Only release artifacts downloaded from a remote repository are published:
+     * artifacts installed by the job itself are marked with an empty repository id in _remote.repositories,
+     * and the ones coming from the shared repository are already there.
+     */
+    private boolean isPublishable(Path versionDir) throws IOException {
+        Path remoteRepositories = versionDir.resolve(REMOTE_REPOSITORIES_FILENAME);
+        if (versionDir.getFileName().toString().endsWith(SNAPSHOT_SUFFIX) || !Files.exists(remoteRepositories)) {
+            return false;
+        }
+        for (String line : Files.readAllLines(remoteRepositories, StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (line.endsWith(">=") || line.endsWith(">" + REPOSITORY_ID + "=")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean publishVersionDirectory(Path versionDir, Path sharedVersionDir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> stream = Files.list(versionDir)) {
+            stream.filter(Files::isRegularFile).filter(this::isArtifactFile).forEach(files::add);
+        }
+
+        for (Path file : files) {
+            if (!this.hasValidChecksum(file)) {
+                LOGGER.warn("The checksum of " + file + " does not match: the artifact won't be shared.");
+                return false;
+            }
+        }
+
+        Files.createDirectories(sharedVersionDir);
+        for (Path file : files) {
+            Path sharedFile = sharedVersionDir.resolve(file.getFileName().toString());
+            if (Files.exists(sharedFile)) {
+                continue;
+            }
+            // readers must never see a partial file: we copy it aside, then we rename it
+            Path tmpFile = sharedVersionDir.resolve(file.getFileName().toString() + "." + UUID.randomUUID() + TMP_SUFFIX);
+            Files.copy(file, tmpFile);
+            tmpFile.toFile().setReadOnly();
+            try {
+                Files.move(tmpFile, sharedFile, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                Files.deleteIfExists(tmpFile);
+            }
+        }
+        this.touch(sharedVersionDir);
+        return true;
+    }
+
+    private boolean isArtifactFile(Path file) {
+        String fileName = file.getFileName().toString();
+        return !fileName.equals(REMOTE_REPOSITORIES_FILENAME)
+                && !fileName.endsWith(".lastUpdated")
+                && !fileName.endsWith(".part")
+                && !fileName.endsWith(TMP_SUFFIX)
+                && !fileName.startsWith("maven-metadata")
+                && !fileName.equals("resolver-status.properties");
+    }
+
+    private boolean hasValidChecksum(Path file) throws IOException {
+        String fileName = file.getFileName().toString();
+        if (fileName.endsWith(SHA1_EXTENSION)) {
+            return true;
+        }
+        Path checksumFile = file.resolveSibling(fileName + SHA1_EXTENSION);
+        if (!Files.exists(checksumFile)) {
+            return true;
+        }
+        String expected = new String(Files.readAllBytes(checksumFile), StandardCharsets.UTF_8).trim();
+        if (expected.isEmpty()) {
+            return true;
+        }
+        // some repositories add the file name after the checksum
+        expected = expected.split("\\s+")[0];
+        return this.sha1Hex(file).equalsIgnoreCase(expected);
+    }
+
+    private String sha1Hex(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-1 is not available", e);
+        }
+        byte[] buffer = new byte[8192];
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        StringBuilder result = new StringBuilder();
+        for (byte b : digest.digest()) {
+            result.append(String.format("%02x", b));
+        }
+        return result.toString();
+    }
+
+    private void touch(Path sharedVersionDir) throws IOException {
+        if (Files.isDirectory(sharedVersionDir)) {
+            Files.setLastModifiedTime(sharedVersionDir, FileTime.fromMillis(System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Delete the least recently used artifacts until the repository size is under the limit.
+     * Must be called while holding the lock.
+     *
+     * @return the number of evicted artifacts.
+     */
+    private int evict() throws IOException {
+        if (this.maxSizeInBytes <= 0) {
+            return 0;
+        }
+
+        Set<Path> allVersionDirs = new LinkedHashSet<>();
+        long totalSize = 0;
+        for (Path file : this.listFiles(this.root)) {
+            totalSize += Files.size(file);
+            if (file.getFileName().toString().endsWith(".pom")) {
+                allVersionDirs.add(file.getParent());
+            }
+        }
+        if (totalSize <= this.maxSizeInBytes) {
+            return 0;
+        }
+
+        List<Path> versionDirs = new ArrayList<>(allVersionDirs);
+        versionDirs.sort(Comparator.comparing(this::getLastModifiedTime));
+        int nbEvicted = 0;
+        for (Path versionDir : versionDirs) {
+            if (totalSize <= this.maxSizeInBytes) {
+                break;
+            }
+            List<Path> files = new ArrayList<>();
+            try (Stream<Path> stream = Files.list(versionDir)) {
+                stream.forEach(files::add);
+            }
+            for (Path file : files) {
+                totalSize -= Files.size(file);
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(versionDir);
+            nbEvicted++;
+        }
+        LOGGER.info(nbEvicted + " artifacts evicted from the shared Maven repository " + this.root);
+        return nbEvicted;
+    }
+
+    private FileTime getLastModifiedTime(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private Set<Path> listVersionDirectories(Path repository) throws IOException {
+        Set<Path> result = new LinkedHashSet<>();
+        Files.walkFileTree(repository, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                // one pom per version directory
+                if (file.getFileName().toString().endsWith(".pom")) {
+                    result.add(file.getParent());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return result;
+    }
+
+    private List<Path> listFiles(Path repository) throws IOException {
+        List<Path> result = new ArrayList<>();
+        Files.walkFileTree(repository, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                String fileName = file.getFileName().toString();
+                if (attrs.isRegularFile() && !fileName.equals(LOCK_FILENAME) && !fileName.endsWith(TMP_SUFFIX)) {
+                    result.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                // concurrent eviction
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Statistics about the usage of the shared repository by one job.
+     * Artifacts are counted by version directory, i.e. one per groupId:artifactId:version:
+     * a hit is an artifact resolved by the job from the shared repository, a miss one downloaded from elsewhere.
+     */
+    public static class CacheStatistics {
+        private int hits;
+        private int misses;
+        private int published;
+        private int evicted;
+
+        public int getHits() {
+            return hits;
+        }
+
+        public int getMisses() {
+            return misses;
+        }
+
+        public int getPublished() {
+            return published;
+        }
+
+        public int getEvicted() {
+            return evicted;
+        }
+
+        @Override
+        public String toString() {
+            return "CacheStatistics{" +
+                    "hits=" + hits +
+                    ", misses=" + misses +
+                    ", published=" + published +
+                    ", evicted=" + evicted +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package fr.inria.spirals.repairnator.process.maven.output;
+
+import fr.inria.spirals.repairnator.config.RepairnatorConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class writes the Maven logs to their files from a single background thread, shared by all the builds.
+ * The writers are buffered and only flushed once there is nothing more to write: the Maven output is never
+ * blocked by a flush on each line.
+ *
+ * A file might be opened several times (e.g. by the output handler and the error handler of a build):
+ * it is only closed once all its users closed it. {@link #close(String)} waits until all the lines are written:
+ * a line written after the close of its file is dropped, it is never written to the closed stream.
+ */
+public class AsyncLogWriter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncLogWriter.class);
+
+    private static final int QUEUE_CAPACITY = 10000;
+    private static final int CLOSE_TIMEOUT = 60; // in seconds
+
+    private static AsyncLogWriter instance;
+
+    private final BlockingQueue<Entry> queue;
+    private final Map<String, Writer> writers;
+    private final Map<String, Integer> openCounts;
+
+    private static class Entry {
+        private final String path;
+        private final Writer writer;
+        private final String text;
+        private final CountDownLatch closeLatch;
+
+        Entry(String path, Writer writer, String text, CountDownLatch closeLatch) {
+            this.path = path;
+            this.writer = writer;
+            this.text = text;
+            this.closeLatch = closeLatch;
+        }
+    }
+
+    private AsyncLogWriter() {
+        this.queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+        this.writers = new HashMap<>();
+        this.openCounts = new HashMap<>();
+
+        Thread thread = new Thread(this::writeEntries, "repairnator-log-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public static synchronized AsyncLogWriter getInstance() {
+        if (instance == null) {
+            // the writer thread is shared by all the jobs
+            instance = RepairnatorConfig.createWithSharedInstance(AsyncLogWriter::new);
+        }
+        return instance;
+    }
+
+    /**
+     * Open the file at the given path: it is created, or truncated if nobody else is using it.
+     */
+    public synchronized void open(String path) throws IOException {
+        Integer count = this.openCounts.get(path);
+        if (count == null) {
+            this.writers.put(path, new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path), StandardCharsets.UTF_8)));
+            count = 0;
+        }
+        this.openCounts.put(path, count + 1);
+    }
+
+    /**
+     * Write the given text to the file at the given path, which must have been opened.
+     * It only blocks if there are already too many lines waiting to be written.
+     */
+    public void write(String path, String text) {
+        // the line is queued while holding the lock: a concurrent close can only queue its entry afterwards,
+        // so the queue is always drained up to the last line of a file before the file is closed
+        synchronized (this) {
+            Writer writer = this.writers.get(path);
+            if (writer == null) {
+                return;
+            }
+            try {
+                this.queue.put(new Entry(path, writer, text, null));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Close the file at the given path. If nobody else is using it, wait until its lines are written and close it.
+     */
+    public void close(String path) {
+        Writer writer;
+        synchronized (this) {
+            Integer count = this.openCounts.get(path);
+            if (count == null) {
+                return;
+            }
+            if (count > 1) {
+                this.openCounts.put(path, count - 1);
+                return;
+            }
+            this.openCounts.remove(path);
+            writer = this.writers.remove(path);
+        }
+
+        CountDownLatch closeLatch = new CountDownLatch(1);
+        try {
+            this.queue.put(new Entry(path, writer, null, closeLatch));
+            if (!closeLatch.await(CLOSE_TIMEOUT, TimeUnit.SECONDS)) {
+                LOGGER.warn("The log " + path + " has not been written in " + CLOSE_TIMEOUT + " seconds.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeEntries() {
+        List<Entry> entries = new ArrayList<>();
+        Map<Writer, String> writtenFiles = new IdentityHashMap<>();
+        while (true) {
+            try {
+                entries.add(this.queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            this.queue.drainTo(entries);
+
+            for (Entry entry : entries) {
+                try {
+                    if (entry.closeLatch != null) {
+                        writtenFiles.remove(entry.writer);
+                        entry.writer.close();
+                    } else {
+                        entry.writer.write(entry.text);
+                        writtenFiles.put(entry.writer, entry.path);
+                    }
+                } catch (IOException e) {
+                    LOGGER.error("Error while writing to the log " + entry.path + ".", e);
+                } finally {
+                    if (entry.closeLatch != null) {
+                        entry.closeLatch.countDown();
+                    }
+                }
+            }
+            entries.clear();
+
+            // nothing more to write for now: the files can be flushed
+            for (Map.Entry<Writer, String> writtenFile : writtenFiles.entrySet()) {
+                try {
+                    writtenFile.getKey().flush();
+                } catch (IOException e) {
+                    LOGGER.error("Error while flushing the log " + writtenFile.getValue() + ".", e);
+                }
+            }
+            writtenFiles.clear();
+        }
+    }
+}
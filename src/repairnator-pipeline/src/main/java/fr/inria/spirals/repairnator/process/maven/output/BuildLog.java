@@ -0,0 +1,272 @@
+package fr.inria.spirals.repairnator.process.maven.output;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The log of the Maven builds of a pipeline.
+ *
+ * The lines are stored in chunks of UTF-8 bytes, optionally compressed, instead of one String per line.
+ * When the chunks kept in memory exceed the memory limit, the oldest ones are spilled to a temporary file,
+ * so the memory used doesn't depend on the size of the build.
+ * The log is read with a streaming iterator: the lines are decoded chunk by chunk, while it is read.
+ *
+ * This class is thread-safe: an iterator returns the lines added before its creation.
+ * The log must be closed once the pipeline is over, to delete its temporary file.
+ */
+public class BuildLog implements Iterable<String>, Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BuildLog.class);
+
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024; // in chars
+    public static final long DEFAULT_MEMORY_LIMIT = 16 * 1024 * 1024; // in bytes
+
+    private final int chunkSize;
+    private final long memoryLimit;
+    private final boolean compress;
+
+    private final StringBuilder currentChunk;
+    private final Deque<byte[]> chunks;
+    private long chunksSize;
+    private long nbLines;
+
+    private File spillFile;
+    private DataOutputStream spillOutput;
+    private long spillLength;
+
+    public BuildLog() {
+        this(DEFAULT_CHUNK_SIZE, DEFAULT_MEMORY_LIMIT, true);
+    }
+
+    public BuildLog(int chunkSize, long memoryLimit, boolean compress) {
+        this.chunkSize = chunkSize;
+        this.memoryLimit = memoryLimit;
+        this.compress = compress;
+        this.currentChunk = new StringBuilder();
+        this.chunks = new ArrayDeque<>();
+    }
+
+    public synchronized void add(String line) {
+        this.currentChunk.append(line).append('\n');
+        this.nbLines++;
+        if (this.currentChunk.length() >= this.chunkSize) {
+            this.sealCurrentChunk();
+        }
+    }
+
+    public synchronized long size() {
+        return this.nbLines;
+    }
+
+    private void sealCurrentChunk() {
+        byte[] chunk = this.encode(this.currentChunk.toString());
+        this.currentChunk.setLength(0);
+        this.chunks.addLast(chunk);
+        this.chunksSize += chunk.length;
+
+        while (this.chunksSize > this.memoryLimit && !this.chunks.isEmpty()) {
+            byte[] oldestChunk = this.chunks.peekFirst();
+            if (!this.spill(oldestChunk)) {
+                // the chunks are kept in memory if they cannot be spilled
+                break;
+            }
+            this.chunks.removeFirst();
+            this.chunksSize -= oldestChunk.length;
+        }
+    }
+
+    private boolean spill(byte[] chunk) {
+        try {
+            if (this.spillOutput == null) {
+                this.spillFile = File.createTempFile("repairnator-buildlog", ".chunks");
+                this.spillOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(this.spillFile)));
+            }
+            this.spillOutput.writeInt(chunk.length);
+            this.spillOutput.write(chunk);
+            this.spillLength += 4 + chunk.length;
+            return true;
+        } catch (IOException e) {
+            LOGGER.warn("Error while spilling the build log to the disk, it will be kept in memory.", e);
+            return false;
+        }
+    }
+
+    private byte[] encode(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (!this.compress) {
+            return bytes;
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4);
+        try (DeflaterOutputStream output = new DeflaterOutputStream(compressed, new Deflater(Deflater.BEST_SPEED))) {
+            output.write(bytes);
+        } catch (IOException e) {
+            // it cannot happen with a byte array
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    private InputStream decode(byte[] chunk) {
+        InputStream input = new ByteArrayInputStream(chunk);
+        return this.compress ? new InflaterInputStream(input) : input;
+    }
+
+    File getSpillFile() {
+        return spillFile;
+    }
+
+    /**
+     * Release the memory and delete the temporary file of the log: the pipeline runs in a long-lived JVM,
+     * so the file cannot wait for the end of the JVM. The log is empty afterwards.
+     */
+    @Override
+    public synchronized void close() {
+        if (this.spillOutput != null) {
+            try {
+                this.spillOutput.close();
+            } catch (IOException e) {
+                LOGGER.warn("Error while closing the build log file.", e);
+            }
+            this.spillOutput = null;
+        }
+        if (this.spillFile != null) {
+            if (!this.spillFile.delete()) {
+                LOGGER.warn("The build log file " + this.spillFile + " cannot be deleted.");
+            }
+            this.spillFile = null;
+        }
+        this.spillLength = 0;
+        this.chunks.clear();
+        this.chunksSize = 0;
+        this.currentChunk.setLength(0);
+        this.nbLines = 0;
+    }
+
+    /**
+     * @return an iterator over the lines added so far, which decodes the chunks one after the other.
+     */
+    @Override
+    public synchronized Iterator<String> iterator() {
+        List<byte[]> memoryChunks = new ArrayList<>(this.chunks);
+        String lastChunk = this.currentChunk.toString();
+        long spilledLength = this.spillLength;
+
+        if (this.spillOutput != null) {
+            try {
+                this.spillOutput.flush();
+            } catch (IOException e) {
+                LOGGER.warn("Error while flushing the build log to the disk.", e);
+            }
+        }
+        return new LineIterator(this.spillFile, spilledLength, memoryChunks, lastChunk);
+    }
+
+    private class LineIterator implements Iterator<String> {
+        private final File spillFile;
+        private final long spilledLength;
+        private final Iterator<byte[]> memoryChunks;
+        private String lastChunk;
+
+        private DataInputStream spillInput;
+        private long spillPosition;
+        private BufferedReader currentReader;
+        private String nextLine;
+
+        LineIterator(File spillFile, long spilledLength, List<byte[]> memoryChunks, String lastChunk) {
+            this.spillFile = spillFile;
+            this.spilledLength = spilledLength;
+            this.memoryChunks = memoryChunks.iterator();
+            this.lastChunk = lastChunk;
+        }
+
+        private byte[] nextSpilledChunk() throws IOException {
+            if (this.spillFile == null || this.spillPosition >= this.spilledLength) {
+                if (this.spillInput != null) {
+                    this.spillInput.close();
+                    this.spillInput = null;
+                }
+                return null;
+            }
+            if (this.spillInput == null) {
+                this.spillInput = new DataInputStream(new BufferedInputStream(new FileInputStream(this.spillFile)));
+            }
+            byte[] chunk = new byte[this.spillInput.readInt()];
+            this.spillInput.readFully(chunk);
+            this.spillPosition += 4 + chunk.length;
+            return chunk;
+        }
+
+        private BufferedReader nextReader() throws IOException {
+            byte[] chunk = this.nextSpilledChunk();
+            if (chunk == null && this.memoryChunks.hasNext()) {
+                chunk = this.memoryChunks.next();
+            }
+            if (chunk != null) {
+                return new BufferedReader(new InputStreamReader(decode(chunk), StandardCharsets.UTF_8));
+            }
+            if (this.lastChunk != null) {
+                BufferedReader reader = new BufferedReader(new StringReader(this.lastChunk));
+                this.lastChunk = null;
+                return reader;
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (this.nextLine == null) {
+                    if (this.currentReader == null) {
+                        this.currentReader = this.nextReader();
+                        if (this.currentReader == null) {
+                            return false;
+                        }
+                    }
+                    this.nextLine = this.currentReader.readLine();
+                    if (this.nextLine == null) {
+                        this.currentReader = null;
+                    }
+                }
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error while reading the build log.", e);
+            }
+        }
+
+        @Override
+        public String next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String line = this.nextLine;
+            this.nextLine = null;
+            return line;
+        }
+    }
+}
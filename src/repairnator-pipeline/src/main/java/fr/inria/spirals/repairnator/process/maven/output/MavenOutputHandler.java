@@ -3,11 +3,11 @@ package fr.inria.spirals.repairnator.process.maven.output;
 import fr.inria.spirals.repairnator.config.RepairnatorConfig;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
 import fr.inria.spirals.repairnator.process.maven.MavenHelper;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.maven.shared.invoker.InvocationOutputHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.FileWriter;
 import java.io.IOException;
 
 /**
@@ -17,15 +17,22 @@ public abstract class MavenOutputHandler implements InvocationOutputHandler {
 
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
+    private static final String CONFIDENTIAL_INFORMATION = "CONFIDENTIAL_INFORMATION";
+    // the error lines are all kept in the log file, but only the first ones are copied in the job status
+    private static final int MAX_STEP_ERROR_LINES = 1000;
+
     private MavenHelper mavenHelper;
     protected ProjectInspector inspector;
     protected String name;
-    private FileWriter fileWriter;
+    private String filePath;
+    private String githubToken;
+    private int nbStepErrorLines;
 
     public MavenOutputHandler(MavenHelper mavenHelper) {
         this.mavenHelper = mavenHelper;
         this.inspector = mavenHelper.getInspector();
         this.name = mavenHelper.getName();
+        this.githubToken = RepairnatorConfig.getInstance().getGithubToken();
         this.initFileWriter();
     }
 
@@ -39,25 +46,39 @@ public abstract class MavenOutputHandler implements InvocationOutputHandler {
 
         inspector.getJobStatus().addFileToPush(filename);
         try {
-            this.fileWriter = new FileWriter(filePath);
+            AsyncLogWriter.getInstance().open(filePath);
+            this.filePath = filePath;
         } catch (IOException e) {
             this.getLogger().error("Cannot create file writer for file " + filePath + ".", e);
         }
     }
 
     private void writeToFile(String s) {
-    	String githubToken = RepairnatorConfig.getInstance().getGithubToken();
-    	String confidentialInformation = "CONFIDENTIAL_INFORMATION";
-        if (this.fileWriter != null) {
-            try {
-            	if (githubToken != null && s != null && s.contains(githubToken)) {
-            		s = s.replaceAll(githubToken, confidentialInformation);
-            	}
-                this.fileWriter.write(s);
-                this.fileWriter.flush();
-            } catch (IOException e) {
-                this.getLogger().error("Error while writing to repairnator.maven log.", e);
+        if (this.filePath != null) {
+            // the token is a plain string: no need of a regex to replace it
+            if (this.githubToken != null && !this.githubToken.isEmpty() && s != null && s.contains(this.githubToken)) {
+                s = StringUtils.replace(s, this.githubToken, CONFIDENTIAL_INFORMATION);
             }
+            AsyncLogWriter.getInstance().write(this.filePath, s);
+        }
+    }
+
+    protected void addStepErrorLine(String s) {
+        this.nbStepErrorLines++;
+        if (this.nbStepErrorLines <= MAX_STEP_ERROR_LINES) {
+            this.inspector.getJobStatus().addStepError(name, s);
+        } else if (this.nbStepErrorLines == MAX_STEP_ERROR_LINES + 1) {
+            this.inspector.getJobStatus().addStepError(name, "Too many error lines: the next ones are only available in the Maven log.");
+        }
+    }
+
+    /**
+     * Wait until all the lines are written to the log file, and close it.
+     */
+    public void close() {
+        if (this.filePath != null) {
+            AsyncLogWriter.getInstance().close(this.filePath);
+            this.filePath = null;
         }
     }
 
@@ -3,6 +3,7 @@ package fr.inria.spirals.repairnator.process.step;
 import fr.inria.spirals.repairnator.utils.Utils;
 import fr.inria.jtravis.entities.Build;
 import fr.inria.spirals.repairnator.process.inspectors.JobStatus;
+import fr.inria.spirals.repairnator.process.inspectors.JobStatusData;
 import fr.inria.spirals.repairnator.config.RepairnatorConfig;
 import fr.inria.spirals.repairnator.notifier.AbstractNotifier;
 import fr.inria.spirals.repairnator.process.inspectors.*;
@@ -20,8 +21,10 @@ import java.util.*;
 
 /**
  * This class defines a step of the pipeline.
- * Steps are chained and when a step has finished its execution, the next step execution is called,
- * unless the it is a blocking step and the execution status stops the whole pipeline.
+ * Steps are chained with {@link #addNextStep(AbstractStep)}, and the chain is run by a {@link StepScheduler}:
+ * when a step has finished its execution the next one is executed, unless it is a blocking step and its
+ * execution status stops the whole pipeline. Steps declaring the data they read and write
+ * (see {@link #getReadData()}) might be executed at the same time as the independent steps around them.
  */
 public abstract class AbstractStep {
     /**
@@ -194,15 +197,6 @@ public abstract class AbstractStep {
         this.inspector.getJobStatus().addStepError(this.name, error + " Original msg: " + exception.getMessage());
     }
 
-    protected void executeNextStep() {
-        this.observeAndNotify();
-        if (this.nextStep != null) {
-            this.nextStep.execute();
-        } else {
-            this.terminatePipeline();
-        }
-    }
-
     private void serializeData() {
         if (serializers != null) {
             if (RepairnatorConfig.getInstance().getLauncherMode() == LauncherMode.BEARS) {
@@ -245,7 +239,7 @@ public abstract class AbstractStep {
     }
 
 
-    private void observeAndNotify() {
+    void observeAndNotify() {
         if (this.notifiers != null) {
             for (AbstractNotifier notifier : this.notifiers) {
                 notifier.observe(this.inspector);
@@ -307,6 +301,7 @@ public abstract class AbstractStep {
 
     protected void cleanMavenArtifactsAndLocalRepo() {
         if (this.inspector.getM2LocalPath() != null) {
+            this.inspector.publishM2LocalRepository();
             try {
                 FileUtils.deleteDirectory(this.inspector.getM2LocalPath());
             } catch (IOException e) {
@@ -338,7 +333,49 @@ public abstract class AbstractStep {
         return this.shouldStop;
     }
 
+    /**
+     * Execute this step and the next ones, until the end of the pipeline.
+     * The steps are run by a {@link StepScheduler}: the independent steps might run at the same time.
+     */
     public void execute() {
+        new StepScheduler(this.getConfig().getPipelineStepThreads()).execute(this);
+    }
+
+    /**
+     * @return true if the pipeline must stop after the execution of this step.
+     */
+    boolean updateShouldStop() {
+        this.shouldStop = this.shouldStop || (this.isBlockingStep() && this.stepStatus != null && !this.stepStatus.isSuccess());
+        return this.shouldStop;
+    }
+
+    AbstractStep getNextStep() {
+        return this.nextStep;
+    }
+
+    /**
+     * The data of the job status read by this step, used to know which steps can be run at the same time.
+     * By default a step might read anything, so it is never run concurrently with another step.
+     *
+     * @return the data read by this step, or null if unknown.
+     */
+    public Set<JobStatusData> getReadData() {
+        return null;
+    }
+
+    /**
+     * The data of the job status written by this step, see {@link #getReadData()}.
+     *
+     * @return the data written by this step, or null if unknown.
+     */
+    public Set<JobStatusData> getWrittenData() {
+        return null;
+    }
+
+    /**
+     * Execute the step and record its status, without executing the next steps.
+     */
+    protected void executeStep() {
         List<AbstractStep> steps = this.inspector.getSteps();
         this.getLogger().debug("----------------------------------------------------------------------");
         this.getLogger().debug("STEP "+ (steps.indexOf(this) + 1)+"/"+ steps.size() +": "+this.name);
@@ -358,18 +395,12 @@ public abstract class AbstractStep {
         reproductionBuggyBuild.addStep(this);
 
         this.inspector.getJobStatus().addStepStatus(this.stepStatus);
-
-        this.shouldStop = this.shouldStop || (this.isBlockingStep() && !this.stepStatus.isSuccess());
-        if (!this.shouldStop) {
-            this.getLogger().debug("EXECUTE NEXT STEP");
-            this.executeNextStep();
-        } else {
-            this.getLogger().debug("TERMINATE PIPELINE");
-            this.terminatePipeline();
-        }
     }
 
-    private void terminatePipeline() {
+    /**
+     * Run the final steps with the given scheduler, then serialize the results and clean the workspace.
+     */
+    void terminatePipeline(StepScheduler scheduler) {
         if (!this.inspector.isPipelineEnding()) {
             this.inspector.setPipelineEnding(true);
             this.recordMachineInfo();
@@ -379,7 +410,7 @@ public abstract class AbstractStep {
                         ||
                         (this.getInspector() instanceof ProjectInspector4Bears && // Bears
                         ((ProjectInspector4Bears) this.getInspector()).isBug())) { // A bug and its patch were reproduced
-                    this.inspector.getFinalStep().execute();
+                    scheduler.executeSteps(this.inspector.getFinalStep());
                 } else {
                     if (this.getInspector() instanceof ProjectInspector4Bears) {
                         this.getLogger().debug("FINAL STEPS SKIPPED: The reproduction of the bug and/or the patch failed.");
@@ -392,6 +423,7 @@ public abstract class AbstractStep {
             }
             this.serializeData();
             this.cleanMavenArtifactsAndLocalRepo();
+            this.inspector.closeBuildLog();
             this.inspector.printPipelineEnd();
         }
     }
@@ -3,13 +3,32 @@ package fr.inria.spirals.repairnator.process.step;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
 import fr.inria.spirals.repairnator.process.maven.MavenHelper;
 import fr.inria.spirals.repairnator.states.PipelineState;
+import org.apache.commons.io.FileUtils;
 
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 /**
  * Created by urli on 03/01/2017.
  */
 public class BuildProject extends AbstractStep {
+    public static final String TEST_FAILURE_IGNORE_PROPERTY = "maven.test.failure.ignore";
+    private static final String SUREFIREREPORT_PATH = "/target/surefire-reports";
+    private static final String FAILSAFEREPORT_PATH = "/target/failsafe-reports";
+    private static final String SKIP_INTEGRATION_TESTS_PROPERTY = "skipITs";
+
+    // true if a TestProject step relies on this step to run the tests
+    private boolean testsRequested;
+    // true if the tests have been run by the last execution of this step
+    private boolean testsExecuted;
 
     public BuildProject(ProjectInspector inspector) {
         super(inspector, true);
@@ -23,27 +42,94 @@ public class BuildProject extends AbstractStep {
         super(inspector, blockingStep, stepName);
     }
 
+    /**
+     * Ask this step to run the tests in the same Maven invocation as the build, if the config allows it.
+     * See {@link TestProject#TestProject(ProjectInspector, BuildProject)}.
+     */
+    void requestTests() {
+        this.testsRequested = true;
+    }
+
+    /**
+     * @return true if the tests have been run during the build: the surefire reports are then already available.
+     */
+    public boolean isTestsExecuted() {
+        return testsExecuted;
+    }
+
     protected StepStatus businessExecute() {
+        this.testsExecuted = false;
+
+        if (this.testsRequested && this.getConfig().isCombineBuildAndTest()) {
+            this.getLogger().debug("Building project by installing artifacts with maven (including test execution)...");
+            // the reports of a previous execution of the step must not be mixed up with the new ones
+            this.removeTestReports();
+
+            if (this.runMaven(true) == MavenHelper.MAVEN_SUCCESS) {
+                this.testsExecuted = true;
+                return StepStatus.buildSuccess(this);
+            }
+            // the failing tests don't stop the build, but a crash or a timeout of the tests does, as well as
+            // the checkstyle checks run by the tests: the project is built alone to know whether it can be built,
+            // then the TestProject step runs the tests itself and records their failure.
+            this.getLogger().info("The build including the tests failed: building the project without the tests.");
+        }
+
         this.getLogger().debug("Building project by installing artifacts with maven (skip test execution)...");
+        if (this.runMaven(false) == MavenHelper.MAVEN_SUCCESS) {
+            return StepStatus.buildSuccess(this);
+        } else {
+            this.addStepError("Repository " + this.getInspector().getRepoSlug() + " cannot be built.");
+            return StepStatus.buildError(this, PipelineState.NOTBUILDABLE);
+        }
+    }
 
+    private int runMaven(boolean withTests) {
         Properties properties = new Properties();
-        properties.setProperty(MavenHelper.SKIP_TEST_PROPERTY, "true");
+        if (withTests) {
+            // the failing tests must not stop the build: they are analyzed afterwards
+            properties.setProperty(TEST_FAILURE_IGNORE_PROPERTY, "true");
+            // install runs the integration-test phase, which a separate test goal never reaches:
+            // only the unit tests must be run to get the same results
+            properties.setProperty(SKIP_INTEGRATION_TESTS_PROPERTY, "true");
+        } else {
+            properties.setProperty(MavenHelper.SKIP_TEST_PROPERTY, "true");
+        }
 
-        MavenHelper helper = new MavenHelper(this.getPom(), "install", properties, this.getClass().getSimpleName(), this.getInspector(), true);
+        // the checkstyle checks are skipped for the build, but not for the tests (see TestProject)
+        MavenHelper helper = new MavenHelper(this.getPom(), "install", properties, this.getClass().getSimpleName(), this.getInspector(), !withTests);
 
-        int result;
         try {
-            result = helper.run();
+            return helper.run();
         } catch (InterruptedException e) {
-            this.addStepError("Error while building", e);
-            result = MavenHelper.MAVEN_ERROR;
+            if (withTests) {
+                this.getLogger().warn("Error while building with the tests: " + e);
+            } else {
+                this.addStepError("Error while building", e);
+            }
+            return MavenHelper.MAVEN_ERROR;
         }
+    }
 
-        if (result == MavenHelper.MAVEN_SUCCESS) {
-            return StepStatus.buildSuccess(this);
-        } else {
-            this.addStepError("Repository " + this.getInspector().getRepoSlug() + " cannot be built.");
-            return StepStatus.buildError(this, PipelineState.NOTBUILDABLE);
+    private void removeTestReports() {
+        final List<Path> reportDirs = new ArrayList<>();
+        try {
+            Files.walkFileTree(Paths.get(this.getInspector().getRepoLocalPath()), new SimpleFileVisitor<Path>() {
+                public FileVisitResult preVisitDirectory(Path file, BasicFileAttributes attrs) {
+                    if (file.toString().endsWith(SUREFIREREPORT_PATH) || file.toString().endsWith(FAILSAFEREPORT_PATH)) {
+                        reportDirs.add(file);
+                        return FileVisitResult.SKIP_SUBTREE;
+                    } else {
+                        return FileVisitResult.CONTINUE;
+                    }
+                }
+            });
+        } catch (IOException e) {
+            this.getLogger().warn("Error while looking for the previous test reports: " + e);
+        }
+
+        for (Path reportDir : reportDirs) {
+            FileUtils.deleteQuietly(reportDir.toFile());
         }
     }
 
@@ -1,9 +1,11 @@
 package fr.inria.spirals.repairnator.process.step;
 
 import fr.inria.jtravis.entities.Build;
+import fr.inria.spirals.repairnator.process.git.GitMirrorCache;
 import fr.inria.spirals.repairnator.utils.Utils;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
 import fr.inria.spirals.repairnator.states.PipelineState;
+import org.apache.commons.io.FileUtils;
 import org.eclipse.jgit.api.Git;
 
 import java.io.File;
@@ -26,6 +28,10 @@ public class CloneRepository extends AbstractStep {
         String repoRemotePath = Utils.getCompleteGithubRepoUrl(repoSlug);
         String repoLocalPath = this.getInspector().getRepoLocalPath();
 
+        if (this.cloneFromMirror(repoSlug, repoRemotePath, repoLocalPath)) {
+            return StepStatus.buildSuccess(this);
+        }
+
         try {
             this.getLogger().debug("Cloning repository " + repoSlug + " in the following directory: " + repoLocalPath);
 
@@ -38,4 +44,34 @@ public class CloneRepository extends AbstractStep {
         }
     }
 
+    /**
+     * Clone the repository from the git mirror cache if one is configured.
+     * If anything goes wrong, the directory is cleaned so the repository can be cloned directly from GitHub.
+     */
+    private boolean cloneFromMirror(String repoSlug, String repoRemotePath, String repoLocalPath) {
+        GitMirrorCache gitMirrorCache = this.getInspector().getGitMirrorCache();
+        if (gitMirrorCache == null) {
+            return false;
+        }
+
+        File repoLocalDirectory = new File(repoLocalPath);
+        try {
+            this.getLogger().debug("Cloning repository " + repoSlug + " from the mirror cache in the following directory: " + repoLocalPath);
+
+            if (gitMirrorCache.cloneFromMirror(repoSlug, repoRemotePath, repoLocalDirectory)) {
+                try (Git git = Git.open(repoLocalDirectory)) {
+                    this.getInspector().getGitHelper().initAllSubmodules(git);
+                }
+                gitMirrorCache.evict();
+                return true;
+            }
+        } catch (Exception e) {
+            this.getLogger().warn("Error while cloning the repository " + repoSlug + " from the mirror cache.", e);
+        }
+
+        this.getLogger().warn("The repository " + repoSlug + " will be cloned directly from GitHub.");
+        FileUtils.deleteQuietly(repoLocalDirectory);
+        return false;
+    }
+
 }
@@ -0,0 +1,298 @@
+package fr.inria.spirals.repairnator.process.step;
+
+import fr.inria.spirals.repairnator.process.inspectors.JobStatus;
+import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import fr.inria.spirals.repairnator.process.step.repair.AbstractRepairStep;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This step runs several repair tools at the same time instead of chaining them.
+ *
+ * Each tool works on its own copy of the repository with its own job status and properties: once all the tools
+ * are finished or have exceeded their budget, their patches, diagnostics and created files
+ * are merged back into the job status of the pipeline, one tool after the other, in the order in which
+ * the tools finished: the first patch found is the first patch of the job.
+ *
+ * Each tool has a wall time budget and a CPU time budget, the latter being measured on the thread running the tool.
+ * The repair tools ignore interrupts, so a cancelled tool keeps running until it finishes by itself:
+ * its copy of the repository is only deleted once it stopped, and it keeps its thread of the pipeline,
+ * so the pipeline never runs more tools at the same time than configured.
+ */
+public class ConcurrentRepairSteps extends AbstractStep {
+
+    private static final long TERMINATION_TIMEOUT = TimeUnit.MINUTES.toMillis(1);
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final List<AbstractRepairStep> repairSteps;
+    private long budgetInMillis;
+    private long cpuBudgetInMillis;
+    private long terminationTimeoutInMillis;
+
+    public ConcurrentRepairSteps(ProjectInspector inspector, List<AbstractRepairStep> repairSteps) {
+        super(inspector, false);
+        this.repairSteps = repairSteps;
+        this.budgetInMillis = TimeUnit.MINUTES.toMillis(this.getConfig().getRepairToolTimeout());
+        this.cpuBudgetInMillis = TimeUnit.MINUTES.toMillis(this.getConfig().getRepairToolCpuTimeout());
+        this.terminationTimeoutInMillis = TERMINATION_TIMEOUT;
+    }
+
+    void setBudgetInMillis(long budgetInMillis) {
+        this.budgetInMillis = budgetInMillis;
+    }
+
+    void setCpuBudgetInMillis(long cpuBudgetInMillis) {
+        this.cpuBudgetInMillis = cpuBudgetInMillis;
+    }
+
+    void setTerminationTimeoutInMillis(long terminationTimeoutInMillis) {
+        this.terminationTimeoutInMillis = terminationTimeoutInMillis;
+    }
+
+    @Override
+    protected StepStatus businessExecute() {
+        ProjectInspector inspector = this.getInspector();
+        int nbThreads = Math.max(1, Math.min(this.getConfig().getRepairToolsThreads(), this.repairSteps.size()));
+
+        this.getLogger().info("Run " + this.repairSteps.size() + " repair tools with " + nbThreads + " threads.");
+        ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+        List<ToolExecution> toolExecutions = new ArrayList<>();
+
+        for (AbstractRepairStep repairStep : this.repairSteps) {
+            String copyLocalPath = inspector.getRepoLocalPath() + "_" + repairStep.getRepairToolName();
+            ProjectInspector toolInspector = inspector.copyForWorkspace(copyLocalPath);
+            repairStep.setProjectInspector(toolInspector);
+            ToolExecution toolExecution = new ToolExecution(repairStep, toolInspector);
+            toolExecutions.add(toolExecution);
+
+            toolExecution.future = executor.submit(() -> {
+                if (!toolExecution.start()) {
+                    return null;
+                }
+                try {
+                    File m2LocalRepository = new File(inspector.getM2LocalPath());
+                    FileUtils.copyDirectory(new File(inspector.getRepoLocalPath()), new File(copyLocalPath), file -> !file.equals(m2LocalRepository));
+                    repairStep.executeRepair();
+                    return null;
+                } finally {
+                    toolExecution.stop();
+                }
+            });
+        }
+        executor.shutdown();
+
+        this.waitForRepairSteps(toolExecutions);
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(this.terminationTimeoutInMillis, TimeUnit.MILLISECONDS)) {
+                this.getLogger().warn("Some repair tools are still running after their cancellation: their workspace will be deleted when they stop.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<ToolExecution> finishedTools = new ArrayList<>();
+        for (ToolExecution toolExecution : toolExecutions) {
+            if (toolExecution.exceededBudget != null) {
+                this.addStepError("The repair tool " + toolExecution.repairStep.getRepairToolName() + " exceeded its " + toolExecution.exceededBudget + ".");
+                inspector.getJobStatus().addStepStatus(StepStatus.buildSkipped(toolExecution.repairStep, "Budget exceeded: " + toolExecution.exceededBudget + "."));
+            } else if (toolExecution.isStopped()) {
+                finishedTools.add(toolExecution);
+            }
+        }
+        finishedTools.sort(Comparator.comparingLong(ToolExecution::getEndDate));
+
+        boolean patched = false;
+        for (ToolExecution toolExecution : finishedTools) {
+            ProjectInspector toolInspector = toolExecution.toolInspector;
+            try {
+                toolExecution.future.get();
+                this.copyFilesToPush(toolInspector.getJobStatus(), toolInspector.getRepoLocalPath(), inspector.getRepoLocalPath());
+                inspector.getJobStatus().mergeRepairResults(toolInspector.getJobStatus(), inspector.getRepoLocalPath(), toolInspector.getRepoLocalPath());
+                // the tool recorded its duration in its own properties
+                inspector.getJobStatus().getProperties().getReproductionBuggyBuild().addStep(toolExecution.repairStep);
+                patched = patched || toolInspector.getJobStatus().isHasBeenPatched();
+            } catch (Exception e) {
+                this.addStepError("Error while running the repair tool " + toolExecution.repairStep.getRepairToolName(), e);
+            }
+        }
+
+        for (ToolExecution toolExecution : toolExecutions) {
+            toolExecution.releaseWorkspace();
+        }
+
+        return patched ? StepStatus.buildSuccess(this) : StepStatus.buildPatchNotFound(this);
+    }
+
+    /**
+     * Wait for all the repair steps, and cancel the ones exceeding their wall time or CPU time budget (0 means no budget).
+     * The budgets start when the copy of the repository starts.
+     */
+    private void waitForRepairSteps(List<ToolExecution> toolExecutions) {
+        try {
+            boolean running = true;
+            while (running) {
+                running = false;
+                for (ToolExecution toolExecution : toolExecutions) {
+                    if (toolExecution.future.isDone()) {
+                        continue;
+                    }
+                    running = true;
+
+                    String exceededBudget = this.getExceededBudget(toolExecution);
+                    if (exceededBudget != null) {
+                        this.getLogger().warn("The repair tool " + toolExecution.repairStep.getRepairToolName() + " exceeded its " + exceededBudget + ": it will be cancelled.");
+                        toolExecution.future.cancel(true);
+                        toolExecution.exceededBudget = exceededBudget;
+                    }
+                }
+                if (running) {
+                    Thread.sleep(100);
+                }
+            }
+        } catch (InterruptedException e) {
+            this.getLogger().warn("Interrupted while waiting for the repair tools.");
+            for (ToolExecution toolExecution : toolExecutions) {
+                if (toolExecution.future.cancel(true)) {
+                    toolExecution.exceededBudget = "time budget of the pipeline";
+                }
+            }
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the description of the budget exceeded by the tool, or null if it's still within its budgets.
+     */
+    private String getExceededBudget(ToolExecution toolExecution) {
+        long startDate = toolExecution.getStartDate();
+        if (startDate <= 0) {
+            return null;
+        }
+        if (this.budgetInMillis > 0 && System.currentTimeMillis() - startDate > this.budgetInMillis) {
+            return "time budget of " + TimeUnit.MILLISECONDS.toSeconds(this.budgetInMillis) + " seconds";
+        }
+        if (this.cpuBudgetInMillis > 0 && toolExecution.getCpuTimeInMillis() > this.cpuBudgetInMillis) {
+            return "CPU time budget of " + TimeUnit.MILLISECONDS.toSeconds(this.cpuBudgetInMillis) + " seconds";
+        }
+        return null;
+    }
+
+    private void copyFilesToPush(JobStatus toolStatus, String copyLocalPath, String repoLocalPath) throws IOException {
+        for (String fileToPush : toolStatus.getCreatedFilesToPush()) {
+            File source = new File(copyLocalPath, fileToPush);
+            File destination = new File(repoLocalPath, fileToPush);
+            if (!source.exists()) {
+                continue;
+            }
+            if (source.isDirectory()) {
+                FileUtils.copyDirectory(source, destination);
+            } else {
+                FileUtils.copyFile(source, destination);
+            }
+        }
+    }
+
+    /**
+     * The execution of one repair tool: its workspace is deleted once the step does not need it anymore
+     * and the tool stopped, whichever comes last.
+     */
+    private static class ToolExecution {
+        private final AbstractRepairStep repairStep;
+        private final ProjectInspector toolInspector;
+        private Future<?> future;
+        private volatile String exceededBudget;
+
+        private long startDate;
+        private long endDate;
+        private Thread thread;
+        private long startCpuTime;
+        private boolean started;
+        private boolean stopped;
+        private boolean released;
+
+        private ToolExecution(AbstractRepairStep repairStep, ProjectInspector toolInspector) {
+            this.repairStep = repairStep;
+            this.toolInspector = toolInspector;
+        }
+
+        /**
+         * @return false if the workspace has already been released: the tool must not run.
+         */
+        private synchronized boolean start() {
+            if (this.released) {
+                return false;
+            }
+            this.started = true;
+            this.startDate = System.currentTimeMillis();
+            this.thread = Thread.currentThread();
+            this.startCpuTime = getThreadCpuTime(this.thread);
+            return true;
+        }
+
+        private synchronized void stop() {
+            this.stopped = true;
+            this.thread = null;
+            this.endDate = System.currentTimeMillis();
+            if (this.released) {
+                this.deleteWorkspace();
+            }
+        }
+
+        private synchronized void releaseWorkspace() {
+            this.released = true;
+            if (!this.started || this.stopped) {
+                this.deleteWorkspace();
+            }
+        }
+
+        private synchronized boolean isStopped() {
+            return this.stopped;
+        }
+
+        private synchronized long getStartDate() {
+            return this.startDate;
+        }
+
+        private synchronized long getEndDate() {
+            return this.endDate;
+        }
+
+        /**
+         * @return the CPU time used by the thread of the tool since it started, 0 if it's not running or unknown.
+         */
+        private synchronized long getCpuTimeInMillis() {
+            if (this.thread == null || this.startCpuTime < 0) {
+                return 0;
+            }
+            long cpuTime = getThreadCpuTime(this.thread);
+            return cpuTime < 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(cpuTime - this.startCpuTime);
+        }
+
+        /**
+         * @return the CPU time of the given thread in nanoseconds, -1 if it cannot be measured.
+         */
+        private static long getThreadCpuTime(Thread thread) {
+            if (!THREAD_MX_BEAN.isThreadCpuTimeSupported() || !THREAD_MX_BEAN.isThreadCpuTimeEnabled()) {
+                return -1;
+            }
+            return THREAD_MX_BEAN.getThreadCpuTime(thread.getId());
+        }
+
+        private void deleteWorkspace() {
+            FileUtils.deleteQuietly(new File(this.toolInspector.getRepoLocalPath()));
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package fr.inria.spirals.repairnator.process.step;
+
+import fr.inria.spirals.repairnator.process.inspectors.JobStatusData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class executes a chain of steps iteratively, so the call stack doesn't grow with the length of the pipeline.
+ *
+ * Consecutive steps which declare the data of the job status they read and write (see {@link AbstractStep#getReadData()})
+ * and which don't depend on each other are grouped in a stage and run at the same time on a bounded executor.
+ * Blocking steps, branching steps and steps without declaration are always run alone, so the pipeline keeps
+ * the same semantics: it stops after a failing blocking step and follows the branch chosen by a {@link BranchingStep}.
+ *
+ * The pipeline is always terminated, even if a step threw an exception, and the final steps are run by the same
+ * scheduler: once the pipeline is over, a single report of the stages and of their longest step (the critical path) is logged.
+ */
+public class StepScheduler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StepScheduler.class);
+
+    private final int nbThreads;
+    private final List<List<AbstractStep>> stages;
+    private AbstractStep lastStep;
+
+    public StepScheduler(int nbThreads) {
+        this.nbThreads = nbThreads;
+        this.stages = new ArrayList<>();
+    }
+
+    /**
+     * Execute the steps until the end of the pipeline, then terminate it, even if a step threw an exception.
+     */
+    public void execute(AbstractStep firstStep) {
+        this.lastStep = firstStep;
+        try {
+            this.executeSteps(firstStep);
+        } finally {
+            LOGGER.debug("TERMINATE PIPELINE");
+            try {
+                this.lastStep.terminatePipeline(this);
+            } finally {
+                // the report includes the final steps, run while terminating the pipeline
+                LOGGER.info(this.getCriticalPathReport());
+            }
+        }
+    }
+
+    /**
+     * Execute the steps from the given one, without terminating the pipeline.
+     */
+    void executeSteps(AbstractStep firstStep) {
+        boolean shouldStop = false;
+
+        ExecutorService executor = (this.nbThreads > 1) ? Executors.newFixedThreadPool(this.nbThreads) : null;
+        try {
+            AbstractStep step = firstStep;
+            while (step != null && !shouldStop) {
+                List<AbstractStep> stage = this.nextStage(step);
+                this.executeStage(stage, executor);
+                this.stages.add(stage);
+
+                this.lastStep = stage.get(stage.size() - 1);
+                for (AbstractStep executedStep : stage) {
+                    if (executedStep.updateShouldStop()) {
+                        this.lastStep = executedStep;
+                        shouldStop = true;
+                        break;
+                    }
+                }
+
+                if (!shouldStop) {
+                    LOGGER.debug("EXECUTE NEXT STEP");
+                    for (AbstractStep executedStep : stage) {
+                        executedStep.observeAndNotify();
+                    }
+                    // it's only known now for a branching step
+                    step = this.lastStep.getNextStep();
+                }
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private boolean canRunConcurrently(AbstractStep step) {
+        return step.getReadData() != null && step.getWrittenData() != null
+                && !step.isBlockingStep() && !(step instanceof BranchingStep);
+    }
+
+    private boolean dependsOn(AbstractStep step, AbstractStep previousStep) {
+        return !Collections.disjoint(step.getReadData(), previousStep.getWrittenData())
+                || !Collections.disjoint(step.getWrittenData(), previousStep.getWrittenData())
+                || !Collections.disjoint(step.getWrittenData(), previousStep.getReadData());
+    }
+
+    private List<AbstractStep> nextStage(AbstractStep firstStep) {
+        List<AbstractStep> stage = new ArrayList<>();
+        stage.add(firstStep);
+        if (this.nbThreads <= 1 || !this.canRunConcurrently(firstStep)) {
+            return stage;
+        }
+
+        AbstractStep candidate = firstStep.getNextStep();
+        while (candidate != null && this.canRunConcurrently(candidate)) {
+            for (AbstractStep step : stage) {
+                if (this.dependsOn(candidate, step)) {
+                    return stage;
+                }
+            }
+            stage.add(candidate);
+            candidate = candidate.getNextStep();
+        }
+        return stage;
+    }
+
+    private void executeStage(List<AbstractStep> stage, ExecutorService executor) {
+        if (stage.size() == 1 || executor == null) {
+            for (AbstractStep step : stage) {
+                step.executeStep();
+            }
+            return;
+        }
+
+        // looking for the pom might update its location: it must not be done concurrently
+        for (AbstractStep step : stage) {
+            if (step.getReadData().contains(JobStatusData.POM_DIR_PATH)) {
+                step.getPom();
+            }
+        }
+
+        List<Future<?>> executions = new ArrayList<>();
+        for (AbstractStep step : stage) {
+            executions.add(executor.submit(step::executeStep));
+        }
+        try {
+            for (Future<?> execution : executions) {
+                execution.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while executing the steps " + this.getStepNames(stage), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private String getStepNames(List<AbstractStep> stage) {
+        List<String> names = new ArrayList<>();
+        for (AbstractStep step : stage) {
+            names.add(step.getName());
+        }
+        return names.toString();
+    }
+
+    private static long getDurationInMillis(AbstractStep step) {
+        if (step.getDateBegin() == null || step.getDateEnd() == null) {
+            return 0;
+        }
+        return step.getDateEnd().getTime() - step.getDateBegin().getTime();
+    }
+
+    /**
+     * @return a report of the duration of each step: the steps in a stage were run at the same time,
+     * so the duration of a stage is the one of its longest step, marked with a star.
+     */
+    public String getCriticalPathReport() {
+        StringBuilder report = new StringBuilder("CRITICAL PATH");
+        long totalDuration = 0;
+
+        for (List<AbstractStep> stage : this.stages) {
+            AbstractStep longestStep = stage.get(0);
+            for (AbstractStep step : stage) {
+                if (getDurationInMillis(step) > getDurationInMillis(longestStep)) {
+                    longestStep = step;
+                }
+            }
+            totalDuration += getDurationInMillis(longestStep);
+
+            report.append(System.lineSeparator()).append(" -");
+            for (AbstractStep step : stage) {
+                report.append(" ").append(step.getName()).append(" ").append(getDurationInMillis(step)).append("ms");
+                if (stage.size() > 1 && step == longestStep) {
+                    report.append("*");
+                }
+            }
+        }
+
+        report.append(System.lineSeparator()).append("TOTAL: ").append(totalDuration).append("ms");
+        return report.toString();
+    }
+}
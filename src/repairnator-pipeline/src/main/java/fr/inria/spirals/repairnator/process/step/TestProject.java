@@ -11,15 +11,33 @@ import fr.inria.spirals.repairnator.states.PipelineState;
  */
 public class TestProject extends AbstractStep {
 
+    private BuildProject buildStep;
+
     public TestProject(ProjectInspector inspector) {
         super(inspector, true);
     }
 
+    /**
+     * If the config allows it (see {@link fr.inria.spirals.repairnator.config.RepairnatorConfig#isCombineBuildAndTest()}),
+     * the tests are run by the given build step, so this step doesn't invoke Maven again.
+     * It still records its own status, so the serializers get the same results.
+     */
+    public TestProject(ProjectInspector inspector, BuildProject buildStep) {
+        this(inspector);
+        this.buildStep = buildStep;
+        this.buildStep.requestTests();
+    }
+
     public TestProject(ProjectInspector inspector, boolean blockingStep, String stepName) {
         super(inspector, blockingStep, stepName);
     }
 
     protected StepStatus businessExecute() {
+        if (this.buildStep != null && this.buildStep.isTestsExecuted()) {
+            this.getLogger().debug("The tests have already been launched while building the project.");
+            return StepStatus.buildSuccess(this);
+        }
+
         this.getLogger().debug("Launching tests with maven...");
 
         MavenHelper helper = new MavenHelper(this.getPom(), "test", null, this.getClass().getSimpleName(), this.getInspector(), false);
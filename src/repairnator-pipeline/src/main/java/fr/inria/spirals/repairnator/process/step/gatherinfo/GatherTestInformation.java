@@ -6,12 +6,13 @@ import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
 import fr.inria.spirals.repairnator.process.inspectors.properties.tests.*;
 import fr.inria.spirals.repairnator.process.inspectors.properties.Properties;
 import fr.inria.spirals.repairnator.process.step.AbstractStep;
+import fr.inria.spirals.repairnator.process.step.paths.ComputeModules;
 import fr.inria.spirals.repairnator.process.testinformation.FailureLocation;
 import fr.inria.spirals.repairnator.process.testinformation.FailureType;
-import org.apache.maven.plugins.surefire.report.ReportTestCase;
-import org.apache.maven.plugins.surefire.report.ReportTestSuite;
-import org.apache.maven.plugins.surefire.report.SurefireReportParser;
-import org.apache.maven.reporting.MavenReportException;
+import fr.inria.spirals.repairnator.process.testinformation.SurefireReportReader;
+import fr.inria.spirals.repairnator.process.testinformation.SurefireReportReader.TestCaseFailure;
+import fr.inria.spirals.repairnator.process.testinformation.SurefireReportReader.TestClassResult;
+import fr.inria.spirals.repairnator.utils.Utils;
 
 import java.io.File;
 import java.io.IOException;
@@ -21,13 +22,18 @@ import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Created by urli on 05/01/2017.
  */
 public class GatherTestInformation extends AbstractStep {
 
-    private static final String SUREFIREREPORT_PATH = "/target/surefire-reports";
+    // only the unit tests are counted: the integration tests are not run by the TestProject step
+    private static final String[] REPORT_PATHS = { "target" + File.separator + "surefire-reports" };
 
     private int nbTotalTests;
     private int nbRunningTests;
@@ -83,120 +89,178 @@ public class GatherTestInformation extends AbstractStep {
         return nbRunningTests;
     }
 
-    @Override
-    protected StepStatus businessExecute() {
-        this.getLogger().debug("Gathering test information from surefire reports...");
-
-        this.getLogger().debug("Contract: " + this.contract.getClass().getSimpleName());
+    /**
+     * The report directories are looked for in the modules of the project, instead of walking through the whole repository.
+     * If the modules cannot be computed, the repository is walked through as a fallback.
+     */
+    private List<File> findReportDirectories(File rootRepo) {
+        Set<File> moduleDirs = new LinkedHashSet<>();
+        moduleDirs.add(rootRepo);
+
+        File[] modules = this.getInspector().getJobStatus().getModules();
+        File pomFile = new File(rootRepo, Utils.POM_FILE);
+        if (modules == null && pomFile.exists()) {
+            modules = ComputeModules.findModules(pomFile.getPath(), this.getInspector().getM2LocalPath());
+        }
 
-        File rootRepo = new File(this.getInspector().getJobStatus().getPomDirPath());
-        final List<File> surefireDirs = new ArrayList<File>();
+        final List<File> reportDirs = new ArrayList<File>();
+        if (modules != null) {
+            moduleDirs.addAll(Arrays.asList(modules));
+            for (File moduleDir : moduleDirs) {
+                for (String reportPath : REPORT_PATHS) {
+                    File reportDir = new File(moduleDir, reportPath);
+                    if (reportDir.isDirectory()) {
+                        reportDirs.add(reportDir);
+                    }
+                }
+            }
+            return reportDirs;
+        }
 
+        this.getLogger().debug("The modules cannot be computed: the reports are looked for in the whole repository.");
         try {
             Files.walkFileTree(rootRepo.toPath(), new SimpleFileVisitor<Path>() {
                 public FileVisitResult preVisitDirectory(Path file, BasicFileAttributes attrs) throws IOException {
-                    if (file.toString().endsWith(SUREFIREREPORT_PATH)) {
-                        surefireDirs.add(file.toFile());
-                        return FileVisitResult.SKIP_SUBTREE;
-                    } else {
-                        return FileVisitResult.CONTINUE;
+                    for (String reportPath : REPORT_PATHS) {
+                        if (file.toString().endsWith(File.separator + reportPath)) {
+                            reportDirs.add(file.toFile());
+                            return FileVisitResult.SKIP_SUBTREE;
+                        }
                     }
+                    return FileVisitResult.CONTINUE;
                 }
             });
         } catch (IOException e) {
             this.getLogger().warn("Error while traversing files to get surefire reports: " + e);
             this.addStepError(e.getMessage());
         }
+        return reportDirs;
+    }
+
+    /**
+     * Read the report directories at the same time: each module is read by its own thread.
+     * The results are returned in the order of the directories.
+     */
+    private List<List<TestClassResult>> readReportDirectories(List<File> reportDirs) {
+        List<List<TestClassResult>> results = new ArrayList<>();
+        if (reportDirs.isEmpty()) {
+            return results;
+        }
 
+        int nbThreads = Math.min(reportDirs.size(), Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+        try {
+            List<Future<List<TestClassResult>>> readings = new ArrayList<>();
+            for (File reportDir : reportDirs) {
+                readings.add(executor.submit(() -> new SurefireReportReader().readDirectory(reportDir)));
+            }
+
+            for (Future<List<TestClassResult>> reading : readings) {
+                try {
+                    results.add(reading.get());
+                } catch (ExecutionException e) {
+                    this.addStepError("Error while parsing files to get test information.", e.getCause());
+                    results.add(Collections.<TestClassResult>emptyList());
+                }
+            }
+        } catch (InterruptedException e) {
+            this.addStepError("Interrupted while parsing files to get test information.", e);
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    @Override
+    protected StepStatus businessExecute() {
+        this.getLogger().debug("Gathering test information from surefire reports...");
+
+        this.getLogger().debug("Contract: " + this.contract.getClass().getSimpleName());
+
+        File rootRepo = new File(this.getInspector().getJobStatus().getPomDirPath());
+        List<File> reportDirs = this.findReportDirectories(rootRepo);
+        List<List<TestClassResult>> reports = this.readReportDirectories(reportDirs);
+
+        // indexed by class name: a failure location is created once per failing test class
+        Map<String, FailureLocation> failureLocationsByClass = new LinkedHashMap<>();
 
         JobStatus jobStatus = this.getInspector().getJobStatus();
-        for (File surefireDir : surefireDirs) {
-            SurefireReportParser parser = new SurefireReportParser(Arrays.asList(new File[] { surefireDir }),
-                    Locale.ENGLISH, null);
-            try {
-                List<ReportTestSuite> testSuites = parser.parseXMLReportFiles();
-                for (ReportTestSuite testSuite : testSuites) {
-                    this.nbTotalTests += testSuite.getNumberOfTests();
-                    int runningTests = testSuite.getNumberOfTests() - testSuite.getNumberOfSkipped();
-                    this.nbRunningTests += runningTests;
-                    this.nbPassingTests += runningTests - testSuite.getNumberOfFailures() - testSuite.getNumberOfErrors();
-                    this.nbFailingTests += testSuite.getNumberOfFailures();
-                    this.nbErroringTests += testSuite.getNumberOfErrors();
-                    this.nbSkippingTests += testSuite.getNumberOfSkipped();
-
-                    if (testSuite.getNumberOfFailures() > 0 || testSuite.getNumberOfErrors() > 0) {
-                        File failingModule = surefireDir.getParentFile().getParentFile();
+        for (int i = 0; i < reports.size(); i++) {
+            File reportDir = reportDirs.get(i);
+            for (TestClassResult testClass : reports.get(i)) {
+                this.nbTotalTests += testClass.getNbTests();
+                int runningTests = testClass.getNbTests() - testClass.getNbSkipped();
+                this.nbRunningTests += runningTests;
+                this.nbPassingTests += runningTests - testClass.getNbFailures() - testClass.getNbErrors();
+                this.nbFailingTests += testClass.getNbFailures();
+                this.nbErroringTests += testClass.getNbErrors();
+                this.nbSkippingTests += testClass.getNbSkipped();
+
+                if (testClass.getNbFailures() > 0 || testClass.getNbErrors() > 0) {
+                    try {
+                        File failingModule = reportDir.getParentFile().getParentFile();
                         this.failingModulePath = failingModule.getCanonicalPath();
+                    } catch (IOException e) {
+                        this.addStepError("Error while getting the failing module path.", e);
+                    }
 
-                        if (!this.skipSettingStatusInformation) {
-                            jobStatus.setFailingModulePath(this.failingModulePath);
-                            getLogger().info("Get the following failing module path: " + failingModulePath);
+                    if (!this.skipSettingStatusInformation) {
+                        jobStatus.setFailingModulePath(this.failingModulePath);
+                        getLogger().info("Get the following failing module path: " + failingModulePath);
+
+                        Properties properties = jobStatus.getProperties();
+                        FailingClass failingClass = properties.getTests().addFailingClass(testClass.getClassName());
+                        failingClass.setNumberRunning(runningTests);
+                        failingClass.setNumberPassing(runningTests - testClass.getNbFailures() - testClass.getNbErrors());
+                        failingClass.setNumberFailing(testClass.getNbFailures());
+                        failingClass.setNumberErroring(testClass.getNbErrors());
+                        failingClass.setNumberSkipping(testClass.getNbSkipped());
+                    }
 
-                            Properties properties = jobStatus.getProperties();
-                            FailingClass failingClass = properties.getTests().addFailingClass(testSuite.getFullClassName());
-                            failingClass.setNumberRunning(testSuite.getNumberOfTests() - testSuite.getNumberOfSkipped());
-                            failingClass.setNumberPassing(testSuite.getNumberOfTests() - testSuite.getNumberOfSkipped() - testSuite.getNumberOfFailures() - testSuite.getNumberOfErrors());
-                            failingClass.setNumberFailing(testSuite.getNumberOfFailures());
-                            failingClass.setNumberErroring(testSuite.getNumberOfErrors());
-                            failingClass.setNumberSkipping(testSuite.getNumberOfSkipped());
+                    for (TestCaseFailure testCase : testClass.getFailures()) {
+                        // sometimes surefire reports a failureType on the form:
+                        // "java.lang.NullPointerException:" we should avoid this case
+                        String failureType = (testCase.getType() == null) ? "" : testCase.getType();
+
+                        if (failureType.endsWith(":")) {
+                            failureType = failureType.substring(0, failureType.length() - 1);
                         }
 
-                        for (ReportTestCase testCase : testSuite.getTestCases()) {
-                            if (testCase.hasFailure() || testCase.hasError()) {
-
-                                // sometimes surefire reports a failureType on the form:
-                                // "java.lang.NullPointerException:" we should avoid this case
-                                String failureType = testCase.getFailureType();
-
-                                if (failureType.endsWith(":")) {
-                                    failureType = failureType.substring(0, failureType.length() - 1);
-                                }
-
-                                this.failureNames.add(failureType);
-                                FailureType typeTof = new FailureType(failureType, testCase.getFailureMessage(), testCase.hasError());
-                                FailureLocation failureLocation = null;
-
-                                for (FailureLocation location : this.failureLocations) {
-                                    if (location.getClassName().equals(testCase.getFullClassName())) {
-                                        failureLocation = location;
-                                        break;
-                                    }
-                                }
-
-                                if (failureLocation == null) {
-                                    failureLocation = new FailureLocation(testCase.getFullClassName());
-                                    this.failureLocations.add(failureLocation);
-                                }
-                                failureLocation.addFailure(typeTof);
-
-                                if (testCase.hasError()) {
-                                    failureLocation.addErroringMethod(testCase.getName());
-                                } else {
-                                    failureLocation.addFailingMethod(testCase.getName());
-                                }
-
-                                if (!this.skipSettingStatusInformation) {
-                                    Properties properties = this.getInspector().getJobStatus().getProperties();
-                                    properties.getTests().getOverallMetrics().addFailure(typeTof.getFailureName(), typeTof.isError());
-
-                                    FailureDetail failureDetail = new FailureDetail();
-                                    failureDetail.setTestClass(failureLocation.getClassName());
-                                    failureDetail.setTestMethod(testCase.getName());
-                                    failureDetail.setFailureName(typeTof.getFailureName());
-                                    failureDetail.setDetail(typeTof.getFailureDetail());
-                                    failureDetail.setError(typeTof.isError());
-                                    properties.getTests().addFailureDetail(failureDetail);
-                                }
-                            }
+                        this.failureNames.add(failureType);
+                        FailureType typeTof = new FailureType(failureType, testCase.getMessage(), testCase.isError());
+
+                        FailureLocation failureLocation = failureLocationsByClass.get(testCase.getClassName());
+                        if (failureLocation == null) {
+                            failureLocation = new FailureLocation(testCase.getClassName());
+                            failureLocationsByClass.put(testCase.getClassName(), failureLocation);
+                        }
+                        failureLocation.addFailure(typeTof);
+
+                        if (testCase.isError()) {
+                            failureLocation.addErroringMethod(testCase.getTestName());
+                        } else {
+                            failureLocation.addFailingMethod(testCase.getTestName());
+                        }
+
+                        if (!this.skipSettingStatusInformation) {
+                            Properties properties = jobStatus.getProperties();
+                            properties.getTests().getOverallMetrics().addFailure(typeTof.getFailureName(), typeTof.isError());
+
+                            FailureDetail failureDetail = new FailureDetail();
+                            failureDetail.setTestClass(failureLocation.getClassName());
+                            failureDetail.setTestMethod(testCase.getTestName());
+                            failureDetail.setFailureName(typeTof.getFailureName());
+                            failureDetail.setDetail(typeTof.getFailureDetail());
+                            failureDetail.setError(typeTof.isError());
+                            properties.getTests().addFailureDetail(failureDetail);
                         }
                     }
                 }
-            } catch (MavenReportException e) {
-                this.addStepError("Error while parsing files to get test information.", e);
-            } catch (IOException e) {
-                this.addStepError("Error while getting the failing module path.", e);
             }
         }
+        // the failure locations are added once complete, as their hash code depends on their failures
+        this.failureLocations.addAll(failureLocationsByClass.values());
 
         if (!this.skipSettingStatusInformation) {
             jobStatus.setFailureLocations(this.failureLocations);
@@ -75,7 +75,7 @@ public class LogParser {
         return tests;
     }
 
-    public void parse(List<String> log){
+    public void parse(Iterable<String> log){
         for(String line : log){
             parseLine(line);
         }
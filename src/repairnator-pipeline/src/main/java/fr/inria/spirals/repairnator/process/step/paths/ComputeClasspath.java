@@ -5,6 +5,7 @@ import fr.inria.spirals.repairnator.process.step.StepStatus;
 import fr.inria.spirals.repairnator.process.step.AbstractStep;
 import fr.inria.spirals.repairnator.states.PipelineState;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import fr.inria.spirals.repairnator.process.inspectors.JobStatusData;
 import fr.inria.spirals.repairnator.process.maven.MavenHelper;
 
 import java.io.BufferedReader;
@@ -14,8 +15,10 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Properties;
+import java.util.Set;
 
 /**
  * Created by urli on 08/02/2017.
@@ -131,4 +134,15 @@ public class ComputeClasspath extends AbstractStep {
 
         return StepStatus.buildSuccess(this);
     }
+
+    @Override
+    public Set<JobStatusData> getReadData() {
+        return EnumSet.of(JobStatusData.POM_DIR_PATH, JobStatusData.FAILING_MODULE_PATH);
+    }
+
+    @Override
+    public Set<JobStatusData> getWrittenData() {
+        // Maven downloads the dependencies in the local repository
+        return EnumSet.of(JobStatusData.REPAIR_CLASSPATH, JobStatusData.M2_LOCAL_REPOSITORY);
+    }
 }
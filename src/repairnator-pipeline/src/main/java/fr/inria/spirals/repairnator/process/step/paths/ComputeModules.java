@@ -2,6 +2,7 @@ package fr.inria.spirals.repairnator.process.step.paths;
 
 import fr.inria.spirals.repairnator.utils.Utils;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import fr.inria.spirals.repairnator.process.inspectors.JobStatusData;
 import fr.inria.spirals.repairnator.process.step.StepStatus;
 import fr.inria.spirals.repairnator.process.maven.MavenHelper;
 import fr.inria.spirals.repairnator.process.step.AbstractStep;
@@ -11,7 +12,9 @@ import org.apache.maven.model.Model;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 public class ComputeModules extends AbstractStep {
 
@@ -19,24 +22,29 @@ public class ComputeModules extends AbstractStep {
         super(inspector, blockingStep);
     }
 
-    private File[] findModules(String pomPath, boolean rootCall) {
+    /**
+     * Find the modules of the project, recursively: if the project has no module, the project itself is returned.
+     * The modules are read from the effective model, so the ones declared in the active profiles are included.
+     *
+     * @return the modules, or null if the pom.xml file cannot be read.
+     */
+    public static File[] findModules(String pomPath, String m2LocalPath) {
+        return findModules(pomPath, m2LocalPath, true);
+    }
+
+    private static File[] findModules(String pomPath, String m2LocalPath, boolean rootCall) {
         List<File> modules = new ArrayList<>();
 
         File pomFile = new File(pomPath);
-        Model model = MavenHelper.readPomXml(pomFile, this.getInspector().getM2LocalPath());
-        if (model == null) {
-            this.addStepError("Error while building model: no model has been retrieved.");
-            return null;
-        }
-        if (model.getModules() == null) {
-            this.addStepError("Error while obtaining modules from pom.xml: module section has not been found.");
+        Model model = MavenHelper.readPomXml(pomFile, m2LocalPath);
+        if (model == null || model.getModules() == null) {
             return null;
         }
 
         for (String moduleName : model.getModules()) {
             File module = new File(pomFile.getParent() + File.separator + moduleName);
             modules.add(module);
-            File[] moreModules = this.findModules(module.getPath() + File.separator + Utils.POM_FILE, false);
+            File[] moreModules = findModules(module.getPath() + File.separator + Utils.POM_FILE, m2LocalPath, false);
             if (moreModules != null && moreModules.length > 0) {
                 modules.addAll(Arrays.asList(moreModules));
             }
@@ -54,8 +62,11 @@ public class ComputeModules extends AbstractStep {
         this.getLogger().debug("Computing project modules...");
 
         String mainPomPath = this.getPom();
-        File[] modules = this.findModules(mainPomPath, true);
+        File[] modules = findModules(mainPomPath, this.getInspector().getM2LocalPath());
 
+        if (modules == null) {
+            this.addStepError("Error while building model: no model has been retrieved.");
+        }
         if (modules == null || modules.length == 0) {
             this.getLogger().info("No module was computed.");
             return StepStatus.buildError(this, PipelineState.MODULESNOTCOMPUTED);
@@ -64,4 +75,14 @@ public class ComputeModules extends AbstractStep {
         this.getInspector().getJobStatus().getProperties().getProjectMetrics().setNumberModules(modules.length);
         return StepStatus.buildSuccess(this);
     }
+
+    @Override
+    public Set<JobStatusData> getReadData() {
+        return EnumSet.of(JobStatusData.POM_DIR_PATH, JobStatusData.M2_LOCAL_REPOSITORY);
+    }
+
+    @Override
+    public Set<JobStatusData> getWrittenData() {
+        return EnumSet.of(JobStatusData.MODULES);
+    }
 }
@@ -1,6 +1,7 @@
 package fr.inria.spirals.repairnator.process.step.paths;
 
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import fr.inria.spirals.repairnator.process.inspectors.JobStatusData;
 import fr.inria.spirals.repairnator.process.maven.MavenHelper;
 import fr.inria.spirals.repairnator.process.step.AbstractStep;
 import fr.inria.spirals.repairnator.process.step.StepStatus;
@@ -10,7 +11,9 @@ import org.apache.maven.model.Plugin;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Created by bloriot97 on 01/11/2018.
@@ -60,4 +63,14 @@ public class ComputePlugins extends AbstractStep {
         this.getInspector().getJobStatus().getProperties().getProjectMetrics().setNumberPlugins(plugins.size());
         return StepStatus.buildSuccess(this);
     }
+
+    @Override
+    public Set<JobStatusData> getReadData() {
+        return EnumSet.of(JobStatusData.POM_DIR_PATH, JobStatusData.M2_LOCAL_REPOSITORY);
+    }
+
+    @Override
+    public Set<JobStatusData> getWrittenData() {
+        return EnumSet.of(JobStatusData.PLUGINS);
+    }
 }
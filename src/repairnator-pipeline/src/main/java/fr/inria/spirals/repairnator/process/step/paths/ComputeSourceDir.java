@@ -6,11 +6,14 @@ import com.google.gson.JsonObject;
 import fr.inria.spirals.repairnator.process.step.StepStatus;
 import fr.inria.spirals.repairnator.states.PipelineState;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import fr.inria.spirals.repairnator.process.inspectors.JobStatusData;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.EnumSet;
+import java.util.Set;
 
 /**
  * Created by urli on 08/02/2017.
@@ -94,4 +97,13 @@ public class ComputeSourceDir extends ComputeDir {
         }
     }
 
+    @Override
+    public Set<JobStatusData> getReadData() {
+        return EnumSet.of(JobStatusData.POM_DIR_PATH, JobStatusData.FAILING_MODULE_PATH, JobStatusData.M2_LOCAL_REPOSITORY);
+    }
+
+    @Override
+    public Set<JobStatusData> getWrittenData() {
+        return EnumSet.of(JobStatusData.REPAIR_SOURCE_DIR);
+    }
 }
@@ -1,10 +1,13 @@
 package fr.inria.spirals.repairnator.process.step.paths;
 
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import fr.inria.spirals.repairnator.process.inspectors.JobStatusData;
 import fr.inria.spirals.repairnator.process.step.StepStatus;
 import fr.inria.spirals.repairnator.states.PipelineState;
 
 import java.io.File;
+import java.util.EnumSet;
+import java.util.Set;
 
 /**
  * Created by urli on 08/02/2017.
@@ -41,4 +44,13 @@ public class ComputeTestDir extends ComputeDir {
         }
     }
 
+    @Override
+    public Set<JobStatusData> getReadData() {
+        return EnumSet.of(JobStatusData.POM_DIR_PATH, JobStatusData.M2_LOCAL_REPOSITORY);
+    }
+
+    @Override
+    public Set<JobStatusData> getWrittenData() {
+        return EnumSet.of(JobStatusData.TEST_DIR);
+    }
 }
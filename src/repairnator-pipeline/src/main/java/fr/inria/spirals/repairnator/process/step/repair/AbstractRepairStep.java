@@ -58,14 +58,20 @@ public abstract class AbstractRepairStep extends AbstractStep {
         this.setName(this.getRepairToolName());
     }
 
+    /**
+     * Execute this repair tool alone, without the next steps, e.g. when several tools are run concurrently.
+     */
+    public void executeRepair() {
+        this.executeStep();
+    }
+
     @Override
-    public void execute() {
+    protected void executeStep() {
         if (this.getConfig().getRepairTools().contains(this.getRepairToolName())) {
-            super.execute();
+            super.executeStep();
         } else {
             this.getLogger().warn("Skipping repair step "+this.getRepairToolName());
             this.getInspector().getJobStatus().addStepStatus(StepStatus.buildSkipped(this,"Not configured to run."));
-            super.executeNextStep();
         }
     }
 
@@ -2,10 +2,7 @@ package fr.inria.spirals.repairnator.process.step.repair.sequencer;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
-import com.spotify.docker.client.DockerClient;
-import com.spotify.docker.client.messages.*;
 import fr.inria.coming.codefeatures.RepairnatorFeatures;
-import fr.inria.spirals.repairnator.docker.DockerHelper;
 import fr.inria.spirals.repairnator.config.SequencerConfig;
 import fr.inria.spirals.repairnator.process.step.repair.sequencer.detection.ModificationPoint;
 import fr.inria.spirals.repairnator.process.inspectors.JobStatus;
@@ -13,7 +10,6 @@ import fr.inria.spirals.repairnator.process.inspectors.RepairPatch;
 import fr.inria.spirals.repairnator.process.step.StepStatus;
 import fr.inria.spirals.repairnator.process.step.repair.AbstractRepairStep;
 import fr.inria.spirals.repairnator.process.step.repair.sequencer.detection.*;
-import org.apache.commons.io.IOUtils;
 
 import java.io.*;
 import java.net.URL;
@@ -25,7 +21,8 @@ import java.util.stream.Stream;
 
 /**
 * SequencerRepair is one builtin repair tool. It generates
-* patches by invoking SequenceR docker image.
+* patches by invoking SequenceR docker image, through the
+* {@link SequencerService} shared by the pipelines of the JVM.
 * 
 * SequencerRepair is dependent on Astor as it collects info
 * about suspicious modification locations from the latter
@@ -41,19 +38,16 @@ import java.util.stream.Stream;
 public class SequencerRepair extends AbstractRepairStep {
     protected static final String TOOL_NAME = "SequencerRepair";
     private final SequencerConfig config;
-    private final DockerClient docker;
 
     private DetectionStrategy detectionStrategy;
 
     public SequencerRepair(){
         this.config = SequencerConfig.getInstance();
-        this.docker = DockerHelper.initDockerClient();
         this.detectionStrategy = new AstorDetectionStrategy();
     }
 
     public SequencerRepair(DetectionStrategy detectionStrategy){
         this.config = SequencerConfig.getInstance();
-        this.docker = DockerHelper.initDockerClient();
         this.detectionStrategy = detectionStrategy;
     }
 
@@ -90,142 +84,55 @@ public class SequencerRepair extends AbstractRepairStep {
             return StepStatus.buildPatchNotFound(this);
         }
 
-        /// pull Sequencer if image not present
-
+        SequencerService service;
         try {
-            List<Image> images = docker.listImages(DockerClient.ListImagesParam.byName(config.dockerTag));
-            if(images.size() <= 0) docker.pull(config.dockerTag);
-        } catch (Exception e) {
-            return StepStatus.buildSkipped(this,"Error while retrieving sequencer docker image: " + e);
+            service = SequencerService.getInstance();
+        } catch (RuntimeException e) {
+            return StepStatus.buildSkipped(this,"Error while starting the sequencer service: " + e);
         }
 
-        final ExecutorService executor = Executors.newFixedThreadPool(config.threads);
-        List<Future<SequencerResult>> allResults = new ArrayList<>();
+        List<CompletableFuture<SequencerResult>> allResults = new ArrayList<>();
 
-        suspiciousPoints.forEach( smp -> allResults.add(executor.submit(() -> {
+        for (ModificationPoint smp : suspiciousPoints) {
             try {
                 int smpId = smp.hashCode();
                 Path suspiciousFile = smp.getFilePath().toRealPath();
-                Path buggyFilePath = suspiciousFile.toAbsolutePath();
-                Path buggyParentPath = suspiciousFile.getParent();
                 Path repoPath = Paths.get(getInspector().getRepoLocalPath()).toRealPath();
                 Path relativePath = repoPath.relativize(suspiciousFile);
-                int buggyLineNumber = smp.getSuspiciousLine();
-                int beamSize = config.beamSize;
                 String buggyFileName = suspiciousFile.getFileName().toString();
                 Path outputDirPath = patchDir.toAbsolutePath().resolve(buggyFileName + smpId);
                 if ( !Files.exists(outputDirPath) || !Files.isDirectory(outputDirPath)) {
                     Files.createDirectory(outputDirPath);
-                    outputDirPath = outputDirPath.toRealPath();
                 }
 
-                String sequencerCommand = "./sequencer-predict.sh "
-                                            + "--buggy_file=" + "/tmp/" + buggyFileName + " "
-                                            + "--buggy_line=" + buggyLineNumber + " "
-                                            + "--beam_size=" + beamSize + " "
-                                            + "--real_file_path=" + relativePath + " "
-                                            + "--output=" + "/out";
-
-                HostConfig.Builder hostConfigBuilder = HostConfig.builder();
-
-                /*
-                 * note: the following code block provides a way to
-                 * mount directories from one docker container
-                 * into a sibling container.
-                 *
-                 * Otherwise, the docker daemon will try to mount from its own filesystem.
-                 *
-                 * This solution may be _too_ ad hoc.
-                 */
-
-                String parentPathStr = buggyParentPath.toString();
-                String outputPathStr = outputDirPath.toString();
-
-                if( Files.exists(Paths.get("/.dockerenv"))){
-                    ProcessBuilder processBuilder = new ProcessBuilder();
-                    processBuilder.command("bash", "-c", "basename `cat /proc/1/cpuset`");
-                    Process proc = processBuilder.start();
-
-                    StringWriter writer = new StringWriter();
-                    IOUtils.copy(proc.getInputStream(), writer);
-                    String containerId = writer.toString().trim();
-
-                    ContainerInfo info = docker.inspectContainer(containerId);
-
-                    String workspaceDir = Paths.get(getInspector().getWorkspace()).toRealPath().toString();
-
-                    String mountPointSrt = info.mounts().stream()
-                            .filter(item -> item.destination().equals(workspaceDir))
-                            .findFirst().get().source();
-
-                    parentPathStr = parentPathStr.replaceFirst(workspaceDir, mountPointSrt);
-                    outputPathStr = outputPathStr.replaceFirst(workspaceDir, mountPointSrt);
-                }
-
-                hostConfigBuilder.appendBinds(HostConfig.Bind
-                                .from(parentPathStr)
-                                .to("/tmp")
-                                .build())
-                        .appendBinds(HostConfig.Bind
-                                .from(outputPathStr)
-                                .to("/out")
-                                .build());
-
-                HostConfig hostConfig = hostConfigBuilder.build();
-
-                ContainerConfig containerConfig = ContainerConfig.builder()
-                        .image(config.dockerTag)
-                        .hostConfig(hostConfig)
-                        .cmd("bash", "-c", sequencerCommand)
-                        .attachStdout(true)
-                        .attachStderr(true)
-                        .build();
-
-                 ContainerCreation container = docker.createContainer(containerConfig);
-
-                 docker.startContainer(container.id());
-                 docker.waitContainer(container.id());
-
-                 String stdOut = docker.logs(
-                         container.id(),
-                         DockerClient.LogsParam.stdout()
-                 ).readFully();
-
-                String stdErr = docker.logs(
-                        container.id(),
-                        DockerClient.LogsParam.stderr()
-                ).readFully();
-
-                docker.removeContainer(container.id());
-
-                this.getLogger().debug("stdOut: \n" + stdOut);
-                this.getLogger().debug("stdErr: \n" + stdErr);
-
-                return new SequencerResult(buggyFilePath.toString(), outputDirPath.toString(),
-                        stdOut, stdErr);
-
-            } catch (Throwable throwable) {
-                addStepError("Got exception when running SequencerRepair: ", throwable);
-                return null;
+                allResults.add(service.predict(suspiciousFile.toAbsolutePath(), relativePath.toString(),
+                        smp.getSuspiciousLine(), config.beamSize, outputDirPath.toRealPath()));
+            } catch (IOException e) {
+                addStepError("Got exception when running SequencerRepair: ", e);
             }
-        })));
+        }
 
         List<SequencerResult> sequencerResults = new ArrayList<>();
-        try {
-            executor.shutdown();
-            executor.awaitTermination(config.timeout, TimeUnit.MINUTES);
-            for (Future<SequencerResult> result : allResults){
-                sequencerResults.add(result.get());
+        long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(config.timeout);
+        for (CompletableFuture<SequencerResult> result : allResults) {
+            try {
+                SequencerResult sequencerResult = result.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                this.getLogger().debug("stdOut: \n" + sequencerResult.getMessage());
+                this.getLogger().debug("stdErr: \n" + sequencerResult.getWarning());
+                sequencerResults.add(sequencerResult);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                addStepError("Got exception when running SequencerRepair: ", e);
+                break;
+            } catch (ExecutionException | TimeoutException e) {
+                addStepError("Got exception when running SequencerRepair: ", e);
             }
-        } catch (Exception e) {
-            addStepError("Got exception when running SequencerRepair: ", e);
         }
 
         /// prepare results
-        List<RepairPatch> listPatches = new ArrayList<>();
         JsonArray toolDiagnostic = new JsonArray();
 
-        listPatches = sequencerResults.stream().flatMap( result -> {
+        List<RepairPatch> candidatePatches = sequencerResults.stream().flatMap( result -> {
             JsonObject diagnostic = new JsonObject();
 
             diagnostic.addProperty("success", result.isSuccess());
@@ -237,13 +144,15 @@ public class SequencerRepair extends AbstractRepairStep {
 
 
             Stream<RepairPatch> patches = diffs.stream()
-                .map(diff -> new RepairPatch(this.getRepairToolName(), result.getBuggyFilePath(), diff))
-                .filter(detectionStrategy::validate);
+                .map(diff -> new RepairPatch(this.getRepairToolName(), result.getBuggyFilePath(), diff));
 
             return patches;
 
         }).collect(Collectors.toList());
 
+        List<RepairPatch> listPatches = this.validatePatches(candidatePatches);
+        detectionStrategy.tearDown();
+
         if(listPatches.isEmpty()){
             return StepStatus.buildPatchNotFound(this);
         }
@@ -279,4 +188,61 @@ public class SequencerRepair extends AbstractRepairStep {
         return StepStatus.buildSuccess(this);
 
     }
+
+    /**
+     * Validate the candidate patches in parallel, using config.validationThreads workers.
+     * Once config.maxValidPatches patches passed (if greater than 0), the other candidates are cancelled.
+     * The valid patches are returned in the order of the candidates.
+     */
+    private List<RepairPatch> validatePatches(List<RepairPatch> candidatePatches) {
+        if (candidatePatches.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, config.validationThreads));
+        CompletionService<Integer> completionService = new ExecutorCompletionService<>(executor);
+        // the candidate index of each validation, to report the ones which failed
+        Map<Future<Integer>, Integer> validations = new HashMap<>();
+
+        for (int i = 0; i < candidatePatches.size(); i++) {
+            final int candidateIndex = i;
+            validations.put(completionService.submit(() ->
+                    detectionStrategy.validate(candidatePatches.get(candidateIndex)) ? candidateIndex : null), candidateIndex);
+        }
+
+        SortedSet<Integer> validIndexes = new TreeSet<>();
+        try {
+            for (int i = 0; i < validations.size(); i++) {
+                Future<Integer> validation = completionService.take();
+                Integer validIndex;
+                try {
+                    validIndex = validation.get();
+                } catch (ExecutionException e) {
+                    // the other candidates are still worth validating
+                    RepairPatch failedPatch = candidatePatches.get(validations.get(validation));
+                    addStepError("Got exception when validating the SequencerRepair patch of " + failedPatch.getFilePath() + ": ", e);
+                    continue;
+                }
+                if (validIndex != null) {
+                    validIndexes.add(validIndex);
+                    if (config.maxValidPatches > 0 && validIndexes.size() >= config.maxValidPatches) {
+                        this.getLogger().info(validIndexes.size() + " valid patches found: the remaining candidates are cancelled.");
+                        break;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            validations.keySet().forEach(validation -> validation.cancel(true));
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(config.timeout, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        return validIndexes.stream().map(candidatePatches::get).collect(Collectors.toList());
+    }
 }
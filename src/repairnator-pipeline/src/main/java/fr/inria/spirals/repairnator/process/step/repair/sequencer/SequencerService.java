@@ -0,0 +1,496 @@
+package fr.inria.spirals.repairnator.process.step.repair.sequencer;
+
+import com.spotify.docker.client.DockerClient;
+import com.spotify.docker.client.LogStream;
+import com.spotify.docker.client.exceptions.ConflictException;
+import com.spotify.docker.client.exceptions.ContainerNotFoundException;
+import com.spotify.docker.client.exceptions.DockerException;
+import com.spotify.docker.client.messages.ContainerConfig;
+import com.spotify.docker.client.messages.ContainerInfo;
+import com.spotify.docker.client.messages.ContainerMount;
+import com.spotify.docker.client.messages.ExecCreation;
+import com.spotify.docker.client.messages.HostConfig;
+import com.spotify.docker.client.messages.Image;
+import fr.inria.spirals.repairnator.config.RepairnatorConfig;
+import fr.inria.spirals.repairnator.config.SequencerConfig;
+import fr.inria.spirals.repairnator.docker.ContainerLogCapture;
+import fr.inria.spirals.repairnator.docker.DockerHelper;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SequencerService runs the Sequencer predictions of all the pipelines of the JVM
+ * in a single long-running container, instead of one container per prediction.
+ *
+ * The files are exchanged through a directory shared with the container (config.exchangePath), which is
+ * not in the workspace since the workspace is deleted after each build. The container is named after this directory
+ * ({@link #CONTAINER_NAME_PREFIX} and a hash of its path on the host), so it is started once
+ * and reused by the other repairnator processes using the same directory. The requests are queued,
+ * coalesced in batches of config.batchSize predictions, and each batch is run by one docker exec.
+ * The container is checked periodically and recreated when it is not running anymore, or when the exchange
+ * directory has been removed: the directory and its service files are then recreated too.
+ *
+ * The predictions run the sequencer-predict.sh script of the image, which loads the model
+ * with the OpenNMT-py translate.py script each time. The python of the script is replaced
+ * by a shim sending the translations to a server started in the container, which keeps the
+ * model loaded between the predictions (see the resources in the sequencer directory).
+ * When the server cannot do a translation, translate.py is run as usual.
+ */
+public class SequencerService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SequencerService.class);
+
+    public static final String CONTAINER_NAME_PREFIX = "repairnator-sequencer-worker-";
+    static final String EXCHANGE_MOUNT = "/exchange";
+    static final String SERVICE_DIR_NAME = ".service";
+    private static final String[] PYTHON_NAMES = { "python", "python3" };
+    private static final long BATCH_LINGER = 200; // in milliseconds
+    private static final long HEALTH_CHECK_INTERVAL = 60; // in seconds
+
+    private static SequencerService instance;
+
+    private final SequencerConfig config;
+    private final DockerClient docker;
+    private final Path exchangeDir;
+    private final String exchangeHostPath;
+    private final String containerName;
+    private final BlockingQueue<PredictionRequest> queue = new LinkedBlockingQueue<>();
+    private final ScheduledExecutorService healthCheck;
+    private String containerId;
+    // identifies the exchange directory mounted in the container, to know if it has been recreated since
+    private Object exchangeDirKey;
+
+    /**
+     * A prediction asked to the service, completed once its batch has run.
+     */
+    static class PredictionRequest {
+        final String id = UUID.randomUUID().toString();
+        final Path buggyFile;
+        final String realFilePath;
+        final int buggyLine;
+        final int beamSize;
+        final Path outputDir;
+        final CompletableFuture<SequencerResult> result = new CompletableFuture<>();
+
+        PredictionRequest(Path buggyFile, String realFilePath, int buggyLine, int beamSize, Path outputDir) {
+            this.buggyFile = buggyFile;
+            this.realFilePath = realFilePath;
+            this.buggyLine = buggyLine;
+            this.beamSize = beamSize;
+            this.outputDir = outputDir;
+        }
+    }
+
+    private SequencerService() throws IOException {
+        this.config = SequencerConfig.getInstance();
+        this.docker = DockerHelper.initDockerClient();
+        this.exchangeDir = Files.createDirectories(Paths.get(this.config.exchangePath)).toRealPath();
+        this.exchangeHostPath = this.toHostPath(this.exchangeDir);
+        this.containerName = getContainerName(this.exchangeHostPath);
+        installServiceFiles(this.exchangeDir);
+
+        this.ensureContainer();
+
+        int nbWorkers = Math.max(1, (this.config.threads + this.config.batchSize - 1) / this.config.batchSize);
+        for (int i = 0; i < nbWorkers; i++) {
+            Thread worker = new Thread(this::runBatches, "sequencer-service-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        this.healthCheck = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sequencer-service-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.healthCheck.scheduleWithFixedDelay(() -> {
+            try {
+                this.ensureContainer();
+            } catch (Exception e) {
+                LOGGER.error("The sequencer container is not healthy", e);
+            }
+        }, HEALTH_CHECK_INTERVAL, HEALTH_CHECK_INTERVAL, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @throws RuntimeException if the service cannot be started, e.g. if docker is not available
+     */
+    public static synchronized SequencerService getInstance() {
+        if (instance == null) {
+            try {
+                // the service and its threads are shared by all the jobs
+                instance = RepairnatorConfig.createWithSharedInstance(() -> {
+                    try {
+                        return new SequencerService();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (RuntimeException e) {
+                throw new RuntimeException("Error while starting the sequencer service", e);
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Queue a prediction for the given line of the given file.
+     * The diffs of the prediction are written in outputDir, and read by the returned SequencerResult.
+     */
+    public CompletableFuture<SequencerResult> predict(Path buggyFile, String realFilePath, int buggyLine, int beamSize, Path outputDir) {
+        PredictionRequest request = new PredictionRequest(buggyFile, realFilePath, buggyLine, beamSize, outputDir);
+        this.queue.add(request);
+        return request.result;
+    }
+
+    public int getQueueSize() {
+        return this.queue.size();
+    }
+
+    /**
+     * Copy the translation server and the python shim in the exchange directory, to be run in the container.
+     * The files are replaced atomically, since the other processes using the directory might be running them.
+     */
+    static void installServiceFiles(Path exchangeDir) throws IOException {
+        Path serviceDir = Files.createDirectories(exchangeDir.resolve(SERVICE_DIR_NAME).resolve("bin")).getParent();
+        installServiceFile("translation_client.py", serviceDir.resolve("translation_client.py"));
+        installServiceFile("translation_server.py", serviceDir.resolve("translation_server.py"));
+        for (String pythonName : PYTHON_NAMES) {
+            installServiceFile("python-shim.sh", serviceDir.resolve("bin").resolve(pythonName));
+        }
+    }
+
+    /**
+     * @return true if the translation server and the python shim are in the given exchange directory
+     */
+    static boolean areServiceFilesInstalled(Path exchangeDir) {
+        Path serviceDir = exchangeDir.resolve(SERVICE_DIR_NAME);
+        if (!Files.isRegularFile(serviceDir.resolve("translation_client.py")) || !Files.isRegularFile(serviceDir.resolve("translation_server.py"))) {
+            return false;
+        }
+        for (String pythonName : PYTHON_NAMES) {
+            if (!Files.isRegularFile(serviceDir.resolve("bin").resolve(pythonName))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void installServiceFile(String resourceName, Path destination) throws IOException {
+        Path tmpFile = Files.createTempFile(destination.getParent(), resourceName, ".tmp");
+        try (InputStream resource = SequencerService.class.getResourceAsStream("/sequencer/" + resourceName)) {
+            if (resource == null) {
+                throw new IOException("The resource sequencer/" + resourceName + " is missing");
+            }
+            Files.copy(resource, tmpFile, StandardCopyOption.REPLACE_EXISTING);
+            // the files are run by the user of the container
+            tmpFile.toFile().setReadable(true, false);
+            tmpFile.toFile().setExecutable(true, false);
+            Files.move(tmpFile, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+
+    /**
+     * The processes sharing the same exchange directory share the same container.
+     */
+    static String getContainerName(String exchangeHostPath) {
+        return CONTAINER_NAME_PREFIX + String.format("%08x", exchangeHostPath.hashCode());
+    }
+
+    /**
+     * Recreate the exchange directory and its service files if they have been removed.
+     *
+     * @return true if the exchange directory has been recreated since the last check: the container mounts the removed one
+     */
+    private boolean ensureExchangeDir() throws IOException {
+        boolean recreated = !Files.isDirectory(this.exchangeDir);
+        if (recreated) {
+            LOGGER.warn("The sequencer exchange directory " + this.exchangeDir + " has been removed: it is recreated.");
+            Files.createDirectories(this.exchangeDir);
+        }
+        if (!areServiceFilesInstalled(this.exchangeDir)) {
+            LOGGER.warn("The sequencer service files have been removed from " + this.exchangeDir + ": they are installed again.");
+            installServiceFiles(this.exchangeDir);
+        }
+        Object key = Files.readAttributes(this.exchangeDir, BasicFileAttributes.class).fileKey();
+        if (this.exchangeDirKey != null && key != null && !this.exchangeDirKey.equals(key)) {
+            // removed and recreated by another process
+            recreated = true;
+        }
+        this.exchangeDirKey = key;
+        return recreated;
+    }
+
+    /**
+     * Check that the exchange directory is there and that the worker container is running and mounts it,
+     * and (re)create them otherwise.
+     */
+    synchronized void ensureContainer() {
+        try {
+            boolean exchangeDirRecreated = this.ensureExchangeDir();
+            if (this.containerId == null) {
+                this.containerId = this.findContainer();
+            }
+            if (this.containerId != null && exchangeDirRecreated) {
+                LOGGER.warn("The sequencer container " + this.containerId + " mounts a removed exchange directory: it is recreated.");
+                try {
+                    this.docker.removeContainer(this.containerId, DockerClient.RemoveContainerParam.forceKill());
+                } catch (ContainerNotFoundException e) {
+                    // already removed by another process
+                }
+                this.containerId = null;
+            }
+            if (this.containerId != null) {
+                try {
+                    ContainerInfo info = this.docker.inspectContainer(this.containerId);
+                    if (Boolean.TRUE.equals(info.state().running())) {
+                        return;
+                    }
+                    LOGGER.warn("The sequencer container " + this.containerId + " is not running anymore: it is recreated.");
+                    this.docker.removeContainer(this.containerId, DockerClient.RemoveContainerParam.forceKill());
+                } catch (ContainerNotFoundException e) {
+                    LOGGER.warn("The sequencer container " + this.containerId + " has been removed: it is recreated.");
+                }
+                this.containerId = null;
+            }
+
+            List<Image> images = this.docker.listImages(DockerClient.ListImagesParam.byName(this.config.dockerTag));
+            if (images.isEmpty()) {
+                this.docker.pull(this.config.dockerTag);
+            }
+
+            HostConfig hostConfig = HostConfig.builder()
+                    .appendBinds(HostConfig.Bind.from(this.exchangeHostPath).to(EXCHANGE_MOUNT).build())
+                    .build();
+            ContainerConfig containerConfig = ContainerConfig.builder()
+                    .image(this.config.dockerTag)
+                    .hostConfig(hostConfig)
+                    .cmd("bash", "-c", "while true; do sleep 3600; done")
+                    .build();
+            try {
+                this.containerId = this.docker.createContainer(containerConfig, this.containerName).id();
+            } catch (ConflictException e) {
+                // another process created the container at the same time: it is the one starting it
+                this.containerId = this.findContainer();
+                if (this.containerId == null) {
+                    throw e;
+                }
+                LOGGER.info("Sequencer container created by another process: " + this.containerId);
+                return;
+            }
+            this.docker.startContainer(this.containerId);
+            LOGGER.info("Sequencer container started: " + this.containerId);
+        } catch (IOException e) {
+            throw new RuntimeException("Error while recreating the sequencer exchange directory " + this.exchangeDir, e);
+        } catch (DockerException e) {
+            this.containerId = null;
+            throw new RuntimeException("Error while starting the sequencer container", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while starting the sequencer container", e);
+        }
+    }
+
+    /**
+     * @return the id of the container started by another repairnator process for the same exchange directory, if any:
+     * a container with the same name which does not mount this directory is removed.
+     */
+    private String findContainer() throws DockerException, InterruptedException {
+        ContainerInfo info;
+        try {
+            info = this.docker.inspectContainer(this.containerName);
+        } catch (ContainerNotFoundException e) {
+            return null;
+        }
+        boolean mountsExchangeDir = info.mounts() != null && info.mounts().stream()
+                .anyMatch(mount -> EXCHANGE_MOUNT.equals(mount.destination()) && this.exchangeHostPath.equals(mount.source()));
+        if (mountsExchangeDir) {
+            return info.id();
+        }
+        LOGGER.warn("The sequencer container " + info.id() + " does not mount " + this.exchangeHostPath + ": it is recreated.");
+        try {
+            this.docker.removeContainer(info.id(), DockerClient.RemoveContainerParam.forceKill());
+        } catch (ContainerNotFoundException e) {
+            // already removed by another process
+        }
+        return null;
+    }
+
+    /**
+     * When repairnator runs itself in a docker container, the docker daemon mounts
+     * directories from its own filesystem: the path is then translated to the
+     * source of the volume containing it.
+     *
+     * @throws IOException if repairnator runs in docker and the path is not in a volume:
+     * the directory cannot be shared with the sequencer container
+     */
+    private String toHostPath(Path path) throws IOException {
+        String pathStr = path.toString();
+        if (!Files.exists(Paths.get("/.dockerenv"))) {
+            return pathStr;
+        }
+        ProcessBuilder processBuilder = new ProcessBuilder();
+        processBuilder.command("bash", "-c", "basename `cat /proc/1/cpuset`");
+        Process proc = processBuilder.start();
+
+        StringWriter writer = new StringWriter();
+        IOUtils.copy(proc.getInputStream(), writer, StandardCharsets.UTF_8);
+        String selfContainerId = writer.toString().trim();
+
+        ContainerInfo info;
+        try {
+            info = this.docker.inspectContainer(selfContainerId);
+        } catch (DockerException e) {
+            throw new IOException("Error while inspecting the current container " + selfContainerId, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while inspecting the current container " + selfContainerId, e);
+        }
+        Optional<ContainerMount> mount = info.mounts().stream()
+                .filter(item -> pathStr.equals(item.destination()) || pathStr.startsWith(item.destination() + File.separator))
+                .findFirst();
+        if (!mount.isPresent()) {
+            throw new IOException("The sequencer exchange directory " + pathStr + " is not in a docker volume: it cannot be shared with the sequencer container.");
+        }
+        return mount.get().source() + pathStr.substring(mount.get().destination().length());
+    }
+
+    private void runBatches() {
+        while (true) {
+            List<PredictionRequest> batch = new ArrayList<>();
+            try {
+                batch.add(this.queue.take());
+                // leave a bit of time to the other pipelines to ask their predictions
+                long deadline = System.currentTimeMillis() + BATCH_LINGER;
+                while (batch.size() < this.config.batchSize) {
+                    PredictionRequest request = this.queue.poll(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                    if (request == null) {
+                        break;
+                    }
+                    batch.add(request);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(request -> request.result.completeExceptionally(e));
+                return;
+            }
+
+            try {
+                this.runBatch(batch);
+            } catch (Exception e) {
+                LOGGER.error("Error while running a batch of " + batch.size() + " sequencer predictions", e);
+                batch.forEach(request -> request.result.completeExceptionally(e));
+            } finally {
+                for (PredictionRequest request : batch) {
+                    FileUtils.deleteQuietly(this.exchangeDir.resolve(request.id).toFile());
+                }
+            }
+        }
+    }
+
+    private void runBatch(List<PredictionRequest> batch) throws IOException, DockerException, InterruptedException {
+        // before writing in the exchange directory, which might have to be recreated with the container
+        this.ensureContainer();
+        for (PredictionRequest request : batch) {
+            Path requestDir = this.exchangeDir.resolve(request.id);
+            Files.createDirectories(requestDir.resolve("in"));
+            Files.createDirectories(requestDir.resolve("out"));
+            Files.copy(request.buggyFile, requestDir.resolve("in").resolve(request.buggyFile.getFileName()));
+        }
+
+        String command = buildBatchCommand(batch, this.config.timeout);
+        LOGGER.debug("Running " + batch.size() + " sequencer predictions: " + command);
+        ExecCreation exec = this.docker.execCreate(this.containerId, new String[] { "bash", "-c", command },
+                DockerClient.ExecCreateParam.attachStdout(), DockerClient.ExecCreateParam.attachStderr());
+        try (ContainerLogCapture output = new ContainerLogCapture(null, ContainerLogCapture.DEFAULT_TAIL_SIZE);
+             LogStream logStream = this.docker.execStart(exec.id())) {
+            output.capture(logStream);
+            LOGGER.debug("Sequencer batch output: \n" + output.getTail());
+        }
+
+        for (PredictionRequest request : batch) {
+            try {
+                Path requestDir = this.exchangeDir.resolve(request.id);
+                FileUtils.copyDirectory(requestDir.resolve("out").toFile(), request.outputDir.toFile());
+                String stdOut = readTail(requestDir.resolve("stdout"));
+                String stdErr = readTail(requestDir.resolve("stderr"));
+                request.result.complete(new SequencerResult(request.buggyFile.toString(), request.outputDir.toString(), stdOut, stdErr));
+            } catch (Exception e) {
+                request.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * The predictions of a batch are run concurrently in the container, each one
+     * with its own timeout, and the command returns once all of them are done.
+     */
+    static String buildBatchCommand(List<PredictionRequest> batch, int timeoutInMinutes) {
+        StringBuilder command = new StringBuilder();
+        // the python shim sends the translations to the server keeping the model loaded
+        command.append("export PATH=").append(shellQuote(EXCHANGE_MOUNT + "/" + SERVICE_DIR_NAME + "/bin")).append(":\"$PATH\"; ");
+        for (PredictionRequest request : batch) {
+            String requestDir = EXCHANGE_MOUNT + "/" + request.id;
+            command.append("(timeout ").append(timeoutInMinutes).append("m ./sequencer-predict.sh ")
+                    .append(shellQuote("--buggy_file=" + requestDir + "/in/" + request.buggyFile.getFileName())).append(" ")
+                    .append("--buggy_line=").append(request.buggyLine).append(" ")
+                    .append("--beam_size=").append(request.beamSize).append(" ")
+                    .append(shellQuote("--real_file_path=" + request.realFilePath)).append(" ")
+                    .append(shellQuote("--output=" + requestDir + "/out"))
+                    .append(" > ").append(shellQuote(requestDir + "/stdout")).append(" 2> ").append(shellQuote(requestDir + "/stderr"))
+                    // the files are created by the user of the container: let the pipeline delete them
+                    .append("; chmod -R a+rwX ").append(shellQuote(requestDir)).append(") & ");
+        }
+        command.append("wait");
+        return command.toString();
+    }
+
+    /**
+     * @return the given value as a single word for bash, whatever its characters
+     */
+    static String shellQuote(String value) {
+        return "'" + value.replace("'", "'\\''") + "'";
+    }
+
+    /**
+     * @return the end of the given output file, the whole file is not loaded in memory
+     */
+    private static String readTail(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return "";
+        }
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "r")) {
+            long start = Math.max(0, file.length() - ContainerLogCapture.DEFAULT_TAIL_SIZE);
+            byte[] tail = new byte[(int) (file.length() - start)];
+            file.seek(start);
+            file.readFully(tail);
+            return new String(tail, StandardCharsets.UTF_8);
+        }
+    }
+}
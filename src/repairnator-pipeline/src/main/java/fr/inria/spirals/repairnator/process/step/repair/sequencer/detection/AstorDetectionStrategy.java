@@ -85,4 +85,11 @@ public class AstorDetectionStrategy implements DetectionStrategy {
     public void setup(ProjectInspector inspector, String pom, Logger logger) {
         setMavenTester(new MavenPatchTester(inspector, pom, logger));
     }
+
+    @Override
+    public void tearDown() {
+        if (mavenTester != null) {
+            mavenTester.close();
+        }
+    }
 }
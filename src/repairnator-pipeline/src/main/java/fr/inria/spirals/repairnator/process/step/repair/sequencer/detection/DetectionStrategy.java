@@ -11,4 +11,5 @@ public interface DetectionStrategy {
     List<ModificationPoint> detect(SequencerRepair repairStep);
     boolean validate(RepairPatch patch);
     void setup(ProjectInspector inspector, String pom, Logger logger);
+    void tearDown();
 }
\ No newline at end of file
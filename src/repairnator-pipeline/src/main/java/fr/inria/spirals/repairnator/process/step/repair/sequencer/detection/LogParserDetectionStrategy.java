@@ -30,9 +30,8 @@ public class LogParserDetectionStrategy implements DetectionStrategy {
     @Override
     public List<ModificationPoint> detect(SequencerRepair repairStep) {
 
-        List<String> buildLog = repairStep.getInspector().getBuildLog();
-
-        parser.parse(buildLog);
+        // the build log is streamed: it might be too big to be kept in memory
+        parser.parse(repairStep.getInspector().getBuildLog());
 
         List<Element> errors = parser.getErrors();
 
@@ -55,4 +54,11 @@ public class LogParserDetectionStrategy implements DetectionStrategy {
     public void setup(ProjectInspector inspector, String pom, Logger logger) {
         setMavenTester(new MavenPatchTester(inspector, pom, logger));
     }
+
+    @Override
+    public void tearDown() {
+        if (mavenTester != null) {
+            mavenTester.close();
+        }
+    }
 }
@@ -1,62 +1,210 @@
 package fr.inria.spirals.repairnator.process.step.repair.sequencer.detection;
 
+import fr.inria.spirals.repairnator.config.SequencerConfig;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
 import fr.inria.spirals.repairnator.process.inspectors.RepairPatch;
 import fr.inria.spirals.repairnator.process.maven.MavenHelper;
+import org.apache.commons.io.FileUtils;
 import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.ResetCommand;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.patch.FileHeader;
+import org.eclipse.jgit.patch.Patch;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.InputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
-import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import org.slf4j.Logger;
 
+/**
+ * Build and test the patches in isolated workspaces, so several patches can be validated at the same time.
+ *
+ * With a single worker, the patches are validated one after the other in the repository itself.
+ * Otherwise, all the copies are created from the repository before the first validation, and each copy
+ * gets its own local Maven repository, initialized from the one of the job: concurrent Maven builds writing
+ * in the same local repository can corrupt it.
+ *
+ * After each patch, only the files it touched are restored: the build output is kept, so the next candidate
+ * is compiled incrementally instead of being rebuilt from scratch.
+ */
 public class MavenPatchTester {
 
     ProjectInspector inspector;
     String pom;
     Logger logger;
 
+    private final int maxWorkspaces;
+    private final BlockingQueue<Workspace> availableWorkspaces;
+    private final List<Workspace> workspaces;
+
     MavenPatchTester(ProjectInspector inspector, String pom, Logger logger){
+        this(inspector, pom, logger, SequencerConfig.getInstance().validationThreads);
+    }
+
+    MavenPatchTester(ProjectInspector inspector, String pom, Logger logger, int maxWorkspaces){
         this.inspector = inspector;
         this.pom = pom;
         this.logger = logger;
+        this.maxWorkspaces = Math.max(1, maxWorkspaces);
+        this.availableWorkspaces = new LinkedBlockingQueue<>();
+        this.workspaces = new ArrayList<>();
     }
 
     public boolean apply(RepairPatch patch, String goal, Properties properties){
 
-        //Create replica as git branch and apply patch
         logger.info("testing patch: " + patch.getFilePath());
-        String patchName = Paths.get(patch.getFilePath()).getFileName().toString() + "-" + UUID.randomUUID();
-        boolean success = false;
+        Workspace workspace;
         try {
-            Git git = Git.open(new File(inspector.getRepoLocalPath()));
-            String defaultBranch = git.getRepository().getBranch();
-
-            git.branchCreate().setStartPoint(defaultBranch).setName(patchName).call();
-            git.checkout().setName(patchName).call();
+            this.prepareWorkspaces();
+            workspace = this.availableWorkspaces.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (IOException e) {
+            logger.error("error while creating the workspaces to test the patches", e);
+            return false;
+        }
 
-            InputStream is = new ByteArrayInputStream(patch.getDiff().getBytes());
-            git.apply().setPatch(is).call();
+        Map<File, byte[]> originalContents = null;
+        try (Git git = Git.open(workspace.directory)) {
+            originalContents = this.readTouchedFiles(workspace.directory, patch);
+            git.apply().setPatch(new ByteArrayInputStream(patch.getDiff().getBytes())).call();
 
             //Build and test with applied patch
-            MavenHelper maven = new MavenHelper(pom, goal, properties, "sequencer-builder", inspector, true);
-
-            int result  = maven.run();
-
-            git.reset().setMode(ResetCommand.ResetType.HARD).call();
-
-            git.checkout().setName(defaultBranch).call();
-            git.branchDelete().setBranchNames(patchName).call();
+            MavenHelper maven = new MavenHelper(this.getPomInWorkspace(workspace.directory), goal, properties, "sequencer-builder", inspector, true);
+            if (workspace.m2LocalRepository != null) {
+                maven.getProperties().setProperty("maven.repo.local", workspace.m2LocalRepository.getAbsolutePath());
+            }
 
+            int result = maven.run();
             return result == MavenHelper.MAVEN_SUCCESS;
-
+        } catch (InterruptedException e) {
+            logger.info("testing of patch " + patch.getFilePath() + " has been interrupted");
+            Thread.currentThread().interrupt();
+            return false;
         } catch (Exception e) {
             logger.error("error while testing if patch is buildable");
             return false;
+        } finally {
+            if (originalContents != null) {
+                this.restoreTouchedFiles(originalContents);
+            }
+            this.availableWorkspaces.add(workspace);
+        }
+    }
+
+    /**
+     * Delete the copies of the repository created to validate the patches.
+     */
+    public synchronized void close() {
+        for (Workspace workspace : this.workspaces) {
+            if (workspace.m2LocalRepository != null) {
+                FileUtils.deleteQuietly(workspace.directory);
+                FileUtils.deleteQuietly(workspace.m2LocalRepository);
+            }
+        }
+        this.workspaces.clear();
+        this.availableWorkspaces.clear();
+    }
+
+    /**
+     * Create all the workspaces at once, while the repository is not modified by any validation.
+     */
+    private synchronized void prepareWorkspaces() throws IOException {
+        if (!this.workspaces.isEmpty()) {
+            return;
+        }
+
+        File repository = new File(this.inspector.getRepoLocalPath());
+        if (this.maxWorkspaces == 1) {
+            // nothing runs concurrently: the repository and its local Maven repository can be used directly
+            Workspace workspace = new Workspace(repository, null);
+            this.workspaces.add(workspace);
+            this.availableWorkspaces.add(workspace);
+            return;
+        }
+
+        File m2LocalRepository = this.inspector.getM2LocalPath() == null ? null : new File(this.inspector.getM2LocalPath());
+        for (int i = 0; i < this.maxWorkspaces; i++) {
+            Workspace workspace = new Workspace(
+                    new File(this.inspector.getWorkspace(), "sequencer-validation-" + i),
+                    new File(this.inspector.getWorkspace(), "sequencer-validation-m2-" + i));
+            this.workspaces.add(workspace);
+            this.logger.info("Create a copy of the repository to test the patches in " + workspace.directory.getPath());
+
+            FileUtils.copyDirectory(repository, workspace.directory, file -> !file.equals(m2LocalRepository));
+            if (m2LocalRepository != null && m2LocalRepository.isDirectory()) {
+                FileUtils.copyDirectory(m2LocalRepository, workspace.m2LocalRepository);
+            }
+            this.availableWorkspaces.add(workspace);
+        }
+    }
+
+    /**
+     * @return the content of the files touched by the patch, null for the ones which do not exist yet.
+     */
+    private Map<File, byte[]> readTouchedFiles(File workspace, RepairPatch patch) throws IOException {
+        Patch parsedPatch = new Patch();
+        parsedPatch.parse(new ByteArrayInputStream(patch.getDiff().getBytes()));
+
+        Map<File, byte[]> originalContents = new HashMap<>();
+        for (FileHeader fileHeader : parsedPatch.getFiles()) {
+            for (String path : Arrays.asList(fileHeader.getOldPath(), fileHeader.getNewPath())) {
+                if (path == null || path.equals(DiffEntry.DEV_NULL)) {
+                    continue;
+                }
+                File file = new File(workspace, path);
+                originalContents.put(file, file.isFile() ? Files.readAllBytes(file.toPath()) : null);
+            }
+        }
+        return originalContents;
+    }
+
+    /**
+     * Remove the patch: only the files which changed are written, so the build output of the others stays up to date.
+     */
+    private void restoreTouchedFiles(Map<File, byte[]> originalContents) {
+        for (Map.Entry<File, byte[]> originalContent : originalContents.entrySet()) {
+            Path path = originalContent.getKey().toPath();
+            try {
+                if (originalContent.getValue() == null) {
+                    Files.deleteIfExists(path);
+                } else if (!Files.isRegularFile(path) || !Arrays.equals(Files.readAllBytes(path), originalContent.getValue())) {
+                    Files.write(path, originalContent.getValue());
+                }
+            } catch (IOException e) {
+                logger.error("error while restoring " + path + " after testing a patch", e);
+            }
+        }
+    }
+
+    private String getPomInWorkspace(File workspace) {
+        Path repository = Paths.get(this.inspector.getRepoLocalPath()).toAbsolutePath();
+        Path pomPath = Paths.get(this.pom).toAbsolutePath();
+        if (!pomPath.startsWith(repository)) {
+            return this.pom;
+        }
+        return workspace.toPath().toAbsolutePath().resolve(repository.relativize(pomPath)).toString();
+    }
+
+    private static class Workspace {
+        private final File directory;
+        // null when the repository of the job is used directly
+        private final File m2LocalRepository;
+
+        private Workspace(File directory, File m2LocalRepository) {
+            this.directory = directory;
+            this.m2LocalRepository = m2LocalRepository;
         }
     }
 }
@@ -0,0 +1,208 @@
+package fr.inria.spirals.repairnator.process.testinformation;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class reads the XML reports produced by surefire or failsafe (TEST-*.xml) with a streaming parser.
+ * Contrary to the SurefireReportParser, it doesn't keep the test cases in memory: only the counters of each
+ * test class and the failing or erroring test cases are kept. The stack traces are never read.
+ *
+ * An instance is not thread-safe: use one instance per thread.
+ */
+public class SurefireReportReader {
+
+    private static final String REPORT_PREFIX = "TEST-";
+    private static final String REPORT_SUFFIX = ".xml";
+
+    private final XMLInputFactory factory;
+
+    public SurefireReportReader() {
+        this.factory = XMLInputFactory.newInstance();
+        this.factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        this.factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    /**
+     * Read all the reports of the given directory, in the order of their names.
+     * The results of a test class are merged if it appears in several reports.
+     */
+    public List<TestClassResult> readDirectory(File reportDirectory) throws IOException, XMLStreamException {
+        Map<String, TestClassResult> results = new LinkedHashMap<>();
+
+        File[] reports = reportDirectory.listFiles(file -> file.isFile()
+                && file.getName().startsWith(REPORT_PREFIX) && file.getName().endsWith(REPORT_SUFFIX));
+        if (reports == null) {
+            return new ArrayList<>();
+        }
+        Arrays.sort(reports);
+
+        for (File report : reports) {
+            try (InputStream inputStream = new BufferedInputStream(new FileInputStream(report))) {
+                this.read(inputStream, results);
+            }
+        }
+        return new ArrayList<>(results.values());
+    }
+
+    public List<TestClassResult> read(InputStream inputStream) throws XMLStreamException {
+        Map<String, TestClassResult> results = new LinkedHashMap<>();
+        this.read(inputStream, results);
+        return new ArrayList<>(results.values());
+    }
+
+    private void read(InputStream inputStream, Map<String, TestClassResult> results) throws XMLStreamException {
+        XMLStreamReader reader = this.factory.createXMLStreamReader(inputStream);
+        try {
+            String suiteClassName = null;
+            TestClassResult currentClass = null;
+            String currentTestName = null;
+
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+
+                switch (reader.getLocalName()) {
+                    case "testsuite":
+                        String packageName = reader.getAttributeValue(null, "package");
+                        String suiteName = reader.getAttributeValue(null, "name");
+                        suiteClassName = (packageName == null) ? suiteName : packageName + "." + suiteName;
+                        break;
+
+                    case "testcase":
+                        // a test case might declare its own class, which is not the one of the suite
+                        String className = reader.getAttributeValue(null, "classname");
+                        if (className == null) {
+                            className = suiteClassName;
+                        }
+                        currentClass = results.get(className);
+                        if (currentClass == null) {
+                            currentClass = new TestClassResult(className);
+                            results.put(className, currentClass);
+                        }
+                        currentTestName = reader.getAttributeValue(null, "name");
+                        currentClass.nbTests++;
+                        break;
+
+                    case "failure":
+                    case "error":
+                        if (currentClass != null) {
+                            boolean isError = "error".equals(reader.getLocalName());
+                            if (isError) {
+                                currentClass.nbErrors++;
+                            } else {
+                                currentClass.nbFailures++;
+                            }
+                            currentClass.failures.add(new TestCaseFailure(currentClass.className, currentTestName,
+                                    reader.getAttributeValue(null, "type"), reader.getAttributeValue(null, "message"), isError));
+                        }
+                        break;
+
+                    case "skipped":
+                        if (currentClass != null) {
+                            currentClass.nbSkipped++;
+                        }
+                        break;
+
+                    default:
+                        break;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * The counters of a test class, and its failing or erroring test cases.
+     */
+    public static class TestClassResult {
+        private final String className;
+        private int nbTests;
+        private int nbFailures;
+        private int nbErrors;
+        private int nbSkipped;
+        private final List<TestCaseFailure> failures;
+
+        public TestClassResult(String className) {
+            this.className = className;
+            this.failures = new ArrayList<>();
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public int getNbTests() {
+            return nbTests;
+        }
+
+        public int getNbFailures() {
+            return nbFailures;
+        }
+
+        public int getNbErrors() {
+            return nbErrors;
+        }
+
+        public int getNbSkipped() {
+            return nbSkipped;
+        }
+
+        public List<TestCaseFailure> getFailures() {
+            return failures;
+        }
+    }
+
+    /**
+     * A failure or an error of a test case.
+     */
+    public static class TestCaseFailure {
+        private final String className;
+        private final String testName;
+        private final String type;
+        private final String message;
+        private final boolean error;
+
+        public TestCaseFailure(String className, String testName, String type, String message, boolean error) {
+            this.className = className;
+            this.testName = testName;
+            this.type = type;
+            this.message = message;
+            this.error = error;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public String getTestName() {
+            return testName;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public boolean isError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+#!/bin/bash
+# Installed as python and python3 in the PATH of sequencer-predict.sh: the runs of the OpenNMT-py
+# translate.py script are sent to the translation server, which keeps the model loaded between
+# the predictions. Everything else, and a translation the server cannot do, is run by the real python.
+
+SHIM_DIR="$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)"
+PYTHON_NAME="$(basename "$0")"
+PATH_WITHOUT_SHIM="$(echo "$PATH" | tr ':' '\n' | grep -vxF "$SHIM_DIR" | paste -sd: -)"
+REAL_PYTHON="$(PATH="$PATH_WITHOUT_SHIM" command -v "$PYTHON_NAME")"
+
+for arg in "$@"; do
+    case "$arg" in
+        *translate.py)
+            if "$REAL_PYTHON" "$SHIM_DIR/../translation_client.py" "$@"; then
+                exit 0
+            fi
+            echo "The translation server failed: the model is loaded by translate.py" >&2
+            break
+            ;;
+    esac
+done
+
+PATH="$PATH_WITHOUT_SHIM" exec "$REAL_PYTHON" "$@"
@@ -0,0 +1,69 @@
+"""
+Sends a run of the OpenNMT-py translate.py script to the translation server of the container,
+and starts the server if it is not running yet.
+
+Usage: translation_client.py [python options] <path to translate.py> [translate.py options]
+
+The exit code is 0 if the server did the translation: otherwise, translate.py must be run as usual.
+"""
+
+import json
+import os
+import socket
+import subprocess
+import sys
+import time
+
+SOCKET_PATH = os.environ.get("SEQUENCER_TRANSLATION_SOCKET", "/tmp/sequencer-translation.sock")
+SERVER_LOG = "/tmp/sequencer-translation-server.log"
+SERVER_START_TIMEOUT = 120  # in seconds
+
+
+def connect():
+    client = socket.socket(socket.AF_UNIX, socket.SOCK_STREAM)
+    client.connect(SOCKET_PATH)
+    return client
+
+
+def start_server(script):
+    server = os.path.join(os.path.dirname(os.path.abspath(__file__)), "translation_server.py")
+    with open(SERVER_LOG, "a") as log:
+        subprocess.Popen([sys.executable, server, script], stdin=subprocess.DEVNULL, stdout=log, stderr=log,
+                         start_new_session=True)
+
+    deadline = time.time() + SERVER_START_TIMEOUT
+    while time.time() < deadline:
+        try:
+            return connect()
+        except OSError:
+            time.sleep(0.5)
+    raise OSError("the translation server did not start, see " + SERVER_LOG)
+
+
+def main(args):
+    script_index = next(i for i, arg in enumerate(args) if arg.endswith("translate.py"))
+    script = os.path.abspath(args[script_index])
+    request = {"script": script, "options": args[script_index + 1:], "cwd": os.getcwd()}
+
+    try:
+        client = connect()
+    except OSError:
+        client = start_server(script)
+
+    with client, client.makefile("rw", encoding="utf-8") as stream:
+        stream.write(json.dumps(request) + "\n")
+        stream.flush()
+        response = json.loads(stream.readline() or "{}")
+
+    if response.get("status") != "ok":
+        sys.stderr.write("Translation server error: " + str(response.get("message")) + "\n")
+        return 1
+    return 0
+
+
+if __name__ == "__main__":
+    try:
+        sys.exit(main(sys.argv[1:]))
+    except Exception as e:
+        sys.stderr.write("Translation server unavailable: " + str(e) + "\n")
+        sys.exit(1)
@@ -0,0 +1,121 @@
+"""
+Keeps the translators of the OpenNMT-py translate.py script loaded between the Sequencer predictions.
+
+Usage: translation_server.py <path to translate.py>
+
+The server listens on a unix socket for the options of translate.py runs, sent by translation_client.py,
+and runs them one after the other with the main function of translate.py. The function building the
+translator is replaced by one caching the translators by options: the model is only loaded by the first
+run with given options, the following ones only change the source and output files.
+"""
+
+import codecs
+import collections
+import fcntl
+import importlib.util
+import json
+import os
+import socket
+import sys
+import traceback
+
+SOCKET_PATH = os.environ.get("SEQUENCER_TRANSLATION_SOCKET", "/tmp/sequencer-translation.sock")
+LOCK_PATH = SOCKET_PATH + ".lock"
+MAX_TRANSLATORS = 2
+# the options which change at each run and are not used to build the translator
+PER_RUN_OPTIONS = {"src", "tgt", "output", "log_file"}
+
+
+class TranslateScript:
+    def __init__(self, script):
+        sys.path.insert(0, os.path.dirname(script))
+        spec = importlib.util.spec_from_file_location("sequencer_translate", script)
+        self.module = importlib.util.module_from_spec(spec)
+        spec.loader.exec_module(self.module)
+
+        self.parser = self.build_parser()
+        self.translators = collections.OrderedDict()
+        self.last_translator = None
+        self.build_translator = self.module.build_translator
+        self.module.build_translator = self.cached_build_translator
+
+    def build_parser(self):
+        if hasattr(self.module, "_get_parser"):
+            return self.module._get_parser()
+
+        # before OpenNMT-py 1.0, the parser is built in the main block of translate.py
+        import argparse
+        import onmt.opts
+        parser = argparse.ArgumentParser(description="translate.py",
+                                         formatter_class=argparse.ArgumentDefaultsHelpFormatter)
+        if hasattr(onmt.opts, "add_md_help_argument"):
+            onmt.opts.add_md_help_argument(parser)
+        onmt.opts.translate_opts(parser)
+        return parser
+
+    def cached_build_translator(self, opt, *args, **kwargs):
+        key = json.dumps(sorted((name, str(value)) for name, value in vars(opt).items() if name not in PER_RUN_OPTIONS))
+        translator = self.translators.pop(key, None)
+        if translator is None:
+            translator = self.build_translator(opt, *args, **kwargs)
+            if len(self.translators) >= MAX_TRANSLATORS:
+                self.translators.popitem(last=False)
+        else:
+            translator.out_file = codecs.open(opt.output, "w+", "utf-8")
+        self.translators[key] = translator
+        self.last_translator = translator
+        return translator
+
+    def run(self, options):
+        opt = self.parser.parse_args(options)
+        self.last_translator = None
+        try:
+            if hasattr(self.module, "translate") and callable(self.module.translate):
+                self.module.translate(opt)
+            else:
+                self.module.main(opt)
+        finally:
+            if self.last_translator is not None and hasattr(self.last_translator.out_file, "close"):
+                self.last_translator.out_file.close()
+
+
+def serve(script_path):
+    lock = open(LOCK_PATH, "w")
+    try:
+        fcntl.flock(lock, fcntl.LOCK_EX | fcntl.LOCK_NB)
+    except OSError:
+        print("Another translation server is running")
+        return
+
+    script = TranslateScript(script_path)
+    if os.path.exists(SOCKET_PATH):
+        os.remove(SOCKET_PATH)
+    server = socket.socket(socket.AF_UNIX, socket.SOCK_STREAM)
+    server.bind(SOCKET_PATH)
+    server.listen(16)
+    print("Translation server listening on " + SOCKET_PATH, flush=True)
+
+    while True:
+        connection, _ = server.accept()
+        with connection, connection.makefile("rw", encoding="utf-8") as stream:
+            try:
+                request = json.loads(stream.readline())
+                if os.path.abspath(request["script"]) != os.path.abspath(script_path):
+                    raise ValueError("the server runs " + script_path + ", not " + request["script"])
+                os.chdir(request["cwd"])
+                script.run(request["options"])
+                response = {"status": "ok"}
+            except BaseException as e:
+                # argparse exits on invalid options: the server keeps running
+                traceback.print_exc()
+                response = {"status": "error", "message": repr(e)}
+            try:
+                stream.write(json.dumps(response) + "\n")
+                stream.flush()
+            except OSError:
+                traceback.print_exc()
+            sys.stdout.flush()
+
+
+if __name__ == "__main__":
+    serve(os.path.abspath(sys.argv[1]))
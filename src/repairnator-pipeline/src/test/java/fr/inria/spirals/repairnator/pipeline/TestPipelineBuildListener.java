@@ -8,6 +8,7 @@ import org.junit.Test;
 import javax.jms.MessageNotWriteableException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class TestPipelineBuildListener {
     @Test
@@ -43,4 +44,15 @@ public class TestPipelineBuildListener {
         // a bytes message whose content is formatted in json
         assertEquals(4, buildListener.extractBuiltId(bytesMessageInJson));
     }
+
+    @Test
+    public void testNbWorkers() {
+        // an explicit number of workers is used as is
+        assertEquals(3, PipelineBuildListener.computeNbWorkers(3));
+
+        // otherwise it depends on the available cores and memory
+        int nbWorkers = PipelineBuildListener.computeNbWorkers(0);
+        assertTrue(nbWorkers >= 1);
+        assertTrue(nbWorkers <= Runtime.getRuntime().availableProcessors());
+    }
 }
@@ -0,0 +1,71 @@
+package fr.inria.spirals.repairnator.process.git;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestGitMirrorCache {
+
+    private void commitFile(Git git, String filename, String content) throws Exception {
+        File workTree = git.getRepository().getWorkTree();
+        Files.write(new File(workTree, filename).toPath(), content.getBytes(StandardCharsets.UTF_8));
+        git.add().addFilepattern(filename).call();
+        git.commit().setMessage("add " + filename).setAuthor("test", "test@example.com").setCommitter("test", "test@example.com").call();
+    }
+
+    @Test
+    public void testCloneFromMirrorFetchesNewCommits() throws Exception {
+        File remote = Files.createTempDirectory("remote").toFile();
+        File cacheDir = Files.createTempDirectory("git-mirrors").toFile();
+        File firstClone = new File(Files.createTempDirectory("job1").toFile(), "repo");
+        File secondClone = new File(Files.createTempDirectory("job2").toFile(), "repo");
+        String remoteUrl = remote.getAbsolutePath();
+
+        try (Git git = Git.init().setDirectory(remote).call()) {
+            this.commitFile(git, "first.txt", "first");
+
+            GitMirrorCache gitMirrorCache = new GitMirrorCache(cacheDir.getAbsolutePath(), 0);
+            assertTrue(gitMirrorCache.cloneFromMirror("owner/repo", remoteUrl, firstClone));
+            assertTrue(new File(firstClone, "first.txt").exists());
+            assertTrue(new File(gitMirrorCache.getMirror("owner/repo"), "HEAD").exists());
+
+            this.commitFile(git, "second.txt", "second");
+            assertTrue(gitMirrorCache.cloneFromMirror("owner/repo", remoteUrl, secondClone));
+            assertTrue(new File(secondClone, "second.txt").exists());
+        }
+
+        try (Git clone = Git.open(secondClone)) {
+            assertEquals(remoteUrl, clone.getRepository().getConfig().getString("remote", "origin", "url"));
+        }
+    }
+
+    @Test
+    public void testEvictRemovesLeastRecentlyUsedMirrors() throws Exception {
+        File remote = Files.createTempDirectory("remote").toFile();
+        File cacheDir = Files.createTempDirectory("git-mirrors").toFile();
+
+        try (Git git = Git.init().setDirectory(remote).call()) {
+            this.commitFile(git, "file.txt", "content");
+        }
+
+        GitMirrorCache unboundedCache = new GitMirrorCache(cacheDir.getAbsolutePath(), 0);
+        assertTrue(unboundedCache.cloneFromMirror("owner/old", remote.getAbsolutePath(), new File(Files.createTempDirectory("job1").toFile(), "repo")));
+        assertTrue(unboundedCache.cloneFromMirror("owner/new", remote.getAbsolutePath(), new File(Files.createTempDirectory("job2").toFile(), "repo")));
+        File oldMirror = unboundedCache.getMirror("owner/old");
+        File newMirror = unboundedCache.getMirror("owner/new");
+        oldMirror.setLastModified(0);
+
+        long totalSize = FileUtils.sizeOfDirectory(oldMirror) + FileUtils.sizeOfDirectory(newMirror);
+        new GitMirrorCache(cacheDir.getAbsolutePath(), totalSize - 1).evict();
+        assertFalse(oldMirror.exists());
+        assertTrue(newMirror.exists());
+    }
+}
@@ -0,0 +1,69 @@
+package fr.inria.spirals.repairnator.process.inspectors;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestJobStatusCopy {
+
+    @Test
+    public void testCopyForWorkspaceMovesRepositoryPaths() throws Exception {
+        JobStatus jobStatus = new JobStatus("/tmp/workspace/repo");
+        jobStatus.setFailingModulePath("/tmp/workspace/repo/module");
+        jobStatus.setRepairSourceDir(new File[]{new File("/tmp/workspace/repo/module/src/main/java")});
+        jobStatus.setRepairClassPath(Arrays.asList(
+                new URL("file:/tmp/workspace/repo/module/target/classes/"),
+                new URL("file:/tmp/workspace/repo/.m2/org/example/lib/1.0/lib-1.0.jar")));
+
+        JobStatus copy = jobStatus.copyForWorkspace("/tmp/workspace/repo", "/tmp/workspace/repo_NPEFix", "/tmp/workspace/repo/.m2");
+
+        assertEquals("/tmp/workspace/repo_NPEFix", copy.getPomDirPath());
+        assertEquals("/tmp/workspace/repo_NPEFix/module", copy.getFailingModulePath());
+        assertEquals(new File("/tmp/workspace/repo_NPEFix/module/src/main/java"), copy.getRepairSourceDir()[0]);
+        assertEquals("/tmp/workspace/repo_NPEFix/module/target/classes/", copy.getRepairClassPath().get(0).getPath());
+        // the local Maven repository is not copied
+        assertEquals("/tmp/workspace/repo/.m2/org/example/lib/1.0/lib-1.0.jar", copy.getRepairClassPath().get(1).getPath());
+    }
+
+    @Test
+    public void testCopyForWorkspaceCopiesProperties() {
+        JobStatus jobStatus = new JobStatus("/tmp/workspace/repo");
+        jobStatus.getProperties().getReproductionBuggyBuild().setProjectRootPomPath("/tmp/workspace/repo/pom.xml");
+
+        JobStatus copy = jobStatus.copyForWorkspace("/tmp/workspace/repo", "/tmp/workspace/repo_NPEFix", "/tmp/workspace/repo/.m2");
+        assertNotSame(jobStatus.getProperties(), copy.getProperties());
+        assertEquals("/tmp/workspace/repo/pom.xml", copy.getProperties().getReproductionBuggyBuild().getProjectRootPomPath());
+
+        // the tools running on the copy cannot alter the properties of the job
+        copy.getProperties().getReproductionBuggyBuild().setProjectRootPomPath("/tmp/workspace/repo_NPEFix/pom.xml");
+        assertEquals("/tmp/workspace/repo/pom.xml", jobStatus.getProperties().getReproductionBuggyBuild().getProjectRootPomPath());
+    }
+
+    @Test
+    public void testMergeRepairResults() {
+        JobStatus jobStatus = new JobStatus("/tmp/workspace/repo");
+        JobStatus copy = jobStatus.copyForWorkspace("/tmp/workspace/repo", "/tmp/workspace/repo_NPEFix", "/tmp/workspace/repo/.m2");
+
+        copy.addPatches("NPEFix", Collections.singletonList(new RepairPatch("NPEFix", "/tmp/workspace/repo_NPEFix/src/main/java/Foo.java", "diff")));
+        copy.setHasBeenPatched(true);
+        copy.addFileToPush("repairnator.npefix.results");
+        copy.addStepError("NPEFix", "error");
+
+        jobStatus.mergeRepairResults(copy, "/tmp/workspace/repo", "/tmp/workspace/repo_NPEFix");
+
+        List<RepairPatch> patches = jobStatus.getListOfPatches().get("NPEFix");
+        assertEquals(1, patches.size());
+        assertEquals("/tmp/workspace/repo/src/main/java/Foo.java", patches.get(0).getFilePath());
+        assertTrue(jobStatus.isHasBeenPatched());
+        assertTrue(jobStatus.getCreatedFilesToPush().contains("repairnator.npefix.results"));
+        assertEquals(Collections.singletonList("error"), jobStatus.getStepErrors().get("NPEFix"));
+    }
+}
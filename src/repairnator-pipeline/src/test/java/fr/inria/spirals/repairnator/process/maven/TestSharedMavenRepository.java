@@ -0,0 +1,114 @@
+package fr.inria.spirals.repairnator.process.maven;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestSharedMavenRepository {
+
+    private Path createArtifact(Path repository, String version, String remoteRepositories) throws IOException {
+        Path versionDir = repository.resolve("org/example/lib/" + version);
+        Files.createDirectories(versionDir);
+        Files.write(versionDir.resolve("lib-" + version + ".pom"), "<project/>".getBytes(StandardCharsets.UTF_8));
+        Files.write(versionDir.resolve("lib-" + version + ".jar"), "content".getBytes(StandardCharsets.UTF_8));
+        Files.write(versionDir.resolve("_remote.repositories"), remoteRepositories.getBytes(StandardCharsets.UTF_8));
+        return versionDir;
+    }
+
+    @Test
+    public void testPublishThenReuse() throws IOException {
+        Path sharedDir = Files.createTempDirectory("shared-m2");
+        Path firstJob = Files.createTempDirectory("job1-m2");
+        Path secondJob = Files.createTempDirectory("job2-m2");
+        Path thirdJob = Files.createTempDirectory("job3-m2");
+
+        this.createArtifact(firstJob, "1.0", "lib-1.0.jar>central=\nlib-1.0.pom>central=\n");
+        SharedMavenRepository repository = new SharedMavenRepository(sharedDir.toString(), 0);
+
+        SharedMavenRepository.CacheStatistics statistics = repository.publish(firstJob, Collections.emptyList());
+        assertEquals(0, statistics.getHits());
+        assertEquals(1, statistics.getMisses());
+        assertEquals(1, statistics.getPublished());
+        assertTrue(Files.exists(sharedDir.resolve("org/example/lib/1.0/lib-1.0.jar")));
+        assertFalse(Files.exists(sharedDir.resolve("org/example/lib/1.0/_remote.repositories")));
+
+        // the second job resolved the artifact from the shared repository, as Maven records it
+        this.createArtifact(secondJob, "1.0", "lib-1.0.jar>" + SharedMavenRepository.REPOSITORY_ID + "=\nlib-1.0.pom>" + SharedMavenRepository.REPOSITORY_ID + "=\n");
+        statistics = repository.publish(secondJob, Collections.emptyList());
+        assertEquals(1, statistics.getHits());
+        assertEquals(0, statistics.getMisses());
+        assertEquals(0, statistics.getPublished());
+
+        // the third job downloaded it again from another repository: the shared one has not been used
+        this.createArtifact(thirdJob, "1.0", "lib-1.0.jar>central=\nlib-1.0.pom>central=\n");
+        statistics = repository.publish(thirdJob, Collections.emptyList());
+        assertEquals(0, statistics.getHits());
+        assertEquals(1, statistics.getMisses());
+    }
+
+    @Test
+    public void testSettingsDeclareTheSharedRepository() throws IOException {
+        Path sharedDir = Files.createTempDirectory("shared-m2");
+        Path settingsFile = Files.createTempDirectory("job-m2").resolve("settings.xml");
+
+        SharedMavenRepository repository = new SharedMavenRepository(sharedDir.toString(), 0);
+        repository.writeSettings(settingsFile);
+
+        String settings = new String(Files.readAllBytes(settingsFile), StandardCharsets.UTF_8);
+        assertTrue(settings.contains("<id>" + SharedMavenRepository.REPOSITORY_ID + "</id>"));
+        assertTrue(settings.contains("<url>" + sharedDir.toUri() + "</url>"));
+        assertTrue(settings.contains("<pluginRepository>"));
+    }
+
+    @Test
+    public void testLocallyInstalledArtifactsAreNotPublished() throws IOException {
+        Path sharedDir = Files.createTempDirectory("shared-m2");
+        Path job = Files.createTempDirectory("job-m2");
+
+        this.createArtifact(job, "1.0", "lib-1.0.jar>=\nlib-1.0.pom>=\n");
+        this.createArtifact(job, "2.0-SNAPSHOT", "lib-2.0-SNAPSHOT.jar>central=\n");
+
+        SharedMavenRepository repository = new SharedMavenRepository(sharedDir.toString(), 0);
+        SharedMavenRepository.CacheStatistics statistics = repository.publish(job, Collections.emptyList());
+        assertEquals(0, statistics.getPublished());
+        assertFalse(Files.exists(sharedDir.resolve("org/example/lib")));
+    }
+
+    @Test
+    public void testArtifactWithWrongChecksumIsNotPublished() throws IOException {
+        Path sharedDir = Files.createTempDirectory("shared-m2");
+        Path job = Files.createTempDirectory("job-m2");
+
+        Path versionDir = this.createArtifact(job, "1.0", "lib-1.0.jar>central=\n");
+        Files.write(versionDir.resolve("lib-1.0.jar.sha1"), "0000000000000000000000000000000000000000".getBytes(StandardCharsets.UTF_8));
+
+        SharedMavenRepository repository = new SharedMavenRepository(sharedDir.toString(), 0);
+        SharedMavenRepository.CacheStatistics statistics = repository.publish(job, Collections.emptyList());
+        assertEquals(1, statistics.getMisses());
+        assertEquals(0, statistics.getPublished());
+    }
+
+    @Test
+    public void testEviction() throws IOException {
+        Path sharedDir = Files.createTempDirectory("shared-m2");
+        Path job = Files.createTempDirectory("job-m2");
+
+        this.createArtifact(job, "1.0", "lib-1.0.jar>central=\n");
+        this.createArtifact(job, "2.0", "lib-2.0.jar>central=\n");
+
+        // the limit is lower than the size of a single artifact: everything is evicted
+        SharedMavenRepository repository = new SharedMavenRepository(sharedDir.toString(), 1);
+        SharedMavenRepository.CacheStatistics statistics = repository.publish(job, Collections.emptyList());
+        assertEquals(2, statistics.getPublished());
+        assertEquals(2, statistics.getEvicted());
+        assertFalse(Files.exists(sharedDir.resolve("org/example/lib/1.0")));
+    }
+}
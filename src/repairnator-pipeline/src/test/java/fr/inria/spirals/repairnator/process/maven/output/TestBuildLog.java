@@ -0,0 +1,91 @@
+package fr.inria.spirals.repairnator.process.maven.output;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TestBuildLog {
+
+    private List<String> readAll(BuildLog buildLog) {
+        List<String> lines = new ArrayList<>();
+        for (String line : buildLog) {
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    private void checkLines(BuildLog buildLog, int nbLines) {
+        List<String> expectedLines = new ArrayList<>();
+        for (int i = 0; i < nbLines; i++) {
+            String line = "[INFO] line " + i + " with some unicode: \u00e9";
+            expectedLines.add(line);
+            buildLog.add(line);
+        }
+
+        assertThat(buildLog.size(), is((long) nbLines));
+        assertThat(this.readAll(buildLog), is(expectedLines));
+    }
+
+    @Test
+    public void testLinesAreKeptInOrder() {
+        this.checkLines(new BuildLog(), 1000);
+    }
+
+    @Test
+    public void testLinesAreKeptInOrderWhenSpilledToDisk() {
+        // small chunks and a small memory limit: most of the chunks are spilled
+        this.checkLines(new BuildLog(128, 512, true), 5000);
+    }
+
+    @Test
+    public void testLinesAreKeptInOrderWithoutCompression() {
+        this.checkLines(new BuildLog(128, 512, false), 5000);
+    }
+
+    @Test
+    public void testIteratorOnlyReturnsPreviousLines() {
+        BuildLog buildLog = new BuildLog(128, 512, true);
+        for (int i = 0; i < 100; i++) {
+            buildLog.add("line " + i);
+        }
+
+        Iterator<String> iterator = buildLog.iterator();
+        for (int i = 100; i < 200; i++) {
+            buildLog.add("line " + i);
+        }
+
+        int nbLines = 0;
+        while (iterator.hasNext()) {
+            assertThat(iterator.next(), is("line " + nbLines));
+            nbLines++;
+        }
+        assertThat(nbLines, is(100));
+        assertThat(this.readAll(buildLog).size(), is(200));
+    }
+
+    @Test
+    public void testCloseDeletesTheSpillFile() {
+        BuildLog buildLog = new BuildLog(128, 512, true);
+        for (int i = 0; i < 5000; i++) {
+            buildLog.add("line " + i);
+        }
+        File spillFile = buildLog.getSpillFile();
+        assertThat(spillFile.exists(), is(true));
+
+        buildLog.close();
+        assertThat(spillFile.exists(), is(false));
+        assertThat(buildLog.size(), is(0L));
+        assertThat(buildLog.iterator().hasNext(), is(false));
+    }
+
+    @Test
+    public void testEmptyLog() {
+        assertThat(new BuildLog().iterator().hasNext(), is(false));
+    }
+}
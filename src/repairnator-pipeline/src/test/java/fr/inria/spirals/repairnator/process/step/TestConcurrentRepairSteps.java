@@ -0,0 +1,194 @@
+package fr.inria.spirals.repairnator.process.step;
+
+import ch.qos.logback.classic.Level;
+import fr.inria.spirals.repairnator.config.RepairnatorConfig;
+import fr.inria.spirals.repairnator.process.inspectors.JobStatus;
+import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import fr.inria.spirals.repairnator.process.inspectors.RepairPatch;
+import fr.inria.spirals.repairnator.process.step.repair.AbstractRepairStep;
+import fr.inria.spirals.repairnator.process.utils4tests.ProjectInspectorMocker;
+import fr.inria.spirals.repairnator.utils.Utils;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.when;
+
+public class TestConcurrentRepairSteps {
+
+    private File tmpDir;
+
+    /**
+     * A repair tool which waits for the given latch, ignoring interrupts like the real tools.
+     */
+    public static class FakeRepairStep extends AbstractRepairStep {
+        private final String toolName;
+        private final CountDownLatch waitFor;
+        private final CountDownLatch finished;
+
+        public FakeRepairStep(String toolName, CountDownLatch waitFor) {
+            this.toolName = toolName;
+            this.waitFor = waitFor;
+            this.finished = new CountDownLatch(1);
+        }
+
+        @Override
+        public String getRepairToolName() {
+            return this.toolName;
+        }
+
+        @Override
+        protected StepStatus businessExecute() {
+            while (this.waitFor != null && this.waitFor.getCount() > 0) {
+                try {
+                    this.waitFor.await();
+                } catch (InterruptedException e) {
+                    // ignored on purpose
+                }
+            }
+            RepairPatch patch = new RepairPatch(this.toolName, this.getInspector().getRepoLocalPath() + "/Foo.java", "diff");
+            this.getInspector().getJobStatus().addPatches(this.toolName, Collections.singletonList(patch));
+            this.getInspector().getJobStatus().setHasBeenPatched(true);
+            this.finished.countDown();
+            return StepStatus.buildSuccess(this);
+        }
+    }
+
+    @Before
+    public void setup() throws IOException {
+        Utils.setLoggersLevel(Level.ERROR);
+        this.tmpDir = Files.createTempDirectory("concurrent-repair").toFile();
+        File repository = new File(this.tmpDir, "repo");
+        repository.mkdirs();
+        Files.write(new File(repository, "Foo.java").toPath(), "class Foo {}".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void tearDown() {
+        RepairnatorConfig.deleteInstance();
+        FileUtils.deleteQuietly(this.tmpDir);
+    }
+
+    private ProjectInspector mockInspector() {
+        String repoLocalPath = new File(this.tmpDir, "repo").getAbsolutePath();
+        ProjectInspector inspector = ProjectInspectorMocker.mockProjectInspector(new JobStatus(repoLocalPath), repoLocalPath);
+        when(inspector.getM2LocalPath()).thenReturn(new File(this.tmpDir, ".m2").getAbsolutePath());
+        when(inspector.copyForWorkspace(anyString())).thenAnswer(invocation -> {
+            String copyLocalPath = (String) invocation.getArguments()[0];
+            return ProjectInspectorMocker.mockProjectInspector(new JobStatus(copyLocalPath), copyLocalPath);
+        });
+        return inspector;
+    }
+
+    private void configure(String... tools) {
+        RepairnatorConfig.getInstance().setRepairTools(new HashSet<>(Arrays.asList(tools)));
+        RepairnatorConfig.getInstance().setRepairToolsThreads(2);
+    }
+
+    @Test
+    public void testFirstPatchFoundIsFirstPatchOfTheJob() {
+        this.configure("SlowTool", "FastTool");
+        ProjectInspector inspector = this.mockInspector();
+
+        CountDownLatch fastToolFinished = new CountDownLatch(1);
+        FakeRepairStep fastTool = new FakeRepairStep("FastTool", null) {
+            @Override
+            protected StepStatus businessExecute() {
+                StepStatus stepStatus = super.businessExecute();
+                fastToolFinished.countDown();
+                return stepStatus;
+            }
+        };
+        // the first configured tool only finishes after the second one
+        FakeRepairStep slowTool = new FakeRepairStep("SlowTool", fastToolFinished);
+
+        List<AbstractRepairStep> repairSteps = Arrays.asList(slowTool, fastTool);
+        ConcurrentRepairSteps step = new ConcurrentRepairSteps(inspector, repairSteps);
+        StepStatus stepStatus = step.businessExecute();
+
+        assertThat(stepStatus.isSuccess(), is(true));
+        List<RepairPatch> patches = inspector.getJobStatus().getAllPatches();
+        assertThat(patches.size(), is(2));
+        assertThat(patches.get(0).getToolname(), is("FastTool"));
+        assertThat(patches.get(0).getFilePath(), is(new File(this.tmpDir, "repo/Foo.java").getAbsolutePath()));
+        assertThat(new File(this.tmpDir, "repo_SlowTool").exists(), is(false));
+        assertThat(new File(this.tmpDir, "repo_FastTool").exists(), is(false));
+    }
+
+    @Test
+    public void testWorkspaceIsDeletedOnlyOnceTheToolStopped() throws InterruptedException {
+        this.configure("StubbornTool");
+        ProjectInspector inspector = this.mockInspector();
+
+        CountDownLatch release = new CountDownLatch(1);
+        FakeRepairStep stubbornTool = new FakeRepairStep("StubbornTool", release);
+
+        ConcurrentRepairSteps step = new ConcurrentRepairSteps(inspector, Collections.singletonList(stubbornTool));
+        step.setBudgetInMillis(500);
+        step.setTerminationTimeoutInMillis(100);
+        StepStatus stepStatus = step.businessExecute();
+
+        // the tool has been cancelled but is still running in its workspace
+        assertThat(stepStatus.isSuccess(), is(false));
+        assertThat(inspector.getJobStatus().getAllPatches().isEmpty(), is(true));
+        File workspace = new File(this.tmpDir, "repo_StubbornTool");
+        assertThat(workspace.exists(), is(true));
+
+        release.countDown();
+        assertThat(stubbornTool.finished.await(10, TimeUnit.SECONDS), is(true));
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (workspace.exists() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        assertThat(workspace.exists(), is(false));
+        // the patch found after the cancellation is not merged
+        assertThat(inspector.getJobStatus().getAllPatches().isEmpty(), is(true));
+    }
+
+    @Test
+    public void testToolExceedingItsCpuBudgetIsCancelled() throws InterruptedException {
+        this.configure("BusyTool", "FastTool");
+        ProjectInspector inspector = this.mockInspector();
+
+        CountDownLatch release = new CountDownLatch(1);
+        FakeRepairStep busyTool = new FakeRepairStep("BusyTool", null) {
+            @Override
+            protected StepStatus businessExecute() {
+                // spins instead of waiting, ignoring interrupts
+                while (release.getCount() > 0) {
+                    Math.sqrt(System.nanoTime());
+                }
+                return super.businessExecute();
+            }
+        };
+        FakeRepairStep fastTool = new FakeRepairStep("FastTool", null);
+
+        ConcurrentRepairSteps step = new ConcurrentRepairSteps(inspector, Arrays.asList(busyTool, fastTool));
+        step.setCpuBudgetInMillis(200);
+        step.setTerminationTimeoutInMillis(100);
+        StepStatus stepStatus = step.businessExecute();
+        release.countDown();
+
+        // only the patch of the tool within its budget is merged
+        assertThat(stepStatus.isSuccess(), is(true));
+        List<RepairPatch> patches = inspector.getJobStatus().getAllPatches();
+        assertThat(patches.size(), is(1));
+        assertThat(patches.get(0).getToolname(), is("FastTool"));
+        assertThat(busyTool.finished.await(10, TimeUnit.SECONDS), is(true));
+    }
+}
@@ -0,0 +1,149 @@
+package fr.inria.spirals.repairnator.process.step;
+
+import ch.qos.logback.classic.Level;
+import fr.inria.spirals.repairnator.config.RepairnatorConfig;
+import fr.inria.spirals.repairnator.process.inspectors.JobStatus;
+import fr.inria.spirals.repairnator.process.inspectors.JobStatusData;
+import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import fr.inria.spirals.repairnator.process.utils4tests.ProjectInspectorMocker;
+import fr.inria.spirals.repairnator.states.PipelineState;
+import fr.inria.spirals.repairnator.utils.Utils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.verify;
+
+public class TestStepScheduler {
+
+    private List<String> executedSteps;
+
+    public class RecordingStep extends AbstractStep {
+        private final boolean success;
+        private final Set<JobStatusData> readData;
+        private final Set<JobStatusData> writtenData;
+        private CyclicBarrier barrier;
+
+        public RecordingStep(ProjectInspector inspector, String name, boolean blockingStep, boolean success, Set<JobStatusData> readData, Set<JobStatusData> writtenData) {
+            super(inspector, blockingStep, name);
+            this.success = success;
+            this.readData = readData;
+            this.writtenData = writtenData;
+        }
+
+        @Override
+        protected StepStatus businessExecute() {
+            if (this.barrier != null) {
+                try {
+                    // both steps must reach the barrier: it fails if they run one after the other
+                    this.barrier.await(10, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    return StepStatus.buildError(this, PipelineState.NOTBUILDABLE);
+                }
+            }
+            executedSteps.add(this.getName());
+            return this.success ? StepStatus.buildSuccess(this) : StepStatus.buildError(this, PipelineState.NOTBUILDABLE);
+        }
+
+        @Override
+        public Set<JobStatusData> getReadData() {
+            return this.readData;
+        }
+
+        @Override
+        public Set<JobStatusData> getWrittenData() {
+            return this.writtenData;
+        }
+    }
+
+    @Before
+    public void setup() {
+        Utils.setLoggersLevel(Level.ERROR);
+        this.executedSteps = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    @After
+    public void tearDown() {
+        RepairnatorConfig.deleteInstance();
+    }
+
+    private ProjectInspector mockInspector() {
+        String localRepoPath = "./src/test/resources/test-abstractstep/simple-maven-project";
+        return ProjectInspectorMocker.mockProjectInspector(new JobStatus(localRepoPath), localRepoPath);
+    }
+
+    @Test
+    public void testStepsAreExecutedInOrderUntilBlockingFailure() {
+        ProjectInspector inspector = this.mockInspector();
+
+        AbstractStep step1 = new RecordingStep(inspector, "step1", false, false, null, null);
+        step1.addNextStep(new RecordingStep(inspector, "step2", true, false, null, null))
+                .addNextStep(new RecordingStep(inspector, "step3", false, true, null, null));
+
+        new StepScheduler(1).execute(step1);
+
+        assertThat(this.executedSteps, is(Arrays.asList("step1", "step2")));
+    }
+
+    @Test
+    public void testIndependentStepsAreExecutedConcurrently() {
+        ProjectInspector inspector = this.mockInspector();
+        CyclicBarrier barrier = new CyclicBarrier(2);
+
+        RecordingStep classpath = new RecordingStep(inspector, "classpath", false, true,
+                EnumSet.of(JobStatusData.FAILING_MODULE_PATH), EnumSet.of(JobStatusData.REPAIR_CLASSPATH));
+        RecordingStep sourceDir = new RecordingStep(inspector, "sourceDir", false, true,
+                EnumSet.of(JobStatusData.FAILING_MODULE_PATH), EnumSet.of(JobStatusData.REPAIR_SOURCE_DIR));
+        RecordingStep dependent = new RecordingStep(inspector, "dependent", false, true,
+                EnumSet.of(JobStatusData.REPAIR_CLASSPATH), EnumSet.of(JobStatusData.TEST_DIR));
+        classpath.barrier = barrier;
+        sourceDir.barrier = barrier;
+        classpath.addNextStep(sourceDir).addNextStep(dependent);
+
+        StepScheduler scheduler = new StepScheduler(2);
+        scheduler.execute(classpath);
+
+        assertThat(classpath.getStepStatus().isSuccess(), is(true));
+        assertThat(sourceDir.getStepStatus().isSuccess(), is(true));
+        assertThat(this.executedSteps.size(), is(3));
+        // the dependent step is run after the two others
+        assertThat(this.executedSteps.get(2), is("dependent"));
+        assertThat(scheduler.getCriticalPathReport().contains("TOTAL"), is(true));
+    }
+
+    @Test
+    public void testPipelineIsTerminatedWhenAStepThrows() {
+        ProjectInspector inspector = this.mockInspector();
+
+        AbstractStep step1 = new RecordingStep(inspector, "step1", false, true, null, null);
+        step1.addNextStep(new RecordingStep(inspector, "step2", false, true, null, null) {
+            @Override
+            protected StepStatus businessExecute() {
+                throw new IllegalStateException("unexpected failure");
+            }
+        });
+
+        StepScheduler scheduler = new StepScheduler(1);
+        try {
+            scheduler.execute(step1);
+            fail("The exception of the step should be thrown");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), is("unexpected failure"));
+        }
+
+        assertThat(this.executedSteps, is(Collections.singletonList("step1")));
+        verify(inspector).setPipelineEnding(true);
+    }
+}
@@ -45,6 +45,30 @@ public class TestComputeModules {
         FileHelper.deleteFile(tmpDir);
     }
 
+    @Test
+    public void testFindModulesIncludesTheActiveProfiles() throws IOException {
+        tmpDir = Files.createTempDirectory("test_find_modules_active_profiles").toFile();
+        String project = "<project><modelVersion>4.0.0</modelVersion><groupId>test</groupId><artifactId>%s</artifactId><version>1.0</version><packaging>%s</packaging>%s</project>";
+        // a profile activated by a property defined on every JVM, and a profile never activated
+        String profiles = "<modules><module>core</module></modules><profiles>"
+                + "<profile><id>active</id><activation><property><name>java.version</name></property></activation><modules><module>extra</module></modules></profile>"
+                + "<profile><id>inactive</id><modules><module>other</module></modules></profile>"
+                + "</profiles>";
+        Files.write(new File(tmpDir, Utils.POM_FILE).toPath(), String.format(project, "root", "pom", profiles).getBytes());
+        for (String module : new String[] { "core", "extra", "other" }) {
+            File moduleDir = new File(tmpDir, module);
+            moduleDir.mkdirs();
+            Files.write(new File(moduleDir, Utils.POM_FILE).toPath(), String.format(project, module, "jar", "").getBytes());
+        }
+
+        File m2Dir = new File(tmpDir, ".m2");
+        File[] modules = ComputeModules.findModules(new File(tmpDir, Utils.POM_FILE).getPath(), m2Dir.getAbsolutePath());
+
+        assertThat(modules.length, is(2));
+        assertThat(modules[0].getName(), is("core"));
+        assertThat(modules[1].getName(), is("extra"));
+    }
+
     @Test
     public void testComputeModulesWithSingleModuleProject() throws IOException {
         long buggyBuildCandidateId = 203797975; // http://travis-ci.org/fermadeiral/TestingProject/builds/203797975
@@ -0,0 +1,86 @@
+package fr.inria.spirals.repairnator.process.step.repair.sequencer;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestSequencerService {
+
+    @Test
+    public void testBuildBatchCommand() {
+        SequencerService.PredictionRequest first = new SequencerService.PredictionRequest(
+                Paths.get("/workspace/foo/src/main/java/Foo.java"), "src/main/java/Foo.java", 12, 50, Paths.get("/out/Foo"));
+        SequencerService.PredictionRequest second = new SequencerService.PredictionRequest(
+                Paths.get("/workspace/bar/src/main/java/Bar.java"), "src/main/java/Bar.java", 3, 50, Paths.get("/out/Bar"));
+
+        String command = SequencerService.buildBatchCommand(Arrays.asList(first, second), 120);
+
+        String firstDir = SequencerService.EXCHANGE_MOUNT + "/" + first.id;
+        assertTrue(command.contains("(timeout 120m ./sequencer-predict.sh '--buggy_file=" + firstDir + "/in/Foo.java' --buggy_line=12 "
+                + "--beam_size=50 '--real_file_path=src/main/java/Foo.java' '--output=" + firstDir + "/out' > '"
+                + firstDir + "/stdout' 2> '" + firstDir + "/stderr'; chmod -R a+rwX '" + firstDir + "') & "));
+        assertTrue(command.contains("'--buggy_file=" + SequencerService.EXCHANGE_MOUNT + "/" + second.id + "/in/Bar.java' --buggy_line=3 "));
+
+        // the python of the predictions is the shim sending the translations to the server
+        assertTrue(command.startsWith("export PATH='" + SequencerService.EXCHANGE_MOUNT + "/" + SequencerService.SERVICE_DIR_NAME + "/bin':\"$PATH\"; "));
+        for (String resource : new String[] { "python-shim.sh", "translation_client.py", "translation_server.py" }) {
+            assertNotNull(SequencerService.class.getResource("/sequencer/" + resource));
+        }
+
+        // the predictions of the batch are run concurrently, and the command waits for all of them
+        assertEquals(2, command.split("\\) & ").length - 1);
+        assertTrue(command.endsWith("wait"));
+    }
+
+    @Test
+    public void testFileNamesAreQuoted() {
+        SequencerService.PredictionRequest request = new SequencerService.PredictionRequest(
+                Paths.get("/workspace/foo/src/main/java/It's $(rm -rf ~).java"), "src/main/java/It's $(rm -rf ~).java", 1, 50, Paths.get("/out/Foo"));
+
+        String command = SequencerService.buildBatchCommand(Collections.singletonList(request), 120);
+
+        assertTrue(command.contains("'--real_file_path=src/main/java/It'\\''s $(rm -rf ~).java'"));
+        assertEquals("'a b'", SequencerService.shellQuote("a b"));
+    }
+
+    @Test
+    public void testContainerIsNamedAfterTheExchangeDirectory() {
+        String name = SequencerService.getContainerName("/var/lib/repairnator/workspace/sequencer-exchange");
+
+        assertTrue(name.startsWith(SequencerService.CONTAINER_NAME_PREFIX));
+        assertEquals(name, SequencerService.getContainerName("/var/lib/repairnator/workspace/sequencer-exchange"));
+        assertNotEquals(name, SequencerService.getContainerName("/tmp/sequencer-exchange"));
+    }
+
+    @Test
+    public void testServiceFilesAreInstalledAgainOnceRemoved() throws IOException {
+        Path exchangeDir = Files.createTempDirectory("sequencer-exchange");
+        try {
+            assertFalse(SequencerService.areServiceFilesInstalled(exchangeDir));
+
+            SequencerService.installServiceFiles(exchangeDir);
+            assertTrue(SequencerService.areServiceFilesInstalled(exchangeDir));
+            assertTrue(Files.isExecutable(exchangeDir.resolve(SequencerService.SERVICE_DIR_NAME).resolve("bin").resolve("python")));
+
+            // the shim has been removed, e.g. with the directory
+            Files.delete(exchangeDir.resolve(SequencerService.SERVICE_DIR_NAME).resolve("bin").resolve("python3"));
+            assertFalse(SequencerService.areServiceFilesInstalled(exchangeDir));
+            SequencerService.installServiceFiles(exchangeDir);
+            assertTrue(SequencerService.areServiceFilesInstalled(exchangeDir));
+        } finally {
+            FileUtils.deleteQuietly(exchangeDir.toFile());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package fr.inria.spirals.repairnator.process.testinformation;
+
+import fr.inria.spirals.repairnator.process.testinformation.SurefireReportReader.TestCaseFailure;
+import fr.inria.spirals.repairnator.process.testinformation.SurefireReportReader.TestClassResult;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class TestSurefireReportReader {
+
+    private static final String REPORT = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<testsuite name=\"nopol_examples.nopol_example_1.NopolExampleTest\" time=\"0.05\" tests=\"4\" errors=\"1\" skipped=\"1\" failures=\"1\">\n" +
+            "  <properties>\n" +
+            "    <property name=\"java.version\" value=\"1.8.0\"/>\n" +
+            "  </properties>\n" +
+            "  <testcase name=\"test1\" classname=\"nopol_examples.nopol_example_1.NopolExampleTest\" time=\"0.001\"/>\n" +
+            "  <testcase name=\"test2\" classname=\"nopol_examples.nopol_example_1.NopolExampleTest\" time=\"0.001\">\n" +
+            "    <failure message=\"expected:&lt;1&gt; but was:&lt;2&gt;\" type=\"java.lang.AssertionError\">java.lang.AssertionError: expected:&lt;1&gt; but was:&lt;2&gt;\n" +
+            "\tat nopol_examples.nopol_example_1.NopolExampleTest.test2(NopolExampleTest.java:20)\n" +
+            "</failure>\n" +
+            "  </testcase>\n" +
+            "  <testcase name=\"test5\" classname=\"nopol_examples.nopol_example_1.NopolExampleTest\" time=\"0.001\">\n" +
+            "    <error message=\"String index out of range: -5\" type=\"java.lang.StringIndexOutOfBoundsException:\">stack</error>\n" +
+            "    <system-out>some output</system-out>\n" +
+            "  </testcase>\n" +
+            "  <testcase name=\"test6\" classname=\"nopol_examples.nopol_example_1.NopolExampleTest\" time=\"0\">\n" +
+            "    <skipped/>\n" +
+            "  </testcase>\n" +
+            "  <testcase name=\"testOther\" classname=\"nopol_examples.OtherTest\" time=\"0.001\"/>\n" +
+            "</testsuite>\n";
+
+    @Test
+    public void testReadKeepsCountersAndFailures() throws Exception {
+        List<TestClassResult> results = new SurefireReportReader().read(new ByteArrayInputStream(REPORT.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(results.size(), is(2));
+
+        TestClassResult testClass = results.get(0);
+        assertThat(testClass.getClassName(), is("nopol_examples.nopol_example_1.NopolExampleTest"));
+        assertThat(testClass.getNbTests(), is(4));
+        assertThat(testClass.getNbFailures(), is(1));
+        assertThat(testClass.getNbErrors(), is(1));
+        assertThat(testClass.getNbSkipped(), is(1));
+        assertThat(testClass.getFailures().size(), is(2));
+
+        TestCaseFailure failure = testClass.getFailures().get(0);
+        assertThat(failure.getTestName(), is("test2"));
+        assertThat(failure.getType(), is("java.lang.AssertionError"));
+        assertThat(failure.getMessage(), is("expected:<1> but was:<2>"));
+        assertThat(failure.isError(), is(false));
+
+        TestCaseFailure error = testClass.getFailures().get(1);
+        assertThat(error.getTestName(), is("test5"));
+        assertThat(error.getType(), is("java.lang.StringIndexOutOfBoundsException:"));
+        assertThat(error.isError(), is(true));
+
+        // a test case might declare another class than the one of its suite
+        TestClassResult otherClass = results.get(1);
+        assertThat(otherClass.getClassName(), is("nopol_examples.OtherTest"));
+        assertThat(otherClass.getNbTests(), is(1));
+        assertThat(otherClass.getFailures().isEmpty(), is(true));
+    }
+
+    @Test
+    public void testReadWithoutMessage() throws Exception {
+        String report = "<testsuite name=\"Foo\"><testcase name=\"bar\"><error type=\"java.lang.NullPointerException\"/></testcase></testsuite>";
+        List<TestClassResult> results = new SurefireReportReader().read(new ByteArrayInputStream(report.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(results.size(), is(1));
+        assertThat(results.get(0).getClassName(), is("Foo"));
+        assertThat(results.get(0).getFailures().get(0).getMessage(), is(nullValue()));
+    }
+}
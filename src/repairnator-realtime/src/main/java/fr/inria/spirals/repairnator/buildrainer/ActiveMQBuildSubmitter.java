@@ -2,19 +2,18 @@ package fr.inria.spirals.repairnator.buildrainer;
 
 import fr.inria.spirals.repairnator.config.RepairnatorConfig;
 import fr.inria.jtravis.entities.Build;
+import fr.inria.spirals.repairnator.realtime.utils.ActiveMQProducer;
 
-/*For sender*/
+import java.util.concurrent.TimeUnit;
+
+/*For consumer*/
 import javax.jms.Connection;
-import javax.jms.ConnectionFactory;
 import javax.jms.Destination;
 import javax.jms.JMSException;
-import javax.jms.Session;
-import javax.jms.TextMessage;
-
-/*For consumer*/
 import javax.jms.Message;
 import javax.jms.MessageConsumer;
-import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.TextMessage;
 
 /*For broker to check queue size*/
 import org.apache.activemq.broker.jmx.*;
@@ -34,7 +33,9 @@ import org.apache.activemq.broker.jmx.DestinationViewMBean;
 public class ActiveMQBuildSubmitter implements BuildSubmitter {
     private static Logger LOGGER = LoggerFactory.getLogger(ActiveMQBuildSubmitter.class);
     private DestinationViewMBean mbView;
+    private static final long QUEUE_SIZE_REFRESH_INTERVAL = 5 * 1000; // in milliseconds
     private long mostRecentQueueSize = 0;
+    private long lastQueueSizeRefresh = 0;
 
     // This is for getting queueSize
     public void initBroker() {
@@ -53,50 +54,41 @@ public class ActiveMQBuildSubmitter implements BuildSubmitter {
 	public void submitBuild(Build b) {
 		String str_message = "" +b.getId();
 		try {
-			if (mostRecentQueueSize < RepairnatorConfig.getInstance().getQueueLimit()) {
-				/*
-				* Getting JMS connection from the JMS server and starting it
-				*/
-				ConnectionFactory connectionFactory = new ActiveMQConnectionFactory(RepairnatorConfig.getInstance().getActiveMQUrl());
-				Connection connection = connectionFactory.createConnection();
-				connection.start();
-
-				/*
-				* Creating a non transactional session to send/receive JMS message.
-				*/
-				Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
-
-				/*
-				* The queue will be created automatically on the server.
-				*/
-				Destination destination = session.createQueue(RepairnatorConfig.getInstance().getActiveMQSubmitQueueName());
-
-				/*
-				* Destination represents here our queue 'MESSAGE_QUEUE' on the JMS server.
-				* 
-				* MessageProducer is used for sending messages to the queue.
-				*/
-				MessageProducer producer = session.createProducer(destination);
-				TextMessage message = session.createTextMessage(str_message);
-				producer.send(message);
-
-				LOGGER.info("Message " + str_message + " was sent successfully");
-				connection.close();
-
-				/*Update info about queue size*/
-				mostRecentQueueSize = this.mbView.getQueueSize();
+			this.refreshQueueSizeIfNeeded();
+			ActiveMQProducer producer = this.getProducer();
+			// the messages not sent yet will also be in the queue
+			long queueSize = mostRecentQueueSize + producer.getBacklogSize();
+			if (queueSize < RepairnatorConfig.getInstance().getQueueLimit()) {
+				if (producer.send(str_message)) {
+					LOGGER.info("Message " + str_message + " was submitted successfully");
+				}
 			} else {
-				LOGGER.warn("No Submission, Reason: queue reached limit= " + RepairnatorConfig.getInstance().getQueueLimit() + " , currentQueueSize: " + mostRecentQueueSize);
+				LOGGER.warn("No Submission, Reason: queue reached limit= " + RepairnatorConfig.getInstance().getQueueLimit() + " , currentQueueSize: " + queueSize);
 			}
 		} catch(Exception e) {
 			throw new RuntimeException(e);
 		}
 	}
+
+	/*
+	 * The queue size is read with JMX at most every few seconds, and not after each message.
+	 */
+	private void refreshQueueSizeIfNeeded() {
+		if (this.mbView != null && System.currentTimeMillis() - lastQueueSizeRefresh >= QUEUE_SIZE_REFRESH_INTERVAL) {
+			mostRecentQueueSize = this.mbView.getQueueSize();
+			lastQueueSizeRefresh = System.currentTimeMillis();
+		}
+	}
+
+	private ActiveMQProducer getProducer() {
+		return ActiveMQProducer.getInstance(RepairnatorConfig.getInstance().getActiveMQUrl(), RepairnatorConfig.getInstance().getActiveMQSubmitQueueName());
+	}
 	
 	/*
 	 * This is used to test the submit method.
 	 */
 	public String receiveFromQueue() {
+		this.getProducer().flush(10, TimeUnit.SECONDS);
 		try {
 			// Create a ConnectionFactory
 			ActiveMQConnectionFactory connectionFactory = new ActiveMQConnectionFactory(RepairnatorConfig.getInstance().getActiveMQUrl());
@@ -0,0 +1,220 @@
+package fr.inria.spirals.repairnator.buildrainer;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import fr.inria.jtravis.entities.Build;
+import fr.inria.spirals.repairnator.config.RepairnatorConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class takes the messages received from the websocket and submits the failing java builds they refer to.
+ *
+ * A message is parsed once, with a streaming reader which stops as soon as the build state or language does not match.
+ * The matching build ids are put in a bounded queue, after being deduplicated (each job of a build sends its own
+ * message), and the queue is drained in batches by a pool of workers, which get the builds and submit them.
+ * The websocket thread is thus never blocked: when the queue is full, the build ids are dropped.
+ */
+public class BuildIdIngester {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BuildIdIngester.class);
+
+    private static final int QUEUE_CAPACITY = 10000;
+    private static final int NB_RECENT_BUILD_IDS = 10000;
+    private static final int BATCH_SIZE = 50;
+
+    private final BuildSubmitter submitter;
+    private final int nbWorkers;
+    private final BlockingQueue<Long> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicLong droppedBuildIds = new AtomicLong();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean shouldStop;
+
+    // the build ids recently queued, to ignore the messages of the other jobs of the same builds
+    private final Map<Long, Boolean> recentBuildIds = new LinkedHashMap<Long, Boolean>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+            return this.size() > NB_RECENT_BUILD_IDS;
+        }
+    };
+
+    public BuildIdIngester(BuildSubmitter submitter, int nbWorkers) {
+        this.submitter = submitter;
+        this.nbWorkers = Math.max(1, nbWorkers);
+    }
+
+    /**
+     * Start the workers draining the queue.
+     */
+    public synchronized void start() {
+        if (!this.workers.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < this.nbWorkers; i++) {
+            Thread worker = new Thread(this::drainQueue, "build-id-ingester-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            this.workers.add(worker);
+        }
+    }
+
+    public void stop() {
+        this.shouldStop = true;
+        for (Thread worker : this.workers) {
+            worker.interrupt();
+        }
+    }
+
+    public int getQueueSize() {
+        return this.queue.size();
+    }
+
+    public long getDroppedBuildIds() {
+        return this.droppedBuildIds.get();
+    }
+
+    /**
+     * Queue the build of the given message if it is a failing java build, which has not been queued recently.
+     * This method never blocks.
+     *
+     * @return true if the build id has been queued
+     */
+    public boolean ingest(String message) {
+        long buildId = parseFailedJavaBuildId(message);
+        if (buildId < 0) {
+            return false;
+        }
+
+        synchronized (this.recentBuildIds) {
+            if (this.recentBuildIds.put(buildId, Boolean.TRUE) != null) {
+                return false;
+            }
+        }
+
+        if (!this.queue.offer(buildId)) {
+            this.droppedBuildIds.incrementAndGet();
+            LOGGER.warn("Build " + buildId + " dropped: the queue is full (" + QUEUE_CAPACITY + " builds)");
+            synchronized (this.recentBuildIds) {
+                this.recentBuildIds.remove(buildId);
+            }
+            return false;
+        }
+        LOGGER.info("Failing java build queued: " + buildId);
+        return true;
+    }
+
+    /**
+     * @return the build id of the given message if its state is failed and its language is java, -1 otherwise.
+     */
+    static long parseFailedJavaBuildId(String message) {
+        try (JsonReader reader = new JsonReader(new StringReader(message))) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                return -1;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("data".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    return readData(reader);
+                }
+                reader.skipValue();
+            }
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            // not a json message, or not in the expected format
+        }
+        return -1;
+    }
+
+    private static long readData(JsonReader reader) throws IOException {
+        long buildId = -1;
+        boolean failed = false;
+        boolean java = false;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "state":
+                    if (reader.peek() != JsonToken.STRING || !"failed".equals(reader.nextString())) {
+                        return -1;
+                    }
+                    failed = true;
+                    break;
+                case "build_id":
+                    buildId = reader.nextLong();
+                    break;
+                case "config":
+                    if (!"java".equals(readLanguage(reader))) {
+                        return -1;
+                    }
+                    java = true;
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        return (failed && java) ? buildId : -1;
+    }
+
+    private static String readLanguage(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+        String language = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("language".equals(reader.nextName()) && reader.peek() == JsonToken.STRING) {
+                language = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return language;
+    }
+
+    private void drainQueue() {
+        while (!this.shouldStop) {
+            List<Long> batch = new ArrayList<>();
+            try {
+                Long first = this.queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                this.queue.drainTo(batch, BATCH_SIZE - 1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            for (long buildId : batch) {
+                try {
+                    Optional<Build> build = this.fetchBuild(buildId);
+                    if (build.isPresent()) {
+                        this.submitter.submitBuild(build.get());
+                    } else {
+                        LOGGER.error("Error while getting the build " + buildId);
+                    }
+                } catch (Exception e) {
+                    LOGGER.error("Error while submitting the build " + buildId, e);
+                }
+            }
+        }
+    }
+
+    protected Optional<Build> fetchBuild(long buildId) {
+        return RepairnatorConfig.getInstance().getTravisApiClient().execute(jTravis -> jTravis.build().fromId(buildId));
+    }
+}
@@ -30,6 +30,7 @@ public class BuildRainer extends WebSocketClient implements BuildSubmitter{
     private static final BuildSubmitter submitter = new ActiveMQBuildSubmitter();
     private static final RepairnatorConfig config = RepairnatorConfig.getInstance();
     private static BuildRainer buildRainer;
+    private final BuildIdIngester ingester;
     private String recentMessage;
 
     private static JSAP defineArgs() throws JSAPException{
@@ -41,6 +42,8 @@ public class BuildRainer extends WebSocketClient implements BuildSubmitter{
 
     public BuildRainer( URI serverURI ) {
         super( serverURI );
+        this.ingester = new BuildIdIngester(this, config.getTravisMaxConcurrentRequests());
+        this.ingester.start();
     }
 
     public String getRecentMessage() {
@@ -60,18 +63,12 @@ public class BuildRainer extends WebSocketClient implements BuildSubmitter{
         return true;
     }
 
+    /**
+     * Called by the websocket thread: the failing java builds are queued, and submitted by the workers of the ingester.
+     */
     @Override
     public void onMessage( String message ) {
-        if (isJSONValid(message)) {
-            JSONObject obj = new JSONObject(message);
-            String state = obj.getJSONObject("data").getString("state");
-            String language = obj.getJSONObject("data").getJSONObject("config").getString("language");
-            if (state.equals("failed") && language.equals("java")) {
-                LOGGER.info("state: " + state + " language: " + language);
-                int build_id = obj.getJSONObject("data").getInt("build_id");
-                this.submitBuild(config.getInstance().getJTravis().build().fromId(build_id).get());
-            }
-        }
+        this.ingester.ingest(message);
         this.recentMessage = message;
     }
 
@@ -101,7 +98,7 @@ public class BuildRainer extends WebSocketClient implements BuildSubmitter{
 
     @Override
     public void onClose( int code, String reason, boolean remote ) {
-        LOGGER.warn( "Connection closed by " + ( remote ? "remote peer" : "us" ) + " Code: " + code + " Reason: " + reason );
+        LOGGER.warn( "Connection closed by " + ( remote ? "remote peer" : "us" ) + " Code: " + code + " Reason: " + reason + " (" + this.ingester.getQueueSize() + " builds still queued, " + this.ingester.getDroppedBuildIds() + " dropped)");
     }
 
     @Override
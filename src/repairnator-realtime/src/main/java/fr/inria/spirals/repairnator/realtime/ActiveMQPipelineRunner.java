@@ -18,6 +18,9 @@ import javax.jms.MessageConsumer;
 
 import org.apache.activemq.ActiveMQConnectionFactory;
 import fr.inria.spirals.repairnator.config.RepairnatorConfig;
+import fr.inria.spirals.repairnator.realtime.utils.ActiveMQProducer;
+
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class will take the builds qualified by the inspectBuild
@@ -72,44 +75,19 @@ public class ActiveMQPipelineRunner implements PipelineRunner {
     }
 
     public void submitBuild(Build build) {
-        try {
-            /*
-             * Getting JMS connection from the JMS server and starting it
-             */
-            ConnectionFactory connectionFactory = new ActiveMQConnectionFactory(config.getActiveMQUrl());
-            Connection connection = connectionFactory.createConnection();
-            connection.start();
-
-            /*
-             * Creating a non transactional session to send/receive JMS message.
-             */
-            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
-
-            /*
-            * The queue will be created automatically on the server.
-            */
-            Destination destination = session.createQueue(config.getActiveMQSubmitQueueName());
-
-            /*
-             * Destination represents here our queue 'MESSAGE_QUEUE' on the JMS server.
-             * 
-             * MessageProducer is used for sending messages to the queue.
-             */
-            MessageProducer producer = session.createProducer(destination);
-            TextMessage message = session.createTextMessage(Long.toString(build.getId()));
-
-            producer.send(message);
-
-            LOGGER.info("Build id '" + message.getText() + ", Sent Successfully to the Queue " + config.getActiveMQSubmitQueueName());
-            connection.close();
-        }catch (JMSException e) {
-            throw new RuntimeException(e);
+        if (this.getProducer().send(Long.toString(build.getId()))) {
+            LOGGER.info("Build id '" + build.getId() + "' submitted to the queue " + config.getActiveMQSubmitQueueName());
         }
     }
 
     @Override
     public void initRunner() {
-        // so far, nothing to set up the connection
+        // the connection is opened by the producer, and kept between the submissions
+        this.getProducer();
+    }
+
+    private ActiveMQProducer getProducer() {
+        return ActiveMQProducer.getInstance(config.getActiveMQUrl(), config.getActiveMQSubmitQueueName());
     }
 
     /** 
@@ -118,6 +96,7 @@ public class ActiveMQPipelineRunner implements PipelineRunner {
      * @return String text received from the submit queue
      */
     public String receiveBuildFromQueue() {
+        this.getProducer().flush(10, TimeUnit.SECONDS);
         try {
             // Create a ConnectionFactory
             ActiveMQConnectionFactory connectionFactory = new ActiveMQConnectionFactory(config.getActiveMQUrl());
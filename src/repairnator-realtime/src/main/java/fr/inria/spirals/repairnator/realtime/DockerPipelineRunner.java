@@ -1,30 +1,70 @@
 package fr.inria.spirals.repairnator.realtime;
 
+import com.spotify.docker.client.exceptions.DockerException;
 import fr.inria.jtravis.entities.Build;
 import fr.inria.spirals.repairnator.InputBuildId;
 import fr.inria.spirals.repairnator.config.RepairnatorConfig;
 import fr.inria.spirals.repairnator.docker.DockerHelper;
 import fr.inria.spirals.repairnator.dockerpool.DockerPoolManager;
+import fr.inria.spirals.repairnator.dockerpool.PipelineContainerPool;
 import fr.inria.spirals.repairnator.dockerpool.RunnablePipelineContainer;
+import fr.inria.spirals.repairnator.realtime.counter.PatchedRepositoryCounter;
+import fr.inria.spirals.repairnator.realtime.utils.BoundedPriorityQueue;
+import fr.inria.spirals.repairnator.realtime.utils.HostResources;
 import fr.inria.spirals.repairnator.serializer.engines.SerializerEngine;
 import fr.inria.spirals.repairnator.serializer.engines.json.JSONFileSerializerEngine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
-import java.util.Deque;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class is in charge with launching the docker containers
+ *
+ * The submitted builds wait in a bounded priority queue: the newer builds first, and the builds
+ * of the repositories already patched are boosted. A build is started only when a thread is free
+ * and the host has enough CPU, memory and disk, and a watchdog kills the containers reaching their timeout.
+ * These threads are only started by {@link #initRunner()} when the pipelines run in docker.
  */
 public class DockerPipelineRunner extends DockerPoolManager implements PipelineRunner {
     private static final Logger LOGGER = LoggerFactory.getLogger(DockerPipelineRunner.class);
     private static final int DELAY_BETWEEN_DOCKER_IMAGE_REFRESH = 60; // in minutes
+    private static final int QUEUE_CAPACITY = 1000;
+    private static final long ADMISSION_INTERVAL = 5 * 1000; // in milliseconds
+    // the resources used by a new container only show after a while
+    private static final long MIN_DELAY_BETWEEN_ADMISSIONS = 10 * 1000; // in milliseconds
+    private static final long WATCHDOG_INTERVAL = 1; // in minutes
+    private static final double MAX_CPU_LOAD = 0.9;
+    private static final long MIN_AVAILABLE_MEMORY = 2L * 1024 * 1024 * 1024; // in bytes
+    private static final long MIN_USABLE_DISK_SPACE = 5L * 1024 * 1024 * 1024; // in bytes
+    private static final File DEFAULT_DOCKER_DISK = new File("/");
+    // a build is handled as if it had been submitted later for each patched build of its repository
+    private static final long PATCHED_BUILD_BOOST = 10 * 60 * 1000; // in milliseconds
+    private static final int MAX_BOOSTED_PATCHED_BUILDS = 6;
+
+    /**
+     * A build waiting to be started: the highest priority is started first.
+     */
+    static class PendingBuild {
+        private final Build build;
+        private final long priority;
+
+        PendingBuild(Build build, long priority) {
+            this.build = build;
+            this.priority = priority;
+        }
+
+        static final Comparator<PendingBuild> COMPARATOR = Comparator.comparingLong((PendingBuild pending) -> pending.priority)
+                .thenComparingLong(pending -> pending.build.getId())
+                .reversed();
+    }
 
     public ExecutorService getExecutorService() {
         return executorService;
@@ -34,6 +74,15 @@ public class DockerPipelineRunner extends DockerPoolManager implements PipelineR
     private String dockerImageId;
     private String dockerImageName;
     private Date limitDateNextRetrieveDockerImage;
+    private int nbThreads;
+    private final BoundedPriorityQueue<PendingBuild> pendingBuilds = new BoundedPriorityQueue<>(QUEUE_CAPACITY, PendingBuild.COMPARATOR);
+    private final Object admissionLock = new Object();
+    private Thread admissionThread;
+    private long lastAdmission;
+    // the disk containing the images and the containers
+    private File dockerDisk = DEFAULT_DOCKER_DISK;
+    // created by initRunner()
+    private volatile PatchedRepositoryCounter patchedRepositoryCounter;
 
     public DockerPipelineRunner(RTScanner rtScanner) {
         LOGGER.info("Init build runner");
@@ -53,11 +102,28 @@ public class DockerPipelineRunner extends DockerPoolManager implements PipelineR
         dockerImageId = RepairnatorConfig.getInstance().getDockerImageName();
     }
 
+    /**
+     * Start the threads running the builds, only once and only if the pipelines run in docker.
+     */
     public void initRunner() {
+        if (RepairnatorConfig.getInstance().getPipelineMode() != RepairnatorConfig.PIPELINE_MODE.DOCKER) {
+            LOGGER.info("The pipelines don't run in docker: the docker runner is not started.");
+            return;
+        }
+        if (this.executorService != null) {
+            return;
+        }
+        this.dockerDisk = this.findDockerDisk();
+        this.patchedRepositoryCounter = new PatchedRepositoryCounter(
+                RepairnatorConfig.getInstance().getMongodbHost(), RepairnatorConfig.getInstance().getMongodbName());
         if (RepairnatorConfig.getInstance().getDockerImageName() != null) {
             this.setDockerImageName(RepairnatorConfig.getInstance().getDockerImageName());
         }
         this.initExecutorService(RepairnatorConfig.getInstance().getNbThreads());
+        this.startWatchdog(WATCHDOG_INTERVAL, TimeUnit.MINUTES);
+        if (RepairnatorConfig.getInstance().getWarmContainers() > 0) {
+            this.initContainerPool(RepairnatorConfig.getInstance().getWarmContainers(), RepairnatorConfig.getInstance().getBuildsPerContainer());
+        }
     }
 
     public void setDockerImageName(String dockerImageName) {
@@ -65,6 +131,26 @@ public class DockerPipelineRunner extends DockerPoolManager implements PipelineR
         this.refreshDockerImage();
     }
 
+    /**
+     * @return the root directory of the docker daemon as given by docker info, or / if it's not on this filesystem,
+     * e.g. if the daemon is remote
+     */
+    private File findDockerDisk() {
+        try {
+            String dockerRootDir = this.getDockerClient().info().dockerRootDir();
+            if (dockerRootDir != null && new File(dockerRootDir).exists()) {
+                LOGGER.info("The disk space is checked on the docker root directory: " + dockerRootDir);
+                return new File(dockerRootDir);
+            }
+        } catch (DockerException e) {
+            LOGGER.warn("Error while getting the docker root directory: " + e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        LOGGER.info("The docker root directory is not available: the disk space is checked on " + DEFAULT_DOCKER_DISK);
+        return DEFAULT_DOCKER_DISK;
+    }
+
     /**
      * This allows us to automatically refresh docker images every 60 minutes
      */
@@ -74,20 +160,128 @@ public class DockerPipelineRunner extends DockerPoolManager implements PipelineR
         LOGGER.debug("Find the following docker image: "+this.dockerImageId);
     }
 
+    /**
+     * Init the threads running the containers, and the thread starting the builds when there are enough resources.
+     */
     public void initExecutorService(int nbThreads) {
+        this.nbThreads = nbThreads;
         this.executorService = Executors.newFixedThreadPool(nbThreads);
         LOGGER.info("Executor service initialized with "+nbThreads+" threads.");
+
+        this.admissionThread = new Thread(this::admitBuilds, "docker-pipeline-admission");
+        this.admissionThread.setDaemon(true);
+        this.admissionThread.start();
+    }
+
+    /**
+     * Keep nbContainers idle pipeline containers ready, each one running at most buildsPerContainer builds.
+     */
+    public void initContainerPool(int nbContainers, int buildsPerContainer) {
+        PipelineContainerPool containerPool = new PipelineContainerPool(this, nbContainers, buildsPerContainer);
+        this.setContainerPool(containerPool);
+        if (this.dockerImageId != null) {
+            containerPool.warmUp(this.dockerImageId);
+        }
+        LOGGER.info("Container pool initialized with "+nbContainers+" warm containers.");
     }
 
     public int getRunning() {
         return this.submittedRunnablePipelineContainers.size();
     }
 
+    public int getNbPendingBuilds() {
+        return this.pendingBuilds.size();
+    }
+
+    /**
+     * The build is queued: it will be started once a thread is free and the host has enough resources.
+     * The priority uses the counts of patched builds already read: the database is only read by the admission thread.
+     */
     public void submitBuild(Build build) {
+        PatchedRepositoryCounter counter = this.patchedRepositoryCounter;
+        int nbPatchedBuilds = (counter == null || build.getRepository() == null) ? 0 : counter.getNbPatchedBuilds(build.getRepository().getSlug());
+        long priority = System.currentTimeMillis() + Math.min(nbPatchedBuilds, MAX_BOOSTED_PATCHED_BUILDS) * PATCHED_BUILD_BOOST;
+
+        PendingBuild dropped = this.pendingBuilds.offer(new PendingBuild(build, priority));
+        if (dropped != null) {
+            LOGGER.warn("The queue of builds is full (" + QUEUE_CAPACITY + " builds): the build " + dropped.build.getId() + " is dropped.");
+        }
+        this.signalAdmission();
+    }
+
+    private void signalAdmission() {
+        synchronized (this.admissionLock) {
+            this.admissionLock.notifyAll();
+        }
+    }
+
+    private void admitBuilds() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                PatchedRepositoryCounter counter = this.patchedRepositoryCounter;
+                if (counter != null) {
+                    counter.refreshIfNeeded();
+                }
+                if (this.pendingBuilds.size() > 0 && this.canAdmitBuild()) {
+                    PendingBuild pending = this.pendingBuilds.poll();
+                    if (pending != null) {
+                        this.startBuild(pending.build);
+                        continue;
+                    }
+                }
+                synchronized (this.admissionLock) {
+                    this.admissionLock.wait(ADMISSION_INTERVAL);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                LOGGER.error("Error while starting a build", e);
+            }
+        }
+    }
+
+    /**
+     * A build can be started if a thread is free, and if the host has enough resources.
+     * When no build is running, only the disk is checked: otherwise the other processes of the host could starve the runner.
+     */
+    private boolean canAdmitBuild() {
+        int running = this.getRunning();
+        if (running >= this.nbThreads || System.currentTimeMillis() - this.lastAdmission < MIN_DELAY_BETWEEN_ADMISSIONS) {
+            return false;
+        }
+
+        HostResources resources = HostResources.read(this.dockerDisk);
+        if (resources.getUsableDiskSpace() < MIN_USABLE_DISK_SPACE) {
+            LOGGER.warn("Not enough disk space to start a build: " + resources);
+            return false;
+        }
+        if (running > 0 && (resources.getCpuLoad() > MAX_CPU_LOAD
+                || (resources.getAvailableMemory() >= 0 && resources.getAvailableMemory() < MIN_AVAILABLE_MEMORY))) {
+            LOGGER.debug("Not enough resources to start a build: " + resources);
+            return false;
+        }
+        return true;
+    }
+
+    private void startBuild(Build build) {
         if (this.limitDateNextRetrieveDockerImage != null && this.limitDateNextRetrieveDockerImage.before(new Date())) {
             this.refreshDockerImage();
         }
-		this.executorService.submit(this.submitBuild(this.dockerImageId, new InputBuildId(build.getId())));
+        this.lastAdmission = System.currentTimeMillis();
+        RunnablePipelineContainer container = this.submitBuild(this.dockerImageId, new InputBuildId(build.getId()));
+        try {
+            this.executorService.submit(() -> {
+                try {
+                    container.run();
+                } finally {
+                    this.signalAdmission();
+                }
+            });
+        } catch (RuntimeException e) {
+            // the container will never run: its slot is released
+            this.removeSubmittedRunnablePipelineContainer(container);
+            throw e;
+        }
     }
 
     public void switchOff() {
@@ -97,6 +291,19 @@ public class DockerPipelineRunner extends DockerPoolManager implements PipelineR
             container.killDockerContainer(this.getDockerClient(), true);
         }
 
-        this.executorService.shutdownNow();
+        if (this.admissionThread != null) {
+            this.admissionThread.interrupt();
+        }
+        if (this.pendingBuilds.size() > 0) {
+            LOGGER.warn(this.pendingBuilds.size() + " pending builds will not be started.");
+            this.pendingBuilds.clear();
+        }
+        this.stopWatchdog();
+        if (this.executorService != null) {
+            this.executorService.shutdownNow();
+        }
+        if (this.getContainerPool() != null) {
+            this.getContainerPool().close();
+        }
     }
 }
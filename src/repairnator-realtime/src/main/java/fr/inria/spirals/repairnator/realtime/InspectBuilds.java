@@ -2,35 +2,80 @@ package fr.inria.spirals.repairnator.realtime;
 
 import fr.inria.jtravis.entities.Build;
 import fr.inria.jtravis.entities.StateType;
+import fr.inria.spirals.repairnator.api.TravisApiClient;
 import fr.inria.spirals.repairnator.config.RepairnatorConfig;
 import org.apache.commons.collections4.queue.CircularFifoQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Deque;
-import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class is used to refresh regularly the build information.
  * It should be launched in a dedicated thread.
+ *
+ * The waiting builds are kept in a queue ordered by the date of their next check. The builds to check are
+ * refreshed together, with a single request to the builds endpoint of the V2 API: only the builds which
+ * finished are then fully refreshed.
+ * The next check of a build is planned from its expected remaining duration, computed with the duration of the
+ * last finished build of the same repository: a build which just started is not refreshed every few seconds.
  */
 public class InspectBuilds implements Runnable {
     private static final Logger LOGGER = LoggerFactory.getLogger(InspectBuilds.class);
 
     public static final int BUILD_SLEEP_TIME_IN_SECOND = 10;
     public static final int LIMIT_WAITING_BUILDS = 1000;
-    private static final int NB_ELEMENT_TRAVIS_JOB = 250; // the number of elements returned by Travis Job endpoint
+    static final int NB_ELEMENT_TRAVIS_JOB = 250; // the number of elements returned by Travis Job endpoint
+    static final int MAX_CHECK_INTERVAL_IN_SECOND = 300;
+    private static final int NB_EXPECTED_DURATIONS = 10000;
 
     // this fifo queue contains all the ids of the builds that we observed
     // it prevents us for watching twice the same build
     private CircularFifoQueue<Long> observedBuilds = new CircularFifoQueue<>(NB_ELEMENT_TRAVIS_JOB);
 
-    // we use a ConcurrentLinkedDeque because new builds might be submitted while we iterate over it
-    private Deque<Build> waitingBuilds = new ConcurrentLinkedDeque<>();
+    // the waiting builds by ID, and the same builds ordered by the date of their next check
+    // the queue must be accessed with its lock, which is also used for the observed builds
+    private Map<Long, WaitingBuild> waitingBuilds = new ConcurrentHashMap<>();
+    private PriorityQueue<WaitingBuild> checkQueue = new PriorityQueue<>(Comparator.comparingLong(WaitingBuild::getNextCheckDate));
+
+    // the duration of the last finished build of each repository, in milliseconds
+    private Map<Long, Long> expectedDurations = new LinkedHashMap<Long, Long>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+            return this.size() > NB_EXPECTED_DURATIONS;
+        }
+    };
 
     private RTScanner rtScanner;
     private boolean shouldStop;
 
+    static class WaitingBuild {
+        private final Build build;
+        private Date startedAt;
+        private long nextCheckDate;
+
+        WaitingBuild(Build build) {
+            this.build = build;
+            this.startedAt = build.getStartedAt();
+        }
+
+        Build getBuild() {
+            return build;
+        }
+
+        long getNextCheckDate() {
+            return nextCheckDate;
+        }
+    }
+
     public InspectBuilds(RTScanner rtScanner) {
         this.rtScanner = rtScanner;
     }
@@ -42,6 +87,13 @@ public class InspectBuilds implements Runnable {
         this.shouldStop = true;
     }
 
+    /**
+     * @return the number of builds waiting to finish
+     */
+    int getNbWaitingBuilds() {
+        return this.waitingBuilds.size();
+    }
+
     /**
      * @return true if the number of build to inspect reach the limit
      */
@@ -49,29 +101,40 @@ public class InspectBuilds implements Runnable {
         return (this.waitingBuilds.size() >= RepairnatorConfig.getInstance().getMaxInspectedBuilds());
     }
 
+    /**
+     * @return true if the given build has already been submitted recently
+     */
+    public boolean isBuildObserved(long buildId) {
+        synchronized (this.checkQueue) {
+            return this.observedBuilds.contains(buildId);
+        }
+    }
+
     public void submitNewBuild(Build build) {
         if (this.waitingBuilds.size() < RepairnatorConfig.getInstance().getMaxInspectedBuilds()) {
             // we do not reached the maximum yet
 
-            // we check if we already inspected this build
-            if (!this.observedBuilds.contains(build.getId())) {
-
-                // must be synchronized to avoid concurrent access
-                synchronized (this.waitingBuilds) {
-                    // it's not the case: we add the build to the lists
-                    this.observedBuilds.add(build.getId());
-                    this.waitingBuilds.add(build);
+            // must be synchronized to avoid concurrent access: builds are submitted from several threads
+            synchronized (this.checkQueue) {
+                // we check if we already inspected this build
+                if (this.observedBuilds.contains(build.getId())) {
+                    return;
                 }
-                LOGGER.info("New build in waiting list "+build.getUri()+" with "+build.getJobs().size()+" jobs (Total: "+this.waitingBuilds.size()+")");
+                // it's not the case: we add the build to the lists
+                this.observedBuilds.add(build.getId());
+                WaitingBuild waitingBuild = new WaitingBuild(build);
+                waitingBuild.nextCheckDate = this.computeNextCheckDate(waitingBuild, System.currentTimeMillis());
+                this.waitingBuilds.put(build.getId(), waitingBuild);
+                this.checkQueue.add(waitingBuild);
             }
+            LOGGER.info("New build in waiting list "+build.getUri()+" with "+build.getJobs().size()+" jobs (Total: "+this.waitingBuilds.size()+")");
         } else {
             LOGGER.debug("Build submission ignored. (maximum reached)");
         }
     }
 
     public void submitIfBuildIsInteresting(Build build) {
-        boolean refreshStatus = RepairnatorConfig.getInstance().getJTravis().refresh(build);
-        if (!refreshStatus) {
+        if (!this.refresh(build)) {
             LOGGER.error("Error while refreshing build: "+build.getId());
         } else {
 
@@ -79,6 +142,7 @@ public class InspectBuilds implements Runnable {
 
             if (build.getFinishedAt() != null) {
                 LOGGER.debug("Build finished (id:"+build.getId()+" | Status: "+build.getState()+")");
+                this.recordDuration(build);
 
                 // we check that the build is indeed failing
                 if (build.getState() == StateType.FAILED) {
@@ -87,7 +151,123 @@ public class InspectBuilds implements Runnable {
                     this.rtScanner.submitBuildToExecution(build);
                 }
 
-                this.waitingBuilds.remove(build);
+                this.waitingBuilds.remove(build.getId());
+            }
+        }
+    }
+
+    /**
+     * Refresh all the information of the given build.
+     *
+     * @return false if the build cannot be refreshed
+     */
+    protected boolean refresh(Build build) {
+        return RepairnatorConfig.getInstance().getTravisApiClient().execute(jTravis -> jTravis.refresh(build));
+    }
+
+    void recordDuration(Build build) {
+        if (build.getRepository() != null && build.getStartedAt() != null && build.getFinishedAt() != null) {
+            synchronized (this.expectedDurations) {
+                this.expectedDurations.put(build.getRepository().getId(), build.getFinishedAt().getTime() - build.getStartedAt().getTime());
+            }
+        }
+    }
+
+    /**
+     * The next check of a build is planned when it should be finished, according to the duration of the last build
+     * of its repository. Without such a duration, or if the build is late, the interval grows with the age of the build.
+     */
+    long computeNextCheckDate(WaitingBuild waitingBuild, long now) {
+        long minInterval = RepairnatorConfig.getInstance().getBuildSleepTime() * 1000L;
+        long interval = minInterval;
+
+        if (waitingBuild.startedAt != null) {
+            long elapsed = now - waitingBuild.startedAt.getTime();
+            Long expectedDuration = null;
+            if (waitingBuild.build.getRepository() != null) {
+                synchronized (this.expectedDurations) {
+                    expectedDuration = this.expectedDurations.get(waitingBuild.build.getRepository().getId());
+                }
+            }
+
+            if (expectedDuration != null && expectedDuration > elapsed) {
+                interval = expectedDuration - elapsed;
+            } else {
+                interval = elapsed / 4;
+            }
+        }
+        return now + Math.max(minInterval, Math.min(interval, MAX_CHECK_INTERVAL_IN_SECOND * 1000L));
+    }
+
+    /**
+     * @return the builds which should be checked now, at most {@link #NB_ELEMENT_TRAVIS_JOB} of them
+     */
+    List<WaitingBuild> pollBuildsToCheck(long now) {
+        List<WaitingBuild> result = new ArrayList<>();
+        synchronized (this.checkQueue) {
+            while (result.size() < NB_ELEMENT_TRAVIS_JOB && !this.checkQueue.isEmpty() && this.checkQueue.peek().nextCheckDate <= now) {
+                result.add(this.checkQueue.poll());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the states of the given builds, retrieved with a single request, or null if the request failed
+     */
+    protected Map<Long, Build> getBuildStates(List<WaitingBuild> buildsToCheck) {
+        List<Long> buildIds = new ArrayList<>();
+        for (WaitingBuild waitingBuild : buildsToCheck) {
+            buildIds.add(waitingBuild.build.getId());
+        }
+
+        TravisApiClient travisApiClient = RepairnatorConfig.getInstance().getTravisApiClient();
+        List<Build> builds = travisApiClient.execute(jTravis -> {
+            try {
+                return new JobHelperv2(jTravis).buildsFromIds(buildIds);
+            } catch (Exception e) {
+                LOGGER.error("Error while getting the state of " + buildIds.size() + " builds", e);
+                return null;
+            }
+        });
+        if (builds == null) {
+            return null;
+        }
+
+        Map<Long, Build> result = new HashMap<>();
+        for (Build build : builds) {
+            result.put(build.getId(), build);
+        }
+        return result;
+    }
+
+    void checkBuilds(List<WaitingBuild> buildsToCheck) {
+        Map<Long, Build> buildStates = this.getBuildStates(buildsToCheck);
+
+        for (WaitingBuild waitingBuild : buildsToCheck) {
+            Build build = waitingBuild.build;
+            if (!this.waitingBuilds.containsKey(build.getId())) {
+                // it has been handled in the meantime
+                continue;
+            }
+            if (buildStates == null) {
+                // the states cannot be retrieved together: each build is refreshed on its own
+                this.submitIfBuildIsInteresting(build);
+            } else {
+                Build buildState = buildStates.get(build.getId());
+                if (buildState == null || buildState.getFinishedAt() != null) {
+                    // only the finished builds are fully refreshed
+                    this.submitIfBuildIsInteresting(build);
+                } else if (buildState.getStartedAt() != null) {
+                    waitingBuild.startedAt = buildState.getStartedAt();
+                }
+            }
+
+            if (this.waitingBuilds.containsKey(build.getId())) {
+                synchronized (this.checkQueue) {
+                    waitingBuild.nextCheckDate = this.computeNextCheckDate(waitingBuild, System.currentTimeMillis());
+                    this.checkQueue.add(waitingBuild);
+                }
             }
         }
     }
@@ -96,17 +276,25 @@ public class InspectBuilds implements Runnable {
     public void run() {
         LOGGER.debug("Start running inspect builds....");
         while (!this.shouldStop) {
-            LOGGER.info("Refresh all waiting build (nb builds: "+this.waitingBuilds.size()+")");
-
-            // we iterate over all builds to refresh them
-            for (Build build : this.waitingBuilds) {
-                this.submitIfBuildIsInteresting(build);
+            List<WaitingBuild> buildsToCheck = this.pollBuildsToCheck(System.currentTimeMillis());
+            if (!buildsToCheck.isEmpty()) {
+                LOGGER.info("Refresh "+buildsToCheck.size()+" waiting builds (nb builds: "+this.waitingBuilds.size()+")");
+                this.checkBuilds(buildsToCheck);
             }
 
-            try {
-                Thread.sleep(RepairnatorConfig.getInstance().getBuildSleepTime() * 1000);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+            // we sleep until the next check, but not longer than the sleep time: new builds might be submitted
+            long sleepTime = RepairnatorConfig.getInstance().getBuildSleepTime() * 1000L;
+            synchronized (this.checkQueue) {
+                if (!this.checkQueue.isEmpty()) {
+                    sleepTime = Math.min(sleepTime, this.checkQueue.peek().nextCheckDate - System.currentTimeMillis());
+                }
+            }
+            if (sleepTime > 0) {
+                try {
+                    Thread.sleep(sleepTime);
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
             }
         }
         LOGGER.info("This will now stop.");
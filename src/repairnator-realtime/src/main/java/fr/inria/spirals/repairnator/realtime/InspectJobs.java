@@ -10,17 +10,32 @@ import fr.inria.jtravis.TravisConstants;
 import fr.inria.jtravis.entities.Build;
 import fr.inria.jtravis.entities.v2.JobV2;
 import fr.inria.jtravis.helpers.JobHelper;
+import fr.inria.spirals.repairnator.api.TravisApiClient;
 import fr.inria.spirals.repairnator.config.RepairnatorConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class is launched in a dedicated thread to interrogate regularly the /job endpoint of Travis CI
+ *
+ * The jobs of a page are handled asynchronously: they are grouped by repository, the repositories are qualified
+ * concurrently, and the builds of the interesting repositories are then fetched concurrently.
+ * The number of tasks running at the same time is bounded by the maximum number of concurrent Travis requests,
+ * and a repository which is already being qualified is not qualified a second time.
  */
 public class InspectJobs implements Runnable {
     private static final Logger LOGGER = LoggerFactory.getLogger(InspectJobs.class);
@@ -29,8 +44,17 @@ public class InspectJobs implements Runnable {
     private RTScanner rtScanner;
     private boolean shouldStop;
 
+    private final ExecutorService executor;
+    private final Map<Long, CompletableFuture<Boolean>> inFlightQualifications;
+
     public InspectJobs(RTScanner scanner) {
         this.rtScanner = scanner;
+        this.executor = Executors.newFixedThreadPool(Math.max(1, RepairnatorConfig.getInstance().getTravisMaxConcurrentRequests()), runnable -> {
+            Thread thread = new Thread(runnable, "inspect-jobs-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.inFlightQualifications = new ConcurrentHashMap<>();
     }
 
     /**
@@ -44,19 +68,15 @@ public class InspectJobs implements Runnable {
     public void run() {
         LOGGER.debug("Start running inspect Jobs...");
         while (!shouldStop) {
-            Optional<List<JobV2>> jobListOpt = new JobHelperv2(RepairnatorConfig.getInstance().getJTravis()).allFromV2();
+            TravisApiClient travisApiClient = RepairnatorConfig.getInstance().getTravisApiClient();
+            JobHelperv2 jobHelperv2 = new JobHelperv2(travisApiClient.getJTravis());
+            Optional<List<JobV2>> jobListOpt = travisApiClient.execute(jTravis -> jobHelperv2.allFromV2());
 
             if (jobListOpt.isPresent()) {
                 List<JobV2> jobList = jobListOpt.get();
-                int nInteresting = 0;
-                for (JobV2 job : jobList) {
-                    if (this.rtScanner.isRepositoryInteresting(job.getRepositoryId())) {
-                        nInteresting++;
-                        Optional<Build> optionalBuild = RepairnatorConfig.getInstance().getJTravis().build().fromId(job.getBuildId());
-                        this.rtScanner.getInspectBuilds().submitNewBuild(optionalBuild.get());
-                    }
-                }
+                int nInteresting = this.inspectJobs(jobList);
                 LOGGER.info("Retrieved "+jobList.size()+" jobs, with "+nInteresting+" repos");
+                travisApiClient.logMetrics();
             }
             if (this.rtScanner.getInspectBuilds().maxSubmittedBuildsReached() || !jobListOpt.isPresent()) {
                 try {
@@ -65,9 +85,86 @@ public class InspectJobs implements Runnable {
                     e.printStackTrace();
                 }
             }
-            rtScanner.saveInfoToDisk();
+            rtScanner.saveInfoToDiskIfNeeded();
         }
+        this.executor.shutdown();
+        rtScanner.saveInfoToDisk();
         LOGGER.info("This will now stop.");
     }
+
+    /**
+     * Qualify the repositories of the given jobs, and submit the builds of the interesting ones.
+     * It returns once all the jobs have been handled.
+     *
+     * @return the number of interesting repositories
+     */
+    int inspectJobs(List<JobV2> jobList) {
+        // each repository is only qualified once, and each build only fetched once
+        Map<Long, Set<Long>> buildIdsByRepository = new LinkedHashMap<>();
+        for (JobV2 job : jobList) {
+            long repositoryId = job.getRepositoryId();
+            long buildId = job.getBuildId();
+            buildIdsByRepository.computeIfAbsent(repositoryId, id -> new LinkedHashSet<>()).add(buildId);
+        }
+
+        AtomicInteger nInteresting = new AtomicInteger();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (Map.Entry<Long, Set<Long>> entry : buildIdsByRepository.entrySet()) {
+            CompletableFuture<Void> future = this.qualifyRepository(entry.getKey()).thenCompose(interesting -> {
+                if (!interesting) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                nInteresting.incrementAndGet();
+                List<CompletableFuture<Void>> buildFutures = new ArrayList<>();
+                for (long buildId : entry.getValue()) {
+                    buildFutures.add(CompletableFuture.runAsync(() -> this.submitBuild(buildId), this.executor));
+                }
+                return CompletableFuture.allOf(buildFutures.toArray(new CompletableFuture[0]));
+            }).exceptionally(throwable -> {
+                LOGGER.error("Error while inspecting the jobs of repository " + entry.getKey(), throwable);
+                return null;
+            });
+            futures.add(future);
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        return nInteresting.get();
+    }
+
+    /**
+     * Qualify the given repository asynchronously. If it is already being qualified, the running qualification is returned.
+     */
+    private CompletableFuture<Boolean> qualifyRepository(long repositoryId) {
+        CompletableFuture<Boolean> newQualification = new CompletableFuture<>();
+        CompletableFuture<Boolean> qualification = this.inFlightQualifications.putIfAbsent(repositoryId, newQualification);
+        if (qualification != null) {
+            return qualification;
+        }
+
+        this.executor.execute(() -> {
+            try {
+                newQualification.complete(this.rtScanner.isRepositoryInteresting(repositoryId));
+            } catch (Throwable throwable) {
+                newQualification.completeExceptionally(throwable);
+            } finally {
+                this.inFlightQualifications.remove(repositoryId);
+            }
+        });
+        return newQualification;
+    }
+
+    private void submitBuild(long buildId) {
+        InspectBuilds inspectBuilds = this.rtScanner.getInspectBuilds();
+        if (inspectBuilds.isBuildObserved(buildId)) {
+            return;
+        }
+        TravisApiClient travisApiClient = RepairnatorConfig.getInstance().getTravisApiClient();
+        Optional<Build> optionalBuild = travisApiClient.execute(jTravis -> jTravis.build().fromId(buildId));
+        if (optionalBuild.isPresent()) {
+            inspectBuilds.submitNewBuild(optionalBuild.get());
+        } else {
+            LOGGER.error("Error while getting build " + buildId);
+        }
+    }
 }
 
@@ -14,6 +14,7 @@ import org.apache.commons.lang3.StringUtils;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
@@ -72,15 +73,23 @@ class JobHelperv2 extends JobHelper {
 
     public List<Build> allSubSequentBuildsFrom(int start) throws Exception {
 
-        List<String> l = new ArrayList<>();
+        List<Long> l = new ArrayList<>();
         for (int i = 0; i < 250; i++) {
-            l.add(Integer.toString(start + i));
+            l.add((long) (start + i));
         }
+        return this.buildsFromIds(l);
+    }
+
+    /**
+     * Get several builds with a single request. Only the attributes returned by the V2 API are set
+     * (e.g. the state and the dates of the builds, but not their jobs).
+     */
+    public List<Build> buildsFromIds(Collection<Long> ids) throws Exception {
         //?ids[]=' + job_ids.join('&ids[]='
         String sep = "ids[]=";
         String url = "/" + "builds"
                 + "?" + sep
-                + StringUtils.join(l, "&" + sep);
+                + StringUtils.join(ids, "&" + sep);
         String response = this.get(url, API_VERSION.v2, 2);
         JsonObject jsonObj = getJsonFromStringContent(response);
         JsonArray jsonArray = jsonObj.getAsJsonArray("builds");
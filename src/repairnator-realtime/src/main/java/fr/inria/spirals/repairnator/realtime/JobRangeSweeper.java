@@ -0,0 +1,211 @@
+package fr.inria.spirals.repairnator.realtime;
+
+import fr.inria.jtravis.entities.v2.JobV2;
+import fr.inria.spirals.repairnator.api.TravisApiClient;
+import fr.inria.spirals.repairnator.config.RepairnatorConfig;
+import fr.inria.spirals.repairnator.realtime.utils.IdBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This class walks the Travis job IDs before the latest job, by pages of {@link #PAGE_SIZE} IDs,
+ * and gives each job to a handler. It is shared by the scanners iterating directly over job IDs
+ * (FastScanner, ZeroScanner and SequencerLearnerScanner).
+ *
+ * The pages of a sweep are fetched concurrently, but the jobs are given to the handler from a single thread,
+ * in the order of their IDs. The builds handled so far are kept in a compact bitmap, which is pruned at each sweep:
+ * a build is only handled once.
+ *
+ * If a checkpoint file is given, the highest job ID swept and the handled builds are saved after each sweep
+ * and read back at creation: after a restart, the sweeper resumes from the last job it saw, instead of starting
+ * again from the latest pages.
+ */
+public class JobRangeSweeper {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobRangeSweeper.class);
+
+    public static final int PAGE_SIZE = 250; // the number of jobs returned by the Travis job endpoint
+    private static final int CHECKPOINT_VERSION = 1;
+
+    /**
+     * A handler of the swept jobs.
+     */
+    public interface JobHandler {
+        /**
+         * @return true if the build of the job has been handled: the other jobs of this build won't be given
+         * to the handler anymore.
+         */
+        boolean handle(JobV2 job) throws Exception;
+    }
+
+    private final int scanBackPages;
+    private final int maxCatchUpPages;
+    private final File checkpointFile;
+    private final IdBitmap handledBuilds;
+    private final ExecutorService executor;
+    private long highWaterMark;
+
+    /**
+     * @param scanBackPages the number of pages swept before the latest job, at each sweep:
+     *                      the jobs are swept several times, until they are finished
+     * @param maxCatchUpPages the maximum number of pages swept to catch up with the latest job after a restart
+     * @param checkpointFile the file where the position of the sweeper is saved, or null
+     */
+    public JobRangeSweeper(int scanBackPages, int maxCatchUpPages, File checkpointFile) {
+        this.scanBackPages = scanBackPages;
+        this.maxCatchUpPages = maxCatchUpPages;
+        this.checkpointFile = checkpointFile;
+        this.handledBuilds = new IdBitmap();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, RepairnatorConfig.getInstance().getTravisMaxConcurrentRequests()), runnable -> {
+            Thread thread = new Thread(runnable, "job-range-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if (this.checkpointFile != null && this.checkpointFile.exists()) {
+            this.loadCheckpoint();
+        }
+    }
+
+    public long getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    public boolean isBuildHandled(long buildId) {
+        return this.handledBuilds.contains(buildId);
+    }
+
+    /**
+     * Sweep the pages before the latest job, or the pages since the last job seen if the sweeper is behind,
+     * and give their jobs to the handler. The pages are swept forward, and the last job seen only moves
+     * over the pages which have been fetched: a gap larger than the catch-up is swept by the next sweeps.
+     */
+    public void sweep(JobHandler handler) throws Exception {
+        Optional<List<JobV2>> latestJobListOpt = this.getLatestJobs();
+        if (!latestJobListOpt.isPresent() || latestJobListOpt.get().isEmpty()) {
+            LOGGER.error("Error while getting the latest jobs");
+            return;
+        }
+        long latestJobId = latestJobListOpt.get().get(0).getId();
+
+        long firstPageStart = latestJobId - (long) PAGE_SIZE * (this.scanBackPages - 1);
+        int nbPages = this.scanBackPages;
+        if (this.highWaterMark > 0 && latestJobId - this.highWaterMark > (long) PAGE_SIZE * this.scanBackPages) {
+            // the sweeper is behind: it starts again from the last job it saw
+            firstPageStart = this.highWaterMark - (long) PAGE_SIZE * (this.scanBackPages - 1);
+            nbPages = (int) Math.min(this.maxCatchUpPages, (latestJobId - firstPageStart) / PAGE_SIZE + 1);
+            LOGGER.info("Catching up " + (latestJobId - this.highWaterMark) + " jobs since job " + this.highWaterMark + " (" + nbPages + " pages)");
+        }
+
+        List<CompletableFuture<Optional<List<JobV2>>>> pages = new ArrayList<>();
+        for (int page = 0; page < nbPages; page++) {
+            int pageStart = (int) (firstPageStart + (long) page * PAGE_SIZE);
+            pages.add(CompletableFuture.supplyAsync(() -> this.getJobsFrom(pageStart), this.executor));
+        }
+
+        long lowestBuildId = Long.MAX_VALUE;
+        long sweptJobId = this.highWaterMark;
+        boolean contiguous = true;
+        for (int page = 0; page < nbPages; page++) {
+            Optional<List<JobV2>> jobs = pages.get(page).join();
+            if (!jobs.isPresent()) {
+                // the next pages are handled, but they will be swept again
+                contiguous = false;
+                continue;
+            }
+            if (contiguous) {
+                sweptJobId = Math.max(sweptJobId, Math.min(latestJobId, firstPageStart + (long) (page + 1) * PAGE_SIZE - 1));
+            }
+
+            for (JobV2 job : jobs.get()) {
+                lowestBuildId = Math.min(lowestBuildId, job.getBuildId());
+                if (this.handledBuilds.contains(job.getBuildId())) {
+                    continue;
+                }
+                if (handler.handle(job)) {
+                    this.handledBuilds.add(job.getBuildId());
+                }
+            }
+        }
+
+        // the builds before the swept pages won't be seen anymore
+        if (lowestBuildId != Long.MAX_VALUE) {
+            this.handledBuilds.removeBelow(lowestBuildId);
+        }
+        this.highWaterMark = sweptJobId;
+        this.saveCheckpoint();
+    }
+
+    /**
+     * @return the latest jobs, the first one being the latest
+     */
+    protected Optional<List<JobV2>> getLatestJobs() {
+        TravisApiClient travisApiClient = RepairnatorConfig.getInstance().getTravisApiClient();
+        JobHelperv2 jobHelperv2 = new JobHelperv2(travisApiClient.getJTravis());
+        return travisApiClient.execute(jTravis -> jobHelperv2.allFromV2());
+    }
+
+    /**
+     * @return the jobs of the page starting at the given job ID, or an empty optional if the page cannot be fetched
+     */
+    protected Optional<List<JobV2>> getJobsFrom(int pageStart) {
+        TravisApiClient travisApiClient = RepairnatorConfig.getInstance().getTravisApiClient();
+        JobHelperv2 jobHelperv2 = new JobHelperv2(travisApiClient.getJTravis());
+        return travisApiClient.execute(jTravis -> {
+            try {
+                return Optional.of(jobHelperv2.allSubSequentJobsFrom(pageStart));
+            } catch (Exception e) {
+                LOGGER.error("Error while getting the jobs from " + pageStart, e);
+                return Optional.<List<JobV2>>empty();
+            }
+        });
+    }
+
+    private void loadCheckpoint() {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(this.checkpointFile)))) {
+            if (input.readInt() != CHECKPOINT_VERSION) {
+                LOGGER.warn("Unknown version for the checkpoint " + this.checkpointFile.getPath() + ", it is ignored.");
+                return;
+            }
+            this.highWaterMark = input.readLong();
+            this.handledBuilds.readFrom(input);
+            LOGGER.info("Sweeper resumed from job " + this.highWaterMark + " with " + this.handledBuilds.size() + " handled builds");
+        } catch (IOException e) {
+            LOGGER.error("Error while reading the checkpoint " + this.checkpointFile.getPath() + ", the sweep starts from the latest jobs.", e);
+            this.highWaterMark = 0;
+        }
+    }
+
+    private void saveCheckpoint() {
+        if (this.checkpointFile == null) {
+            return;
+        }
+        File tmpFile = new File(this.checkpointFile.getPath() + ".tmp");
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+                output.writeInt(CHECKPOINT_VERSION);
+                output.writeLong(this.highWaterMark);
+                this.handledBuilds.writeTo(output);
+            }
+            Files.move(tmpFile.toPath(), this.checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.error("Error while saving the checkpoint " + this.checkpointFile.getPath(), e);
+        }
+    }
+}
@@ -9,6 +9,7 @@ import com.martiansoftware.jsap.stringparsers.FileStringParser;
 import fr.inria.spirals.repairnator.LauncherType;
 import fr.inria.spirals.repairnator.LauncherUtils;
 import fr.inria.spirals.repairnator.PeriodStringParser;
+import fr.inria.spirals.repairnator.api.TravisApiClient;
 import fr.inria.spirals.repairnator.config.RepairnatorConfig;
 import fr.inria.spirals.repairnator.notifier.EndProcessNotifier;
 import fr.inria.spirals.repairnator.notifier.engines.NotifierEngine;
@@ -92,6 +93,8 @@ public class RTLauncher {
         jsap.registerParameter(LauncherUtils.defineArgPushUrl());
         // --ghOauth
         jsap.registerParameter(LauncherUtils.defineArgGithubOAuth());
+        // --travisToken
+        jsap.registerParameter(LauncherUtils.defineArgTravisToken());
         // --githubUserName
         jsap.registerParameter(LauncherUtils.defineArgGithubUserName());
         // --githubUserEmail
@@ -113,6 +116,12 @@ public class RTLauncher {
         opt2.setHelp("Specify the path of blacklisted repository");
         jsap.registerParameter(opt2);
 
+        opt2 = new FlaggedOption("qualificationstore");
+        opt2.setLongFlag("qualificationstore");
+        opt2.setStringParser(FileStringParser.getParser().setMustBeDirectory(false));
+        opt2.setHelp("Specify the path of the file where the whitelisted and blacklisted repositories are kept between two runs. If not given, they are only kept in memory.");
+        jsap.registerParameter(opt2);
+
         opt2 = new FlaggedOption("jobsleeptime");
         opt2.setLongFlag("jobsleeptime");
         opt2.setStringParser(JSAP.INTEGER_PARSER);
@@ -134,6 +143,27 @@ public class RTLauncher {
         opt2.setHelp("Specify the maximum number of watched builds");
         jsap.registerParameter(opt2);
 
+        opt2 = new FlaggedOption("travismaxrequests");
+        opt2.setLongFlag("travismaxrequests");
+        opt2.setStringParser(JSAP.INTEGER_PARSER);
+        opt2.setDefault(TravisApiClient.DEFAULT_MAX_CONCURRENT_REQUESTS +"");
+        opt2.setHelp("Specify the maximum number of concurrent requests sent to Travis API");
+        jsap.registerParameter(opt2);
+
+        opt2 = new FlaggedOption("warmcontainers");
+        opt2.setLongFlag("warmcontainers");
+        opt2.setStringParser(JSAP.INTEGER_PARSER);
+        opt2.setDefault("0");
+        opt2.setHelp("Specify the number of idle pipeline containers kept ready to run a build (0 to create a container per build)");
+        jsap.registerParameter(opt2);
+
+        opt2 = new FlaggedOption("buildspercontainer");
+        opt2.setLongFlag("buildspercontainer");
+        opt2.setStringParser(JSAP.INTEGER_PARSER);
+        opt2.setDefault("10");
+        opt2.setHelp("Specify the number of builds run by a warm pipeline container before it is recycled");
+        jsap.registerParameter(opt2);
+
         opt2 = new FlaggedOption("duration");
         opt2.setLongFlag("duration");
         opt2.setStringParser(PeriodStringParser.getParser());
@@ -249,7 +279,10 @@ public class RTLauncher {
         this.config.setCreateOutputDir(LauncherUtils.getArgCreateOutputDir(arguments));
         this.config.setLogDirectory(LauncherUtils.getArgLogDirectory(arguments));
         this.config.setNbThreads(LauncherUtils.getArgNbThreads(arguments));
+        this.config.setWarmContainers(arguments.getInt("warmcontainers"));
+        this.config.setBuildsPerContainer(arguments.getInt("buildspercontainer"));
         this.config.setGithubToken(LauncherUtils.getArgGithubOAuth(arguments));
+        this.config.setTravisToken(LauncherUtils.getArgTravisToken(arguments));
         this.config.setGithubUserEmail(LauncherUtils.getArgGithubUserEmail(arguments));
         this.config.setGithubUserName(LauncherUtils.getArgGithubUserName(arguments));
         if (LauncherUtils.getArgPushUrl(arguments) != null) {
@@ -258,9 +291,11 @@ public class RTLauncher {
         }
         this.config.setWhiteList(arguments.getFile("whitelist"));
         this.config.setBlackList(arguments.getFile("blacklist"));
+        this.config.setQualificationStore(arguments.getFile("qualificationstore"));
         this.config.setJobSleepTime(arguments.getInt("jobsleeptime"));
         this.config.setBuildSleepTime(arguments.getInt("buildsleeptime"));
         this.config.setMaxInspectedBuilds(arguments.getInt("maxinspectedbuilds"));
+        this.config.setTravisMaxConcurrentRequests(arguments.getInt("travismaxrequests"));
         if (arguments.getObject("duration") != null) {
             this.config.setDuration((Duration) arguments.getObject("duration"));
         }
@@ -1,17 +1,19 @@
 package fr.inria.spirals.repairnator.realtime;
 
-import fr.inria.jtravis.JTravis;
 import fr.inria.jtravis.entities.Build;
 import fr.inria.jtravis.entities.BuildTool;
 import fr.inria.jtravis.entities.Job;
-import fr.inria.jtravis.entities.Log;
 import fr.inria.jtravis.entities.Repository;
 import fr.inria.jtravis.entities.StateType;
+import fr.inria.spirals.repairnator.api.TravisApiClient;
 import fr.inria.spirals.repairnator.config.RepairnatorConfig;
 import fr.inria.spirals.repairnator.notifier.EndProcessNotifier;
 import fr.inria.spirals.repairnator.realtime.counter.PullRequestCounter;
 import fr.inria.spirals.repairnator.realtime.notifier.TimedSummaryNotifier;
 import fr.inria.spirals.repairnator.realtime.serializer.BlacklistedSerializer;
+import fr.inria.spirals.repairnator.realtime.utils.JobLogClassifier;
+import fr.inria.spirals.repairnator.realtime.utils.RepositoryQualificationStore;
+import fr.inria.spirals.repairnator.realtime.utils.RepositoryQualificationStore.Verdict;
 import fr.inria.spirals.repairnator.serializer.engines.SerializerEngine;
 import fr.inria.spirals.repairnator.states.LauncherMode;
 import org.slf4j.Logger;
@@ -20,12 +22,9 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.GregorianCalendar;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 
 import static fr.inria.spirals.repairnator.config.RepairnatorConfig.PIPELINE_MODE;
@@ -36,10 +35,9 @@ public class RTScanner {
     private static final Logger LOGGER = LoggerFactory.getLogger(RTScanner.class);
     private static final int DURATION_IN_TEMP_BLACKLIST = 600; // in seconds
     
-    // lists are using repository ID: that's why they're typed with long
-    private final List<Long> blackListedRepository;
-    private final List<Long> whiteListedRepository;
-    private final Map<Long,Date> tempBlackList;
+    // the whitelist, the blacklist and the temporary blacklist, indexed by repository ID
+    private final RepositoryQualificationStore qualificationStore;
+    private JobLogClassifier jobLogClassifier;
 
 
     private final InspectBuilds inspectBuilds;
@@ -54,11 +52,10 @@ public class RTScanner {
     private TimedSummaryNotifier summaryNotifier;
 
     public RTScanner(String runId) {
-        this.blackListedRepository = new ArrayList<>();
-        this.whiteListedRepository = new ArrayList<>();
-        this.tempBlackList = new HashMap<>();
+        this.qualificationStore = this.initQualificationStore(RepairnatorConfig.getInstance().getQualificationStore());
+        this.jobLogClassifier = new JobLogClassifier();
+        // the runner is started by launch(), it might be replaced before
         this.pipelineRunner = new DockerPipelineRunner(this);
-        this.pipelineRunner.initRunner();
         this.inspectBuilds = new InspectBuilds(this);
         this.inspectJobs = new InspectJobs(this);
         this.runId = runId;
@@ -77,6 +74,21 @@ public class RTScanner {
         this.pipelineRunner = runner;
     }
 
+    private RepositoryQualificationStore initQualificationStore(File snapshotFile) {
+        if (snapshotFile != null) {
+            try {
+                return new RepositoryQualificationStore(snapshotFile);
+            } catch (IOException e) {
+                LOGGER.error("Error while loading the qualification store " + snapshotFile.getPath() + ", the verdicts will only be kept in memory.", e);
+            }
+        }
+        return new RepositoryQualificationStore();
+    }
+
+    void setJobLogClassifier(JobLogClassifier jobLogClassifier) {
+        this.jobLogClassifier = jobLogClassifier;
+    }
+
     public void setEndProcessNotifier(EndProcessNotifier endProcessNotifier) {
         this.endProcessNotifier = endProcessNotifier;
     }
@@ -104,13 +116,13 @@ public class RTScanner {
             List<String> lines = Files.readAllLines(whiteListFile.toPath());
             for (String repoId : lines) {
                 if (!repoId.trim().isEmpty()) {
-                    this.whiteListedRepository.add(Long.parseLong(repoId));
+                    this.qualificationStore.put(Long.parseLong(repoId.trim()), Verdict.WHITELISTED);
                 }
             }
         } catch (IOException e) {
             LOGGER.error("Error while initializing whitelist", e);
         }
-        LOGGER.info("Whitelist initialized with: "+this.whiteListedRepository.size()+" entries");
+        LOGGER.info("Whitelist initialized with: "+this.qualificationStore.count(Verdict.WHITELISTED)+" entries");
     }
 
     /** repairnator can be configured with a initial black list */
@@ -126,7 +138,7 @@ public class RTScanner {
         } catch (IOException e) {
             LOGGER.error("Error while initializing blacklist", e);
         }
-        LOGGER.info("Blacklist initialized with: "+this.blackListedRepository.size()+" entries");
+        LOGGER.info("Blacklist initialized with: "+this.qualificationStore.count(Verdict.BLACKLISTED)+" entries");
     }
 
     /**
@@ -195,21 +207,21 @@ public class RTScanner {
     }
 
     private void addInBlacklistRepository(Repository repository, BlacklistedSerializer.Reason reason, String comment) {
-        LOGGER.info("Repository "+repository.getSlug()+" is blacklisted, "+reason.name()+" "+comment+"(total bl: "+blackListedRepository.size()+")" );
+        LOGGER.info("Repository "+repository.getSlug()+" is blacklisted, "+reason.name()+" "+comment+"(total bl: "+this.qualificationStore.count(Verdict.BLACKLISTED)+")" );
 
         this.blacklistedSerializer.addBlackListedRepo(repository, reason, comment);
-        this.blackListedRepository.add(repository.getId());
+        this.qualificationStore.put(repository.getId(), Verdict.BLACKLISTED);
     }
 
     private void addInWhitelistRepository(Repository repository) {
-        LOGGER.info("Repository "+repository.getSlug()+" (id: "+repository.getId()+") is whitelisted. Total ("+whiteListedRepository.size()+")");
-        this.whiteListedRepository.add(repository.getId());
+        LOGGER.info("Repository "+repository.getSlug()+" (id: "+repository.getId()+") is whitelisted. Total ("+this.qualificationStore.count(Verdict.WHITELISTED)+")");
+        this.qualificationStore.put(repository.getId(), Verdict.WHITELISTED);
     }
 
     private void addInTempBlackList(Repository repository, String comment) {
         Date expirationDate = new Date(new Date().toInstant().plusSeconds(DURATION_IN_TEMP_BLACKLIST).toEpochMilli());
         LOGGER.info("Repository "+repository.getSlug()+" (id: "+repository.getId()+") is temporary blacklisted (expiration date: "+expirationDate.toString()+"). Reason: "+comment);
-        this.tempBlackList.put(repository.getId(), expirationDate);
+        this.qualificationStore.put(repository.getId(), Verdict.TEMP_BLACKLISTED, expirationDate.getTime());
     }
 
     /**
@@ -233,28 +245,22 @@ public class RTScanner {
      * @return true if the repository is whitelisted.
      */
     public boolean isRepositoryInteresting(long repositoryId) {
-        if (this.blackListedRepository.contains(repositoryId)) {
+        // an expired temporary blacklisting is not returned: the repository is checked again
+        Verdict verdict = this.qualificationStore.get(repositoryId);
+        if (verdict == Verdict.BLACKLISTED || verdict == Verdict.TEMP_BLACKLISTED) {
             return false;
         }
 
-        if (this.whiteListedRepository.contains(repositoryId)) {
+        if (verdict == Verdict.WHITELISTED) {
             return true;
         }
 
-        if (this.tempBlackList.containsKey(repositoryId)) {
-            if (this.tempBlackList.get(repositoryId).after(new Date())) {
-                return false;
-            } else {
-                this.tempBlackList.remove(repositoryId);
-            }
-        }
-
-        JTravis jTravis = RepairnatorConfig.getInstance().getJTravis();
-        Optional<Repository> repositoryOptional = jTravis.repository().fromId(repositoryId);
+        TravisApiClient travisApiClient = RepairnatorConfig.getInstance().getTravisApiClient();
+        Optional<Repository> repositoryOptional = travisApiClient.execute(jTravis -> jTravis.repository().fromId(repositoryId));
         if (repositoryOptional.isPresent()) {
             Repository repository = repositoryOptional.get();
 
-            Optional<Build> optionalBuild = jTravis.build().lastBuildFromMasterWithState(repository, StateType.PASSED);
+            Optional<Build> optionalBuild = travisApiClient.execute(jTravis -> jTravis.build().lastBuildFromMasterWithState(repository, StateType.PASSED));
             if (!optionalBuild.isPresent()) {
                 this.addInTempBlackList(repository, "No successful build found.");
                 return false;
@@ -282,11 +288,12 @@ public class RTScanner {
 
                 if (!masterBuild.getJobs().isEmpty()) {
                     Job firstJob = masterBuild.getJobs().get(0);
-                    Optional<Log> optionalLog = firstJob.getLog();
-                    if (optionalLog.isPresent()) {
-                        Log jobLog = optionalLog.get();
-                        if (RepairnatorConfig.getInstance().getLauncherMode() == LauncherMode.CHECKSTYLE ) {
-                            if (jobLog.getContent().contains("maven-checkstyle")) {
+                    boolean checkstyleMode = RepairnatorConfig.getInstance().getLauncherMode() == LauncherMode.CHECKSTYLE;
+                    JobLogClassifier.Marker marker = checkstyleMode ? JobLogClassifier.Marker.CHECKSTYLE : JobLogClassifier.Marker.RUNNING_TESTS;
+                    Optional<Boolean> markerFound = travisApiClient.execute(jTravis -> this.jobLogClassifier.hasMarker(firstJob.getId(), marker));
+                    if (markerFound.isPresent()) {
+                        if (checkstyleMode) {
+                            if (markerFound.get()) {
                                 LOGGER.info("Checkstyle has been found in repository "+repository.getSlug()+" (id: "+repositoryId+") build (id: "+masterBuild.getId()+"). The repo is now whitelisted.");
                                 this.addInWhitelistRepository(repository);
                                 return true;
@@ -294,7 +301,7 @@ public class RTScanner {
                                 this.addInTempBlackList(repository, "No checkstyle found");
                             }
                         } else {
-                            if (jobLog.getTestsInformation() != null && jobLog.getTestsInformation().getRunning() > 0) {
+                            if (markerFound.get()) {
                                 LOGGER.info("Tests has been found in repository "+repository.getSlug()+" (id: "+repositoryId+") build (id: "+masterBuild.getId()+"). The repo is now whitelisted.");
                                 this.addInWhitelistRepository(repository);
                                 return true;
@@ -312,7 +319,7 @@ public class RTScanner {
         } else {
             LOGGER.info("Repository not found with the following id: "+repositoryId+" it will be temporary blacklisted");
             Date expirationDate = new Date(new Date().toInstant().plusSeconds(DURATION_IN_TEMP_BLACKLIST).toEpochMilli());
-            this.tempBlackList.put(repositoryId, expirationDate);
+            this.qualificationStore.put(repositoryId, Verdict.TEMP_BLACKLISTED, expirationDate.getTime());
         }
 
 
@@ -326,14 +333,12 @@ public class RTScanner {
         boolean failing = false;
         List<Job> jobs = build.getJobs();
         if (jobs != null) {
+            TravisApiClient travisApiClient = RepairnatorConfig.getInstance().getTravisApiClient();
             for (Job job : jobs) {
-                Optional<Log> optionalLog = job.getLog();
-                if (optionalLog.isPresent()) {
-                    Log jobLog = optionalLog.get();
-                    if (jobLog.getTestsInformation() != null && (jobLog.getTestsInformation().getErrored() >= 0 || jobLog.getTestsInformation().getFailing() >= 0)) {
-                        failing = true;
-                        break;
-                    }
+                Optional<Boolean> failingTests = travisApiClient.execute(jTravis -> this.jobLogClassifier.hasMarker(job.getId(), JobLogClassifier.Marker.FAILING_TESTS));
+                if (failingTests.isPresent() && failingTests.get()) {
+                    failing = true;
+                    break;
                 }
             }
         }
@@ -347,7 +352,17 @@ public class RTScanner {
     }
 
     public void saveInfoToDisk() {
-        blacklistedSerializer.serialize();;
+        blacklistedSerializer.serialize();
+        this.qualificationStore.flush();
+    }
+
+    /**
+     * Same as {@link #saveInfoToDisk()}, but the blacklisted repositories are only serialized
+     * if the last serialization is old enough: it can be called on each iteration of the scanner.
+     */
+    public void saveInfoToDiskIfNeeded() {
+        blacklistedSerializer.serializeIfNeeded();
+        this.qualificationStore.flush();
     }
 
     public void stopDockerJobs(){
@@ -2,23 +2,21 @@ package fr.inria.spirals.repairnator.realtime;
 
 import fr.inria.jtravis.entities.StateType;
 import fr.inria.jtravis.entities.v2.BuildV2;
-import fr.inria.jtravis.entities.v2.JobV2;
 import fr.inria.spirals.repairnator.config.RepairnatorConfig;
 import fr.inria.spirals.repairnator.config.SequencerConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 
 /**
  * Scanner based on FastScanner.java but re-purposed for scanning for Sequencer training data.
  */
 public class SequencerLearnerScanner implements Runnable {
     private static final Logger LOGGER = LoggerFactory.getLogger(SequencerLearnerScanner.class);
+    private static final int SCAN_BACK_PAGES = 10;
+    private static final int MAX_CATCH_UP_PAGES = 400;
     private BuildHelperV2 buildHelper;
     
     public static void main(String[] args) {
@@ -33,7 +31,6 @@ public class SequencerLearnerScanner implements Runnable {
     @Override
     public void run() {
         LOGGER.debug("Start running inspect Jobs...");
-        JobHelperv2 jobHelperv2 = new JobHelperv2(RepairnatorConfig.getInstance().getJTravis());
         SequencerCollector collector;
         
         try {
@@ -43,36 +40,27 @@ public class SequencerLearnerScanner implements Runnable {
             throw new RuntimeException(e1);
         }
         
-        final int scanBackIterations = 10;
-        final int jumpSize = 250;
-        
-        Set<Integer> done = new HashSet<>();
+        JobRangeSweeper sweeper = new JobRangeSweeper(SCAN_BACK_PAGES, MAX_CATCH_UP_PAGES, RepairnatorConfig.getInstance().getSweeperCheckpoint());
         
         while (true) {
             try {
-                Optional<List<JobV2>> latestJobListOpt = jobHelperv2.allFromV2();
-                List<JobV2> latestJobList = latestJobListOpt.get();
-                int latestJobId = latestJobList.get(0).getId();
-            	for (int it = 0; it < scanBackIterations; ++it) {
-            		
-            		List<JobV2> jobList = jobHelperv2.allSubSequentJobsFrom(latestJobId - (it*jumpSize));
-            		for (JobV2 job : jobList) {
-                    	if (!done.contains(job.getBuildId()) && "java".equals(job.getConfig().getLanguage()) && StateType.PASSED.equals(job.getState())) {
-                        	
-                    	    Optional<BuildV2> build = buildHelper.fromIdV2(job.getBuildId());
-                    	    
-                    	    if (!build.isPresent()) {
-                                continue;
-                            }
-                    	    
-                    	    String sha = build.get().getCommit().getSha();
-                    	    
-                    	    collector.handle(job.getRepositorySlug(), sha);   
-                        	done.add(job.getBuildId());
-                        }
+                sweeper.sweep(job -> {
+                    if (!"java".equals(job.getConfig().getLanguage())) {
+                        return true;
+                    }
+                    if (!StateType.PASSED.equals(job.getState())) {
+                        return false;
                     }
-            	}
-                
+
+                    Optional<BuildV2> build = buildHelper.fromIdV2(job.getBuildId());
+                    if (!build.isPresent()) {
+                        return false;
+                    }
+
+                    String sha = build.get().getCommit().getSha();
+                    collector.handle(job.getRepositorySlug(), sha);
+                    return true;
+                });
 
             } catch (Exception e) {
                 System.err.println(e.toString());
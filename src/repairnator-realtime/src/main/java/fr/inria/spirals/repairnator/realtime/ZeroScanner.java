@@ -5,10 +5,12 @@ import fr.inria.jtravis.entities.v2.BuildV2;
 import fr.inria.jtravis.entities.v2.JobV2;
 import fr.inria.spirals.repairnator.config.RepairnatorConfig;
 import fr.inria.spirals.repairnator.config.SequencerConfig;
+import fr.inria.spirals.repairnator.realtime.utils.IdBitmap;
 import fr.inria.spirals.repairnator.states.LauncherMode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
@@ -23,12 +25,19 @@ import java.util.*;
 public class ZeroScanner implements Runnable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ZeroScanner.class);
+    private static final int SCAN_BACK_PAGES = 10;
+    private static final int MAX_CATCH_UP_PAGES = 400;
+    private static final String CHECKPOINT_FILE = "zeroscanner.checkpoint";
+
     private BuildHelperV2 buildHelper;
     private RTScanner rtScanner;
     private SequencerCollector collector;
+    private JobRangeSweeper sweeper;
 
-    private Set<Integer> collected = new HashSet<>();
-    private Set<Integer> attempted = new HashSet<>();
+    // a build might have both passing and failing jobs: it's collected and attempted once each
+    private final IdBitmap collected = new IdBitmap();
+    private final IdBitmap attempted = new IdBitmap();
+    private long lowestBuildId = Long.MAX_VALUE;
 
     public static void main(String[] args) {
         setup();
@@ -58,13 +67,16 @@ public class ZeroScanner implements Runnable {
         //launcher mode
         RepairnatorConfig.getInstance().setLauncherMode(LauncherMode.SEQUENCER_REPAIR);
 
+        //position of the scanner, kept between two runs
+        RepairnatorConfig.getInstance().setSweeperCheckpoint(new File(CHECKPOINT_FILE));
+
     }
 
     public ZeroScanner() {
         this.rtScanner = new RTScanner(UUID.randomUUID().toString());
         this.buildHelper = new BuildHelperV2(RepairnatorConfig.getInstance().getJTravis());
         this.collector = new SequencerCollector(SequencerConfig.getInstance().contextSize);
-        
+        this.sweeper = new JobRangeSweeper(SCAN_BACK_PAGES, MAX_CATCH_UP_PAGES, RepairnatorConfig.getInstance().getSweeperCheckpoint());
     }
 
     @Override
@@ -77,51 +89,15 @@ public class ZeroScanner implements Runnable {
             throw new RuntimeException(e);
         }
 
-        JobHelperv2 jobHelperv2 = new JobHelperv2(RepairnatorConfig.getInstance().getJTravis());
-
-        final int scanBackIterations = 10;
-        final int jumpSize = 250;
-
         while (true) {
             LOGGER.info("New scanning iteration");
             try {
-                Optional<List<JobV2>> latestJobListOpt = jobHelperv2.allFromV2();
-                List<JobV2> latestJobList = latestJobListOpt.get();
-                int latestJobId = latestJobList.get(0).getId();
-                for (int it = 0; it < scanBackIterations; ++it) {
-
-                    List<JobV2> jobList = jobHelperv2.allSubSequentJobsFrom(latestJobId - (it*jumpSize));
-                    for (JobV2 job : jobList) {
-                        LOGGER.debug("Scanning job: " + job.getRepositorySlug() + " : " + job.getBuildId());
-                        if (!isLanguage(job, "java")){
-                            LOGGER.debug("Job is not in target language, skipping");
-                            continue;
-                        }
-
-                        switch (job.getState()) {
-                            case PASSED: { //collect for data
-                                if (isListedJob(job, collected)) {
-                                    LOGGER.debug("Job's changes already collected, skipping");
-                                    continue;
-                                }
-
-                                collectJob(job.getBuildId(), job.getRepositorySlug());
-                            }
-                            break;
-                            case FAILED: { //try to fix it
-                                if (isListedJob(job, attempted)) {
-                                    LOGGER.debug("Job fix already attempted, skipping");
-                                    continue;
-                                }
-
-                                attemptJob(job.getBuildId());
-                            }
-                            break;
-                            default:
-                                LOGGER.debug("Job's state not handled:" + job.getState());
-                            break;
-                        }
-                    }
+                lowestBuildId = Long.MAX_VALUE;
+                sweeper.sweep(this::handleJob);
+                // the builds before the swept pages won't be seen anymore
+                if (lowestBuildId != Long.MAX_VALUE) {
+                    collected.removeBelow(lowestBuildId);
+                    attempted.removeBelow(lowestBuildId);
                 }
             } catch (OutOfMemoryError oom){
                 LOGGER.error("Out of memory error: "  + oom.toString());
@@ -134,31 +110,62 @@ public class ZeroScanner implements Runnable {
     }
 
 
-    protected void collectJob(int id, String slug){
+    /**
+     * The builds are never marked as handled in the sweeper: the passing and the failing jobs of a build are
+     * handled separately, so a build is collected and attempted at most once each.
+     *
+     * @return false, so the sweeper gives all the jobs of the build
+     */
+    boolean handleJob(JobV2 job) {
+        LOGGER.debug("Scanning job: " + job.getRepositorySlug() + " : " + job.getBuildId());
+        lowestBuildId = Math.min(lowestBuildId, job.getBuildId());
+        if (!isLanguage(job, "java")){
+            LOGGER.debug("Job is not in target language, skipping");
+            return false;
+        }
+
+        switch (job.getState()) {
+            case PASSED: //collect for data
+                if (collected.contains(job.getBuildId())) {
+                    LOGGER.debug("Job's changes already collected, skipping");
+                } else if (collectJob(job.getBuildId(), job.getRepositorySlug())) {
+                    collected.add(job.getBuildId());
+                }
+                break;
+            case FAILED: //try to fix it
+                if (attempted.contains(job.getBuildId())) {
+                    LOGGER.debug("Job fix already attempted, skipping");
+                } else if (attemptJob(job.getBuildId())) {
+                    attempted.add(job.getBuildId());
+                }
+                break;
+            default:
+                LOGGER.debug("Job's state not handled:" + job.getState());
+                break;
+        }
+        return false;
+    }
+
+    protected boolean collectJob(int id, String slug){
         LOGGER.info("===== COLLECTING FOR DATA: " + id);
 
         Optional<BuildV2> build = buildHelper.fromIdV2(id);
-        if (!build.isPresent()) return;
+        if (!build.isPresent()) return false;
 
         String sha = build.get().getCommit().getSha();
 
         collector.handle(slug, sha);
-        collected.add(id);
+        return true;
     }
 
-    protected void attemptJob(int id){
+    protected boolean attemptJob(int id){
         LOGGER.info("===== ATTEMPT REPAIR: " + id);
 
         Optional<Build> build = buildHelper.fromId(id);
-        if (!build.isPresent()) return;
+        if (!build.isPresent()) return false;
 
         this.rtScanner.submitBuildToExecution(build.get());
-
-        attempted.add(id);
-    }
-
-    private boolean isListedJob(JobV2 job, Set<Integer> set){
-        return set.contains(job.getBuildId());
+        return true;
     }
 
     private boolean isLanguage(JobV2 job, String language){
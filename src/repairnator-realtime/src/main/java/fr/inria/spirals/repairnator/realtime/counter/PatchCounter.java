@@ -1,12 +1,11 @@
 package fr.inria.spirals.repairnator.realtime.counter;
 
-import com.mongodb.MongoClient;
-import com.mongodb.MongoClientURI;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
 import fr.inria.spirals.repairnator.notifier.EndProcessNotifier;
 import fr.inria.spirals.repairnator.realtime.InspectBuilds;
 import fr.inria.spirals.repairnator.realtime.InspectJobs;
+import fr.inria.spirals.repairnator.serializer.mongodb.SharedMongoClient;
 import org.bson.conversions.Bson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -75,18 +74,15 @@ public class PatchCounter implements Runnable{
         if(numberOfPatchesToRunFor == 0) {
             return true;
         }
-        MongoClient client = new MongoClient(new MongoClientURI(this.mongodbHost + "/" + this.mongodbName));
-        MongoDatabase mongo = client.getDatabase(this.mongodbName);
-        
-        boolean run = this.numberOfPatchesToRunFor > numberOfBuildsPatched(mongo);
-        
-        client.close();
-        return run;
+        MongoDatabase mongo = SharedMongoClient.getDatabase(this.mongodbHost, this.mongodbName);
+
+        return this.numberOfPatchesToRunFor > numberOfBuildsPatched(mongo);
         // return this.numberOfPatchesToRunFor > numberOfPatches(mongo);
     }
     
     /**
      * Count the total number of builds that have been patched. Probably what we want?
+     * The builds are counted again by the server each time, since their status is updated after their insertion.
      * @param mongo the database to search through
      * @return number of builds patched
      */
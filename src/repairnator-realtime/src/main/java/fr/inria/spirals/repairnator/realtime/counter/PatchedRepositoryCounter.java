@@ -0,0 +1,91 @@
+package fr.inria.spirals.repairnator.realtime.counter;
+
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import fr.inria.spirals.repairnator.serializer.mongodb.SharedMongoClient;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class that counts the patched builds of each repository, to favour the builds
+ * of the repositories which have already been patched.
+ *
+ * The counts are updated from the inspector collection by {@link #refreshIfNeeded()}, at most once per
+ * {@link #REFRESH_INTERVAL}: all the patched builds are counted again by the server, grouped by repository, since
+ * the status of a build is updated after its insertion. Reading the counts never queries the database.
+ */
+public class PatchedRepositoryCounter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PatchedRepositoryCounter.class);
+    private static final long REFRESH_INTERVAL = 3600 * 1000; // in milliseconds
+
+    private String mongodbHost;
+    private String mongodbName;
+    private volatile Map<String, Integer> patchedBuildsByRepository = Collections.emptyMap();
+    private volatile long lastRefresh;
+
+    public PatchedRepositoryCounter(String mongodbHost, String mongodbName) {
+        this.mongodbHost = mongodbHost;
+        this.mongodbName = mongodbName;
+    }
+
+    /**
+     * @return the number of patched builds of the given repository at the last refresh,
+     * 0 if the database is not available or has not been read yet
+     */
+    public int getNbPatchedBuilds(String repositorySlug) {
+        return this.patchedBuildsByRepository.getOrDefault(repositorySlug, 0);
+    }
+
+    /**
+     * Update the counts from the database if the last refresh is older than {@link #REFRESH_INTERVAL}.
+     */
+    public void refreshIfNeeded() {
+        long now = System.currentTimeMillis();
+        if (this.mongodbHost == null || this.mongodbName == null || now - this.lastRefresh < REFRESH_INTERVAL) {
+            return;
+        }
+        synchronized (this) {
+            if (now - this.lastRefresh < REFRESH_INTERVAL) {
+                return;
+            }
+            this.lastRefresh = now;
+            try {
+                this.patchedBuildsByRepository = this.countPatchedBuilds();
+                LOGGER.info(this.patchedBuildsByRepository.size() + " repositories have patched builds.");
+            } catch (RuntimeException e) {
+                LOGGER.warn("Error while counting the patched builds: " + e);
+            }
+        }
+    }
+
+    protected Map<String, Integer> countPatchedBuilds() {
+        MongoDatabase mongo = SharedMongoClient.getDatabase(this.mongodbHost, this.mongodbName);
+
+        Map<String, Integer> result = new HashMap<>();
+        for (Document document : mongo.getCollection("inspector").aggregate(getPipeline())) {
+            if (document.get("_id") != null) {
+                result.put(document.get("_id").toString(), ((Number) document.get("count")).intValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the aggregation counting the patched builds of each repository
+     */
+    static List<Bson> getPipeline() {
+        return Arrays.asList(
+                Aggregates.match(Filters.eq("status", "PATCHED")),
+                Aggregates.group("$repositoryName", Accumulators.sum("count", 1)));
+    }
+}
@@ -6,14 +6,13 @@ import org.bson.conversions.Bson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.mongodb.MongoClient;
-import com.mongodb.MongoClientURI;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
 
 import fr.inria.spirals.repairnator.notifier.EndProcessNotifier;
 import fr.inria.spirals.repairnator.realtime.InspectBuilds;
 import fr.inria.spirals.repairnator.realtime.InspectJobs;
+import fr.inria.spirals.repairnator.serializer.mongodb.SharedMongoClient;
 
 /**
  * A class that counts the number of patches created since 
@@ -78,13 +77,9 @@ public class PullRequestCounter implements Runnable{
         if(numberOfPRsToRunFor == 0) {
             return true;
         }
-        MongoClient client = new MongoClient(new MongoClientURI(this.mongodbHost + "/" + this.mongodbName));
-        MongoDatabase mongo = client.getDatabase(this.mongodbName);
-        
-        boolean run = this.numberOfPRsToRunFor > numberOfPRs(mongo);
-        
-        client.close();
-        return run;
+        MongoDatabase mongo = SharedMongoClient.getDatabase(this.mongodbHost, this.mongodbName);
+
+        return this.numberOfPRsToRunFor > numberOfPRs(mongo);
         // return this.numberOfPatchesToRunFor > numberOfPatches(mongo);
     }
     
@@ -99,6 +94,7 @@ public class PullRequestCounter implements Runnable{
     
     /**
      * Count the total number of patches generated
+     * The pull requests are counted again by the server each time, so the updated ones are not missed.
      * @param mongo the database to search through
      * @return number of builds patched
      */
@@ -2,20 +2,20 @@ package fr.inria.spirals.repairnator.realtime.notifier;
 
 import java.text.SimpleDateFormat;
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 import fr.inria.spirals.repairnator.notifier.engines.NotifierEngine;
+import fr.inria.spirals.repairnator.serializer.mongodb.SharedMongoClient;
 
-import com.mongodb.MongoClient;
-import com.mongodb.MongoClientURI;
-import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
 import com.mongodb.client.model.Filters;
 
 import org.bson.Document;
@@ -38,7 +38,6 @@ public class TimedSummaryNotifier implements Runnable {
     protected Duration interval;
     protected Bson rtscannerFilter;
     protected Bson repairAttemptsFilter;
-    protected Bson patchedBuildsFilter;
     protected Map<String, Bson> toolFilters;
     protected String mongodbHost;
     protected String mongodbName;
@@ -69,8 +68,6 @@ public class TimedSummaryNotifier implements Runnable {
         this.rtscannerFilter = Filters.gte("dateWatched", previousDate);   
         this.repairAttemptsFilter = Filters.and(Filters.gte("buildReproductionDate", MONGO_DATE_FORMAT.format(previousDate)),
                 Filters.or(Filters.eq("status", "test failure"), Filters.eq("status", "PATCHED")));
-        this.patchedBuildsFilter = Filters.and
-                (Filters.gte("buildReproductionDate", previousDate), Filters.eq("status", "PATCHED"));
 
         this.toolFilters = new HashMap<String, Bson>();
         for (String tool : this.repairTools) {
@@ -99,33 +96,33 @@ public class TimedSummaryNotifier implements Runnable {
     public void run() {
         while (true) {
             if (this.intervalHasPassed()) {
-                MongoClient client = new MongoClient(
-                        new MongoClientURI(this.mongodbHost + "/" + this.mongodbName));
-                MongoDatabase mongo = client.getDatabase(this.mongodbName);
+                MongoDatabase mongo = SharedMongoClient.getDatabase(this.mongodbHost, this.mongodbName);
 
                 updateFilters(lastNotificationTime.getTime());
 
                 // Number of analyzed builds, rtscanner
-                Iterator<Document> nrOfDocuments = queryDatabase("rtscanner", rtscannerFilter, mongo);
-                int nrOfAnalyzedBuilds = nrOfObjects(nrOfDocuments);
+                int nrOfAnalyzedBuilds = (int) mongo.getCollection("rtscanner").count(rtscannerFilter);
 
                 // Number of repair attempts, inspector status is everything needed
+                // and total number of patches, both counted by status in a single aggregation
 
-                nrOfDocuments = queryDatabase("inspector", repairAttemptsFilter, mongo);
-                int nrOfRepairAttempts = nrOfObjects(nrOfDocuments);
-
-                // Total number of patches, patches
-
-                nrOfDocuments = queryDatabase("inspector", patchedBuildsFilter, mongo);
-                int nrOfBuildsWithPatches = nrOfObjects(nrOfDocuments);
+                Map<String, Integer> nrOfBuildsPerStatus = countByField("inspector", repairAttemptsFilter, "status", mongo);
+                int nrOfRepairAttempts = 0;
+                for (int nrOfBuilds : nrOfBuildsPerStatus.values()) {
+                    nrOfRepairAttempts += nrOfBuilds;
+                }
+                int nrOfBuildsWithPatches = nrOfBuildsPerStatus.getOrDefault("PATCHED", 0);
 
-                // Number of patches per tool, patches with an if
+                // Number of patches per tool, counted by tool in a single aggregation
 
+                Map<String, Integer> nrOfPatchesByTool = new HashMap<>();
+                if (!toolFilters.isEmpty()) {
+                    nrOfPatchesByTool = countByField("patches", Filters.or(toolFilters.values()), "toolname", mongo);
+                }
                 int[] nrOfPatchesPerTool = new int[repairTools.length];
 
                 for (int i = 0; i < repairTools.length; i++) {
-                    nrOfDocuments = queryDatabase("patches", toolFilters.get(repairTools[i]), mongo);
-                    nrOfPatchesPerTool[i] = nrOfObjects(nrOfDocuments);
+                    nrOfPatchesPerTool[i] = nrOfPatchesByTool.getOrDefault(repairTools[i], 0);
                 }
                 
                 Date now = new Date();
@@ -135,8 +132,6 @@ public class TimedSummaryNotifier implements Runnable {
                 updateLastNotificationTime(now);
 
                 notifyEngines("Repairnator: Summary email", message);
-
-                client.close();
             } else {
                 try {
                     Thread.sleep(TIME_TO_SLEEP);
@@ -165,15 +160,24 @@ public class TimedSummaryNotifier implements Runnable {
     }
     
     /**
-     * Querys the mongodb for all documents fulfilling the requirements of the filter.
+     * Counts on the database side the documents fulfilling the requirements of the filter,
+     * grouped by the value of the given field.
      * @param collectionName the collection to look int
      * @param filter the filer to apply
+     * @param field the field whose values are counted
      * @param mongo the database to look in
-     * @return all relevant documents
+     * @return the number of documents for each value of the field, the documents without the field
+     * being counted with the null key
      */
-    protected Iterator<Document> queryDatabase(String collectionName, Bson filter, MongoDatabase mongo) {
-        FindIterable<Document> iterDoc = mongo.getCollection(collectionName).find(filter);
-        return iterDoc.iterator();
+    protected Map<String, Integer> countByField(String collectionName, Bson filter, String field, MongoDatabase mongo) {
+        Map<String, Integer> result = new HashMap<>();
+        for (Document document : mongo.getCollection(collectionName).aggregate(Arrays.asList(
+                Aggregates.match(filter),
+                Aggregates.group("$" + field, Accumulators.sum("count", 1))))) {
+            Object value = document.get("_id");
+            result.merge((value == null) ? null : value.toString(), ((Number) document.get("count")).intValue(), Integer::sum);
+        }
+        return result;
     }
 
     /**
@@ -186,7 +190,6 @@ public class TimedSummaryNotifier implements Runnable {
     protected void updateFilters(Date previousDate) {
         
         this.rtscannerFilter = Filters.gte("dateWatched", previousDate);
-        this.patchedBuildsFilter = Filters.and(Filters.gte("buildReproductionDate", previousDate), Filters.eq("status", "PATCHED"));
         this.repairAttemptsFilter = Filters.and(Filters.gte("buildReproductionDate", previousDate),
                 Filters.or(Filters.eq("status", "test failure"), Filters.eq("status", "PATCHED")));
 
@@ -198,21 +201,6 @@ public class TimedSummaryNotifier implements Runnable {
         }
     }
 
-    /**
-     * Count the number of documents in the given iterator
-     * 
-     * @param documents the iterator to count
-     * @return number of objects in documents
-     */
-    protected int nrOfObjects(Iterator<Document> documents) {
-        int iter = 0;
-        while (documents.hasNext()) {
-            iter += 1;
-            documents.next();
-        }
-        return iter;
-    }
-
     /**
      * Creates the message that is to be sent by this notifier
      * 
@@ -10,13 +10,36 @@ import fr.inria.spirals.repairnator.serializer.SerializerType;
 import fr.inria.spirals.repairnator.serializer.engines.SerializedData;
 import fr.inria.spirals.repairnator.serializer.engines.SerializerEngine;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+/**
+ * This serializer works as a journal: only the repositories blacklisted since the last serialization are sent
+ * to the engines, so that the engines appending their data never receive the same entry twice.
+ * The entries are batched: they are serialized when {@link #serialize()} is called, as soon as enough entries
+ * are waiting, or by {@link #serializeIfNeeded()} once enough time passed since the last serialization.
+ * A batch is compacted: a repository blacklisted several times is only serialized once.
+ * The entries are kept for each engine until the engine serialized them without failure.
+ */
 public class BlacklistedSerializer extends SerializerImpl {
 
+    public static final int FLUSH_SIZE_THRESHOLD = 100;
+    public static final long FLUSH_INTERVAL = 60 * 1000; // in milliseconds
+    public static final int MAX_PENDING_ENTRIES = 10000;
+    public static final int MAX_SERIALIZED_REPOSITORIES = 100000;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BlacklistedSerializer.class);
+
     public enum Reason {
         OTHER_LANGUAGE,
         USE_GRADLE,
@@ -58,18 +81,68 @@ public class BlacklistedSerializer extends SerializerImpl {
         return result;
     }
 
-    List<SerializedData> allData = new ArrayList<>();
+    // the entries waiting to be serialized by each engine, by repository ID:
+    // they are only forgotten once the engine serialized them
+    private final Map<SerializerEngine, Map<Long, SerializedData>> pendingData = new IdentityHashMap<>();
+    // the most recently blacklisted repositories: an evicted repository might be serialized again if it is blacklisted again
+    private final Set<Long> serializedRepoIds = Collections.newSetFromMap(new LinkedHashMap<Long, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+            return this.size() > MAX_SERIALIZED_REPOSITORIES;
+        }
+    });
+    private int nbNewEntries;
+    private long lastSerializationDate = System.currentTimeMillis();
 
-    public void addBlackListedRepo(Repository repo, Reason reason, String comment) {
+    public synchronized void addBlackListedRepo(Repository repo, Reason reason, String comment) {
+        if (!this.serializedRepoIds.add(repo.getId())) {
+            return;
+        }
         SerializedData data = new SerializedData(this.serializeAsList(repo, reason, comment), this.serializeAsJson(repo, reason, comment));
+        for (SerializerEngine engine : this.getEngines()) {
+            Map<Long, SerializedData> enginePendingData = this.pendingData.computeIfAbsent(engine, key -> new LinkedHashMap<>());
+            enginePendingData.put(repo.getId(), data);
+            if (enginePendingData.size() > MAX_PENDING_ENTRIES) {
+                Long oldestRepoId = enginePendingData.keySet().iterator().next();
+                enginePendingData.remove(oldestRepoId);
+                LOGGER.warn("Too many blacklisted repositories are waiting to be serialized: the repository " + oldestRepoId + " is dropped.");
+            }
+        }
+        this.nbNewEntries++;
+        if (this.nbNewEntries >= FLUSH_SIZE_THRESHOLD) {
+            this.serialize();
+        }
+    }
 
-        allData.add(data);
+    /**
+     * Serialize the waiting entries if the last serialization is old enough.
+     */
+    public synchronized void serializeIfNeeded() {
+        if (System.currentTimeMillis() - this.lastSerializationDate >= FLUSH_INTERVAL) {
+            this.serialize();
+        }
     }
 
+    /**
+     * Serialize the entries added since the last serialization.
+     * If an engine fails, its entries are kept and sent again to this engine by the next serialization.
+     */
     @Override
-    public void serialize() {
-        for (SerializerEngine engine : this.getEngines()) {
-            engine.serialize(allData, this.getType());
+    public synchronized void serialize() {
+        this.lastSerializationDate = System.currentTimeMillis();
+        this.nbNewEntries = 0;
+
+        for (Map.Entry<SerializerEngine, Map<Long, SerializedData>> enginePendingData : this.pendingData.entrySet()) {
+            if (enginePendingData.getValue().isEmpty()) {
+                continue;
+            }
+            List<SerializedData> newData = new ArrayList<>(enginePendingData.getValue().values());
+            try {
+                enginePendingData.getKey().serialize(newData, this.getType());
+                enginePendingData.getValue().clear();
+            } catch (RuntimeException e) {
+                LOGGER.error("Error while serializing " + newData.size() + " blacklisted repositories: they will be serialized again later.", e);
+            }
         }
     }
 }
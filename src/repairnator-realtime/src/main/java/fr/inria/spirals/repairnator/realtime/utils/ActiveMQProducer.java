@@ -0,0 +1,277 @@
+package fr.inria.spirals.repairnator.realtime.utils;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A long-lived producer of text messages for an ActiveMQ queue, shared by all the submitters of the same queue.
+ *
+ * The messages are put in a bounded backlog and sent by a dedicated thread, in batches committed together on a
+ * single connection: sending a message does not open any connection. When a batch cannot be sent, the connection
+ * is recreated with an increasing delay and the same batch is sent again, before any other message: an accepted
+ * message is never lost. A message submitted while the backlog is full is rejected, logged and counted.
+ *
+ * The number of messages sent, the backlog and the send latency are logged regularly and published as a JMX MBean.
+ */
+public class ActiveMQProducer implements ActiveMQProducerMBean {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ActiveMQProducer.class);
+
+    private static final int MAX_BACKLOG = 10000;
+    private static final int BATCH_SIZE = 100;
+    private static final long INITIAL_RECONNECTION_DELAY = 1000; // in milliseconds
+    private static final long MAX_RECONNECTION_DELAY = 60 * 1000; // in milliseconds
+    private static final long METRICS_INTERVAL = 5 * 60 * 1000; // in milliseconds
+
+    private static final Map<String, ActiveMQProducer> producers = new HashMap<>();
+
+    private final String url;
+    private final String queueName;
+    private final ConnectionFactory connectionFactory;
+    private final long initialReconnectionDelay;
+    private final BlockingDeque<PendingMessage> backlog = new LinkedBlockingDeque<>(MAX_BACKLOG);
+    private final Thread senderThread;
+
+    private Connection connection;
+    private Session session;
+    private MessageProducer producer;
+    private volatile boolean shouldStop;
+    private int unsentMessages; // guarded by the backlog
+
+    private final AtomicLong sentMessages = new AtomicLong();
+    private final AtomicLong rejectedMessages = new AtomicLong();
+    private final AtomicLong failedSends = new AtomicLong();
+    private final AtomicLong totalLatency = new AtomicLong();
+    private final AtomicLong maxLatency = new AtomicLong();
+    private long lastMetricsDate = System.currentTimeMillis();
+
+    private static class PendingMessage {
+        private final String text;
+        private final long submissionDate;
+
+        PendingMessage(String text) {
+            this.text = text;
+            this.submissionDate = System.nanoTime();
+        }
+    }
+
+    /**
+     * @return the producer of the given queue on the given broker, created at the first call
+     */
+    public static synchronized ActiveMQProducer getInstance(String url, String queueName) {
+        return producers.computeIfAbsent(url + "#" + queueName, key -> new ActiveMQProducer(url, queueName, new ActiveMQConnectionFactory(url), INITIAL_RECONNECTION_DELAY));
+    }
+
+    ActiveMQProducer(String url, String queueName, ConnectionFactory connectionFactory, long initialReconnectionDelay) {
+        this.url = url;
+        this.queueName = queueName;
+        this.connectionFactory = connectionFactory;
+        this.initialReconnectionDelay = initialReconnectionDelay;
+
+        this.senderThread = new Thread(this::sendLoop, "activemq-producer-" + queueName);
+        this.senderThread.setDaemon(true);
+        this.senderThread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> this.close(10, TimeUnit.SECONDS)));
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+                    new ObjectName("fr.inria.spirals.repairnator:type=ActiveMQProducer,queue=" + ObjectName.quote(queueName)));
+        } catch (Exception e) {
+            LOGGER.warn("The metrics of the producer of " + queueName + " cannot be published with JMX", e);
+        }
+    }
+
+    /**
+     * Put the given message in the backlog: it will be sent as soon as possible.
+     *
+     * @return false if the backlog is full and the message has been dropped
+     */
+    public boolean send(String text) {
+        synchronized (this.backlog) {
+            if (!this.shouldStop && this.backlog.offer(new PendingMessage(text))) {
+                this.unsentMessages++;
+                return true;
+            }
+        }
+        this.rejectedMessages.incrementAndGet();
+        LOGGER.warn("Message " + text + " dropped: the backlog of the queue " + this.queueName + " is full or closed");
+        return false;
+    }
+
+    /**
+     * Wait until all the messages of the backlog have been sent, or until the timeout.
+     *
+     * @return true if all the messages have been sent
+     */
+    public boolean flush(long timeout, TimeUnit unit) {
+        long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+        synchronized (this.backlog) {
+            while (this.unsentMessages > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    this.backlog.wait(Math.min(remaining, 100));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Send the remaining messages, within the given timeout, and close the connection.
+     */
+    public void close(long timeout, TimeUnit unit) {
+        if (!this.flush(timeout, unit)) {
+            LOGGER.warn(this.getBacklogSize() + " messages have not been sent to the queue " + this.queueName);
+        }
+        this.shouldStop = true;
+        this.senderThread.interrupt();
+    }
+
+    private void sendLoop() {
+        long failures = 0;
+        // a batch which cannot be sent is kept here, out of the backlog, until it is sent
+        List<PendingMessage> batch = new ArrayList<>();
+        while (!this.shouldStop) {
+            try {
+                if (batch.isEmpty()) {
+                    PendingMessage first = this.backlog.poll(1, TimeUnit.SECONDS);
+                    if (first != null) {
+                        batch.add(first);
+                        this.backlog.drainTo(batch, BATCH_SIZE - 1);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    this.sendBatch(batch);
+                    failures = 0;
+
+                    synchronized (this.backlog) {
+                        this.unsentMessages -= batch.size();
+                        this.backlog.notifyAll();
+                    }
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (JMSException | RuntimeException e) {
+                failures++;
+                this.failedSends.incrementAndGet();
+                LOGGER.error("Error while sending " + batch.size() + " messages to the queue " + this.queueName + ", they will be sent again", e);
+                this.closeConnection();
+
+                try {
+                    Thread.sleep(Math.min(MAX_RECONNECTION_DELAY, this.initialReconnectionDelay << Math.min(failures - 1, 16)));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            this.logMetricsIfNeeded();
+        }
+        this.closeConnection();
+    }
+
+    private void sendBatch(List<PendingMessage> batch) throws JMSException {
+        if (this.connection == null) {
+            this.connection = this.connectionFactory.createConnection();
+            this.connection.start();
+            // the messages of a batch are committed together
+            this.session = this.connection.createSession(true, Session.SESSION_TRANSACTED);
+            this.producer = this.session.createProducer(this.session.createQueue(this.queueName));
+            LOGGER.info("Connected to " + this.url + " for the queue " + this.queueName);
+        }
+
+        for (PendingMessage message : batch) {
+            this.producer.send(this.session.createTextMessage(message.text));
+        }
+        this.session.commit();
+
+        long now = System.nanoTime();
+        for (PendingMessage message : batch) {
+            long latency = TimeUnit.NANOSECONDS.toMillis(now - message.submissionDate);
+            this.totalLatency.addAndGet(latency);
+            this.maxLatency.accumulateAndGet(latency, Math::max);
+        }
+        this.sentMessages.addAndGet(batch.size());
+        LOGGER.debug(batch.size() + " messages sent to the queue " + this.queueName);
+    }
+
+    private void closeConnection() {
+        if (this.connection != null) {
+            try {
+                this.connection.close();
+            } catch (JMSException | RuntimeException e) {
+                LOGGER.debug("Error while closing the connection to " + this.url, e);
+            }
+        }
+        this.connection = null;
+        this.session = null;
+        this.producer = null;
+    }
+
+    private void logMetricsIfNeeded() {
+        if (System.currentTimeMillis() - this.lastMetricsDate >= METRICS_INTERVAL) {
+            this.lastMetricsDate = System.currentTimeMillis();
+            LOGGER.info("Queue " + this.queueName + ": " + this.getSentMessages() + " messages sent, "
+                    + this.getBacklogSize() + " waiting, " + this.getRejectedMessages() + " dropped, "
+                    + this.getFailedSends() + " failed sends, average latency " + this.getAverageSendLatency() + " ms, "
+                    + "max latency " + this.getMaxSendLatency() + " ms");
+        }
+    }
+
+    @Override
+    public long getSentMessages() {
+        return this.sentMessages.get();
+    }
+
+    @Override
+    public long getRejectedMessages() {
+        return this.rejectedMessages.get();
+    }
+
+    @Override
+    public long getFailedSends() {
+        return this.failedSends.get();
+    }
+
+    @Override
+    public int getBacklogSize() {
+        // the batch being sent is counted with the backlog
+        synchronized (this.backlog) {
+            return this.unsentMessages;
+        }
+    }
+
+    @Override
+    public long getAverageSendLatency() {
+        long sent = this.sentMessages.get();
+        return (sent == 0) ? 0 : this.totalLatency.get() / sent;
+    }
+
+    @Override
+    public long getMaxSendLatency() {
+        return this.maxLatency.get();
+    }
+}
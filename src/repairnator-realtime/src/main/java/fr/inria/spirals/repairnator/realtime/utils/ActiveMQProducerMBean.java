@@ -0,0 +1,20 @@
+package fr.inria.spirals.repairnator.realtime.utils;
+
+/**
+ * The metrics of an {@link ActiveMQProducer}, published with JMX.
+ */
+public interface ActiveMQProducerMBean {
+    long getSentMessages();
+
+    long getRejectedMessages();
+
+    long getFailedSends();
+
+    int getBacklogSize();
+
+    /** in milliseconds, between the submission of a message and its commit */
+    long getAverageSendLatency();
+
+    /** in milliseconds */
+    long getMaxSendLatency();
+}
@@ -0,0 +1,63 @@
+package fr.inria.spirals.repairnator.realtime.utils;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * A thread-safe priority queue with a maximum size: when it is full, the element with the lowest
+ * priority is dropped.
+ */
+public class BoundedPriorityQueue<E> {
+    private final int capacity;
+    private final Comparator<? super E> comparator;
+    private final PriorityQueue<E> queue;
+
+    /**
+     * @param comparator orders the elements by priority: the first element is the next one polled
+     */
+    public BoundedPriorityQueue(int capacity, Comparator<? super E> comparator) {
+        this.capacity = Math.max(1, capacity);
+        this.comparator = comparator;
+        this.queue = new PriorityQueue<>(comparator);
+    }
+
+    /**
+     * Add the element, dropping the element with the lowest priority if the queue is full.
+     *
+     * @return the dropped element (which can be the given one), or null if no element has been dropped
+     */
+    public synchronized E offer(E element) {
+        if (this.queue.size() < this.capacity) {
+            this.queue.add(element);
+            return null;
+        }
+
+        E lowest = null;
+        for (E queued : this.queue) {
+            if (lowest == null || this.comparator.compare(queued, lowest) > 0) {
+                lowest = queued;
+            }
+        }
+        if (this.comparator.compare(element, lowest) < 0) {
+            this.queue.remove(lowest);
+            this.queue.add(element);
+            return lowest;
+        }
+        return element;
+    }
+
+    /**
+     * @return the element with the highest priority, or null if the queue is empty
+     */
+    public synchronized E poll() {
+        return this.queue.poll();
+    }
+
+    public synchronized int size() {
+        return this.queue.size();
+    }
+
+    public synchronized void clear() {
+        this.queue.clear();
+    }
+}
@@ -0,0 +1,98 @@
+package fr.inria.spirals.repairnator.realtime.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * A snapshot of the free resources of the host: CPU, memory and disk.
+ */
+public class HostResources {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HostResources.class);
+    private static final Path MEMINFO = Paths.get("/proc/meminfo");
+
+    private final double cpuLoad;
+    private final long availableMemory;
+    private final long usableDiskSpace;
+
+    public HostResources(double cpuLoad, long availableMemory, long usableDiskSpace) {
+        this.cpuLoad = cpuLoad;
+        this.availableMemory = availableMemory;
+        this.usableDiskSpace = usableDiskSpace;
+    }
+
+    /**
+     * @param disk a directory of the disk used by the containers
+     */
+    public static HostResources read(File disk) {
+        double cpuLoad = -1;
+        long availableMemory = -1;
+        OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+        if (osBean instanceof com.sun.management.OperatingSystemMXBean) {
+            com.sun.management.OperatingSystemMXBean sunOsBean = (com.sun.management.OperatingSystemMXBean) osBean;
+            cpuLoad = sunOsBean.getSystemCpuLoad();
+            availableMemory = sunOsBean.getFreePhysicalMemorySize();
+        }
+
+        // the free memory does not count the caches which can be reclaimed
+        long memAvailable = readMemAvailable();
+        if (memAvailable >= 0) {
+            availableMemory = memAvailable;
+        }
+
+        return new HostResources(cpuLoad, availableMemory, disk.getUsableSpace());
+    }
+
+    private static long readMemAvailable() {
+        if (!Files.isReadable(MEMINFO)) {
+            return -1;
+        }
+        try {
+            List<String> lines = Files.readAllLines(MEMINFO);
+            for (String line : lines) {
+                if (line.startsWith("MemAvailable:")) {
+                    String[] parts = line.split("\\s+");
+                    return Long.parseLong(parts[1]) * 1024;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Error while reading " + MEMINFO, e);
+        }
+        return -1;
+    }
+
+    /**
+     * @return the recent CPU load of the host, between 0 and 1, or a negative value if it is not available
+     */
+    public double getCpuLoad() {
+        return cpuLoad;
+    }
+
+    /**
+     * @return the available memory in bytes, or a negative value if it is not available
+     */
+    public long getAvailableMemory() {
+        return availableMemory;
+    }
+
+    public long getUsableDiskSpace() {
+        return usableDiskSpace;
+    }
+
+    @Override
+    public String toString() {
+        return "HostResources{" +
+                "cpuLoad=" + cpuLoad +
+                ", availableMemory=" + (availableMemory / (1024 * 1024)) + "MB" +
+                ", usableDiskSpace=" + (usableDiskSpace / (1024 * 1024)) + "MB" +
+                '}';
+    }
+}
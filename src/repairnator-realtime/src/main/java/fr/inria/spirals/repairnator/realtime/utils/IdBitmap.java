@@ -0,0 +1,122 @@
+package fr.inria.spirals.repairnator.realtime.utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A compact set of positive IDs (e.g. Travis build IDs), in the spirit of roaring bitmaps: the IDs are split in
+ * containers of 65536 consecutive IDs, and each container is a bitmap of 8 KB. A container is only allocated
+ * when one of its IDs is added, so a set of close IDs only takes a few bits per ID, instead of a boxed object.
+ * The IDs under a given bound can be dropped at once, to keep the set bounded when IDs keep growing.
+ *
+ * This class is thread-safe.
+ */
+public class IdBitmap {
+    private static final int CONTAINER_BITS = 16;
+    private static final int WORDS_PER_CONTAINER = (1 << CONTAINER_BITS) / 64;
+
+    private final TreeMap<Long, long[]> containers = new TreeMap<>();
+    private int size;
+
+    private static long containerKey(long id) {
+        return id >>> CONTAINER_BITS;
+    }
+
+    private static int bitIndex(long id) {
+        return (int) (id & ((1 << CONTAINER_BITS) - 1));
+    }
+
+    /**
+     * @return true if the ID was not in the set
+     */
+    public synchronized boolean add(long id) {
+        long[] words = this.containers.computeIfAbsent(containerKey(id), key -> new long[WORDS_PER_CONTAINER]);
+        int index = bitIndex(id);
+        long mask = 1L << (index & 63);
+        if ((words[index >>> 6] & mask) != 0) {
+            return false;
+        }
+        words[index >>> 6] |= mask;
+        this.size++;
+        return true;
+    }
+
+    public synchronized boolean contains(long id) {
+        long[] words = this.containers.get(containerKey(id));
+        if (words == null) {
+            return false;
+        }
+        int index = bitIndex(id);
+        return (words[index >>> 6] & (1L << (index & 63))) != 0;
+    }
+
+    public synchronized int size() {
+        return this.size;
+    }
+
+    /**
+     * Remove all the IDs strictly lower than the given bound.
+     */
+    public synchronized void removeBelow(long bound) {
+        long boundKey = containerKey(bound);
+        Map<Long, long[]> droppedContainers = this.containers.headMap(boundKey, false);
+        for (long[] words : droppedContainers.values()) {
+            this.size -= countBits(words, WORDS_PER_CONTAINER * 64);
+        }
+        droppedContainers.clear();
+
+        long[] words = this.containers.get(boundKey);
+        if (words != null) {
+            int boundIndex = bitIndex(bound);
+            this.size -= countBits(words, boundIndex);
+            for (int i = 0; i < (boundIndex >>> 6); i++) {
+                words[i] = 0;
+            }
+            if ((boundIndex & 63) != 0) {
+                words[boundIndex >>> 6] &= -1L << (boundIndex & 63);
+            }
+        }
+    }
+
+    /**
+     * @return the number of bits set among the first given bits of the container
+     */
+    private static int countBits(long[] words, int nbBits) {
+        int count = 0;
+        for (int i = 0; i < (nbBits >>> 6); i++) {
+            count += Long.bitCount(words[i]);
+        }
+        if ((nbBits & 63) != 0) {
+            count += Long.bitCount(words[nbBits >>> 6] & ~(-1L << (nbBits & 63)));
+        }
+        return count;
+    }
+
+    public synchronized void writeTo(DataOutput output) throws IOException {
+        output.writeInt(this.containers.size());
+        for (Map.Entry<Long, long[]> container : this.containers.entrySet()) {
+            output.writeLong(container.getKey());
+            for (long word : container.getValue()) {
+                output.writeLong(word);
+            }
+        }
+    }
+
+    public synchronized void readFrom(DataInput input) throws IOException {
+        this.containers.clear();
+        this.size = 0;
+        int nbContainers = input.readInt();
+        for (int i = 0; i < nbContainers; i++) {
+            long key = input.readLong();
+            long[] words = new long[WORDS_PER_CONTAINER];
+            for (int j = 0; j < WORDS_PER_CONTAINER; j++) {
+                words[j] = input.readLong();
+            }
+            this.containers.put(key, words);
+            this.size += countBits(words, WORDS_PER_CONTAINER * 64);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package fr.inria.spirals.repairnator.realtime.utils;
+
+import fr.inria.spirals.repairnator.config.RepairnatorConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * This class answers simple questions on the log of a Travis job (which build tool is used? are there failing tests?
+ * is checkstyle used?) without downloading the whole log.
+ *
+ * The raw log is read line by line and the reading stops as soon as the asked marker is found. What has been read
+ * is cached by job ID: the markers already found are answered without any request, and a new question on the same
+ * log resumes the reading where it stopped, with a HTTP range request.
+ *
+ * This class is thread-safe.
+ */
+public class JobLogClassifier {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobLogClassifier.class);
+
+    private static final int CACHE_SIZE = 10000;
+
+    private static final Pattern MAVEN_TESTS_PATTERN = Pattern.compile("Tests run: (\\d+), Failures: (\\d+), Errors: (\\d+)");
+    // Gradle only prints the failing tests and, if some tests fail, a summary of the test task
+    private static final Pattern GRADLE_TESTS_PATTERN = Pattern.compile("(\\d+) tests? completed, (\\d+) failed");
+    private static final Pattern GRADLE_FAILING_TEST_PATTERN = Pattern.compile("^\\S+ > .+ FAILED$");
+    private static final Pattern GRADLE_TEST_TASK_PATTERN = Pattern.compile("^(> Task )?(:[\\w.-]+)*:test$");
+    private static final String CHECKSTYLE_PATTERN = "maven-checkstyle";
+    private static final Pattern ANSI_ESCAPE_PATTERN = Pattern.compile("\u001B\\[[;\\d]*[A-Za-z]");
+    // the build tools are recognized from the lines they print themselves, not from the commands of the build
+    private static final String[] MAVEN_PATTERNS = { "Apache Maven ", "[INFO] Scanning for projects" };
+    private static final String[] GRADLE_PATTERNS = { "Welcome to Gradle ", "Starting a Gradle Daemon", "> Task :", "Downloading https://services.gradle.org/distributions/" };
+
+    public enum Marker {
+        MAVEN,
+        GRADLE,
+        RUNNING_TESTS,
+        FAILING_TESTS,
+        CHECKSTYLE
+    }
+
+    private final Map<Long, LogState> cache;
+
+    public JobLogClassifier() {
+        this.cache = new LinkedHashMap<Long, LogState>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, LogState> eldest) {
+                return this.size() > CACHE_SIZE;
+            }
+        };
+    }
+
+    /**
+     * What is known about the log of a job: the markers found in the bytes read so far.
+     */
+    private static class LogState {
+        private final Set<Marker> markers = EnumSet.noneOf(Marker.class);
+        private long offset;
+        private boolean complete;
+    }
+
+    private LogState getState(long jobId) {
+        synchronized (this.cache) {
+            return this.cache.computeIfAbsent(jobId, id -> new LogState());
+        }
+    }
+
+    /**
+     * The build tool markers exclude each other: the first build tool found in the log is the build tool of the job.
+     *
+     * @return if the given marker is in the log of the given job, or an empty optional if the log cannot be read.
+     */
+    public Optional<Boolean> hasMarker(long jobId, Marker marker) {
+        LogState state = this.getState(jobId);
+        synchronized (state) {
+            if (state.markers.contains(marker)) {
+                return Optional.of(true);
+            }
+            if (state.complete || isExcluded(state.markers, marker)) {
+                return Optional.of(false);
+            }
+
+            try (InputStream inputStream = this.openLog(jobId, state.offset)) {
+                this.readUntil(new BufferedInputStream(inputStream), state, marker);
+            } catch (IOException e) {
+                LOGGER.error("Error while reading the log of job " + jobId, e);
+                return Optional.empty();
+            }
+            return Optional.of(state.markers.contains(marker));
+        }
+    }
+
+    /**
+     * Open the raw log of the given job, starting at the given byte. JTravis only gives the whole log: the request
+     * is sent with the shared Travis client, so the callers should run it in {@link fr.inria.spirals.repairnator.api.TravisApiClient#execute}.
+     */
+    protected InputStream openLog(long jobId, long offset) throws IOException {
+        HttpURLConnection connection = RepairnatorConfig.getInstance().getTravisApiClient().openConnection("/v3/job/" + jobId + "/log.txt");
+        if (offset > 0) {
+            connection.setRequestProperty("Range", "bytes=" + offset + "-");
+        }
+
+        int responseCode = connection.getResponseCode();
+        if (responseCode == 416) {
+            // nothing after the offset
+            connection.disconnect();
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        if (responseCode != HttpURLConnection.HTTP_OK && responseCode != HttpURLConnection.HTTP_PARTIAL) {
+            connection.disconnect();
+            throw new IOException("Unexpected response code " + responseCode + " for the log of job " + jobId);
+        }
+
+        InputStream inputStream = connection.getInputStream();
+        if (offset > 0 && responseCode == HttpURLConnection.HTTP_OK) {
+            // the range has been ignored: the bytes already read are skipped
+            long toSkip = offset;
+            while (toSkip > 0) {
+                long skipped = inputStream.skip(toSkip);
+                if (skipped <= 0) {
+                    break;
+                }
+                toSkip -= skipped;
+            }
+        }
+        return inputStream;
+    }
+
+    private void readUntil(InputStream inputStream, LogState state, Marker marker) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        int b;
+        while ((b = inputStream.read()) != -1) {
+            if (b == '\n') {
+                state.offset += line.size() + 1;
+                this.findMarkers(line.toString(StandardCharsets.ISO_8859_1.name()), state.markers);
+                line.reset();
+                if (state.markers.contains(marker) || isExcluded(state.markers, marker)) {
+                    return;
+                }
+            } else {
+                line.write(b);
+            }
+        }
+        // the last line has no line break
+        state.offset += line.size();
+        this.findMarkers(line.toString(StandardCharsets.ISO_8859_1.name()), state.markers);
+        state.complete = true;
+    }
+
+    private static boolean isBuildTool(Marker marker) {
+        return marker == Marker.MAVEN || marker == Marker.GRADLE;
+    }
+
+    /**
+     * @return true if the given marker is a build tool and another build tool has already been found.
+     */
+    private static boolean isExcluded(Set<Marker> markers, Marker marker) {
+        return isBuildTool(marker) && !markers.contains(marker)
+                && (markers.contains(Marker.MAVEN) || markers.contains(Marker.GRADLE));
+    }
+
+    private static boolean startsWithOneOf(String line, String[] patterns) {
+        for (String pattern : patterns) {
+            if (line.startsWith(pattern)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void findMarkers(String rawLine, Set<Marker> markers) {
+        String line = rawLine;
+        if (line.indexOf('\u001B') >= 0) {
+            line = ANSI_ESCAPE_PATTERN.matcher(line).replaceAll("");
+        }
+        line = line.trim();
+        if (line.isEmpty()) {
+            return;
+        }
+        if (!markers.contains(Marker.MAVEN) && !markers.contains(Marker.GRADLE)) {
+            if (startsWithOneOf(line, GRADLE_PATTERNS)) {
+                markers.add(Marker.GRADLE);
+            } else if (startsWithOneOf(line, MAVEN_PATTERNS)) {
+                markers.add(Marker.MAVEN);
+            }
+        }
+        if (!markers.contains(Marker.CHECKSTYLE) && line.contains(CHECKSTYLE_PATTERN)) {
+            markers.add(Marker.CHECKSTYLE);
+        }
+        if (markers.contains(Marker.GRADLE)) {
+            this.findGradleTestMarkers(line, markers);
+        } else if (!markers.contains(Marker.FAILING_TESTS) && line.contains("Tests run: ")) {
+            Matcher matcher = MAVEN_TESTS_PATTERN.matcher(line);
+            if (matcher.find()) {
+                if (Integer.parseInt(matcher.group(1)) > 0) {
+                    markers.add(Marker.RUNNING_TESTS);
+                }
+                if (Integer.parseInt(matcher.group(2)) > 0 || Integer.parseInt(matcher.group(3)) > 0) {
+                    markers.add(Marker.FAILING_TESTS);
+                }
+            }
+        }
+    }
+
+    private void findGradleTestMarkers(String line, Set<Marker> markers) {
+        if (GRADLE_TEST_TASK_PATTERN.matcher(line).matches()) {
+            markers.add(Marker.RUNNING_TESTS);
+        } else if (GRADLE_FAILING_TEST_PATTERN.matcher(line).matches()) {
+            markers.add(Marker.RUNNING_TESTS);
+            markers.add(Marker.FAILING_TESTS);
+        } else if (line.contains(" completed, ")) {
+            Matcher matcher = GRADLE_TESTS_PATTERN.matcher(line);
+            if (matcher.find()) {
+                if (Integer.parseInt(matcher.group(1)) > 0) {
+                    markers.add(Marker.RUNNING_TESTS);
+                }
+                if (Integer.parseInt(matcher.group(2)) > 0) {
+                    markers.add(Marker.FAILING_TESTS);
+                }
+            }
+        }
+    }
+}
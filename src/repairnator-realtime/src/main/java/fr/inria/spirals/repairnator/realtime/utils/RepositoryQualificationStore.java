@@ -0,0 +1,363 @@
+package fr.inria.spirals.repairnator.realtime.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * This class keeps the verdicts of the realtime scanner on the repositories (whitelisted, blacklisted
+ * or temporary blacklisted), indexed by repository ID.
+ *
+ * The verdicts are kept in primitive arrays split in segments, each one with its own lock: the lookups don't box
+ * the IDs and the threads of the scanner don't wait on each other.
+ * A temporary verdict has an expiration date: it's forgotten once expired.
+ *
+ * If a snapshot file is given, each new verdict is appended to it as a fixed-size record, and the file is read back
+ * when the store is created: the verdicts survive a restart of the scanner. The file is compacted at loading
+ * when most of its records are outdated.
+ */
+public class RepositoryQualificationStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RepositoryQualificationStore.class);
+
+    // a record is: repository ID (long), verdict (byte), expiration date in ms (long, 0 if it never expires)
+    private static final int RECORD_SIZE = 8 + 1 + 8;
+    private static final int NB_SEGMENTS = 16;
+    private static final int INITIAL_SEGMENT_CAPACITY = 64;
+
+    /**
+     * The verdicts, from the weakest to the strongest: a verdict never replaces a stronger one,
+     * unless it is expired.
+     */
+    public enum Verdict {
+        TEMP_BLACKLISTED,
+        WHITELISTED,
+        BLACKLISTED;
+
+        private byte code() {
+            return (byte) (this.ordinal() + 1);
+        }
+
+        private static Verdict fromCode(byte code) {
+            return (code > 0 && code <= values().length) ? values()[code - 1] : null;
+        }
+    }
+
+    private final Segment[] segments;
+    private final File snapshotFile;
+    private DataOutputStream snapshotOutput;
+
+    /**
+     * Create a store which is only kept in memory.
+     */
+    public RepositoryQualificationStore() {
+        this.segments = new Segment[NB_SEGMENTS];
+        for (int i = 0; i < NB_SEGMENTS; i++) {
+            this.segments[i] = new Segment();
+        }
+        this.snapshotFile = null;
+    }
+
+    /**
+     * Create a store backed by the given snapshot file: the verdicts it contains are loaded,
+     * and the new verdicts are appended to it.
+     */
+    public RepositoryQualificationStore(File snapshotFile) throws IOException {
+        this.segments = new Segment[NB_SEGMENTS];
+        for (int i = 0; i < NB_SEGMENTS; i++) {
+            this.segments[i] = new Segment();
+        }
+        this.snapshotFile = snapshotFile;
+
+        long nbRecords = this.load();
+        if (nbRecords < 0 || nbRecords > 2 * this.size() + INITIAL_SEGMENT_CAPACITY) {
+            // the file ends with a truncated record, or most of its records are outdated
+            this.compact();
+        }
+        this.snapshotOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(this.snapshotFile, true)));
+    }
+
+    private static int hash(long repositoryId) {
+        long h = repositoryId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private Segment segmentFor(long repositoryId) {
+        return this.segments[(hash(repositoryId) >>> 16) & (NB_SEGMENTS - 1)];
+    }
+
+    /**
+     * @return the verdict of the given repository, or null if it has no verdict or if its verdict expired.
+     */
+    public Verdict get(long repositoryId) {
+        return this.segmentFor(repositoryId).get(repositoryId, System.currentTimeMillis());
+    }
+
+    /**
+     * Give a verdict which never expires to the given repository.
+     * @return true if it has been kept, false if the repository already has a stronger verdict.
+     */
+    public boolean put(long repositoryId, Verdict verdict) {
+        return this.put(repositoryId, verdict, 0);
+    }
+
+    /**
+     * Give a verdict to the given repository, which expires at the given date (in ms since epoch, 0 if it never expires).
+     * @return true if it has been kept, false if the repository already has a stronger verdict.
+     */
+    public boolean put(long repositoryId, Verdict verdict, long expirationDate) {
+        boolean kept = this.segmentFor(repositoryId).put(repositoryId, verdict.code(), expirationDate, System.currentTimeMillis());
+        if (kept) {
+            this.appendRecord(repositoryId, verdict.code(), expirationDate);
+        }
+        return kept;
+    }
+
+    /**
+     * @return the number of repositories with the given verdict, expired verdicts might be counted.
+     */
+    public int count(Verdict verdict) {
+        int count = 0;
+        for (Segment segment : this.segments) {
+            count += segment.count(verdict.code());
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of repositories with a verdict, expired verdicts might be counted.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : this.segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Write to the snapshot file the verdicts which are still buffered.
+     */
+    public synchronized void flush() {
+        if (this.snapshotOutput != null) {
+            try {
+                this.snapshotOutput.flush();
+            } catch (IOException e) {
+                LOGGER.error("Error while flushing the qualification store " + this.snapshotFile.getPath() + ".", e);
+            }
+        }
+    }
+
+    public synchronized void close() {
+        if (this.snapshotOutput != null) {
+            try {
+                this.snapshotOutput.close();
+            } catch (IOException e) {
+                LOGGER.error("Error while closing the qualification store " + this.snapshotFile.getPath() + ".", e);
+            }
+            this.snapshotOutput = null;
+        }
+    }
+
+    private synchronized void appendRecord(long repositoryId, byte verdictCode, long expirationDate) {
+        if (this.snapshotOutput == null) {
+            return;
+        }
+        try {
+            this.snapshotOutput.writeLong(repositoryId);
+            this.snapshotOutput.writeByte(verdictCode);
+            this.snapshotOutput.writeLong(expirationDate);
+        } catch (IOException e) {
+            LOGGER.error("Error while writing to the qualification store " + this.snapshotFile.getPath() + ", the next verdicts will only be kept in memory.", e);
+            this.close();
+        }
+    }
+
+    /**
+     * Read all the records of the snapshot file, the last record of a repository being its current verdict.
+     * @return the number of records read, or -1 if the file ends with a truncated record.
+     */
+    private long load() throws IOException {
+        if (!this.snapshotFile.exists()) {
+            return 0;
+        }
+        long start = System.currentTimeMillis();
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(this.snapshotFile.toPath()));
+        long nbRecords = 0;
+        while (buffer.remaining() >= RECORD_SIZE) {
+            long repositoryId = buffer.getLong();
+            byte verdictCode = buffer.get();
+            long expirationDate = buffer.getLong();
+            if (Verdict.fromCode(verdictCode) != null) {
+                this.segmentFor(repositoryId).load(repositoryId, verdictCode, expirationDate, start);
+            }
+            nbRecords++;
+        }
+        LOGGER.info("Qualification store loaded from " + this.snapshotFile.getPath() + " with " + this.size() + " verdicts (" + nbRecords + " records) in " + (System.currentTimeMillis() - start) + " ms");
+        return buffer.hasRemaining() ? -1 : nbRecords;
+    }
+
+    /**
+     * Rewrite the snapshot file with only the current verdicts. The new file replaces the old one atomically.
+     */
+    private void compact() throws IOException {
+        File compactedFile = new File(this.snapshotFile.getPath() + ".tmp");
+        long now = System.currentTimeMillis();
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(compactedFile)))) {
+            for (Segment segment : this.segments) {
+                segment.writeTo(output, now);
+            }
+        }
+        Files.move(compactedFile.toPath(), this.snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        LOGGER.info("Qualification store " + this.snapshotFile.getPath() + " compacted to " + this.size() + " verdicts");
+    }
+
+    /**
+     * An open addressing hash table with linear probing. A verdict code of 0 marks an empty slot.
+     */
+    private static class Segment {
+        private long[] repositoryIds;
+        private byte[] verdictCodes;
+        private long[] expirationDates;
+        private int size;
+        private final int[] counts = new int[Verdict.values().length + 1];
+
+        Segment() {
+            this.allocate(INITIAL_SEGMENT_CAPACITY);
+        }
+
+        private void allocate(int capacity) {
+            this.repositoryIds = new long[capacity];
+            this.verdictCodes = new byte[capacity];
+            this.expirationDates = new long[capacity];
+        }
+
+        private int indexOf(long repositoryId) {
+            int mask = this.repositoryIds.length - 1;
+            int index = hash(repositoryId) & mask;
+            while (this.verdictCodes[index] != 0 && this.repositoryIds[index] != repositoryId) {
+                index = (index + 1) & mask;
+            }
+            return index;
+        }
+
+        private static boolean isExpired(long expirationDate, long now) {
+            return expirationDate != 0 && expirationDate <= now;
+        }
+
+        synchronized Verdict get(long repositoryId, long now) {
+            int index = this.indexOf(repositoryId);
+            if (this.verdictCodes[index] == 0) {
+                return null;
+            }
+            if (isExpired(this.expirationDates[index], now)) {
+                this.removeAt(index);
+                return null;
+            }
+            return Verdict.fromCode(this.verdictCodes[index]);
+        }
+
+        synchronized boolean put(long repositoryId, byte verdictCode, long expirationDate, long now) {
+            int index = this.indexOf(repositoryId);
+            byte currentCode = this.verdictCodes[index];
+            if (currentCode > verdictCode && !isExpired(this.expirationDates[index], now)) {
+                return false;
+            }
+            this.set(index, repositoryId, verdictCode, expirationDate);
+            return true;
+        }
+
+        synchronized void load(long repositoryId, byte verdictCode, long expirationDate, long now) {
+            int index = this.indexOf(repositoryId);
+            if (isExpired(expirationDate, now)) {
+                if (this.verdictCodes[index] != 0) {
+                    this.removeAt(index);
+                }
+            } else {
+                this.set(index, repositoryId, verdictCode, expirationDate);
+            }
+        }
+
+        private void set(int index, long repositoryId, byte verdictCode, long expirationDate) {
+            if (this.verdictCodes[index] == 0) {
+                this.size++;
+            }
+            this.counts[this.verdictCodes[index]]--;
+            this.counts[verdictCode]++;
+            this.repositoryIds[index] = repositoryId;
+            this.verdictCodes[index] = verdictCode;
+            this.expirationDates[index] = expirationDate;
+
+            // keep the load factor under 0.5 so the probing sequences stay short
+            if (this.size * 2 > this.repositoryIds.length) {
+                this.resize(this.repositoryIds.length * 2);
+            }
+        }
+
+        private void resize(int capacity) {
+            long[] oldRepositoryIds = this.repositoryIds;
+            byte[] oldVerdictCodes = this.verdictCodes;
+            long[] oldExpirationDates = this.expirationDates;
+
+            this.allocate(capacity);
+            for (int i = 0; i < oldRepositoryIds.length; i++) {
+                if (oldVerdictCodes[i] != 0) {
+                    int index = this.indexOf(oldRepositoryIds[i]);
+                    this.repositoryIds[index] = oldRepositoryIds[i];
+                    this.verdictCodes[index] = oldVerdictCodes[i];
+                    this.expirationDates[index] = oldExpirationDates[i];
+                }
+            }
+        }
+
+        /**
+         * Remove the entry at the given index, and move back the next entries of its probing sequence
+         * so that they can still be found.
+         */
+        private void removeAt(int index) {
+            int mask = this.repositoryIds.length - 1;
+            this.counts[this.verdictCodes[index]]--;
+            this.verdictCodes[index] = 0;
+            this.size--;
+
+            int next = (index + 1) & mask;
+            while (this.verdictCodes[next] != 0) {
+                int ideal = hash(this.repositoryIds[next]) & mask;
+                // the entry can move to the free slot if the slot is between its ideal place and its current place
+                if (((next - ideal) & mask) >= ((next - index) & mask)) {
+                    this.repositoryIds[index] = this.repositoryIds[next];
+                    this.verdictCodes[index] = this.verdictCodes[next];
+                    this.expirationDates[index] = this.expirationDates[next];
+                    this.verdictCodes[next] = 0;
+                    index = next;
+                }
+                next = (next + 1) & mask;
+            }
+        }
+
+        synchronized int count(byte verdictCode) {
+            return this.counts[verdictCode];
+        }
+
+        synchronized int size() {
+            return this.size;
+        }
+
+        synchronized void writeTo(DataOutputStream output, long now) throws IOException {
+            for (int i = 0; i < this.repositoryIds.length; i++) {
+                if (this.verdictCodes[i] != 0 && !isExpired(this.expirationDates[i], now)) {
+                    output.writeLong(this.repositoryIds[i]);
+                    output.writeByte(this.verdictCodes[i]);
+                    output.writeLong(this.expirationDates[i]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package fr.inria.spirals.repairnator.scanner;
+
+import org.kohsuke.github.GHCompare;
+import org.kohsuke.github.GHRateLimit;
+import org.kohsuke.github.GHRepository;
+import org.kohsuke.github.GitHub;
+import org.kohsuke.github.GitHubBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class gets the compares between two commits from GitHub, for the threads of a {@link ProjectScanner}.
+ *
+ * A single GitHub client is shared, and the compares are memoized per commit pair: the scanner asks the same compare
+ * several times for a pair of builds. The rate limit is read at most once per minute and estimated in between.
+ * When it gets low, the requests to GitHub are made one at a time, and when it is exhausted no request is made
+ * until it is reset. The rate limit is read from GitHub outside of the lock, so the other threads are not blocked
+ * meanwhile.
+ */
+public class GitHubCompareFetcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GitHubCompareFetcher.class);
+
+    private static final int CACHE_SIZE = 10000;
+    private static final int LOW_RATE_LIMIT = 500;
+    private static final int MIN_RATE_LIMIT = 2;
+    private static final long RATE_LIMIT_REFRESH_INTERVAL = 60 * 1000; // in milliseconds
+
+    private final int maxConcurrentRequests;
+    private GitHub gitHub;
+    private final Map<String, GHRepository> repositories = new ConcurrentHashMap<>();
+    private final Map<String, GHCompare> compares = new LinkedHashMap<String, GHCompare>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, GHCompare> eldest) {
+            return this.size() > CACHE_SIZE;
+        }
+    };
+
+    // guarded by this
+    private int inFlightRequests;
+    private int remainingRequests = Integer.MAX_VALUE;
+    private Date rateLimitReset;
+    private long lastRateLimitRefresh;
+    private boolean rateLimitRefreshing;
+
+    public GitHubCompareFetcher(int maxConcurrentRequests) {
+        this.maxConcurrentRequests = Math.max(1, maxConcurrentRequests);
+    }
+
+    /**
+     * @return the compare between the two given commits, or an empty optional if it cannot be retrieved
+     */
+    public Optional<GHCompare> getCompare(String slug, String previousSha, String sha) {
+        String key = slug + "/" + previousSha + "..." + sha;
+        synchronized (this.compares) {
+            GHCompare compare = this.compares.get(key);
+            if (compare != null) {
+                return Optional.of(compare);
+            }
+        }
+
+        if (!this.acquire()) {
+            return Optional.empty();
+        }
+        try {
+            GHCompare compare = this.fetchCompare(slug, previousSha, sha);
+            synchronized (this.compares) {
+                this.compares.put(key, compare);
+            }
+            return Optional.of(compare);
+        } catch (IOException e) {
+            LOGGER.warn("Error while getting commit from GitHub: " + e);
+            return Optional.empty();
+        } finally {
+            this.release();
+        }
+    }
+
+    protected GHCompare fetchCompare(String slug, String previousSha, String sha) throws IOException {
+        GHRepository ghRepo = this.repositories.get(slug);
+        if (ghRepo == null) {
+            ghRepo = this.getGitHub().getRepository(slug);
+            this.repositories.put(slug, ghRepo);
+        }
+        return ghRepo.getCompare(previousSha, sha);
+    }
+
+    protected GHRateLimit fetchRateLimit() throws IOException {
+        return this.getGitHub().getRateLimit();
+    }
+
+    private synchronized GitHub getGitHub() throws IOException {
+        if (this.gitHub == null) {
+            this.gitHub = GitHubBuilder.fromEnvironment().build();
+        }
+        return this.gitHub;
+    }
+
+    /**
+     * The number of concurrent requests follows the rate limit: a single request at a time when the limit gets low.
+     *
+     * @return false if the rate limit is exhausted
+     */
+    private boolean acquire() {
+        while (true) {
+            if (this.claimRateLimitRefresh()) {
+                this.refreshRateLimit();
+            }
+            synchronized (this) {
+                // the first requests wait for the rate limit to be known
+                boolean rateLimitUnknown = this.rateLimitRefreshing && this.remainingRequests == Integer.MAX_VALUE;
+                if (this.remainingRequests <= MIN_RATE_LIMIT) {
+                    SimpleDateFormat dateFormat = new SimpleDateFormat("HH:mm:ss");
+                    LOGGER.warn("You reached your rate limit for GitHub. You have to wait until " + (this.rateLimitReset == null ? "its reset" : dateFormat.format(this.rateLimitReset)) + " to get data.");
+                    return false;
+                }
+                int maxRequests = (this.remainingRequests < LOW_RATE_LIMIT) ? 1 : this.maxConcurrentRequests;
+                if (!rateLimitUnknown && this.inFlightRequests < maxRequests) {
+                    this.inFlightRequests++;
+                    this.remainingRequests--;
+                    return true;
+                }
+                try {
+                    this.wait(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+    }
+
+    private synchronized void release() {
+        this.inFlightRequests--;
+        this.notifyAll();
+    }
+
+    /**
+     * @return true if the calling thread has to refresh the rate limit: only one thread refreshes it at a time
+     */
+    private synchronized boolean claimRateLimitRefresh() {
+        long now = System.currentTimeMillis();
+        boolean resetPassed = this.rateLimitReset != null && this.rateLimitReset.getTime() <= now;
+        if (this.rateLimitRefreshing || (now - this.lastRateLimitRefresh < RATE_LIMIT_REFRESH_INTERVAL && !resetPassed)) {
+            return false;
+        }
+        this.lastRateLimitRefresh = now;
+        this.rateLimitRefreshing = true;
+        return true;
+    }
+
+    private void refreshRateLimit() {
+        GHRateLimit rateLimit = null;
+        try {
+            rateLimit = this.fetchRateLimit();
+            SimpleDateFormat dateFormat = new SimpleDateFormat("HH:mm:ss");
+            LOGGER.debug("GitHub rate limit: Limit: " + rateLimit.limit + " - Remaining: " + rateLimit.remaining + " - Reset hour: " + (rateLimit.reset == null ? "unknown" : dateFormat.format(rateLimit.reset)));
+        } catch (IOException e) {
+            LOGGER.warn("Error while getting the GitHub rate limit: " + e);
+        } finally {
+            synchronized (this) {
+                if (rateLimit != null) {
+                    this.remainingRequests = rateLimit.remaining;
+                    this.rateLimitReset = rateLimit.reset;
+                }
+                this.rateLimitRefreshing = false;
+                this.notifyAll();
+            }
+        }
+    }
+}
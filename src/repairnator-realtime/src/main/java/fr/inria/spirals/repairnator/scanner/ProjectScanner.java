@@ -5,6 +5,7 @@ import fr.inria.jtravis.entities.*;
 import fr.inria.spirals.repairnator.BuildToBeInspected;
 import fr.inria.spirals.repairnator.utils.DateUtils;
 import fr.inria.spirals.repairnator.config.RepairnatorConfig;
+import fr.inria.spirals.repairnator.realtime.utils.JobLogClassifier;
 import fr.inria.spirals.repairnator.states.BearsMode;
 import fr.inria.spirals.repairnator.states.LauncherMode;
 import fr.inria.spirals.repairnator.states.ScannedBuildStatus;
@@ -13,27 +14,35 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
-import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 /**
  * This class aims to provide utility methods to scan the projects and get
  * failing builds
  *
+ * The repositories are scanned concurrently, by a bounded number of threads: the builds of a repository are scanned
+ * by the same thread. The compares between commits are asked to a shared {@link GitHubCompareFetcher}.
+ *
  * @author Simon Urli
  */
 public class ProjectScanner {
     private final Logger logger = LoggerFactory.getLogger(ProjectScanner.class);
-    private int totalRepoNumber;
-    private int totalRepoUsingTravis;
-    private int totalScannedBuilds;
-    private int totalPRBuilds;
-    private int totalBuildInJava;
-    private int totalJavaPassingBuilds;
-    private int totalBuildInJavaFailing;
-    private int totalBuildInJavaFailingWithFailingTests;
-    private int totalNumberOfFailingAndPassingBuildPairs;
-    private int totalNumberOfPassingAndPassingBuildPairs;
+    private final AtomicInteger totalRepoNumber = new AtomicInteger();
+    private final AtomicInteger totalRepoUsingTravis = new AtomicInteger();
+    private final AtomicInteger totalScannedBuilds = new AtomicInteger();
+    private final AtomicInteger totalPRBuilds = new AtomicInteger();
+    private final AtomicInteger totalBuildInJava = new AtomicInteger();
+    private final AtomicInteger totalJavaPassingBuilds = new AtomicInteger();
+    private final AtomicInteger totalBuildInJavaFailing = new AtomicInteger();
+    private final AtomicInteger totalBuildInJavaFailingWithFailingTests = new AtomicInteger();
+    private final AtomicInteger totalNumberOfFailingAndPassingBuildPairs = new AtomicInteger();
+    private final AtomicInteger totalNumberOfPassingAndPassingBuildPairs = new AtomicInteger();
 
     private Collection<String> slugs;
     private Collection<Repository> repositories;
@@ -45,15 +54,28 @@ public class ProjectScanner {
     private Date scannerRunningBeginDate;
     private Date scannerRunningEndDate;
     private JTravis jTravis;
+    private JobLogClassifier jobLogClassifier;
+    private GitHubCompareFetcher compareFetcher;
+    private int nbThreads;
 
     public ProjectScanner(Date lookFromDate, Date lookToDate, String runId) {
+        this(lookFromDate, lookToDate, runId, RepairnatorConfig.getInstance().getTravisMaxConcurrentRequests());
+    }
+
+    /**
+     * @param nbThreads the number of repositories scanned concurrently
+     */
+    public ProjectScanner(Date lookFromDate, Date lookToDate, String runId, int nbThreads) {
         this.lookFromDate = lookFromDate;
         this.lookToDate = lookToDate;
 
-        this.slugs = new HashSet<String>();
-        this.repositories = new HashSet<Repository>();
+        this.slugs = ConcurrentHashMap.newKeySet();
+        this.repositories = ConcurrentHashMap.newKeySet();
         this.runId = runId;
         this.jTravis = RepairnatorConfig.getInstance().getJTravis();
+        this.jobLogClassifier = new JobLogClassifier();
+        this.nbThreads = Math.max(1, nbThreads);
+        this.compareFetcher = new GitHubCompareFetcher(this.nbThreads);
 
         this.logger.info("Look from " + DateUtils.formatCompleteDate(this.lookFromDate) + " to " + DateUtils.formatCompleteDate(this.lookToDate));
     }
@@ -63,43 +85,43 @@ public class ProjectScanner {
     }
 
     public int getTotalRepoNumber() {
-        return totalRepoNumber;
+        return totalRepoNumber.get();
     }
 
     public int getTotalRepoUsingTravis() {
-        return totalRepoUsingTravis;
+        return totalRepoUsingTravis.get();
     }
 
     public int getTotalScannedBuilds() {
-        return totalScannedBuilds;
+        return totalScannedBuilds.get();
     }
 
     public int getTotalPRBuilds() {
-        return totalPRBuilds;
+        return totalPRBuilds.get();
     }
 
     public int getTotalBuildInJava() {
-        return totalBuildInJava;
+        return totalBuildInJava.get();
     }
 
     public int getTotalJavaPassingBuilds() {
-        return totalJavaPassingBuilds;
+        return totalJavaPassingBuilds.get();
     }
 
     public int getTotalBuildInJavaFailing() {
-        return totalBuildInJavaFailing;
+        return totalBuildInJavaFailing.get();
     }
 
     public int getTotalBuildInJavaFailingWithFailingTests() {
-        return totalBuildInJavaFailingWithFailingTests;
+        return totalBuildInJavaFailingWithFailingTests.get();
     }
 
     public int getTotalNumberOfFailingAndPassingBuildPairs() {
-        return totalNumberOfFailingAndPassingBuildPairs;
+        return totalNumberOfFailingAndPassingBuildPairs.get();
     }
 
     public int getTotalNumberOfPassingAndPassingBuildPairs() {
-        return totalNumberOfPassingAndPassingBuildPairs;
+        return totalNumberOfPassingAndPassingBuildPairs.get();
     }
 
     public Date getLookFromDate() {
@@ -155,8 +177,8 @@ public class ProjectScanner {
         this.scannerRunningBeginDate = new Date();
 
         List<String> slugs = getFileContent(path);
-        this.totalRepoNumber = slugs.size();
-        this.logger.info("# Repositories found: "+this.totalRepoNumber);
+        this.totalRepoNumber.set(slugs.size());
+        this.logger.info("# Repositories found: "+this.totalRepoNumber.get());
 
         List<Repository> repos = getListOfValidRepository(slugs);
         Map<ScannedBuildStatus, List<BuildToBeInspected>> builds = getListOfBuildsFromRepo(repos);
@@ -175,35 +197,63 @@ public class ProjectScanner {
         return getListOfBuildsFromRepo(repo);
     }
     
+    /**
+     * Apply the given function on each element, with at most {@link #nbThreads} elements at a time.
+     *
+     * @return the results, in the order of the elements
+     */
+    <T, R> List<R> forEachInParallel(List<T> elements, Function<T, R> function) {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(this.nbThreads, Math.max(1, elements.size())));
+        try {
+            List<CompletableFuture<R>> futures = new ArrayList<>();
+            for (T element : elements) {
+                futures.add(CompletableFuture.supplyAsync(() -> function.apply(element), executor));
+            }
+            List<R> results = new ArrayList<>();
+            for (CompletableFuture<R> future : futures) {
+                results.add(future.join());
+            }
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     private List<Repository> getListOfValidRepository(List<String> allSlugs) {
         List<Repository> result = new ArrayList<Repository>();
 
         this.logger.debug("---------------------------------------------------------------");
-        this.logger.debug("Checking the "+this.totalRepoNumber+" repositories.");
+        this.logger.debug("Checking the "+this.totalRepoNumber.get()+" repositories.");
         this.logger.debug("---------------------------------------------------------------");
-        for (String slug : allSlugs) {
-            this.logger.debug("Get repo " + slug);
-            Optional<Repository> repositoryOptional = this.jTravis.repository().fromSlug(slug);
-            if (repositoryOptional.isPresent()) {
-                Repository repo = repositoryOptional.get();
-                Optional<Build> lastBuild = repo.getLastBuild();
-                if (lastBuild.isPresent()) {
-                    result.add(repo);
-                } else {
-                    this.logger.info("It seems that the repo " + slug + " does not have any Travis build.");
-                }
+        List<Optional<Repository>> repositories = this.forEachInParallel(allSlugs, this::getValidRepository);
+        for (Optional<Repository> repository : repositories) {
+            repository.ifPresent(result::add);
+        }
+
+        this.totalRepoUsingTravis.set(result.size());
+        this.logger.info("# Repositories using Travis: "+this.totalRepoUsingTravis.get());
+        return result;
+    }
 
+    private Optional<Repository> getValidRepository(String slug) {
+        this.logger.debug("Get repo " + slug);
+        Optional<Repository> repositoryOptional = RepairnatorConfig.getInstance().getTravisApiClient().execute(jTravis -> jTravis.repository().fromSlug(slug));
+        if (repositoryOptional.isPresent()) {
+            Repository repo = repositoryOptional.get();
+            Optional<Build> lastBuild = repo.getLastBuild();
+            if (lastBuild.isPresent()) {
+                return Optional.of(repo);
             } else {
-                this.logger.warn("Can't examine repo : " + slug);
+                this.logger.info("It seems that the repo " + slug + " does not have any Travis build.");
             }
-        }
 
-        this.totalRepoUsingTravis = result.size();
-        this.logger.info("# Repositories using Travis: "+this.totalRepoUsingTravis);
-        return result;
+        } else {
+            this.logger.warn("Can't examine repo : " + slug);
+        }
+        return Optional.empty();
     }
 
-    private Map<ScannedBuildStatus, List<BuildToBeInspected>> getListOfBuildsFromRepo(List<Repository> repos) {
+    Map<ScannedBuildStatus, List<BuildToBeInspected>> getListOfBuildsFromRepo(List<Repository> repos) {
         Map<ScannedBuildStatus, List<BuildToBeInspected>> results = new HashMap<>();
         for (ScannedBuildStatus status : ScannedBuildStatus.values()) {
             results.put(status, new ArrayList<>());
@@ -212,21 +262,33 @@ public class ProjectScanner {
         this.logger.debug("---------------------------------------------------------------");
         this.logger.debug("Scanning builds.");
         this.logger.debug("---------------------------------------------------------------");
-        for (Repository repo : repos) {
-            Optional<List<Build>> builds = this.jTravis.build().betweenDates(repo.getSlug(), this.lookFromDate, this.lookToDate);
-            if (builds.isPresent()) {
-                List<Build> repoBuilds = builds.get();
-                for (Build build : repoBuilds) {
-                    this.totalScannedBuilds++;
+        List<List<BuildToBeInspected>> buildsByRepo = this.forEachInParallel(repos, this::getBuildsToBeInspectedFromRepo);
+        for (List<BuildToBeInspected> repoBuilds : buildsByRepo) {
+            for (BuildToBeInspected buildToBeInspected : repoBuilds) {
+                results.get(buildToBeInspected.getStatus()).add(buildToBeInspected);
+            }
+        }
+
+        return results;
+    }
+
+    protected List<BuildToBeInspected> getBuildsToBeInspectedFromRepo(Repository repo) {
+        List<BuildToBeInspected> result = new ArrayList<>();
+        Optional<List<Build>> builds = RepairnatorConfig.getInstance().getTravisApiClient().execute(jTravis -> jTravis.build().betweenDates(repo.getSlug(), this.lookFromDate, this.lookToDate));
+        if (builds.isPresent()) {
+            for (Build build : builds.get()) {
+                this.totalScannedBuilds.incrementAndGet();
+                try {
                     BuildToBeInspected buildToBeInspected = getBuildToBeInspected(build);
                     if (buildToBeInspected != null) {
-                        results.get(buildToBeInspected.getStatus()).add(buildToBeInspected);
+                        result.add(buildToBeInspected);
                     }
+                } catch (RuntimeException e) {
+                    this.logger.error("Error while scanning the build " + build.getId() + " of " + repo.getSlug(), e);
                 }
             }
         }
-
-        return results;
+        return result;
     }
 
     /**
@@ -250,12 +312,12 @@ public class ProjectScanner {
 
                     BearsMode mode = RepairnatorConfig.getInstance().getBearsMode();
                     if ((mode == BearsMode.BOTH || mode == BearsMode.FAILING_PASSING) && previousBuild.getState() == StateType.FAILED && thereIsDiffOnJavaFile(build, previousBuild) && isFailedBuildFailingByTestFailure(previousBuild)) {
-                        this.totalNumberOfFailingAndPassingBuildPairs++;
+                        this.totalNumberOfFailingAndPassingBuildPairs.incrementAndGet();
                         this.logger.debug("The pair "+previousBuild.getId()+" ["+previousBuild.getState()+"], "+build.getId()+" ["+build.getState()+"] is interesting to be inspected.");
                         return new BuildToBeInspected(previousBuild, build, ScannedBuildStatus.FAILING_AND_PASSING, this.runId);
                     } else {
                         if ((mode == BearsMode.BOTH || mode == BearsMode.PASSING_PASSING) && previousBuild.getState() == StateType.PASSED && thereIsDiffOnJavaFile(build, previousBuild) && thereIsDiffOnTests(build, previousBuild)) {
-                            this.totalNumberOfPassingAndPassingBuildPairs++;
+                            this.totalNumberOfPassingAndPassingBuildPairs.incrementAndGet();
                             this.logger.debug("The pair "+previousBuild.getId()+" ["+previousBuild.getState()+"], "+build.getId()+" ["+build.getState()+"] is interesting to be inspected.");
                             return new BuildToBeInspected(previousBuild, build, ScannedBuildStatus.PASSING_AND_PASSING_WITH_TEST_CHANGES, this.runId);
                         } else {
@@ -274,21 +336,21 @@ public class ProjectScanner {
 
     protected boolean testBuild(Build build) {
         if (build.isPullRequest()) {
-            this.totalPRBuilds++;
+            this.totalPRBuilds.incrementAndGet();
         }
 
         Repository repo = build.getRepository();
         String language = build.getLanguage();
         if ("java".equals(language)) {
-            this.totalBuildInJava++;
+            this.totalBuildInJava.incrementAndGet();
 
             this.logger.debug("Repo " + repo.getSlug() + " with java language - build " + build.getId() + " - Status : "
                     + build.getState().name());
             if (build.getState() == StateType.FAILED) {
-                this.totalBuildInJavaFailing++;
+                this.totalBuildInJavaFailing.incrementAndGet();
 
                 if (isFailedBuildFailingByTestFailure(build)) {
-                    this.totalBuildInJavaFailingWithFailingTests++;
+                    this.totalBuildInJavaFailingWithFailingTests.incrementAndGet();
                     if (RepairnatorConfig.getInstance().getLauncherMode() == LauncherMode.REPAIR) {
                         this.slugs.add(repo.getSlug());
                         this.repositories.add(repo);
@@ -298,16 +360,15 @@ public class ProjectScanner {
                     }
                 }
             } else if (build.getState() == StateType.PASSED) {
-                this.totalJavaPassingBuilds++;
+                this.totalJavaPassingBuilds.incrementAndGet();
                 if (RepairnatorConfig.getInstance().getLauncherMode() == LauncherMode.BEARS) {
                     for (Job job : build.getJobs()) {
                         RepairnatorConfig.getInstance().getJTravis().refresh(job);
                         if (job.getState() == StateType.PASSED) {
-                            Optional<Log> optionalLog = job.getLog();
+                            Optional<Boolean> usesMaven = RepairnatorConfig.getInstance().getTravisApiClient().execute(jTravis -> this.jobLogClassifier.hasMarker(job.getId(), JobLogClassifier.Marker.MAVEN));
 
-                            if (optionalLog.isPresent()) {
-                                Log jobLog = optionalLog.get();
-                                if (jobLog.getBuildTool() == BuildTool.MAVEN) {
+                            if (usesMaven.isPresent()) {
+                                if (usesMaven.get()) {
                                     this.slugs.add(repo.getSlug());
                                     this.repositories.add(repo);
                                     return true;
@@ -331,15 +392,13 @@ public class ProjectScanner {
         for (Job job : build.getJobs()) {
             RepairnatorConfig.getInstance().getJTravis().refresh(job);
             if (job.getState() == StateType.FAILED) {
-                Optional<Log> optionalLog = job.getLog();
-
-                if (optionalLog.isPresent()) {
-                    Log jobLog = optionalLog.get();
-                    if (jobLog.getBuildTool() == BuildTool.MAVEN) {
-                        TestsInformation testInfo = jobLog.getTestsInformation();
+                Optional<Boolean> usesMaven = RepairnatorConfig.getInstance().getTravisApiClient().execute(jTravis -> this.jobLogClassifier.hasMarker(job.getId(), JobLogClassifier.Marker.MAVEN));
 
-                        // testInfo can be null if the build tool is unknown
-                        if (testInfo != null && (testInfo.getFailing() > 0 || testInfo.getErrored() > 0)) {
+                if (usesMaven.isPresent()) {
+                    if (usesMaven.get()) {
+                        // the log is only read until the first failing or erroring test
+                        Optional<Boolean> failingTests = RepairnatorConfig.getInstance().getTravisApiClient().execute(jTravis -> this.jobLogClassifier.hasMarker(job.getId(), JobLogClassifier.Marker.FAILING_TESTS));
+                        if (failingTests.isPresent() && failingTests.get()) {
                             return true;
                         } else {
                             logger.debug("No failing or erroring test found in build " + build.getId());
@@ -356,9 +415,9 @@ public class ProjectScanner {
     }
 
     private boolean thereIsDiffOnJavaFile(Build build, Build previousBuild) {
-        GHCompare compare = this.getCompare(build, previousBuild);
-        if (compare != null) {
-            GHCommit.File[] modifiedFiles = compare.getFiles();
+        Optional<GHCompare> compare = this.getCompare(build, previousBuild);
+        if (compare.isPresent()) {
+            GHCommit.File[] modifiedFiles = compare.get().getFiles();
             for (GHCommit.File file : modifiedFiles) {
                 if (file.getFileName().endsWith(".java") && !file.getFileName().toLowerCase().contains("/test/")) {
                     this.logger.debug("First java file found: " + file.getFileName());
@@ -370,9 +429,9 @@ public class ProjectScanner {
     }
 
     private boolean thereIsDiffOnTests(Build build, Build previousBuild) {
-        GHCompare compare = this.getCompare(build, previousBuild);
-        if (compare != null) {
-            GHCommit.File[] modifiedFiles = compare.getFiles();
+        Optional<GHCompare> compare = this.getCompare(build, previousBuild);
+        if (compare.isPresent()) {
+            GHCommit.File[] modifiedFiles = compare.get().getFiles();
             for (GHCommit.File file : modifiedFiles) {
                 if (file.getFileName().toLowerCase().contains("/test/") && file.getFileName().endsWith(".java")) {
                     this.logger.debug("First probable test file found: " + file.getFileName());
@@ -383,27 +442,12 @@ public class ProjectScanner {
         return false;
     }
 
-    private GHCompare getCompare(Build build, Build previousBuild) {
-        try {
-            GitHub gh = GitHubBuilder.fromEnvironment().build();
-
-            GHRateLimit rateLimit = gh.getRateLimit();
-            SimpleDateFormat dateFormat = new SimpleDateFormat("HH:mm:ss");
-            this.logger.debug("GitHub rate limit: Limit: " + rateLimit.limit + " - Remaining: " + rateLimit.remaining + " - Reset hour: " + dateFormat.format(rateLimit.reset));
-
-            if (rateLimit.remaining > 2) {
-                GHRepository ghRepo = gh.getRepository(build.getRepository().getSlug());
-                GHCommit buildCommit = ghRepo.getCommit(build.getCommit().getSha());
-                GHCommit previousBuildCommit = ghRepo.getCommit(previousBuild.getCommit().getSha());
-                GHCompare compare = ghRepo.getCompare(previousBuildCommit, buildCommit);
-                return compare;
-            } else {
-                this.logger.warn("You reached your rate limit for GitHub. You have to wait until " + dateFormat.format(rateLimit.reset) + " to get data. PRInformation will be null for build "+build.getId()+".");
-            }
-        } catch (IOException e) {
-            this.logger.warn("Error while getting commit from GitHub: " + e);
+    private Optional<GHCompare> getCompare(Build build, Build previousBuild) {
+        Optional<GHCompare> compare = this.compareFetcher.getCompare(build.getRepository().getSlug(), previousBuild.getCommit().getSha(), build.getCommit().getSha());
+        if (!compare.isPresent()) {
+            this.logger.warn("The compare between the builds " + previousBuild.getId() + " and " + build.getId() + " cannot be retrieved from GitHub.");
         }
-        return null;
+        return compare;
     }
 
 }
@@ -0,0 +1,68 @@
+package fr.inria.spirals.repairnator.buildrainer;
+
+import fr.inria.jtravis.entities.Build;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BuildIdIngesterTest {
+
+    private static String message(String state, String language, long buildId) {
+        return "{\"event\":\"job\",\"data\":{\"id\":1,\"state\":\"" + state + "\",\"build_id\":" + buildId
+                + ",\"config\":{\"os\":\"linux\",\"language\":\"" + language + "\",\"jdk\":[\"openjdk8\"]},\"repository_slug\":\"foo/bar\"}}";
+    }
+
+    @Test
+    public void testParseMessage() {
+        assertEquals(42, BuildIdIngester.parseFailedJavaBuildId(message("failed", "java", 42)));
+        assertEquals(-1, BuildIdIngester.parseFailedJavaBuildId(message("passed", "java", 42)));
+        assertEquals(-1, BuildIdIngester.parseFailedJavaBuildId(message("failed", "python", 42)));
+
+        // the order of the fields does not matter
+        assertEquals(43, BuildIdIngester.parseFailedJavaBuildId("{\"data\":{\"config\":{\"language\":\"java\"},\"build_id\":43,\"state\":\"failed\"}}"));
+
+        // the messages which are not in the expected format are ignored
+        assertEquals(-1, BuildIdIngester.parseFailedJavaBuildId("Test"));
+        assertEquals(-1, BuildIdIngester.parseFailedJavaBuildId("[1,2]"));
+        assertEquals(-1, BuildIdIngester.parseFailedJavaBuildId("{\"data\":{\"state\":\"failed\"}}"));
+        assertEquals(-1, BuildIdIngester.parseFailedJavaBuildId("{\"data\":{\"state\":\"failed\",\"build_id\":"));
+    }
+
+    @Test
+    public void testBuildsAreSubmittedOnce() throws InterruptedException {
+        List<Long> submittedBuilds = new CopyOnWriteArrayList<>();
+        BuildIdIngester ingester = new BuildIdIngester(build -> submittedBuilds.add(build.getId()), 2) {
+            @Override
+            protected Optional<Build> fetchBuild(long buildId) {
+                Build build = mock(Build.class);
+                when(build.getId()).thenReturn(buildId);
+                return Optional.of(build);
+            }
+        };
+
+        // the jobs of the same build send several messages
+        assertTrue(ingester.ingest(message("failed", "java", 100)));
+        assertFalse(ingester.ingest(message("failed", "java", 100)));
+        assertTrue(ingester.ingest(message("failed", "java", 101)));
+        assertFalse(ingester.ingest(message("passed", "java", 102)));
+
+        ingester.start();
+        for (int i = 0; i < 50 && submittedBuilds.size() < 2; i++) {
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+        ingester.stop();
+
+        assertEquals(2, submittedBuilds.size());
+        assertTrue(submittedBuilds.contains(100L));
+        assertTrue(submittedBuilds.contains(101L));
+    }
+}
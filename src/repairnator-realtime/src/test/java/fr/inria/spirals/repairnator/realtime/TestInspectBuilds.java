@@ -0,0 +1,180 @@
+package fr.inria.spirals.repairnator.realtime;
+
+import fr.inria.jtravis.entities.Build;
+import fr.inria.jtravis.entities.Repository;
+import fr.inria.jtravis.entities.StateType;
+import fr.inria.spirals.repairnator.config.RepairnatorConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TestInspectBuilds {
+    private static final int SLEEP_TIME_IN_SECOND = 10;
+
+    private RTScanner rtScanner;
+    private int previousSleepTime;
+    private int previousMaxInspectedBuilds;
+
+    /**
+     * The states of the builds are given by the test instead of Travis.
+     */
+    private static class InMemoryInspectBuilds extends InspectBuilds {
+        private final Map<Long, Build> buildStates = new HashMap<>();
+        private final List<Long> refreshedBuilds = new ArrayList<>();
+
+        InMemoryInspectBuilds(RTScanner rtScanner) {
+            super(rtScanner);
+        }
+
+        @Override
+        protected Map<Long, Build> getBuildStates(List<WaitingBuild> buildsToCheck) {
+            return this.buildStates;
+        }
+
+        @Override
+        protected boolean refresh(Build build) {
+            this.refreshedBuilds.add(build.getId());
+            return true;
+        }
+    }
+
+    @Before
+    public void setup() {
+        this.rtScanner = mock(RTScanner.class);
+        this.previousSleepTime = RepairnatorConfig.getInstance().getBuildSleepTime();
+        this.previousMaxInspectedBuilds = RepairnatorConfig.getInstance().getMaxInspectedBuilds();
+        RepairnatorConfig.getInstance().setBuildSleepTime(SLEEP_TIME_IN_SECOND);
+        RepairnatorConfig.getInstance().setMaxInspectedBuilds(1000);
+    }
+
+    @After
+    public void tearDown() {
+        RepairnatorConfig.getInstance().setBuildSleepTime(this.previousSleepTime);
+        RepairnatorConfig.getInstance().setMaxInspectedBuilds(this.previousMaxInspectedBuilds);
+    }
+
+    private Build mockBuild(long buildId, long repositoryId, Date startedAt) {
+        Repository repository = mock(Repository.class);
+        when(repository.getId()).thenReturn(repositoryId);
+
+        Build build = mock(Build.class);
+        when(build.getId()).thenReturn(buildId);
+        when(build.getRepository()).thenReturn(repository);
+        when(build.getStartedAt()).thenReturn(startedAt);
+        when(build.getJobs()).thenReturn(Collections.emptyList());
+        return build;
+    }
+
+    private Build mockFinishedBuild(long buildId, long repositoryId, Date startedAt, Date finishedAt, StateType state) {
+        Build build = this.mockBuild(buildId, repositoryId, startedAt);
+        when(build.getFinishedAt()).thenReturn(finishedAt);
+        when(build.getState()).thenReturn(state);
+        return build;
+    }
+
+    private List<Long> getIds(List<InspectBuilds.WaitingBuild> waitingBuilds) {
+        List<Long> ids = new ArrayList<>();
+        for (InspectBuilds.WaitingBuild waitingBuild : waitingBuilds) {
+            ids.add(waitingBuild.getBuild().getId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void testNextCheckDateGrowsWithTheAgeOfTheBuild() {
+        InspectBuilds inspectBuilds = new InMemoryInspectBuilds(this.rtScanner);
+        long now = System.currentTimeMillis();
+
+        // a build which has not started yet is checked after the minimum interval
+        InspectBuilds.WaitingBuild notStarted = new InspectBuilds.WaitingBuild(this.mockBuild(1, 1, null));
+        assertThat(inspectBuilds.computeNextCheckDate(notStarted, now), is(now + SLEEP_TIME_IN_SECOND * 1000L));
+
+        // without any known duration, the interval is a quarter of the age of the build
+        InspectBuilds.WaitingBuild started = new InspectBuilds.WaitingBuild(this.mockBuild(2, 2, new Date(now - 100 * 1000L)));
+        assertThat(inspectBuilds.computeNextCheckDate(started, now), is(now + 25 * 1000L));
+
+        // but it's never longer than the maximum interval
+        InspectBuilds.WaitingBuild old = new InspectBuilds.WaitingBuild(this.mockBuild(3, 3, new Date(now - 10000 * 1000L)));
+        assertThat(inspectBuilds.computeNextCheckDate(old, now), is(now + InspectBuilds.MAX_CHECK_INTERVAL_IN_SECOND * 1000L));
+
+        // the build is checked when it should be finished, according to the last build of its repository
+        inspectBuilds.recordDuration(this.mockFinishedBuild(4, 2, new Date(now - 200 * 1000L), new Date(now - 40 * 1000L), StateType.PASSED));
+        assertThat(inspectBuilds.computeNextCheckDate(started, now), is(now + 60 * 1000L));
+    }
+
+    @Test
+    public void testBuildsAreCheckedInTheOrderOfTheirNextCheck() {
+        InspectBuilds inspectBuilds = new InMemoryInspectBuilds(this.rtScanner);
+        long now = System.currentTimeMillis();
+
+        inspectBuilds.submitNewBuild(this.mockBuild(1, 1, new Date(now - 1000 * 1000L)));
+        inspectBuilds.submitNewBuild(this.mockBuild(2, 2, null));
+        inspectBuilds.submitNewBuild(this.mockBuild(3, 3, new Date(now - 100 * 1000L)));
+        // the same build is only watched once
+        inspectBuilds.submitNewBuild(this.mockBuild(2, 2, null));
+
+        assertThat(inspectBuilds.getNbWaitingBuilds(), is(3));
+        assertThat(inspectBuilds.pollBuildsToCheck(now).isEmpty(), is(true));
+        assertThat(this.getIds(inspectBuilds.pollBuildsToCheck(now + 60 * 1000L)), is(Arrays.asList(2L, 3L)));
+        assertThat(this.getIds(inspectBuilds.pollBuildsToCheck(now + 3600 * 1000L)), is(Collections.singletonList(1L)));
+    }
+
+    @Test
+    public void testBuildsToCheckAreDrainedByBatches() {
+        InspectBuilds inspectBuilds = new InMemoryInspectBuilds(this.rtScanner);
+        int nbBuilds = InspectBuilds.NB_ELEMENT_TRAVIS_JOB + 50;
+        for (int i = 0; i < nbBuilds; i++) {
+            inspectBuilds.submitNewBuild(this.mockBuild(i, i, null));
+        }
+
+        long later = System.currentTimeMillis() + 3600 * 1000L;
+        assertThat(inspectBuilds.pollBuildsToCheck(later).size(), is(InspectBuilds.NB_ELEMENT_TRAVIS_JOB));
+        assertThat(inspectBuilds.pollBuildsToCheck(later).size(), is(50));
+        assertThat(inspectBuilds.pollBuildsToCheck(later).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testFinishedBuildsAreRemoved() {
+        InMemoryInspectBuilds inspectBuilds = new InMemoryInspectBuilds(this.rtScanner);
+        long now = System.currentTimeMillis();
+        Date finishedAt = new Date(now - 10 * 1000L);
+
+        // the older builds are checked later
+        Build running = this.mockBuild(1, 1, new Date(now - 100 * 1000L));
+        Build passing = this.mockFinishedBuild(2, 2, new Date(now - 200 * 1000L), finishedAt, StateType.PASSED);
+        Build failing = this.mockFinishedBuild(3, 3, new Date(now - 300 * 1000L), finishedAt, StateType.FAILED);
+        inspectBuilds.submitNewBuild(running);
+        inspectBuilds.submitNewBuild(passing);
+        inspectBuilds.submitNewBuild(failing);
+
+        inspectBuilds.buildStates.put(1L, this.mockBuild(1, 1, new Date(now - 100 * 1000L)));
+        inspectBuilds.buildStates.put(2L, passing);
+        inspectBuilds.buildStates.put(3L, failing);
+
+        inspectBuilds.checkBuilds(inspectBuilds.pollBuildsToCheck(now + 3600 * 1000L));
+
+        // only the finished builds are refreshed, and only the failing one is submitted
+        assertThat(inspectBuilds.refreshedBuilds, is(Arrays.asList(2L, 3L)));
+        verify(this.rtScanner).submitBuildToExecution(failing);
+        verify(this.rtScanner, never()).submitBuildToExecution(passing);
+
+        // the running build is still watched
+        assertThat(inspectBuilds.getNbWaitingBuilds(), is(1));
+        assertThat(this.getIds(inspectBuilds.pollBuildsToCheck(now + 3600 * 1000L)), is(Collections.singletonList(1L)));
+    }
+}
@@ -0,0 +1,172 @@
+package fr.inria.spirals.repairnator.realtime;
+
+import fr.inria.jtravis.entities.v2.JobV2;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TestJobRangeSweeper {
+
+    private File tmpDir;
+
+    /**
+     * A sweeper reading the jobs from memory, which records the pages it has been asked.
+     */
+    private static class InMemorySweeper extends JobRangeSweeper {
+        private final TreeMap<Integer, JobV2> jobs = new TreeMap<>();
+        private final List<Integer> requestedPages = Collections.synchronizedList(new ArrayList<>());
+        private final List<Integer> failingPages = Collections.synchronizedList(new ArrayList<>());
+
+        InMemorySweeper(int scanBackPages, int maxCatchUpPages, File checkpointFile) {
+            super(scanBackPages, maxCatchUpPages, checkpointFile);
+        }
+
+        void addJob(int jobId, int buildId) {
+            JobV2 job = mock(JobV2.class);
+            when(job.getId()).thenReturn(jobId);
+            when(job.getBuildId()).thenReturn(buildId);
+            this.jobs.put(jobId, job);
+        }
+
+        @Override
+        protected Optional<List<JobV2>> getLatestJobs() {
+            return Optional.of(Collections.singletonList(this.jobs.lastEntry().getValue()));
+        }
+
+        @Override
+        protected Optional<List<JobV2>> getJobsFrom(int pageStart) {
+            this.requestedPages.add(pageStart);
+            if (this.failingPages.contains(pageStart)) {
+                return Optional.empty();
+            }
+            return Optional.of(new ArrayList<>(this.jobs.subMap(pageStart, pageStart + PAGE_SIZE).values()));
+        }
+    }
+
+    @Before
+    public void setup() throws IOException {
+        this.tmpDir = Files.createTempDirectory("job-range-sweeper").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(this.tmpDir);
+    }
+
+    @Test
+    public void testJobsAreGivenInOrderOncePerHandledBuild() throws Exception {
+        InMemorySweeper sweeper = new InMemorySweeper(2, 10, null);
+        sweeper.addJob(9800, 1);
+        sweeper.addJob(9801, 1);
+        sweeper.addJob(9900, 2);
+        sweeper.addJob(10000, 3);
+
+        List<Integer> handledJobs = new ArrayList<>();
+        // the build 2 is not handled, as if its jobs were not finished yet
+        JobRangeSweeper.JobHandler handler = job -> {
+            handledJobs.add(job.getId());
+            return job.getBuildId() != 2;
+        };
+
+        sweeper.sweep(handler);
+        assertThat(handledJobs, is(Arrays.asList(9800, 9900, 10000)));
+        assertThat(sweeper.getHighWaterMark(), is(10000L));
+        assertThat(sweeper.isBuildHandled(1), is(true));
+        assertThat(sweeper.isBuildHandled(2), is(false));
+
+        // only the build which has not been handled is given again
+        handledJobs.clear();
+        sweeper.sweep(handler);
+        assertThat(handledJobs, is(Collections.singletonList(9900)));
+    }
+
+    @Test
+    public void testSweepResumesFromTheCheckpoint() throws Exception {
+        File checkpointFile = new File(this.tmpDir, "sweeper.checkpoint");
+
+        InMemorySweeper sweeper = new InMemorySweeper(2, 10, checkpointFile);
+        sweeper.addJob(9900, 1);
+        sweeper.addJob(10000, 2);
+        sweeper.sweep(job -> true);
+        assertThat(checkpointFile.exists(), is(true));
+
+        // after a restart, the jobs have moved on by 8 pages
+        InMemorySweeper restartedSweeper = new InMemorySweeper(2, 10, checkpointFile);
+        assertThat(restartedSweeper.getHighWaterMark(), is(10000L));
+        assertThat(restartedSweeper.isBuildHandled(2), is(true));
+        restartedSweeper.addJob(9900, 1);
+        restartedSweeper.addJob(10000, 2);
+        restartedSweeper.addJob(11000, 3);
+        restartedSweeper.addJob(12000, 4);
+
+        List<Integer> handledJobs = new ArrayList<>();
+        restartedSweeper.sweep(job -> handledJobs.add(job.getId()));
+
+        // the sweep starts before the last job seen, and the builds already handled are not given again
+        assertThat(restartedSweeper.requestedPages.size(), is(10));
+        assertThat(Collections.min(restartedSweeper.requestedPages) <= 10000, is(true));
+        assertThat(handledJobs, is(Arrays.asList(11000, 12000)));
+        assertThat(restartedSweeper.getHighWaterMark(), is(12000L));
+    }
+
+    @Test
+    public void testCatchUpIsBoundedAndResumedByTheNextSweeps() throws Exception {
+        File checkpointFile = new File(this.tmpDir, "sweeper.checkpoint");
+
+        InMemorySweeper sweeper = new InMemorySweeper(2, 4, checkpointFile);
+        sweeper.addJob(10000, 1);
+        sweeper.sweep(job -> true);
+
+        InMemorySweeper restartedSweeper = new InMemorySweeper(2, 4, checkpointFile);
+        restartedSweeper.addJob(10600, 2);
+        restartedSweeper.addJob(100000, 3);
+        List<Integer> handledJobs = new ArrayList<>();
+        restartedSweeper.sweep(job -> handledJobs.add(job.getId()));
+
+        // the pages after the last job seen are swept first, and the last job seen only moves over them
+        assertThat(restartedSweeper.requestedPages.size(), is(4));
+        assertThat(Collections.min(restartedSweeper.requestedPages), is(10000 - JobRangeSweeper.PAGE_SIZE));
+        assertThat(handledJobs, is(Collections.singletonList(10600)));
+        long highWaterMark = 10000 + 3L * JobRangeSweeper.PAGE_SIZE - 1;
+        assertThat(restartedSweeper.getHighWaterMark(), is(highWaterMark));
+
+        // the next sweep goes on from there
+        restartedSweeper.requestedPages.clear();
+        restartedSweeper.sweep(job -> handledJobs.add(job.getId()));
+        assertThat(Collections.min(restartedSweeper.requestedPages), is((int) highWaterMark - JobRangeSweeper.PAGE_SIZE));
+        assertThat(restartedSweeper.getHighWaterMark(), is(highWaterMark + 3L * JobRangeSweeper.PAGE_SIZE - 1));
+    }
+
+    @Test
+    public void testLastJobSeenStopsBeforeAFailingPage() throws Exception {
+        InMemorySweeper sweeper = new InMemorySweeper(3, 10, null);
+        sweeper.addJob(9700, 1);
+        sweeper.addJob(10000, 2);
+        sweeper.addJob(10100, 3);
+        // the pages start at 9600, 9850 and 10100
+        sweeper.failingPages.add(9850);
+
+        List<Integer> handledJobs = new ArrayList<>();
+        sweeper.sweep(job -> handledJobs.add(job.getId()));
+
+        // the jobs after the failing page are handled, but the last job seen doesn't move over the failing page
+        assertThat(handledJobs, is(Arrays.asList(9700, 10100)));
+        assertThat(sweeper.getHighWaterMark(), is(9849L));
+    }
+}
@@ -4,10 +4,13 @@ import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.google.gson.stream.JsonReader;
 import fr.inria.jtravis.entities.Build;
+import fr.inria.jtravis.entities.Job;
 import fr.inria.jtravis.entities.Repository;
 import fr.inria.spirals.repairnator.InputBuildId;
 import fr.inria.spirals.repairnator.config.RepairnatorConfig;
 import fr.inria.spirals.repairnator.dockerpool.RunnablePipelineContainer;
+import fr.inria.spirals.repairnator.realtime.serializer.BlacklistedSerializer;
+import fr.inria.spirals.repairnator.realtime.utils.JobLogClassifier;
 import fr.inria.spirals.repairnator.serializer.SerializerType;
 import fr.inria.spirals.repairnator.serializer.engines.SerializerEngine;
 import fr.inria.spirals.repairnator.serializer.engines.json.JSONFileSerializerEngine;
@@ -16,16 +19,27 @@ import org.junit.Ignore;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.ByteArrayInputStream;
 import java.io.FileReader;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static fr.inria.spirals.repairnator.config.RepairnatorConfig.PIPELINE_MODE;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class TestRTScanner {
     
@@ -108,4 +122,109 @@ public class TestRTScanner {
       assertEquals("rails/rails", data.get("repoName").getAsString());
     }
 
+    @Test
+    public void testBlacklistedRepositoriesAreOnlySerializedOnce() throws Exception {
+      String fileName = "./"+ SerializerType.BLACKLISTED.getName()+".json";
+      new File(fileName).delete();
+
+      ArrayList<SerializerEngine> engines = new ArrayList<>();
+      engines.add(new JSONFileSerializerEngine("."));
+      RTScanner rtScanner = new RTScanner("test", engines);
+      rtScanner.initBlackListedRepository(new File("./src/test/resources/blacklist.txt"));
+      rtScanner.saveInfoToDisk();
+      rtScanner.saveInfoToDisk();
+
+      // blacklisting again the same repositories doesn't produce new entries
+      rtScanner.initBlackListedRepository(new File("./src/test/resources/blacklist.txt"));
+      rtScanner.saveInfoToDisk();
+
+      assertEquals(2, Files.readAllLines(new File(fileName).toPath()).size());
+    }
+
+    @Test
+    public void testBlacklistedRepositoriesAreKeptUntilTheEngineSucceeds() {
+      RTScanner rtScanner = mock(RTScanner.class);
+      when(rtScanner.getRunId()).thenReturn("test");
+      Repository repository = mock(Repository.class);
+      when(repository.getId()).thenReturn(42L);
+      when(repository.getSlug()).thenReturn("foo/bar");
+
+      List<Integer> serializedSizes = new ArrayList<>();
+      SerializerEngine failingOnceEngine = (data, serializer) -> {
+        serializedSizes.add(data.size());
+        if (serializedSizes.size() == 1) {
+          throw new RuntimeException("the engine is not available");
+        }
+      };
+
+      BlacklistedSerializer serializer = new BlacklistedSerializer(rtScanner, failingOnceEngine);
+      serializer.addBlackListedRepo(repository, BlacklistedSerializer.Reason.OTHER_LANGUAGE, "");
+      serializer.serialize();
+      serializer.serialize();
+      serializer.serialize();
+
+      // the entry is sent again after the failure, then forgotten
+      assertEquals(Arrays.asList(1, 1), serializedSizes);
+    }
+
+    private Build mockBuild(long buildId, long... jobIds) {
+      List<Job> jobs = new ArrayList<>();
+      for (long jobId : jobIds) {
+        Job job = mock(Job.class);
+        when(job.getId()).thenReturn(jobId);
+        jobs.add(job);
+      }
+      Build build = mock(Build.class);
+      when(build.getId()).thenReturn(buildId);
+      when(build.getJobs()).thenReturn(jobs);
+      return build;
+    }
+
+    @Test
+    public void testOnlyBuildsWithFailingTestsAreSubmitted() {
+      Map<Long, String> logs = new HashMap<>();
+      logs.put(1L, "[INFO] Scanning for projects...\nTests run: 3, Failures: 0, Errors: 0, Skipped: 0\n");
+      logs.put(2L, "[INFO] Scanning for projects...\nTests run: 3, Failures: 0, Errors: 1, Skipped: 0\n");
+      logs.put(3L, "[INFO] Scanning for projects...\n[INFO] BUILD FAILURE\n");
+      JobLogClassifier classifier = new JobLogClassifier() {
+        @Override
+        protected InputStream openLog(long jobId, long offset) {
+          byte[] log = logs.get(jobId).getBytes(StandardCharsets.UTF_8);
+          return new ByteArrayInputStream(log, (int) offset, log.length - (int) offset);
+        }
+      };
+
+      PipelineRunner runner = mock(PipelineRunner.class);
+      RTScanner rtScanner = new RTScanner("test", new ArrayList<>(), runner);
+      rtScanner.setJobLogClassifier(classifier);
+
+      // tests have been run, but none is failing: the build is not submitted
+      Build passingTests = this.mockBuild(10, 1);
+      rtScanner.submitBuildToExecution(passingTests);
+      verify(runner, never()).submitBuild(passingTests);
+
+      Build noTests = this.mockBuild(11, 3);
+      rtScanner.submitBuildToExecution(noTests);
+      verify(runner, never()).submitBuild(noTests);
+
+      // one of the jobs has an erroring test
+      Build erroringTest = this.mockBuild(12, 1, 2);
+      rtScanner.submitBuildToExecution(erroringTest);
+      verify(runner).submitBuild(erroringTest);
+    }
+
+    @Test
+    public void testDockerRunnerIsOnlyStartedInDockerMode() {
+      PIPELINE_MODE previousMode = RepairnatorConfig.getInstance().getPipelineMode();
+      RepairnatorConfig.getInstance().setPipelineMode(PIPELINE_MODE.NOOP.name());
+      try {
+        DockerPipelineRunner runner = new DockerPipelineRunner();
+        runner.initRunner();
+        assertEquals(null, runner.getExecutorService());
+      } finally {
+        if (previousMode != null) {
+          RepairnatorConfig.getInstance().setPipelineMode(previousMode.name());
+        }
+      }
+    }
 }
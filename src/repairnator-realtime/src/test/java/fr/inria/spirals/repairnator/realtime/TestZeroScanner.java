@@ -2,7 +2,9 @@ package fr.inria.spirals.repairnator.realtime;
 
 import fr.inria.jtravis.entities.Build;
 import fr.inria.jtravis.entities.Commit;
+import fr.inria.jtravis.entities.StateType;
 import fr.inria.jtravis.entities.v2.BuildV2;
+import fr.inria.jtravis.entities.v2.JobV2;
 import fr.inria.spirals.repairnator.config.RepairnatorConfig;
 import org.junit.After;
 import org.junit.Before;
@@ -65,4 +67,32 @@ public class TestZeroScanner {
         verify(collector, times(1)).handle(anyString(), anyString());
     }
 
+    private JobV2 mockJob(int buildId, StateType state) {
+        JobV2 job = mock(JobV2.class, RETURNS_DEEP_STUBS);
+        when(job.getBuildId()).thenReturn(buildId);
+        when(job.getRepositorySlug()).thenReturn("javierron/failingProject");
+        when(job.getState()).thenReturn(state);
+        when(job.getConfig().getLanguage()).thenReturn("java");
+        return job;
+    }
+
+    @Test
+    public void TestBuildWithPassingAndFailingJobs () {
+        doReturn(true).when(scanner).collectJob(anyInt(), anyString());
+        doReturn(true).when(scanner).attemptJob(anyInt());
+
+        // a matrix build: its passing job is collected, and its failing job is still attempted
+        JobV2 passingJob = mockJob(42, StateType.PASSED);
+        JobV2 failingJob = mockJob(42, StateType.FAILED);
+        assertFalse(scanner.handleJob(passingJob));
+        assertFalse(scanner.handleJob(failingJob));
+        verify(scanner, times(1)).collectJob(42, "javierron/failingProject");
+        verify(scanner, times(1)).attemptJob(42);
+
+        // the build is not collected nor attempted again by the next sweeps
+        scanner.handleJob(passingJob);
+        scanner.handleJob(failingJob);
+        verify(scanner, times(1)).collectJob(42, "javierron/failingProject");
+        verify(scanner, times(1)).attemptJob(42);
+    }
 }
@@ -0,0 +1,62 @@
+package fr.inria.spirals.repairnator.realtime.counter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.BsonDocument;
+import org.bson.conversions.Bson;
+import org.junit.Test;
+
+import com.mongodb.MongoClient;
+
+/**
+ * Tests the aggregation and the refresh of the PatchedRepositoryCounter.
+ */
+public class TestPatchedRepositoryCounter {
+
+    @Test
+    public void testPipelineCountsAllThePatchedBuildsByRepository() {
+        List<Bson> pipeline = PatchedRepositoryCounter.getPipeline();
+
+        // the whole collection is counted: a build updated or upserted as patched is not missed
+        assertEquals(2, pipeline.size());
+        assertEquals(BsonDocument.parse("{'$match': {'status': 'PATCHED'}}"),
+                pipeline.get(0).toBsonDocument(BsonDocument.class, MongoClient.getDefaultCodecRegistry()));
+        assertEquals(BsonDocument.parse("{'$group': {'_id': '$repositoryName', 'count': {'$sum': 1}}}"),
+                pipeline.get(1).toBsonDocument(BsonDocument.class, MongoClient.getDefaultCodecRegistry()));
+    }
+
+    @Test
+    public void testCountsAreReplacedByTheRefresh() {
+        Map<String, Integer> counts = new HashMap<>();
+        counts.put("repairnator/repairnator", 3);
+        PatchedRepositoryCounter counter = new PatchedRepositoryCounter("mongodb://localhost", "repairnator") {
+            @Override
+            protected Map<String, Integer> countPatchedBuilds() {
+                return counts;
+            }
+        };
+        assertEquals(0, counter.getNbPatchedBuilds("repairnator/repairnator"));
+
+        counter.refreshIfNeeded();
+        assertEquals(3, counter.getNbPatchedBuilds("repairnator/repairnator"));
+        assertEquals(0, counter.getNbPatchedBuilds("repairnator/other"));
+    }
+
+    @Test
+    public void testNothingIsCountedWithoutDatabase() {
+        PatchedRepositoryCounter counter = new PatchedRepositoryCounter(null, null) {
+            @Override
+            protected Map<String, Integer> countPatchedBuilds() {
+                return Collections.singletonMap("repairnator/repairnator", 1);
+            }
+        };
+
+        counter.refreshIfNeeded();
+        assertEquals(0, counter.getNbPatchedBuilds("repairnator/repairnator"));
+    }
+}
@@ -1,17 +1,27 @@
 package fr.inria.spirals.repairnator.realtime.notifier;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.Map;
 
 import org.bson.BsonDocument;
+import org.bson.Document;
 import org.junit.Before;
 import org.junit.Test;
 
 import com.mongodb.MongoClient;
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
 
 import fr.inria.spirals.repairnator.notifier.engines.NotifierEngine; 
@@ -83,7 +93,6 @@ public class TestTimedSummaryNotifier {
         
         BsonDocument rtscannerFilter = notifier.rtscannerFilter.toBsonDocument(BsonDocument.class, MongoClient.getDefaultCodecRegistry());
         BsonDocument repairAttemptsFilter = notifier.repairAttemptsFilter.toBsonDocument(BsonDocument.class, MongoClient.getDefaultCodecRegistry());
-        BsonDocument patchesFilter = notifier.patchedBuildsFilter.toBsonDocument(BsonDocument.class, MongoClient.getDefaultCodecRegistry());
         
         BsonDocument[] toolFilters = new BsonDocument[tools.length];
         for(int i = 0; i < tools.length; i++) {
@@ -92,7 +101,6 @@ public class TestTimedSummaryNotifier {
         
         System.out.println(rtscannerFilter);
         System.out.println(repairAttemptsFilter);
-        System.out.println(patchesFilter);
         System.out.println(Filters.and(
                 Filters.gte("buildReproductionDate", previousDate),
                 Filters.or(
@@ -107,9 +115,6 @@ public class TestTimedSummaryNotifier {
                             Filters.eq("status", "test failure"),
                             Filters.eq("status", "PATCHED")
                             )).toBsonDocument(BsonDocument.class, MongoClient.getDefaultCodecRegistry())));
-        assertTrue(patchesFilter.equals(Filters.and(
-                Filters.gte("buildReproductionDate", previousDate),
-                Filters.eq("status", "PATCHED")).toBsonDocument(BsonDocument.class, MongoClient.getDefaultCodecRegistry())));
         for(int i = 0; i < toolFilters.length; i++) {
             assertTrue(toolFilters[i].equals(
                     Filters.and(Filters.gte("date",previousDate),
@@ -117,6 +122,31 @@ public class TestTimedSummaryNotifier {
         }
     }
     
+    /**
+     * Tests that the documents without the counted field are counted too.
+     */
+    @Test
+    public void testCountByField() {
+        MongoCursor<Document> cursor = mock(MongoCursor.class);
+        when(cursor.hasNext()).thenReturn(true, true, true, false);
+        when(cursor.next()).thenReturn(
+                new Document("_id", "PATCHED").append("count", 3),
+                new Document("_id", "test failure").append("count", 5),
+                new Document("_id", null).append("count", 2));
+        AggregateIterable<Document> aggregation = mock(AggregateIterable.class);
+        when(aggregation.iterator()).thenReturn(cursor);
+        MongoCollection<Document> collection = mock(MongoCollection.class);
+        when(collection.aggregate(anyList())).thenReturn(aggregation);
+        MongoDatabase mongo = mock(MongoDatabase.class);
+        when(mongo.getCollection("inspector")).thenReturn(collection);
+
+        Map<String, Integer> counts = notifier.countByField("inspector", notifier.repairAttemptsFilter, "status", mongo);
+
+        assertEquals(3, counts.size());
+        assertEquals(Integer.valueOf(3), counts.get("PATCHED"));
+        assertEquals(Integer.valueOf(2), counts.get(null));
+    }
+
     /**
      * Tests that the message is correctly composed.
      */
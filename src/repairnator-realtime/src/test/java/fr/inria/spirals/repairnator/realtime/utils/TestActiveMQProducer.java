@@ -0,0 +1,114 @@
+package fr.inria.spirals.repairnator.realtime.utils;
+
+import org.junit.After;
+import org.junit.Test;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TestActiveMQProducer {
+
+    private ActiveMQProducer producer;
+
+    @After
+    public void tearDown() {
+        if (this.producer != null) {
+            this.producer.close(1, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * @return a session recording the text of the messages it committed
+     */
+    private Session mockSession(List<String> committedMessages) throws JMSException {
+        Session session = mock(Session.class);
+        List<String> sentMessages = new ArrayList<>();
+
+        when(session.createQueue(anyString())).thenReturn(mock(Queue.class));
+        when(session.createProducer(any(Queue.class))).thenReturn(mock(MessageProducer.class));
+        // each message is created just before being sent
+        when(session.createTextMessage(anyString())).thenAnswer(invocation -> {
+            sentMessages.add((String) invocation.getArguments()[0]);
+            return mock(TextMessage.class);
+        });
+        doAnswer(invocation -> {
+            committedMessages.addAll(sentMessages);
+            sentMessages.clear();
+            return null;
+        }).when(session).commit();
+        return session;
+    }
+
+    @Test
+    public void testMessagesAreSentAgainAfterFailures() throws JMSException {
+        List<String> committedMessages = Collections.synchronizedList(new ArrayList<>());
+        Connection connection = mock(Connection.class);
+        Session session = this.mockSession(committedMessages);
+        when(connection.createSession(anyBoolean(), anyInt())).thenReturn(session);
+
+        // the broker is unreachable, then the connection cannot be created, then everything works
+        ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+        when(connectionFactory.createConnection())
+                .thenThrow(new IllegalStateException("broker unreachable"))
+                .thenThrow(new JMSException("connection refused"))
+                .thenReturn(connection);
+
+        this.producer = new ActiveMQProducer("tcp://localhost:61616", "test-failures", connectionFactory, 10);
+        assertThat(this.producer.send("first"), is(true));
+        assertThat(this.producer.send("second"), is(true));
+
+        assertThat(this.producer.flush(10, TimeUnit.SECONDS), is(true));
+        assertThat(committedMessages, is(Arrays.asList("first", "second")));
+        assertThat(this.producer.getSentMessages(), is(2L));
+        assertThat(this.producer.getFailedSends(), is(2L));
+        assertThat(this.producer.getRejectedMessages(), is(0L));
+        assertThat(this.producer.getBacklogSize(), is(0));
+    }
+
+    @Test
+    public void testBatchFailingToCommitIsNotLost() throws JMSException {
+        List<String> committedMessages = Collections.synchronizedList(new ArrayList<>());
+        Session failingSession = mock(Session.class);
+        when(failingSession.createQueue(anyString())).thenReturn(mock(Queue.class));
+        when(failingSession.createProducer(any(Queue.class))).thenReturn(mock(MessageProducer.class));
+        when(failingSession.createTextMessage(anyString())).thenReturn(mock(TextMessage.class));
+        doThrow(new JMSException("connection lost")).when(failingSession).commit();
+
+        Connection failingConnection = mock(Connection.class);
+        when(failingConnection.createSession(anyBoolean(), anyInt())).thenReturn(failingSession);
+        Connection connection = mock(Connection.class);
+        Session session = this.mockSession(committedMessages);
+        when(connection.createSession(anyBoolean(), anyInt())).thenReturn(session);
+
+        ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+        when(connectionFactory.createConnection()).thenReturn(failingConnection, connection);
+
+        this.producer = new ActiveMQProducer("tcp://localhost:61616", "test-commit", connectionFactory, 10);
+        assertThat(this.producer.send("message"), is(true));
+
+        assertThat(this.producer.flush(10, TimeUnit.SECONDS), is(true));
+        assertThat(committedMessages, is(Collections.singletonList("message")));
+        assertThat(this.producer.getFailedSends(), is(1L));
+    }
+}
@@ -0,0 +1,41 @@
+package fr.inria.spirals.repairnator.realtime.utils;
+
+import org.junit.Test;
+
+import java.util.Comparator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TestBoundedPriorityQueue {
+
+    @Test
+    public void testHighestPriorityFirst() {
+        BoundedPriorityQueue<Integer> queue = new BoundedPriorityQueue<>(10, Comparator.<Integer>reverseOrder());
+        queue.offer(2);
+        queue.offer(5);
+        queue.offer(1);
+
+        assertEquals(3, queue.size());
+        assertEquals(5, (int) queue.poll());
+        assertEquals(2, (int) queue.poll());
+        assertEquals(1, (int) queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testLowestPriorityIsDroppedWhenFull() {
+        BoundedPriorityQueue<Integer> queue = new BoundedPriorityQueue<>(2, Comparator.<Integer>reverseOrder());
+        assertNull(queue.offer(2));
+        assertNull(queue.offer(4));
+
+        // the new element has a higher priority: the lowest one is dropped
+        assertEquals(2, (int) queue.offer(3));
+        // the new element has the lowest priority: it is dropped
+        assertEquals(1, (int) queue.offer(1));
+
+        assertEquals(2, queue.size());
+        assertEquals(4, (int) queue.poll());
+        assertEquals(3, (int) queue.poll());
+    }
+}
@@ -0,0 +1,69 @@
+package fr.inria.spirals.repairnator.realtime.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TestIdBitmap {
+
+    @Test
+    public void testAddAndContains() {
+        IdBitmap bitmap = new IdBitmap();
+
+        assertThat(bitmap.add(42), is(true));
+        assertThat(bitmap.add(42), is(false));
+        assertThat(bitmap.add(700000000L), is(true));
+
+        assertThat(bitmap.contains(42), is(true));
+        assertThat(bitmap.contains(43), is(false));
+        assertThat(bitmap.contains(700000000L), is(true));
+        assertThat(bitmap.contains(700000064L), is(false));
+        assertThat(bitmap.size(), is(2));
+    }
+
+    @Test
+    public void testRemoveBelow() {
+        IdBitmap bitmap = new IdBitmap();
+        for (long id = 700000000L; id < 700200000L; id += 1000) {
+            bitmap.add(id);
+        }
+        assertThat(bitmap.size(), is(200));
+
+        // the bound is in the middle of a container
+        bitmap.removeBelow(700100500L);
+
+        assertThat(bitmap.size(), is(99));
+        assertThat(bitmap.contains(700100000L), is(false));
+        assertThat(bitmap.contains(700101000L), is(true));
+        assertThat(bitmap.contains(700000000L), is(false));
+        assertThat(bitmap.contains(700199000L), is(true));
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        IdBitmap bitmap = new IdBitmap();
+        bitmap.add(1);
+        bitmap.add(65536);
+        bitmap.add(702053045L);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bitmap.writeTo(new DataOutputStream(bytes));
+
+        IdBitmap readBitmap = new IdBitmap();
+        readBitmap.add(5);
+        readBitmap.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertThat(readBitmap.size(), is(3));
+        assertThat(readBitmap.contains(1), is(true));
+        assertThat(readBitmap.contains(65536), is(true));
+        assertThat(readBitmap.contains(702053045L), is(true));
+        assertThat(readBitmap.contains(5), is(false));
+    }
+}
@@ -0,0 +1,139 @@
+package fr.inria.spirals.repairnator.realtime.utils;
+
+import fr.inria.spirals.repairnator.realtime.utils.JobLogClassifier.Marker;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TestJobLogClassifier {
+
+    private static final String LOG = "travis_fold:start:worker_info\n" +
+            "$ mvn test -B\n" +
+            "[INFO] Scanning for projects...\n" +
+            "[INFO] Building test-project 1.0\n" +
+            "Running fr.inria.FooTest\n" +
+            "Tests run: 3, Failures: 0, Errors: 0, Skipped: 0, Time elapsed: 0.1 sec\n" +
+            "Running fr.inria.BarTest\n" +
+            "Tests run: 2, Failures: 1, Errors: 0, Skipped: 0, Time elapsed: 0.1 sec <<< FAILURE!\n" +
+            "[INFO] --- maven-checkstyle-plugin:3.0.0:check (default) @ test-project ---\n" +
+            "[INFO] BUILD FAILURE";
+
+    /**
+     * A classifier reading the log from memory, which records the offsets it has been asked.
+     */
+    private static class InMemoryClassifier extends JobLogClassifier {
+        private final byte[] log;
+        private final List<Long> requestedOffsets = new ArrayList<>();
+
+        InMemoryClassifier(String log) {
+            this.log = log.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        protected InputStream openLog(long jobId, long offset) throws IOException {
+            this.requestedOffsets.add(offset);
+            return new ByteArrayInputStream(this.log, (int) offset, this.log.length - (int) offset);
+        }
+    }
+
+    @Test
+    public void testMarkersAreFound() {
+        InMemoryClassifier classifier = new InMemoryClassifier(LOG);
+
+        assertThat(classifier.hasMarker(1, Marker.MAVEN), is(Optional.of(true)));
+        assertThat(classifier.hasMarker(1, Marker.RUNNING_TESTS), is(Optional.of(true)));
+        assertThat(classifier.hasMarker(1, Marker.FAILING_TESTS), is(Optional.of(true)));
+        assertThat(classifier.hasMarker(1, Marker.CHECKSTYLE), is(Optional.of(true)));
+        assertThat(classifier.hasMarker(1, Marker.GRADLE), is(Optional.of(false)));
+    }
+
+    @Test
+    public void testReadingResumesWhereItStopped() {
+        InMemoryClassifier classifier = new InMemoryClassifier(LOG);
+
+        assertThat(classifier.hasMarker(1, Marker.MAVEN), is(Optional.of(true)));
+        // the reading stopped after the output of Maven: the next question resumes there
+        assertThat(classifier.hasMarker(1, Marker.FAILING_TESTS), is(Optional.of(true)));
+        assertThat(classifier.requestedOffsets.size(), is(2));
+        assertThat(classifier.requestedOffsets.get(0), is(0L));
+        assertThat(classifier.requestedOffsets.get(1), is((long) LOG.indexOf("[INFO] Building")));
+
+        // the markers already found are answered from the cache, as the build tools excluded by Maven
+        assertThat(classifier.hasMarker(1, Marker.RUNNING_TESTS), is(Optional.of(true)));
+        assertThat(classifier.hasMarker(1, Marker.GRADLE), is(Optional.of(false)));
+        assertThat(classifier.requestedOffsets.size(), is(2));
+    }
+
+    @Test
+    public void testLogWithoutTests() {
+        InMemoryClassifier classifier = new InMemoryClassifier("$ ./gradlew assemble\n> Task :compileJava\nBUILD SUCCESSFUL\n");
+
+        assertThat(classifier.hasMarker(2, Marker.RUNNING_TESTS), is(Optional.of(false)));
+        assertThat(classifier.hasMarker(2, Marker.GRADLE), is(Optional.of(true)));
+        assertThat(classifier.hasMarker(2, Marker.MAVEN), is(Optional.of(false)));
+
+        // a fully read log is never read again
+        assertThat(classifier.hasMarker(2, Marker.CHECKSTYLE), is(Optional.of(false)));
+        assertThat(classifier.requestedOffsets.size(), is(1));
+    }
+
+    @Test
+    public void testBuildToolsAreRecognizedFromTheirOwnOutput() {
+        // a Gradle build mentioning Maven commands and repositories
+        InMemoryClassifier gradleClassifier = new InMemoryClassifier("$ mvn -v || echo \"no mvn \"\n" +
+                "Downloading https://services.gradle.org/distributions/gradle-4.10-bin.zip\n" +
+                "$ ./gradlew test\n" +
+                "Download https://repo.maven.apache.org/maven2/junit/junit/4.12/junit-4.12.pom\n" +
+                "[INFO] Scanning for projects...\n");
+        assertThat(gradleClassifier.hasMarker(4, Marker.MAVEN), is(Optional.of(false)));
+        assertThat(gradleClassifier.hasMarker(4, Marker.GRADLE), is(Optional.of(true)));
+
+        // a Maven build using a Gradle plugin
+        InMemoryClassifier mavenClassifier = new InMemoryClassifier("$ export GRADLE_OPTS=-Xmx1g\n" +
+                "\u001B[0K$ mvn test -B\n" +
+                "Apache Maven 3.5.2 (138edd61fd100ec658bfa2d307c43b76940a5d7d; 2017-10-18T07:58:13Z)\n" +
+                "[INFO] Downloading: https://repo.maven.apache.org/maven2/org/gradle/gradle-tooling-api/4.10/gradle-tooling-api-4.10.pom\n");
+        assertThat(mavenClassifier.hasMarker(5, Marker.GRADLE), is(Optional.of(false)));
+        assertThat(mavenClassifier.hasMarker(5, Marker.MAVEN), is(Optional.of(true)));
+    }
+
+    @Test
+    public void testGradleTestsAreFound() {
+        InMemoryClassifier passingClassifier = new InMemoryClassifier("$ ./gradlew check\n" +
+                "Starting a Gradle Daemon (subsequent builds will be faster)\n" +
+                "> Task :compileJava\n" +
+                "> Task :core:test\n" +
+                "BUILD SUCCESSFUL in 12s\n");
+        assertThat(passingClassifier.hasMarker(6, Marker.RUNNING_TESTS), is(Optional.of(true)));
+        assertThat(passingClassifier.hasMarker(6, Marker.FAILING_TESTS), is(Optional.of(false)));
+
+        InMemoryClassifier failingClassifier = new InMemoryClassifier("Welcome to Gradle 5.4!\n" +
+                "> Task :test\n" +
+                "fr.inria.FooTest > testFoo FAILED\n" +
+                "    java.lang.AssertionError at FooTest.java:12\n" +
+                "3 tests completed, 1 failed\n");
+        assertThat(failingClassifier.hasMarker(7, Marker.FAILING_TESTS), is(Optional.of(true)));
+        assertThat(failingClassifier.hasMarker(7, Marker.MAVEN), is(Optional.of(false)));
+    }
+
+    @Test
+    public void testUnreadableLog() {
+        JobLogClassifier classifier = new JobLogClassifier() {
+            @Override
+            protected InputStream openLog(long jobId, long offset) throws IOException {
+                throw new IOException("unreachable");
+            }
+        };
+
+        assertThat(classifier.hasMarker(3, Marker.MAVEN), is(Optional.empty()));
+    }
+}
@@ -0,0 +1,97 @@
+package fr.inria.spirals.repairnator.realtime.utils;
+
+import fr.inria.spirals.repairnator.realtime.utils.RepositoryQualificationStore.Verdict;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class TestRepositoryQualificationStore {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Test
+    public void testVerdictsAreKept() {
+        RepositoryQualificationStore store = new RepositoryQualificationStore();
+        for (long repositoryId = 1; repositoryId <= 10000; repositoryId++) {
+            store.put(repositoryId, (repositoryId % 2 == 0) ? Verdict.WHITELISTED : Verdict.BLACKLISTED);
+        }
+
+        assertThat(store.size(), is(10000));
+        assertThat(store.count(Verdict.WHITELISTED), is(5000));
+        assertThat(store.count(Verdict.BLACKLISTED), is(5000));
+        for (long repositoryId = 1; repositoryId <= 10000; repositoryId++) {
+            assertThat(store.get(repositoryId), is((repositoryId % 2 == 0) ? Verdict.WHITELISTED : Verdict.BLACKLISTED));
+        }
+        assertThat(store.get(10001), is(nullValue()));
+    }
+
+    @Test
+    public void testStrongerVerdictIsNotReplaced() {
+        RepositoryQualificationStore store = new RepositoryQualificationStore();
+        store.put(42, Verdict.BLACKLISTED);
+
+        assertThat(store.put(42, Verdict.WHITELISTED), is(false));
+        assertThat(store.put(42, Verdict.TEMP_BLACKLISTED, System.currentTimeMillis() + 60000), is(false));
+        assertThat(store.get(42), is(Verdict.BLACKLISTED));
+    }
+
+    @Test
+    public void testExpiredVerdictsAreForgotten() {
+        RepositoryQualificationStore store = new RepositoryQualificationStore();
+        long now = System.currentTimeMillis();
+        for (long repositoryId = 1; repositoryId <= 1000; repositoryId++) {
+            store.put(repositoryId, Verdict.TEMP_BLACKLISTED, (repositoryId % 2 == 0) ? now - 1000 : now + 60000);
+        }
+
+        for (long repositoryId = 1; repositoryId <= 1000; repositoryId++) {
+            Verdict expected = (repositoryId % 2 == 0) ? null : Verdict.TEMP_BLACKLISTED;
+            assertThat(store.get(repositoryId), is(expected));
+        }
+        assertThat(store.size(), is(500));
+
+        // an expired verdict can be replaced
+        store.put(2000, Verdict.TEMP_BLACKLISTED, now - 1000);
+        assertThat(store.put(2000, Verdict.TEMP_BLACKLISTED, now + 60000), is(true));
+        assertThat(store.get(2000), is(Verdict.TEMP_BLACKLISTED));
+    }
+
+    @Test
+    public void testVerdictsAreReloadedFromSnapshot() throws Exception {
+        File snapshotFile = new File(this.tmpFolder.getRoot(), "qualification.bin");
+        long now = System.currentTimeMillis();
+
+        RepositoryQualificationStore store = new RepositoryQualificationStore(snapshotFile);
+        store.put(1, Verdict.WHITELISTED);
+        store.put(2, Verdict.TEMP_BLACKLISTED, now + 60000);
+        store.put(2, Verdict.BLACKLISTED);
+        store.put(3, Verdict.TEMP_BLACKLISTED, now - 1000);
+        store.close();
+
+        // a truncated record, as written by a scanner stopped while writing
+        try (FileOutputStream output = new FileOutputStream(snapshotFile, true)) {
+            output.write(new byte[] { 0, 0, 0 });
+        }
+
+        store = new RepositoryQualificationStore(snapshotFile);
+        assertThat(store.get(1), is(Verdict.WHITELISTED));
+        assertThat(store.get(2), is(Verdict.BLACKLISTED));
+        assertThat(store.get(3), is(nullValue()));
+        assertThat(store.size(), is(2));
+
+        store.put(4, Verdict.WHITELISTED);
+        store.close();
+
+        store = new RepositoryQualificationStore(snapshotFile);
+        assertThat(store.get(4), is(Verdict.WHITELISTED));
+        assertThat(store.size(), is(3));
+        store.close();
+    }
+}
@@ -0,0 +1,116 @@
+package fr.inria.spirals.repairnator.scanner;
+
+import org.junit.Test;
+import org.kohsuke.github.GHCompare;
+import org.kohsuke.github.GHRateLimit;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class GitHubCompareFetcherTest {
+
+    /**
+     * A fetcher which doesn't ask GitHub: it records how many compares are fetched, and how many at the same time.
+     */
+    private static class InMemoryCompareFetcher extends GitHubCompareFetcher {
+        private final int remainingRequests;
+        private final AtomicInteger nbFetchedCompares = new AtomicInteger();
+        private final AtomicInteger nbFetchingCompares = new AtomicInteger();
+        private final AtomicInteger maxFetchingCompares = new AtomicInteger();
+
+        InMemoryCompareFetcher(int maxConcurrentRequests, int remainingRequests) {
+            super(maxConcurrentRequests);
+            this.remainingRequests = remainingRequests;
+        }
+
+        @Override
+        protected GHCompare fetchCompare(String slug, String previousSha, String sha) {
+            this.nbFetchedCompares.incrementAndGet();
+            int nbFetching = this.nbFetchingCompares.incrementAndGet();
+            this.maxFetchingCompares.accumulateAndGet(nbFetching, Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                this.nbFetchingCompares.decrementAndGet();
+            }
+            return mock(GHCompare.class);
+        }
+
+        @Override
+        protected GHRateLimit fetchRateLimit() {
+            GHRateLimit rateLimit = mock(GHRateLimit.class);
+            rateLimit.limit = 5000;
+            rateLimit.remaining = this.remainingRequests;
+            rateLimit.reset = new Date(System.currentTimeMillis() + 3600 * 1000L);
+            return rateLimit;
+        }
+    }
+
+    private void getComparesConcurrently(GitHubCompareFetcher fetcher, int nbCompares) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < nbCompares; i++) {
+            String sha = "sha" + i;
+            threads.add(new Thread(() -> assertTrue(fetcher.getCompare("owner/repo", "previous", sha).isPresent())));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    @Test
+    public void testComparesAreMemoized() {
+        InMemoryCompareFetcher fetcher = new InMemoryCompareFetcher(4, 5000);
+
+        Optional<GHCompare> compare = fetcher.getCompare("owner/repo", "abc", "def");
+        assertTrue(compare.isPresent());
+        assertSame(compare.get(), fetcher.getCompare("owner/repo", "abc", "def").get());
+        assertEquals(1, fetcher.nbFetchedCompares.get());
+
+        // another pair of commits, or the same pair in another repository, is fetched
+        fetcher.getCompare("owner/repo", "def", "ghi");
+        fetcher.getCompare("owner/other", "abc", "def");
+        assertEquals(3, fetcher.nbFetchedCompares.get());
+    }
+
+    @Test
+    public void testComparesAreFetchedConcurrentlyUpToTheLimit() throws InterruptedException {
+        InMemoryCompareFetcher fetcher = new InMemoryCompareFetcher(4, 5000);
+
+        this.getComparesConcurrently(fetcher, 16);
+
+        assertEquals(16, fetcher.nbFetchedCompares.get());
+        assertTrue(fetcher.maxFetchingCompares.get() <= 4);
+    }
+
+    @Test
+    public void testComparesAreFetchedOneAtATimeWhenTheRateLimitIsLow() throws InterruptedException {
+        InMemoryCompareFetcher fetcher = new InMemoryCompareFetcher(4, 100);
+
+        this.getComparesConcurrently(fetcher, 16);
+
+        assertEquals(16, fetcher.nbFetchedCompares.get());
+        assertEquals(1, fetcher.maxFetchingCompares.get());
+    }
+
+    @Test
+    public void testNoCompareIsFetchedWhenTheRateLimitIsExhausted() {
+        InMemoryCompareFetcher fetcher = new InMemoryCompareFetcher(4, 2);
+
+        assertFalse(fetcher.getCompare("owner/repo", "abc", "def").isPresent());
+        assertEquals(0, fetcher.nbFetchedCompares.get());
+    }
+}
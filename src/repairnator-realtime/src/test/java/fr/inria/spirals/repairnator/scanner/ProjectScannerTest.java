@@ -1,6 +1,7 @@
 package fr.inria.spirals.repairnator.scanner;
 
 import fr.inria.jtravis.entities.Build;
+import fr.inria.jtravis.entities.Repository;
 import fr.inria.jtravis.entities.StateType;
 import fr.inria.spirals.repairnator.BuildToBeInspected;
 import fr.inria.spirals.repairnator.utils.Utils;
@@ -11,12 +12,21 @@ import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class ProjectScannerTest {
 
@@ -213,4 +223,90 @@ public class ProjectScannerTest {
         BuildToBeInspected obtainedBTB = projectScanner.getBuildToBeInspected(buildNextPassing);
         assertEquals(null, obtainedBTB);
     }
+
+    /**
+     * A scanner giving the builds of the repositories from memory, which records how many repositories are scanned
+     * at the same time.
+     */
+    private static class InMemoryProjectScanner extends ProjectScanner {
+        private final Map<Repository, List<BuildToBeInspected>> buildsByRepo = new HashMap<>();
+        private final AtomicInteger nbScanningRepos = new AtomicInteger();
+        private final AtomicInteger maxScanningRepos = new AtomicInteger();
+
+        InMemoryProjectScanner(int nbThreads) {
+            super(new Date(), new Date(), "test", nbThreads);
+        }
+
+        @Override
+        protected List<BuildToBeInspected> getBuildsToBeInspectedFromRepo(Repository repo) {
+            int nbScanning = this.nbScanningRepos.incrementAndGet();
+            this.maxScanningRepos.accumulateAndGet(nbScanning, Math::max);
+            try {
+                // the first repositories are the slowest ones, so they finish last
+                Thread.sleep(10L * (10 - repo.getId()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                this.nbScanningRepos.decrementAndGet();
+            }
+            return this.buildsByRepo.get(repo);
+        }
+    }
+
+    private BuildToBeInspected mockBuildToBeInspected(ScannedBuildStatus status) {
+        BuildToBeInspected buildToBeInspected = mock(BuildToBeInspected.class);
+        when(buildToBeInspected.getStatus()).thenReturn(status);
+        return buildToBeInspected;
+    }
+
+    @Test
+    public void testBuildsOfTheRepositoriesAreMergedInOrder() {
+        InMemoryProjectScanner projectScanner = new InMemoryProjectScanner(3);
+        List<Repository> repos = new ArrayList<>();
+        List<BuildToBeInspected> expectedOnlyFail = new ArrayList<>();
+        List<BuildToBeInspected> expectedFailingAndPassing = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Repository repo = mock(Repository.class);
+            when(repo.getId()).thenReturn((long) i);
+            BuildToBeInspected onlyFail = this.mockBuildToBeInspected(ScannedBuildStatus.ONLY_FAIL);
+            BuildToBeInspected failingAndPassing = this.mockBuildToBeInspected(ScannedBuildStatus.FAILING_AND_PASSING);
+            projectScanner.buildsByRepo.put(repo, Arrays.asList(onlyFail, failingAndPassing));
+            expectedOnlyFail.add(onlyFail);
+            expectedFailingAndPassing.add(failingAndPassing);
+            repos.add(repo);
+        }
+
+        Map<ScannedBuildStatus, List<BuildToBeInspected>> results = projectScanner.getListOfBuildsFromRepo(repos);
+
+        // the builds are merged in the order of the repositories, whatever the order the repositories are scanned
+        assertEquals(expectedOnlyFail, results.get(ScannedBuildStatus.ONLY_FAIL));
+        assertEquals(expectedFailingAndPassing, results.get(ScannedBuildStatus.FAILING_AND_PASSING));
+        assertEquals(Collections.emptyList(), results.get(ScannedBuildStatus.PASSING_AND_PASSING_WITH_TEST_CHANGES));
+        assertTrue(projectScanner.maxScanningRepos.get() <= 3);
+    }
+
+    @Test
+    public void testForEachInParallelKeepsTheOrderOfTheElements() {
+        ProjectScanner projectScanner = new ProjectScanner(new Date(), new Date(), "test", 4);
+        List<Integer> elements = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            elements.add(i);
+        }
+
+        List<Integer> results = projectScanner.forEachInParallel(elements, element -> {
+            try {
+                Thread.sleep(20 - element);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return element * 2;
+        });
+
+        List<Integer> expectedResults = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            expectedResults.add(i * 2);
+        }
+        assertEquals(expectedResults, results);
+        assertTrue(projectScanner.forEachInParallel(Collections.<Integer>emptyList(), element -> element).isEmpty());
+    }
 }